@@ -183,6 +183,104 @@ public final class SKConstants {
 			 */
 			public static final String KEY_FETCHSIZE = PREFIX + ".fetchsize";
 
+			/**
+			 * La chiave di configurazione del timeout predefinito delle query (in secondi)
+			 */
+			public static final String KEY_QUERY_TIMEOUT = PREFIX + ".queryTimeout";
+
+			/**
+			 * La chiave di configurazione della dimensione di fetch delle letture in streaming.
+			 * Con MySQL va impostata a <code>-2147483648</code> (<code>Integer.MIN_VALUE</code>) per leggere una riga alla volta.
+			 */
+			public static final String KEY_STREAM_FETCHSIZE = PREFIX + ".streamFetchsize";
+
+			/**
+			 * La chiave di configurazione del numero massimo di PreparedStatement mantenuti in cache per connessione
+			 */
+			public static final String KEY_STATEMENT_CACHE_SIZE = PREFIX + ".statementCacheSize";
+
+			/**
+			 * La chiave di configurazione del numero di righe inviate al database per ogni blocco di una scrittura in batch
+			 */
+			public static final String KEY_BATCH_SIZE = PREFIX + ".batchSize";
+
+			/**
+			 * La chiave di configurazione della modalit&agrave; thread-safe dei connettori: ogni chiamata utilizza un proprio
+			 * statement e lo stesso connettore pu&ograve; essere condiviso da pi&ugrave; thread
+			 */
+			public static final String KEY_THREAD_SAFE = PREFIX + ".threadSafe";
+
+			/**
+			 * La chiave di configurazione del tempo di inattivita' (in millisecondi) dopo il quale la connessione di un connettore
+			 * viene validata prima di essere utilizzata
+			 */
+			public static final String KEY_VALIDATION_INTERVAL = PREFIX + ".validationInterval";
+
+			/**
+			 * La chiave di configurazione del numero massimo di tentativi delle operazioni fallite per errori transitori
+			 * (deadlock, timeout di lock, connessione persa); <code>1</code> disattiva i nuovi tentativi
+			 */
+			public static final String KEY_RETRY_ATTEMPTS = PREFIX + ".retryAttempts";
+
+			/**
+			 * La chiave di configurazione dell'attesa (in millisecondi) prima del secondo tentativo, raddoppiata ad ogni tentativo successivo
+			 */
+			public static final String KEY_RETRY_DELAY = PREFIX + ".retryDelay";
+
+			/**
+			 * La chiave di configurazione dell'attesa massima (in millisecondi) tra due tentativi
+			 */
+			public static final String KEY_RETRY_MAX_DELAY = PREFIX + ".retryMaxDelay";
+
+			/**
+			 * La chiave di configurazione della profilazione delle query: tempi di esecuzione, righe ed errori
+			 * per chiave SQL, esposti tramite l'MBean <code>org.wolfetti.swissknife.db:type=SqlProfiler</code>
+			 */
+			public static final String KEY_PROFILING = PREFIX + ".profiling";
+
+			/**
+			 * La chiave di configurazione del tempo (in millisecondi) oltre il quale una query viene registrata
+			 * nel log delle query lente
+			 */
+			public static final String KEY_SLOW_QUERY_MILLIS = PREFIX + ".slowQueryMillis";
+
+			/**
+			 * La chiave di configurazione del ricaricamento automatico dei file delle query modificati
+			 * sul file system (disattivo se non indicato)
+			 */
+			public static final String KEY_SQL_HOT_RELOAD = PREFIX + ".sqlHotReload";
+
+			/**
+			 * La chiave di configurazione del tracciamento dei connettori aperti: punto di apertura e tempo di utilizzo
+			 * di ogni connettore, esposti tramite l'MBean <code>org.wolfetti.swissknife.db:type=ConnectorTracker</code>
+			 */
+			public static final String KEY_LEAK_DETECTION = PREFIX + ".leakDetection";
+
+			/**
+			 * La chiave di configurazione del tempo (in millisecondi) oltre il quale un connettore ancora aperto
+			 * viene segnalato come possibile leak
+			 */
+			public static final String KEY_LEAK_THRESHOLD_MILLIS = PREFIX + ".leakThresholdMillis";
+
+			/**
+			 * La chiave di configurazione del dialetto SQL del database: <code>MYSQL</code>, <code>POSTGRESQL</code>,
+			 * <code>H2</code>, <code>ORACLE</code>, <code>SQLSERVER</code> o il nome di una classe che implementa
+			 * <code>org.wolfetti.swissknife.db.dialect.Dialect</code>. Se non configurato viene riconosciuto dalla connessione.
+			 */
+			public static final String KEY_DIALECT = PREFIX + ".dialect";
+
+			/**
+			 * La chiave di configurazione del numero di thread utilizzati per le query eseguite in parallelo
+			 * (es. le query di conteggio della paginazione)
+			 */
+			public static final String KEY_EXECUTOR_THREADS = PREFIX + ".executorThreads";
+
+			/**
+			 * La chiave di configurazione del numero massimo di query in attesa di un thread libero:
+			 * oltre questo limite le query vengono eseguite dal thread chiamante
+			 */
+			public static final String KEY_EXECUTOR_QUEUE_SIZE = PREFIX + ".executorQueueSize";
+
 			/**
 			 * La chiave di configurazione della dimensione minima del pool
 			 */
@@ -198,6 +296,55 @@ public final class SKConstants {
 			 */
 			public static final String KEY_POOL_ACQUIRE_INCREMENT = PREFIX + ".poolAcquireIncrement";
 
+			/**
+			 * La chiave di configurazione dell'implementazione del pool: <code>C3P0</code>, <code>NATIVE</code>
+			 * o il nome di una classe che implementa <code>org.wolfetti.swissknife.db.pool.ConnectionPool</code>
+			 */
+			public static final String KEY_POOL_TYPE = PREFIX + ".poolType";
+
+			/**
+			 * La chiave di configurazione del tempo massimo di attesa di una connessione dal pool (in millisecondi)
+			 */
+			public static final String KEY_POOL_ACQUIRE_TIMEOUT = PREFIX + ".poolAcquireTimeout";
+
+			/**
+			 * La chiave di configurazione del tempo di inattivita' dopo il quale una connessione del pool viene validata (in millisecondi)
+			 */
+			public static final String KEY_POOL_VALIDATION_INTERVAL = PREFIX + ".poolValidationInterval";
+
+			/**
+			 * La chiave di configurazione del tempo massimo di inattivita' di una connessione del pool (in secondi)
+			 */
+			public static final String KEY_POOL_MAX_IDLE_TIME = PREFIX + ".poolMaxIdleTime";
+
+			/**
+			 * La chiave di configurazione dell'elenco (separato da virgole) dei datasource con nome.
+			 * Ogni datasource viene configurato con le chiavi <code>sk.db.&lt;nome&gt;.*</code>
+			 */
+			public static final String KEY_DATASOURCES = PREFIX + ".datasources";
+
+			/**
+			 * La chiave che contiene il nome del datasource al quale appartiene una configurazione.
+			 * Viene valorizzata automaticamente al caricamento della configurazione.
+			 */
+			public static final String KEY_NAME = PREFIX + ".name";
+
+			/**
+			 * La chiave di configurazione del datasource primario di un connettore di tipo <code>ROUTING</code>
+			 */
+			public static final String KEY_PRIMARY = PREFIX + ".primary";
+
+			/**
+			 * La chiave di configurazione dell'elenco (separato da virgole) delle repliche in sola lettura
+			 * di un connettore di tipo <code>ROUTING</code>
+			 */
+			public static final String KEY_REPLICAS = PREFIX + ".replicas";
+
+			/**
+			 * La chiave di configurazione della strategia di scelta della replica: <code>ROUND_ROBIN</code> o <code>LEAST_BUSY</code>
+			 */
+			public static final String KEY_READ_STRATEGY = PREFIX + ".readStrategy";
+
 			/**
 			 * Le chiavi di configurazione obbligatorie per il tipo di connessione JDBC
 			 */
@@ -213,11 +360,26 @@ public final class SKConstants {
 			 */
 			public static final String[] POOLED_REQUIRED = {KEY_DRIVER, KEY_URL, KEY_USER, KEY_PASSWORD};
 
+			/**
+			 * Le chiavi di configurazione obbligatorie per il tipo di connessione ROUTING
+			 */
+			public static final String[] ROUTING_REQUIRED = {KEY_PRIMARY};
+
 			/**
 			 * Il tipo di connettore utilizzato se non ne viene specificato uno.
 			 */
 			public static final String DEFAULT_TYPE = "JDBC";
 
+			/**
+			 * Il nome del datasource configurato direttamente con le chiavi <code>sk.db.*</code>
+			 */
+			public static final String DEFAULT_NAME = "default";
+
+			/**
+			 * La strategia di scelta della replica utilizzata se non ne viene specificata una.
+			 */
+			public static final String DEFAULT_READ_STRATEGY = "ROUND_ROBIN";
+
 			/**
 			 * La classe di result set utilizzata da c3p0
 			 */
@@ -186,6 +186,36 @@ public class FileUtils {
         return props;
     }
 
+    /**
+     * Locate a user-provided properties file and return its URL instead of its content.
+     * <p>
+     * The file is selected exactly as {@link #getPropertiesFile(ClassLoader, String)} does:
+     * the first readable occurrence in the classpath of the specified classLoader.
+     *
+     * @return the URL of the properties file, or <code>null</code> if not found
+     */
+    public static final URL getPropertiesFileUrl(ClassLoader classLoader, String fileName) {
+    	try {
+    		Enumeration<?> urls = getResources(classLoader, fileName);
+
+    		if (urls == null) {
+    			return null;
+    		}
+
+    		while (urls.hasMoreElements()) {
+    			URL url = (URL) urls.nextElement();
+
+    			if (getProperties(url) != null) {
+    				return url;
+    			}
+    		}
+    	} catch (SecurityException e) {
+    		// SecurityException thrown while trying to find/read config files.
+    	}
+
+    	return null;
+    }
+
     /**
      * Given a URL that refers to a .properties file, load that file.
      * This is done under an AccessController so that this method will
@@ -18,40 +18,124 @@
  */
 package org.wolfetti.swissknife.db;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.configuration.Configuration;
 import org.wolfetti.swissknife.common.SKConstants;
 import org.wolfetti.swissknife.common.logger.Log;
 import org.wolfetti.swissknife.common.logger.LogFactory;
+import org.wolfetti.swissknife.db.dao.SqlCatalog;
+import org.wolfetti.swissknife.db.dialect.Dialect;
+import org.wolfetti.swissknife.db.dialect.Dialects;
+import org.wolfetti.swissknife.db.entities.BatchResult;
+import org.wolfetti.swissknife.db.entities.ExecutionOptions;
+import org.wolfetti.swissknife.db.entities.SqlErrorType;
+import org.wolfetti.swissknife.db.entities.WriteResult;
 import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
 import org.wolfetti.swissknife.db.exceptions.DuplicatedKeyException;
 import org.wolfetti.swissknife.db.exceptions.IllegalOperationException;
 import org.wolfetti.swissknife.db.exceptions.InvalidFileException;
 import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
 import org.wolfetti.swissknife.db.exceptions.TransactionException;
-import org.wolfetti.swissknife.db.utils.PrimaryKeyExceptionHelper;
+import org.wolfetti.swissknife.db.utils.BlobSource;
+import org.wolfetti.swissknife.db.utils.ConnectorTracker;
+import org.wolfetti.swissknife.db.utils.DbExecutor;
+import org.wolfetti.swissknife.db.utils.ParameterBinder;
+import org.wolfetti.swissknife.db.utils.ResultSetHelper;
+import org.wolfetti.swissknife.db.utils.RetryPolicy;
+import org.wolfetti.swissknife.db.utils.SqlClauses;
+import org.wolfetti.swissknife.db.utils.SqlErrors;
+import org.wolfetti.swissknife.db.utils.SqlProfiler;
+import org.wolfetti.swissknife.db.utils.Upserts;
 
 /**
  * Classe che interroga il database
+ * <br><br>
+ * Normalmente un connettore appartiene ad un solo thread: le query di lettura condividono lo stesso statement
+ * (una nuova query chiude il result set della precedente) e i risultati delle scritture vengono memorizzati
+ * nel connettore (vedi {@link #getLastUpdatedRows()}, {@link #getLastGeneratedKey()}).
+ * <br><br>
+ * Con la chiave <code>sk.db.threadSafe = true</code> il connettore pu&ograve; essere condiviso da pi&ugrave; thread:
+ * ogni chiamata utilizza un proprio statement, i result set restano validi fino alla loro chiusura (che chiude
+ * anche lo statement), i risultati delle scritture sono restituiti da {@link #executeUpdate(String, Object...)}
+ * o memorizzati per thread, e gli statements non ancora chiusi vengono chiusi da {@link #closeOpenResults()}
+ * e da {@link #close()}. La transazione, se attiva, resta condivisa da tutti i thread. Se la connessione viene
+ * rinnovata perch&eacute; non pi&ugrave; valida, quella precedente viene chiusa solo dopo la chiusura dei result set
+ * ancora aperti su di essa.
+ * <br><br>
+ * Il connettore trattiene la connessione (del pool, se presente) fino alla chiamata di {@link #close()}:
+ * pu&ograve; essere utilizzato in un blocco <code>try-with-resources</code>. Con la chiave
+ * <code>sk.db.leakDetection = true</code> i connettori aperti vengono tracciati da {@link ConnectorTracker}.
+ * <br><br>
+ * Le letture e, fuori dalle transazioni, le scritture fallite per un deadlock o un timeout di lock vengono ripetute
+ * secondo la {@link RetryPolicy} del datasource (<code>sk.db.retryAttempts</code>); le transazioni eseguite con
+ * {@link #runInTransaction(TransactionCallback)} vengono ripetute per intero.
  *
  * @author Fabio Frijo
  */
-public abstract class DbConnector {
+public abstract class DbConnector implements AutoCloseable {
 
 	/* ==================================== */
 	/* ============== FIELDS ============== */
 	/* ==================================== */
+	/**
+	 * Il numero di righe per blocco delle scritture in batch se non configurato diversamente
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/**
+	 * La dimensione del buffer utilizzato per copiare i BLOB su uno stream
+	 */
+	private static final int BLOB_BUFFER_SIZE = 8192;
+
+	/**
+	 * Il tempo di inattivit&agrave; (in millisecondi) dopo il quale la connessione viene validata, se non configurato diversamente
+	 */
+	public static final long DEFAULT_VALIDATION_INTERVAL = 30000L;
+
+	/**
+	 * Il timeout (in secondi) della validazione della connessione
+	 */
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	/**
+	 * Messaggio di errore per la connessione persa durante una transazione
+	 */
+	private static final String LOST_TRANSACTION = "Connessione non piu' valida durante la transazione: le modifiche non confermate sono andate perse, effettuare il rollback";
+
+	/**
+	 * Le interfacce degli statement MySQL che permettono di inviare un <code>LOAD DATA LOCAL INFILE</code> da uno stream
+	 */
+	private static final String[] LOCAL_INFILE_STATEMENTS = {
+		"com.mysql.cj.jdbc.JdbcStatement",
+		"com.mysql.jdbc.Statement"
+	};
+
 	/**
 	 * Il logger
 	 */
@@ -65,7 +149,13 @@ public abstract class DbConnector {
 	/**
 	 * La connessione al database.
 	 */
-	private Connection connection;
+	private volatile Connection connection;
+
+	/**
+	 * Le connessioni sostituite dal rinnovo in modalit&agrave; thread-safe, chiuse quando
+	 * tutti i loro statements sono stati rilasciati
+	 */
+	private final Set<Connection> retired = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Connection, Boolean>()));
 
 	/**
 	 * Il numero di righe interessate dall'ultimo UPDATE effettuato.
@@ -75,7 +165,7 @@ public abstract class DbConnector {
 	/**
 	 * L'ultimo ID inserito
 	 */
-	private int lastInsertId = -1;
+	private long lastInsertId = -1;
 
 	/**
 	 * Flag che viene attivato dopo che le risorse sono state rilasciate dal metodo {@link #close()}
@@ -87,6 +177,11 @@ public abstract class DbConnector {
 	 */
 	protected boolean isTransaction = false;
 
+	/**
+	 * Flag che indica che la connessione viene aperta al primo utilizzo e non alla creazione del connettore
+	 */
+	private boolean lazy = false;
+
 	/**
 	 * Lo statement utilizzato dalle query
 	 */
@@ -97,6 +192,76 @@ public abstract class DbConnector {
 	 */
 	private int fetchSize;
 
+	/**
+	 * La dimensione della fetch size delle letture in streaming (in righe)
+	 */
+	private int streamFetchSize;
+
+	/**
+	 * Il timeout predefinito delle query (in secondi)
+	 */
+	private int queryTimeout;
+
+	/**
+	 * Il numero di righe inviate al database per ogni blocco delle scritture in batch
+	 */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Il tempo di inattivit&agrave; (in nanosecondi) dopo il quale la connessione viene validata
+	 */
+	private long validationInterval;
+
+	/**
+	 * L'istante (in nanosecondi) dell'ultimo utilizzo della connessione
+	 */
+	private volatile long lastUse;
+
+	/**
+	 * La cache dei PreparedStatement utilizzati dalle query parametrizzate
+	 */
+	private StatementCache statementCache;
+
+	/**
+	 * Il dialetto SQL del database, risolto al primo utilizzo
+	 */
+	private Dialect dialect;
+
+	/**
+	 * Flag che attiva la modalit&agrave; thread-safe: ogni chiamata utilizza un proprio statement
+	 */
+	private boolean threadSafe = false;
+
+	/**
+	 * Il profiler delle query, se la profilazione &egrave; attiva (<code>sk.db.profiling</code>)
+	 */
+	private SqlProfiler profiler;
+
+	/**
+	 * La politica dei nuovi tentativi per gli errori transitori del datasource
+	 */
+	private RetryPolicy retryPolicy;
+
+	/**
+	 * La registrazione del connettore presso {@link ConnectorTracker}, se il tracciamento &egrave; attivo
+	 */
+	private ConnectorTracker.Lease lease;
+
+	/**
+	 * Gli statements aperti in modalit&agrave; thread-safe, in attesa della chiusura dei result set
+	 */
+	private final StatementTracker tracker = new StatementTracker();
+
+	/**
+	 * Il risultato dell'ultima scrittura di ogni thread in modalit&agrave; thread-safe: righe interessate e ID inserito
+	 */
+	private final ThreadLocal<long[]> lastResults = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[] {-1, -1};
+		}
+	};
+
 	/* ========================================== */
 	/* ============== CONSTRUCTORS ============== */
 	/* ========================================== */
@@ -119,12 +284,40 @@ public abstract class DbConnector {
 	 * @throws Exception Quando c'&egrave; un problema di intefacciamento con il database.
 	 */
 	protected DbConnector(Configuration config, boolean isTransaction){
+		this(config, isTransaction, false);
+	}
+
+	/**
+	 * Costruisce l'oggetto e imposta il flag per la transazione, aprendo la connessione subito
+	 * oppure al primo utilizzo.
+	 *
+	 * @param config Il file di configurazione da utilizzare.
+	 * @param isTransaction Setta l'autoCommit a <code>true</code> o a <code>false</code>.
+	 * @param lazy <code>true</code> per aprire la connessione alla prima query, commit o richiesta della connessione.
+	 *
+	 * @throws Exception Quando c'&egrave; un problema di intefacciamento con il database.
+	 */
+	protected DbConnector(Configuration config, boolean isTransaction, boolean lazy){
 		log = LogFactory.getLog(this.getClass());
 		this.isTransaction = isTransaction;
+		this.lazy = lazy;
 		this.config = config;
+		this.threadSafe = config.getBoolean(SKConstants.CONF.DB.KEY_THREAD_SAFE, false);
+		this.profiler = SqlProfiler.configure(config);
+		SqlCatalog.configure(config);
+		this.retryPolicy = RetryPolicy.get(config);
 
 		try {
-			this.setupConnection();
+			this.configure();
+
+			if(!lazy){
+				this.setupConnection();
+			}
+
+			ConnectorTracker connectors = ConnectorTracker.configure(config);
+			if(connectors != null){
+				this.lease = connectors.track(this, this.getDatasourceName(), isTransaction);
+			}
 		}
 
 		catch (DbInitializationException e) {
@@ -163,6 +356,10 @@ public abstract class DbConnector {
 	public Connection getConnection()
 	throws Exception{
 		this.reset();
+
+		// La connessione potrebbe essere chiusa dal chiamante: viene validata al prossimo utilizzo
+		this.lastUse = System.nanoTime() - validationInterval - 1;
+
 		return connection;
 	}
 
@@ -179,15 +376,41 @@ public abstract class DbConnector {
 	 * @see org.wolfetti.interfaces.db.DbConnector#getLastUpdatedRows()
 	 */
 	public int getLastUpdatedRows() {
-		return lastUpdatedRows;
+		return threadSafe ? (int) lastResults.get()[0] : lastUpdatedRows;
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * @see org.wolfetti.interfaces.db.DbConnector#getLastInsertId()
+	/**
+	 * Restituisce l'ultima chiave generata convertita in <code>int</code>: le chiavi <code>BIGINT</code>
+	 * che non rientrano in un <code>int</code> vengono troncate.
+	 *
+	 * @deprecated utilizzare {@link #getLastGeneratedKey()}, che restituisce un <code>long</code>
 	 */
+	@Deprecated
 	public int getLastInsertId() {
-		return lastInsertId;
+		return (int) this.getLastGeneratedKey();
+	}
+
+	/**
+	 * Restituisce l'ultima chiave generata come <code>long</code>, per le chiavi <code>BIGINT</code>.
+	 * Se la chiave generata non &egrave; numerica restituisce <code>0</code>: in quel caso va letta dal
+	 * {@link WriteResult} restituito da {@link #write(String, ExecutionOptions)} o da {@link #executeUpdate(String, ExecutionOptions, Object...)}.
+	 */
+	public long getLastGeneratedKey() {
+		return threadSafe ? lastResults.get()[1] : lastInsertId;
+	}
+
+	/**
+	 * Restituisce il timeout predefinito delle query in secondi, configurato con <code>sk.db.queryTimeout</code>.
+	 */
+	public int getQueryTimeout(){
+		return queryTimeout;
+	}
+
+	/**
+	 * @return <code>true</code> se il connettore pu&ograve; essere condiviso da pi&ugrave; thread
+	 */
+	public boolean isThreadSafe() {
+		return threadSafe;
 	}
 
 	/*
@@ -195,7 +418,7 @@ public abstract class DbConnector {
 	 * @see org.wolfetti.interfaces.db.DbConnector#isClosed()
 	 */
 	public boolean isClosed(){
-		return isClosed || connection == null;
+		return isClosed || (connection == null && !lazy);
 	}
 
 	/*
@@ -206,43 +429,82 @@ public abstract class DbConnector {
 		return fetchSize;
 	}
 
+	/**
+	 * Restituisce la fetch size utilizzata dalle letture in streaming.
+	 */
+	public int getStreamFetchSize(){
+		return streamFetchSize;
+	}
+
+	/**
+	 * Restituisce il numero di righe inviate al database per ogni blocco delle scritture in batch.
+	 */
+	public int getBatchSize(){
+		return batchSize;
+	}
+
+	/**
+	 * Restituisce il nome del datasource al quale appartiene il connettore.
+	 */
+	public String getDatasourceName(){
+		return config.getString(SKConstants.CONF.DB.KEY_NAME, SKConstants.CONF.DB.DEFAULT_NAME);
+	}
+
+	/**
+	 * Restituisce l'executor condiviso per le query da eseguire in parallelo su altri connettori.
+	 *
+	 * @see DbExecutor
+	 */
+	public ExecutorService getExecutor(){
+		return DbExecutor.get(config);
+	}
+
+	/**
+	 * Restituisce il dialetto SQL del database, configurato con la chiave <code>sk.db.dialect</code>
+	 * o riconosciuto dai metadati della connessione.
+	 */
+	public Dialect getDialect(){
+		if(dialect == null){
+			this.reset();
+			dialect = Dialects.get(config, connection);
+		}
+
+		return dialect;
+	}
+
 	/* ==================================== */
 	/* =============== SQL ================ */
 	/* ==================================== */
 
-	/*
-	 * (non-Javadoc)
-	 * @see org.wolfetti.interfaces.db.DbConnector#total(java.lang.String, java.lang.String)
-	 */
-//	TODO funzione di count
-//	public long total(String totalKey, String sql)
-//	throws Exception {
-//		this.checkSqlKey(totalKey);
-//
-//		if(sql.toUpperCase().contains("ORDER BY")){
-//			int index = sql.toUpperCase().lastIndexOf("ORDER BY");
-//			sql = sql.substring(0, index).trim();
-//			log.trace("Rimossa la clausola ORDER BY per aumentare la performance.");
-//		}
-//
-//		log.trace("SQL da utilizzare per il conteggio: " + sql);
-//
-//		long total = 0L;
-//		ResultSet rs = null;
-//
-//		try {
-//			rs = this.query(SqlFormatter.format(false, sqlFile.getString(totalKey), sql));
-//
-//			if(rs.next()){
-//				total = rs.getLong(1);
-//			}
-//
-//		} finally {
-//			ResultSetHelper.close(rs);
-//		}
-//
-//		return total;
-//	}
+	/**
+	 * Conta le righe restituite dalla query in ingresso, eseguendo la query di conteggio
+	 * costruita dal {@link Dialect} del database (senza ORDER BY, racchiusa in <code>SELECT COUNT(*)</code>).
+	 *
+	 * @param sql
+	 * 	La query da contare, senza paginazione
+	 *
+	 * @param parameters
+	 * 	I valori degli eventuali parametri <code>?</code> della query
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce
+	 */
+	public long total(String sql, Object ... parameters)
+	throws SqlQueryException {
+		String countSql = this.getDialect().count(sql);
+
+		ResultSet rs = parameters == null || parameters.length == 0 ?
+			this.query(countSql) :
+			this.preparedQuery(countSql, parameters);
+
+		try {
+			return rs.next() ? rs.getLong(1) : 0L;
+		} catch (SQLException e) {
+			throw new SqlQueryException(countSql, "Errore durante la query di conteggio", e);
+		} finally {
+			ResultSetHelper.close(rs);
+		}
+	}
 
 	/*
 	 * (non-Javadoc)
@@ -250,15 +512,53 @@ public abstract class DbConnector {
 	 */
 	public ResultSet query(String sql)
 	throws SqlQueryException {
-		this.reset();
+		return this.query(sql, (ExecutionOptions) null);
+	}
+
+	/**
+	 * Esegue una query di lettura con le opzioni di esecuzione in ingresso.
+	 *
+	 * @param sql
+	 * 	La query
+	 *
+	 * @param options
+	 * 	Le opzioni di esecuzione, o <code>null</code> per quelle predefinite
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce (anche per timeout)
+	 */
+	public ResultSet query(String sql, ExecutionOptions options)
+	throws SqlQueryException {
+		for(int attempt = 1; ; attempt++){
+			try {
+				ResultSet rs = this.executeQuery(sql, options);
+				this.recovered(attempt);
+				return rs;
+			} catch (SqlQueryException e) {
+				this.retryOrThrow(e, attempt, true);
+			}
+		}
+	}
+
+	private ResultSet executeQuery(String sql, ExecutionOptions options)
+	throws SqlQueryException {
+		this.reset(sql);
 
+		SqlProfiler.Probe probe = this.probe(sql, null);
+		Statement st = null;
 		ResultSet rs = null;
 		try {
 			log.debug(sql);
-			rs = statement.executeQuery(sql);
-			rs.setFetchSize(fetchSize);
+			st = this.openStatement();
+			this.applyOptions(st, options, fetchSize);
+			rs = st.executeQuery(sql);
+			this.closeWithResults(st, rs);
+			succeeded(probe, 0);
 		} catch (SQLException e) {
+			this.release(st);
 			throw new SqlQueryException(sql, "Errore durante la query di lettura", e);
+		} finally {
+			finish(probe);
 		}
 
 		return rs;
@@ -266,326 +566,1692 @@ public abstract class DbConnector {
 
 	public void write(String sql)
 	throws DuplicatedKeyException, SqlQueryException {
-		this.reset();
+		this.write(sql, (ExecutionOptions) null);
+	}
+
+	/**
+	 * Esegue una query di scrittura con le opzioni di esecuzione in ingresso e ne restituisce il risultato.
+	 *
+	 * @param sql
+	 * 	La query
+	 *
+	 * @param options
+	 * 	Le opzioni di esecuzione, o <code>null</code> per quelle predefinite
+	 *
+	 * @return
+	 * 	Le righe interessate e le chiavi generate
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce (anche per timeout)
+	 */
+	public WriteResult write(String sql, ExecutionOptions options)
+	throws DuplicatedKeyException, SqlQueryException {
+		for(int attempt = 1; ; attempt++){
+			try {
+				WriteResult result = this.executeWrite(sql, options);
+				this.recovered(attempt);
+				return result;
+			} catch (SqlQueryException e) {
+				this.retryOrThrow(e, attempt, false);
+			}
+		}
+	}
+
+	private WriteResult executeWrite(String sql, ExecutionOptions options)
+	throws DuplicatedKeyException, SqlQueryException {
+		this.reset(sql);
 		log.debug(sql);
 
+		SqlProfiler.Probe probe = this.probe(sql, null);
+		Statement st = null;
 		try {
-			lastUpdatedRows = statement.executeUpdate(sql, Statement.RETURN_GENERATED_KEYS);
+			st = this.openStatement();
+			this.applyOptions(st, options, fetchSize);
 
-			ResultSet rs = statement.getGeneratedKeys();
+			String[] keyColumns = options != null ? options.getKeyColumns() : null;
+			boolean keys = this.isReturningKeys(sql, options);
 
-			if (rs.next()) {
-				lastInsertId = rs.getInt(1);
+			WriteResult result = new WriteResult(keyColumns != null ?
+				st.executeUpdate(sql, keyColumns) :
+				st.executeUpdate(sql, keys ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS)
+			);
+
+			if(keys){
+				this.readGeneratedKeys(st, result);
 			}
+
+			this.setLastResult(result.getUpdatedRows(), result.getGeneratedKey());
+			succeeded(probe, result.getUpdatedRows());
+
+			return result;
 		} catch (SQLException e) {
-			if(PrimaryKeyExceptionHelper.check(e)){
+			if(SqlErrors.isDuplicateKey(e)){
 				throw new DuplicatedKeyException(e.getMessage(), e);
 			}
 
 			throw new SqlQueryException(sql, "Errore durante la query di scrittura", e);
+		} finally {
+			this.release(st);
+			finish(probe);
 		}
 	}
 
-	public void write(String sql, File ... files)
-	throws DuplicatedKeyException, SqlQueryException, InvalidFileException {
-		if(files == null || files.length == 0){
-			throw new InvalidFileException("Deve esserci almeno un file come parametro!");
+	/**
+	 * Esegue una query di lettura tramite un {@link PreparedStatement} mantenuto in cache
+	 * per la connessione corrente.
+	 *
+	 * @param sql
+	 * 	La query con i parametri <code>?</code>
+	 *
+	 * @param parameters
+	 * 	I valori dei parametri, nell'ordine in cui compaiono nella query
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce
+	 */
+	public ResultSet preparedQuery(String sql, Object ... parameters)
+	throws SqlQueryException {
+		return this.preparedQuery(sql, (ExecutionOptions) null, parameters);
+	}
+
+	/**
+	 * Esegue una query di lettura parametrizzata con le opzioni di esecuzione in ingresso.
+	 *
+	 * @param sql
+	 * 	La query con i parametri <code>?</code>
+	 *
+	 * @param options
+	 * 	Le opzioni di esecuzione, o <code>null</code> per quelle predefinite
+	 *
+	 * @param parameters
+	 * 	I valori dei parametri, nell'ordine in cui compaiono nella query
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce (anche per timeout)
+	 */
+	public ResultSet preparedQuery(String sql, ExecutionOptions options, Object ... parameters)
+	throws SqlQueryException {
+		for(int attempt = 1; ; attempt++){
+			try {
+				ResultSet rs = this.executePreparedQuery(sql, options, parameters);
+				this.recovered(attempt);
+				return rs;
+			} catch (SqlQueryException e) {
+				this.retryOrThrow(e, attempt, true);
+			}
 		}
+	}
 
-		this.reset();
-		log.debug(sql);
+	private ResultSet executePreparedQuery(String sql, ExecutionOptions options, Object[] parameters)
+	throws SqlQueryException {
+		this.reset(sql);
 
+		SqlProfiler.Probe probe = this.probe(sql, parameters);
 		PreparedStatement ps = null;
-		FileInputStream fis = null;
+		ResultSet rs = null;
 		try {
+			log.debug(sql);
 
-			int counter = 0;
-			ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-
-			for(File f : files){
-				fis = new FileInputStream(f);
-				ps.setBinaryStream(++counter, fis, f.length());
-			}
-
-			lastUpdatedRows = ps.executeUpdate();
-
-			ResultSet rs = ps.getGeneratedKeys();
-			if (rs.next()) {
-				lastInsertId = rs.getInt(1);
-			}
+			ps = this.prepareStatement(sql, false, null);
+			ParameterBinder.bind(ps, parameters);
+			this.applyOptions(ps, options, fetchSize);
 
+			rs = ps.executeQuery();
+			this.closeWithResults(ps, rs);
+			succeeded(probe, 0);
 		} catch (SQLException e) {
-			if(PrimaryKeyExceptionHelper.check(e)){
-				throw new DuplicatedKeyException(e.getMessage(), e);
-			}
-
-			throw new SqlQueryException(sql, "Errore durante la query di scrittura", e);
-		} catch (FileNotFoundException e) {
-			throw new InvalidFileException("Impossibile salvare il file", e);
+			this.release(ps);
+			throw new SqlQueryException(sql, "Errore durante la query di lettura", e);
+		} finally {
+			finish(probe);
 		}
 
-		// Liberazione delle risorse utilizzate.
-		finally {
-			try {
-				if(ps != null){
-					ps.close();
-				}
+		return rs;
+	}
 
-				if(fis != null){
-					fis.close();
-				}
-			}
+	/**
+	 * Apre un cursore in sola lettura per una lettura in streaming.<br>
+	 * La query viene eseguita su uno statement dedicato (non in cache) con la fetch size configurata
+	 * in <code>sk.db.streamFetchsize</code>, oppure con quella standard se non configurata.
+	 * Lo statement va chiuso insieme al result set, ad esempio tramite
+	 * {@link org.wolfetti.swissknife.db.beanutils.ResultSetIterator}.
+	 *
+	 * @param sql
+	 * 	La query, eventualmente con i parametri <code>?</code>
+	 *
+	 * @param parameters
+	 * 	I valori dei parametri, nell'ordine in cui compaiono nella query
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce
+	 */
+	public ResultSet openCursor(String sql, Object ... parameters)
+	throws SqlQueryException {
+		return this.openCursor(sql, (ExecutionOptions) null, parameters);
+	}
 
-			// Ignored closing exceptions
-			catch (SQLException e) {
-			}
-			catch (IOException e) {
+	/**
+	 * Apre un cursore in sola lettura con le opzioni di esecuzione in ingresso.
+	 *
+	 * @see #openCursor(String, Object...)
+	 */
+	public ResultSet openCursor(String sql, ExecutionOptions options, Object ... parameters)
+	throws SqlQueryException {
+		for(int attempt = 1; ; attempt++){
+			try {
+				ResultSet rs = this.executeCursor(sql, options, parameters);
+				this.recovered(attempt);
+				return rs;
+			} catch (SqlQueryException e) {
+				this.retryOrThrow(e, attempt, true);
 			}
 		}
 	}
 
-	public void write(String sql, byte[] ... filesBytes)
-	throws DuplicatedKeyException, SqlQueryException, InvalidFileException {
-		if(filesBytes == null || filesBytes.length == 0){
-			throw new InvalidFileException("Deve esserci almeno un file come parametro!");
-		}
-
-		this.reset();
+	private ResultSet executeCursor(String sql, ExecutionOptions options, Object[] parameters)
+	throws SqlQueryException {
+		this.reset(sql);
 		log.debug(sql);
 
+		SqlProfiler.Probe probe = this.probe(sql, parameters);
 		PreparedStatement ps = null;
-		ByteArrayInputStream bais = null;
 		try {
-
-			int counter = 0;
-			ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-
-			for(byte[] ba : filesBytes){
-				bais = new ByteArrayInputStream(ba);
-				ps.setBinaryStream(++counter, bais, ba.length);
+			Connection current = connection;
+			ps = current.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			if(threadSafe){
+				tracker.track(ps, current);
 			}
 
-			lastUpdatedRows = ps.executeUpdate();
-
-			ResultSet rs = ps.getGeneratedKeys();
-			if (rs.next()) {
-				lastInsertId = rs.getInt(1);
-			}
+			ParameterBinder.bind(ps, parameters);
 
-		} catch (SQLException e) {
-			if(PrimaryKeyExceptionHelper.check(e)){
-				throw new DuplicatedKeyException(e.getMessage(), e);
-			}
+			this.applyOptions(ps, options, streamFetchSize != 0 ? streamFetchSize : fetchSize);
 
-			throw new SqlQueryException(sql, "Errore durante la query di scrittura", e);
-		}
+			ResultSet rs = ps.executeQuery();
+			succeeded(probe, 0);
 
-		// Liberazione delle risorse utilizzate.
-		finally {
+			return rs;
+		} catch (SQLException e) {
 			try {
 				if(ps != null){
+					tracker.untrack(ps);
 					ps.close();
 				}
-
-				if(bais != null){
-					bais.close();
-				}
 			}
 
 			// Ignored closing exceptions
-			catch (SQLException e) {
-			}
-			catch (IOException e) {
+			catch (SQLException ex) {
 			}
-		}
-	}
+
+			throw new SqlQueryException(sql, "Errore durante la query di lettura", e);
+		} finally {
+			finish(probe);
+		}
+	}
+
+	/**
+	 * Esegue una query di scrittura tramite un {@link PreparedStatement} mantenuto in cache
+	 * per la connessione corrente.
+	 *
+	 * @param sql
+	 * 	La query con i parametri <code>?</code>
+	 *
+	 * @param parameters
+	 * 	I valori dei parametri, nell'ordine in cui compaiono nella query
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce
+	 */
+	public void preparedWrite(String sql, Object ... parameters)
+	throws DuplicatedKeyException, SqlQueryException {
+		this.executeUpdate(sql, (ExecutionOptions) null, parameters);
+	}
+
+	/**
+	 * Esegue una query di scrittura parametrizzata e ne restituisce il risultato.<br>
+	 * A differenza di {@link #preparedWrite(String, Object...)} il risultato non va letto dal connettore
+	 * con {@link #getLastUpdatedRows()} e {@link #getLastGeneratedKey()}: in modalit&agrave; thread-safe
+	 * ogni chiamata ha il proprio statement e il proprio risultato.
+	 *
+	 * @param sql
+	 * 	La query con i parametri <code>?</code>
+	 *
+	 * @param parameters
+	 * 	I valori dei parametri, nell'ordine in cui compaiono nella query
+	 *
+	 * @return
+	 * 	Le righe interessate e le chiavi generate
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce
+	 */
+	public WriteResult executeUpdate(String sql, Object ... parameters)
+	throws DuplicatedKeyException, SqlQueryException {
+		return this.executeUpdate(sql, (ExecutionOptions) null, parameters);
+	}
+
+	/**
+	 * Esegue una query di scrittura parametrizzata con le opzioni di esecuzione in ingresso
+	 * e ne restituisce il risultato.
+	 *
+	 * @param sql
+	 * 	La query con i parametri <code>?</code>
+	 *
+	 * @param options
+	 * 	Le opzioni di esecuzione, o <code>null</code> per quelle predefinite
+	 *
+	 * @param parameters
+	 * 	I valori dei parametri, nell'ordine in cui compaiono nella query
+	 *
+	 * @return
+	 * 	Le righe interessate e le chiavi generate
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce (anche per timeout)
+	 */
+	public WriteResult executeUpdate(String sql, ExecutionOptions options, Object ... parameters)
+	throws DuplicatedKeyException, SqlQueryException {
+		// I contenuti in streaming vengono consumati dal primo tentativo
+		if(isStreaming(parameters)){
+			return this.executePreparedUpdate(sql, options, parameters);
+		}
+
+		for(int attempt = 1; ; attempt++){
+			try {
+				WriteResult result = this.executePreparedUpdate(sql, options, parameters);
+				this.recovered(attempt);
+				return result;
+			} catch (SqlQueryException e) {
+				this.retryOrThrow(e, attempt, false);
+			}
+		}
+	}
+
+	private WriteResult executePreparedUpdate(String sql, ExecutionOptions options, Object[] parameters)
+	throws DuplicatedKeyException, SqlQueryException {
+		this.reset(sql);
+		log.debug(sql);
+
+		SqlProfiler.Probe probe = this.probe(sql, parameters);
+		PreparedStatement ps = null;
+		try {
+			boolean keys = this.isReturningKeys(sql, options);
+
+			ps = this.prepareStatement(sql, keys, options != null ? options.getKeyColumns() : null);
+			ParameterBinder.bind(ps, parameters);
+			this.applyOptions(ps, options, fetchSize);
+
+			WriteResult result = new WriteResult(ps.executeUpdate());
+			if(keys){
+				this.readGeneratedKeys(ps, result);
+			}
+
+			this.setLastResult(result.getUpdatedRows(), result.getGeneratedKey());
+			succeeded(probe, result.getUpdatedRows());
+
+			return result;
+		} catch (SQLException e) {
+			if(SqlErrors.isDuplicateKey(e)){
+				throw new DuplicatedKeyException(e.getMessage(), e);
+			}
+
+			throw new SqlQueryException(sql, "Errore durante la query di scrittura", e);
+		} finally {
+			BlobSource.closeAll(parameters);
+			this.release(ps);
+			finish(probe);
+		}
+	}
+
+	/**
+	 * Esegue la stessa query parametrizzata per ogni riga in ingresso, inviando le righe al
+	 * database in blocchi da {@link #getBatchSize()} righe.
+	 *
+	 * @see #writeBatch(String, List, int)
+	 */
+	public BatchResult writeBatch(String sql, List<Object[]> rows)
+	throws DuplicatedKeyException, SqlQueryException {
+		return this.writeBatch(sql, rows, batchSize);
+	}
+
+	/**
+	 * Esegue la stessa query parametrizzata per ogni riga in ingresso tramite
+	 * <code>addBatch</code>/<code>executeBatch</code>, inviando le righe al database in blocchi.
+	 * <br><br>
+	 * Se il connettore &egrave; in transazione viene effettuata la commit al termine di ogni blocco,
+	 * in maniera che un import di grandi dimensioni non mantenga i lock per tutta la sua durata.
+	 * La commit del primo blocco conferma anche le scritture effettuate in precedenza nella stessa transazione:
+	 * se il batch deve essere annullato insieme ad esse va utilizzato un solo blocco (<code>chunkSize</code>
+	 * maggiore o uguale al numero di righe), oppure un connettore dedicato.
+	 * <br><br>
+	 * Se un blocco fallisce i blocchi precedenti restano scritti: il loro numero e quello delle loro righe
+	 * sono riportati dall'eccezione ({@link SqlQueryException#getCommittedRows()},
+	 * {@link DuplicatedKeyException#getCommittedRows()}).
+	 *
+	 * @param sql
+	 * 	La query con i parametri <code>?</code>
+	 *
+	 * @param rows
+	 * 	I valori dei parametri, uno per ogni riga del batch
+	 *
+	 * @param chunkSize
+	 * 	Il numero di righe per blocco
+	 *
+	 * @return
+	 * 	Le righe interessate per ogni riga del batch e le chiavi generate
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce
+	 */
+	public BatchResult writeBatch(String sql, List<Object[]> rows, int chunkSize)
+	throws DuplicatedKeyException, SqlQueryException {
+		this.reset(sql);
+		log.debug(sql);
+
+		BatchResult result = new BatchResult(rows.size());
+		if(rows.isEmpty()){
+			return result;
+		}
+
+		int size = chunkSize > 0 ? chunkSize : batchSize;
+		boolean keys = this.isReturningKeys(sql, null);
+		SqlProfiler.Probe probe = this.probe(sql, null);
+		PreparedStatement ps = null;
+		int committedChunks = 0;
+		long committedRows = 0;
+
+		try {
+			ps = this.prepareStatement(sql, keys, null);
+			this.applyOptions(ps, null, fetchSize);
+
+			for(int offset = 0; offset < rows.size(); offset += size){
+				int end = Math.min(offset + size, rows.size());
+
+				for(int i = offset; i < end; i++){
+					ParameterBinder.bind(ps, rows.get(i));
+					ps.addBatch();
+				}
+
+				result.addChunk(offset, ps.executeBatch());
+				this.closeSources(rows, offset, end);
+
+				if(keys){
+					this.readGeneratedKeys(ps, result);
+				}
+
+				this.commitChunk();
+				committedChunks++;
+				committedRows += end - offset;
+			}
+
+			succeeded(probe, result.getTotalUpdatedRows());
+		} catch (SQLException e) {
+			if(SqlErrors.isDuplicateKey(e)){
+				throw new DuplicatedKeyException(e.getMessage(), e, committedChunks, committedRows);
+			}
+
+			throw new SqlQueryException(sql, "Errore durante la scrittura in batch", e, committedChunks, committedRows);
+		} finally {
+			this.clearBatch(ps);
+			this.release(ps);
+			this.closeSources(rows, 0, rows.size());
+			finish(probe);
+		}
+
+		this.setLastResult((int) Math.min(Integer.MAX_VALUE, result.getTotalUpdatedRows()), null);
+		return result;
+	}
+
+	/**
+	 * Inserisce una riga o, se esiste gi&agrave; una riga con la stessa chiave, ne aggiorna tutte le colonne
+	 * che non fanno parte della chiave, con un solo comando nativo del database (vedi {@link Dialect#upsert}):
+	 * non viene generato nessun errore di chiave duplicata sulla chiave indicata.
+	 * <br><br>
+	 * Il numero di righe interessate dipende dal database (es. MySQL restituisce 2 per un aggiornamento).
+	 *
+	 * @param table
+	 * 	La tabella
+	 *
+	 * @param columns
+	 * 	Le colonne da valorizzare, chiave compresa
+	 *
+	 * @param keyColumns
+	 * 	Le colonne della chiave primaria o di un vincolo di unicit&agrave;
+	 *
+	 * @param values
+	 * 	I valori, nell'ordine delle colonne
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violato un altro vincolo di unicit&agrave;
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query fallisce
+	 */
+	public WriteResult upsert(String table, String[] columns, String[] keyColumns, Object ... values)
+	throws DuplicatedKeyException, SqlQueryException {
+		return this.executeUpdate(Upserts.forColumns(this.getDialect(), table, columns, keyColumns), values);
+	}
+
+	/**
+	 * Esegue l'upsert di pi&ugrave; righe con un unico PreparedStatement in batch, inviando le righe al database
+	 * in blocchi da {@link #getBatchSize()} righe.
+	 *
+	 * @see #upsert(String, String[], String[], Object...)
+	 * @see #writeBatch(String, List)
+	 */
+	public BatchResult upsertBatch(String table, String[] columns, String[] keyColumns, List<Object[]> rows)
+	throws DuplicatedKeyException, SqlQueryException {
+		return this.writeBatch(Upserts.forColumns(this.getDialect(), table, columns, keyColumns), rows);
+	}
+
+	/**
+	 * Esegue in batch le query in ingresso, inviandole al database in blocchi da
+	 * {@link #getBatchSize()} query.
+	 *
+	 * @see #writeBatch(List, int)
+	 */
+	public BatchResult writeBatch(List<String> sqls)
+	throws DuplicatedKeyException, SqlQueryException {
+		return this.writeBatch(sqls, batchSize);
+	}
+
+	/**
+	 * Esegue in batch le query in ingresso tramite <code>addBatch</code>/<code>executeBatch</code>,
+	 * inviandole al database in blocchi. Se il connettore &egrave; in transazione viene effettuata
+	 * la commit al termine di ogni blocco, che conferma anche le scritture effettuate in precedenza nella
+	 * stessa transazione (vedi {@link #writeBatch(String, List, int)}).
+	 *
+	 * @param sqls
+	 * 	Le query da eseguire
+	 *
+	 * @param chunkSize
+	 * 	Il numero di query per blocco
+	 *
+	 * @return
+	 * 	Le righe interessate per ogni query
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando una delle query fallisce
+	 */
+	public BatchResult writeBatch(List<String> sqls, int chunkSize)
+	throws DuplicatedKeyException, SqlQueryException {
+		this.reset(sqls.isEmpty() ? null : sqls.get(0));
+
+		BatchResult result = new BatchResult(sqls.size());
+		int size = chunkSize > 0 ? chunkSize : batchSize;
+
+		SqlProfiler.Probe probe = sqls.isEmpty() ? null : this.probe(sqls.get(0), null);
+		Statement st = null;
+		int committedChunks = 0;
+		long committedRows = 0;
+
+		try {
+			st = this.openStatement();
+			this.applyOptions(st, null, fetchSize);
+
+			for(int offset = 0; offset < sqls.size(); offset += size){
+				int end = Math.min(offset + size, sqls.size());
+
+				for(int i = offset; i < end; i++){
+					log.debug(sqls.get(i));
+					st.addBatch(sqls.get(i));
+				}
+
+				result.addChunk(offset, st.executeBatch());
+				this.commitChunk();
+				committedChunks++;
+				committedRows += end - offset;
+			}
+
+			succeeded(probe, result.getTotalUpdatedRows());
+		} catch (SQLException e) {
+			if(SqlErrors.isDuplicateKey(e)){
+				throw new DuplicatedKeyException(e.getMessage(), e, committedChunks, committedRows);
+			}
+
+			throw new SqlQueryException(null, "Errore durante la scrittura in batch", e, committedChunks, committedRows);
+		} finally {
+			this.clearBatch(st);
+			this.release(st);
+			finish(probe);
+		}
+
+		this.setLastResult((int) Math.min(Integer.MAX_VALUE, result.getTotalUpdatedRows()), null);
+		return result;
+	}
+
+	/**
+	 * Esegue un comando di caricamento massivo che legge i dati dal client, come
+	 * <code>LOAD DATA LOCAL INFILE</code> di MySQL (vedi {@link Dialect#loadData(String, String[])}),
+	 * inviando al database il contenuto dello stream in ingresso invece di un file locale.
+	 * <br><br>
+	 * Lo stream viene chiuso al termine del caricamento.
+	 *
+	 * @param sql
+	 * 	Il comando di caricamento
+	 *
+	 * @param data
+	 * 	I dati da caricare
+	 *
+	 * @return
+	 * 	Il numero di righe caricate
+	 *
+	 * @throws IllegalOperationException
+	 * 	Se il driver JDBC non permette di inviare i dati da uno stream
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando il caricamento fallisce
+	 */
+	public long loadData(String sql, InputStream data)
+	throws IllegalOperationException, DuplicatedKeyException, SqlQueryException {
+		this.reset(sql);
+		log.debug(sql);
+
+		SqlProfiler.Probe probe = this.probe(sql, null);
+		Statement st = null;
+		boolean streamSet = false;
+
+		try {
+			st = this.openStatement();
+			setLocalInfileStream(st, data);
+			streamSet = true;
+
+			int rows = st.executeUpdate(sql);
+			this.setLastResult(rows, null);
+			succeeded(probe, rows);
+
+			return rows;
+		} catch (SQLException e) {
+			if(SqlErrors.isDuplicateKey(e)){
+				throw new DuplicatedKeyException(e.getMessage(), e);
+			}
+
+			throw new SqlQueryException(sql, "Errore durante il caricamento dei dati", e);
+		} finally {
+			if(streamSet){
+				try {
+					setLocalInfileStream(st, null);
+				} catch (SQLException e) {
+					// Lo statement viene comunque rilasciato
+				}
+			}
+
+			this.release(st);
+			finish(probe);
+
+			try {
+				data.close();
+			} catch (IOException e) {
+				// Ignorata
+			}
+		}
+	}
+
+	/**
+	 * Esegue una query di scrittura salvando i files in ingresso, in streaming, nei parametri <code>?</code> della query.
+	 *
+	 * @see #write(String, BlobSource...)
+	 */
+	public void write(String sql, File ... files)
+	throws DuplicatedKeyException, SqlQueryException, InvalidFileException {
+		if(files == null || files.length == 0){
+			throw new InvalidFileException("Deve esserci almeno un file come parametro!");
+		}
+
+		BlobSource[] sources = new BlobSource[files.length];
+		for(int i = 0; i < files.length; i++){
+			sources[i] = BlobSource.of(files[i]);
+		}
+
+		this.write(sql, sources);
+	}
+
+	/**
+	 * Esegue una query di scrittura salvando gli array di bytes in ingresso nei parametri <code>?</code> della query.
+	 *
+	 * @see #write(String, BlobSource...)
+	 */
+	public void write(String sql, byte[] ... filesBytes)
+	throws DuplicatedKeyException, SqlQueryException, InvalidFileException {
+		if(filesBytes == null || filesBytes.length == 0){
+			throw new InvalidFileException("Deve esserci almeno un file come parametro!");
+		}
+
+		BlobSource[] sources = new BlobSource[filesBytes.length];
+		for(int i = 0; i < filesBytes.length; i++){
+			sources[i] = BlobSource.of(filesBytes[i]);
+		}
+
+		this.write(sql, sources);
+	}
+
+	/**
+	 * Esegue una query di scrittura passando i contenuti in ingresso, in streaming, ai parametri <code>?</code> della query.
+	 * Gli stream aperti dalle sorgenti (es. i files) vengono chiusi al termine della query, anche in caso di errore.
+	 * <br><br>
+	 * Per passare i contenuti insieme ad altri parametri si pu&ograve; utilizzare {@link #executeUpdate(String, Object...)}
+	 * con dei valori di tipo {@link BlobSource}.
+	 *
+	 * @param sql
+	 * 	La query con un parametro <code>?</code> per ogni contenuto
+	 *
+	 * @param sources
+	 * 	I contenuti da salvare
+	 *
+	 * @return
+	 * 	Le righe interessate e le chiavi generate
+	 *
+	 * @throws InvalidFileException
+	 * 	Quando uno dei contenuti non pu&ograve; essere letto
+	 */
+	public WriteResult write(String sql, BlobSource ... sources)
+	throws DuplicatedKeyException, SqlQueryException, InvalidFileException {
+		if(sources == null || sources.length == 0){
+			throw new InvalidFileException("Deve esserci almeno un file come parametro!");
+		}
+
+		try {
+			for(BlobSource source : sources){
+				source.open();
+			}
+
+			return this.executeUpdate(sql, (ExecutionOptions) null, (Object[]) sources);
+		} catch (IOException e) {
+			throw new InvalidFileException("Impossibile salvare il file", e);
+		} finally {
+			BlobSource.closeAll((Object[]) sources);
+		}
+	}
+
+	/**
+	 * Legge il BLOB della prima colonna della prima riga restituita dalla query e lo copia nello stream in ingresso,
+	 * senza caricarlo in memoria. Lo stream non viene chiuso.
+	 *
+	 * @param sql
+	 * 	La query, eventualmente con i parametri <code>?</code>
+	 *
+	 * @param out
+	 * 	Lo stream sul quale copiare il contenuto
+	 *
+	 * @param parameters
+	 * 	I valori dei parametri, nell'ordine in cui compaiono nella query
+	 *
+	 * @return
+	 * 	Il numero di bytes copiati, oppure <code>-1</code> se la query non restituisce righe o il BLOB &egrave; <code>null</code>
+	 *
+	 * @throws InvalidFileException
+	 * 	Quando non &egrave; possibile scrivere sullo stream
+	 */
+	public long readBlob(String sql, OutputStream out, Object ... parameters)
+	throws SqlQueryException, InvalidFileException {
+		ResultSet rs = this.preparedQuery(sql, parameters);
+
+		try {
+			InputStream in = this.openBlob(rs);
+			if(in == null){
+				return -1L;
+			}
+
+			try {
+				byte[] buffer = new byte[BLOB_BUFFER_SIZE];
+				long total = 0;
+
+				for(int n = in.read(buffer); n >= 0; n = in.read(buffer)){
+					out.write(buffer, 0, n);
+					total += n;
+				}
+
+				return total;
+			} finally {
+				in.close();
+			}
+		} catch (SQLException e) {
+			throw new SqlQueryException(sql, "Errore durante la lettura del BLOB", e);
+		} catch (IOException e) {
+			throw new InvalidFileException("Impossibile copiare il BLOB", e);
+		} finally {
+			ResultSetHelper.close(rs);
+		}
+	}
+
+	/**
+	 * Legge il BLOB della prima colonna della prima riga restituita dalla query e lo scrive sul canale in ingresso,
+	 * a partire dalla sua posizione corrente, tramite <code>FileChannel.transferFrom</code>. Il canale non viene chiuso.
+	 *
+	 * @return
+	 * 	Il numero di bytes scritti, oppure <code>-1</code> se la query non restituisce righe o il BLOB &egrave; <code>null</code>
+	 *
+	 * @see #readBlob(String, OutputStream, Object...)
+	 */
+	public long readBlob(String sql, FileChannel channel, Object ... parameters)
+	throws SqlQueryException, InvalidFileException {
+		ResultSet rs = this.preparedQuery(sql, parameters);
+
+		try {
+			InputStream in = this.openBlob(rs);
+			if(in == null){
+				return -1L;
+			}
+
+			try {
+				return this.transfer(in, channel);
+			} finally {
+				in.close();
+			}
+		} catch (SQLException e) {
+			throw new SqlQueryException(sql, "Errore durante la lettura del BLOB", e);
+		} catch (IOException e) {
+			throw new InvalidFileException("Impossibile copiare il BLOB", e);
+		} finally {
+			ResultSetHelper.close(rs);
+		}
+	}
+
+	/**
+	 * Legge il BLOB della prima colonna della prima riga restituita dalla query e lo salva nel file in ingresso,
+	 * che viene creato (o sovrascritto) solo se la query restituisce un BLOB.
+	 *
+	 * @return
+	 * 	Il numero di bytes scritti, oppure <code>-1</code> se la query non restituisce righe o il BLOB &egrave; <code>null</code>
+	 *
+	 * @see #readBlob(String, OutputStream, Object...)
+	 */
+	public long readBlob(String sql, Path target, Object ... parameters)
+	throws SqlQueryException, InvalidFileException {
+		ResultSet rs = this.preparedQuery(sql, parameters);
+
+		try {
+			InputStream in = this.openBlob(rs);
+			if(in == null){
+				return -1L;
+			}
+
+			FileChannel channel = null;
+			try {
+				channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				return this.transfer(in, channel);
+			} finally {
+				in.close();
+
+				if(channel != null){
+					channel.close();
+				}
+			}
+		} catch (SQLException e) {
+			throw new SqlQueryException(sql, "Errore durante la lettura del BLOB", e);
+		} catch (IOException e) {
+			throw new InvalidFileException("Impossibile salvare il BLOB nel file " + target, e);
+		} finally {
+			ResultSetHelper.close(rs);
+		}
+	}
 
 	/* ==================================== */
 	/* ============ TRANSACTION =========== */
 	/* ==================================== */
 
-	/*
-	 * (non-Javadoc)
-	 * @see org.wolfetti.interfaces.db.DbConnector#commit()
+	/*
+	 * (non-Javadoc)
+	 * @see org.wolfetti.interfaces.db.DbConnector#commit()
+	 */
+	public void commit()
+	throws IllegalOperationException, TransactionException {
+		this.reset();
+
+		if(!isTransaction) {
+			throw new IllegalOperationException("Non puoi fare commit se non sei in transazione!");
+		}
+
+		try {
+			connection.commit();
+		} catch (SQLException e) {
+			throw new TransactionException("Impossibile effettuare il commit", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.wolfetti.interfaces.db.DbConnector#rollback()
+	 */
+	public void rollback()
+	throws IllegalOperationException, TransactionException {
+		this.renew(true);
+
+		if(!isTransaction) {
+			throw new IllegalOperationException("Non puoi fare rollback se non sei in transazione!");
+		}
+
+		try {
+			connection.rollback();
+		} catch (SQLException e) {
+			throw new TransactionException("Impossibile effettuare il rollback", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.wolfetti.interfaces.db.DbConnector#rollback(java.sql.Savepoint)
+	 */
+	public void rollback(Savepoint savePoint)
+	throws IllegalOperationException, TransactionException {
+		this.reset();
+
+		if(!isTransaction) {
+			throw new IllegalOperationException("Non puoi fare rollback se non sei in transazione!");
+		}
+
+		try {
+			connection.rollback(savePoint);
+		} catch (SQLException e) {
+			throw new TransactionException("Impossibile effettuare il rollback al savepoint '" + savePoint + "'", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.wolfetti.interfaces.db.DbConnector#savepoint()
+	 */
+	public Savepoint savepoint()
+	throws IllegalOperationException, TransactionException {
+		this.reset();
+
+		if(!isTransaction){
+			throw new IllegalOperationException("Non puoi creare un savepoint se non sei in transazione!");
+		}
+
+		try {
+			return connection.setSavepoint();
+		} catch (SQLException e) {
+			throw new TransactionException("Impossibile creare il savepoint", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.wolfetti.interfaces.db.DbConnector#savepoint(java.lang.String)
+	 */
+	public Savepoint savepoint(String name)
+	throws IllegalOperationException, TransactionException {
+		this.reset();
+
+		if(!isTransaction){
+			throw new IllegalOperationException("Non puoi creare un savepoint se non sei in transazione!");
+		}
+
+		try {
+			return connection.setSavepoint(name);
+		} catch (SQLException e) {
+			throw new TransactionException("Impossibile creare il savepoint '" + name + "'", e);
+		}
+	}
+
+	/* ==================================== */
+	/* ============= UTILITY ============== */
+	/* ==================================== */
+	@Override
+	public DbConnector clone() {
+		return this.clone(config, isTransaction);
+	}
+
+	/**
+	 * Crea un nuovo connettore sullo stesso datasource, con o senza transazione
+	 * indipendentemente da questo connettore.
+	 *
+	 * @param isTransaction
+	 * 	<code>true</code> se si vuole attivare la transazione, altrimenti la connessione
+	 * 	avr&agrave; l'autocommit attivato
+	 */
+	public DbConnector clone(boolean isTransaction) {
+		return this.clone(config, isTransaction);
+	}
+
+	/**
+	 * Esegue la callback in una nuova transazione sullo stesso datasource, indipendente da questo connettore,
+	 * ed effettua la commit al termine o il rollback in caso di errore.
+	 * <br><br>
+	 * Se la callback o la commit falliscono per un errore transitorio (deadlock, timeout di lock o connessione
+	 * persa prima della commit) l'intera transazione viene ripetuta su un nuovo connettore, secondo la
+	 * {@link RetryPolicy} del datasource.
+	 *
+	 * @param callback
+	 * 	L'operazione da eseguire
+	 *
+	 * @return
+	 * 	Il risultato della callback
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando una query fallisce per un errore non transitorio, o dopo aver esaurito i tentativi
+	 */
+	public <T> T runInTransaction(TransactionCallback<T> callback)
+	throws DuplicatedKeyException, SqlQueryException {
+		for(int attempt = 1; ; attempt++){
+			DbConnector transaction = null;
+			boolean committing = false;
+
+			try {
+				transaction = this.clone(true);
+				T result = callback.execute(transaction);
+
+				committing = true;
+				transaction.commit();
+
+				this.recovered(attempt);
+				return result;
+			} catch (DuplicatedKeyException | SqlQueryException | RuntimeException e) {
+				rollbackQuietly(transaction);
+
+				// Se la connessione si interrompe durante la commit l'esito della transazione non e' noto
+				if(!retryPolicy.retry(e, attempt, !committing)){
+					throw e;
+				}
+			} finally {
+				if(transaction != null){
+					transaction.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Chiude gli statements e la connessione, restituendola al pool se presente.
+	 * Le chiamate successive alla prima non hanno effetto.
+	 */
+	@Override
+	public void close() {
+		tracker.closeAll();
+		this.closeRetired();
+
+		try {
+			if(statementCache != null){
+				statementCache.clear();
+			}
+
+			if(statement != null){
+				statement.close();
+			}
+
+			if(connection != null && !connection.isClosed()) {
+				connection.close();
+			}
+
+//			this.closeConnection();
+		} catch (SQLException e) {
+		} finally {
+			statementCache = null;
+			statement = null;
+			connection = null;
+			isClosed = true;
+
+			if(lease != null){
+				lease.release();
+				lease = null;
+			}
+		}
+	}
+
+	/**
+	 * Chiude gli statements ancora aperti dalle letture in modalit&agrave; thread-safe, insieme ai loro result set,
+	 * ad esempio al termine di una richiesta che ha condiviso il connettore.
+	 *
+	 * @return
+	 * 	Il numero di statements chiusi
+	 */
+	public int closeOpenResults() {
+		int closed = tracker.closeAll();
+		this.closeRetired();
+		return closed;
+	}
+
+	/* ==================================== */
+	/* ============= PRIVATE ============== */
+	/* ==================================== */
+
+	/**
+	 * Crea la connessione e imposta la transazione in base al valore passato al costruttore
+	 */
+	private void setupConnection(){
+		// Creazione della connessione, demandata alle implementazioni di questa classe astratta
+		connection = this.initConnection(config);
+
+		if(isTransaction){
+			try {
+				connection.setAutoCommit(false);
+			} catch (SQLException e) {
+				throw new DbInitializationException("Transazione non supportata!", e);
+			}
+		}
+
+
+		// Creazione dello statement e della cache dei PreparedStatement, non utilizzati in modalita' thread-safe
+		if(statementCache != null){
+			statementCache.clear();
+		}
+
+		if(!threadSafe){
+			try {
+				statement = connection.createStatement();
+			} catch (SQLException e) {
+				throw new DbInitializationException("Creazione dello statement fallita", e);
+			}
+
+			statementCache = new StatementCache(
+				connection,
+				config.getInt(SKConstants.CONF.DB.KEY_STATEMENT_CACHE_SIZE, StatementCache.DEFAULT_SIZE)
+			);
+		}
+
+		lastUse = System.nanoTime();
+
+		// Impostazione del fetch size
+		try {
+			if(fetchSize > 0 && statement != null){
+				statement.setFetchSize(fetchSize);
+			}
+
+		} catch (SQLException e) {
+		}
+	}
+
+	/**
+	 * Legge dalla configurazione le impostazioni del connettore
+	 */
+	private void configure(){
+		// Impostazione della dimensione dei blocchi di batch
+		if(config.getInt(SKConstants.CONF.DB.KEY_BATCH_SIZE, 0) > 0){
+			batchSize = config.getInt(SKConstants.CONF.DB.KEY_BATCH_SIZE);
+		}
+
+		// Impostazione del timeout predefinito delle query
+		queryTimeout = Math.max(0, config.getInt(SKConstants.CONF.DB.KEY_QUERY_TIMEOUT, 0));
+
+		// Impostazione del tempo di inattivita' dopo il quale validare la connessione
+		validationInterval = TimeUnit.MILLISECONDS.toNanos(
+			Math.max(0, config.getLong(SKConstants.CONF.DB.KEY_VALIDATION_INTERVAL, DEFAULT_VALIDATION_INTERVAL))
+		);
+
+		// Impostazione del fetch size delle letture in streaming (anche negativo, es. MySQL)
+		streamFetchSize = config.getInt(SKConstants.CONF.DB.KEY_STREAM_FETCHSIZE, 0);
+
+		// Impostazione del fetch size
+		if(config.getInt(SKConstants.CONF.DB.KEY_FETCHSIZE, 0) > 0){
+			fetchSize = config.getInt(SKConstants.CONF.DB.KEY_FETCHSIZE);
+		}
+	}
+
+	/**
+	 * Restituisce lo statement per una query non parametrizzata: quello condiviso dal connettore
+	 * oppure, in modalit&agrave; thread-safe, uno nuovo da rilasciare con {@link #release(Statement)}.
+	 */
+	private Statement openStatement()
+	throws SQLException {
+		if(!threadSafe){
+			return statement;
+		}
+
+		Connection current = connection;
+		Statement st = current.createStatement();
+		tracker.track(st, current);
+
+		if(fetchSize > 0){
+			st.setFetchSize(fetchSize);
+		}
+
+		return st;
+	}
+
+	/**
+	 * Restituisce lo statement per una query parametrizzata: quello in cache per la connessione
+	 * oppure, in modalit&agrave; thread-safe, uno nuovo da rilasciare con {@link #release(Statement)}.
+	 */
+	private PreparedStatement prepareStatement(String sql, boolean generatedKeys, String[] keyColumns)
+	throws SQLException {
+		if(!threadSafe){
+			return statementCache.get(sql, generatedKeys, keyColumns);
+		}
+
+		Connection current = connection;
+		PreparedStatement ps = keyColumns != null ?
+			current.prepareStatement(sql, keyColumns) :
+		generatedKeys ?
+			current.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) :
+			current.prepareStatement(sql);
+
+		tracker.track(ps, current);
+		return ps;
+	}
+
+	/**
+	 * Imposta sullo statement il timeout, il numero massimo di righe e la fetch size delle opzioni in ingresso
+	 * o, se non indicati, quelli predefiniti. Gli statements in cache vengono modificati solo se necessario.
+	 *
+	 * @param defaultFetchSize
+	 * 	La fetch size da utilizzare se non indicata nelle opzioni, <code>0</code> per quella del driver
+	 */
+	private void applyOptions(Statement st, ExecutionOptions options, int defaultFetchSize)
+	throws SQLException {
+		int timeout = options != null && options.getQueryTimeout() != null ? options.getQueryTimeout().intValue() : queryTimeout;
+		if(st.getQueryTimeout() != timeout){
+			st.setQueryTimeout(timeout);
+		}
+
+		int maxRows = options != null && options.getMaxRows() != null ? options.getMaxRows().intValue() : 0;
+		if(st.getMaxRows() != maxRows){
+			st.setMaxRows(maxRows);
+		}
+
+		int fetch = options != null && options.getFetchSize() != null ? options.getFetchSize().intValue() : defaultFetchSize;
+		if(fetch != 0 && st.getFetchSize() != fetch){
+			st.setFetchSize(fetch);
+		}
+	}
+
+	/**
+	 * Controlla se vanno lette le chiavi generate dalla query: come indicato nelle opzioni oppure,
+	 * se non indicato, solo per le query di inserimento.
 	 */
-	public void commit()
-	throws IllegalOperationException, TransactionException {
-		this.reset();
+	private boolean isReturningKeys(String sql, ExecutionOptions options){
+		if(options != null && options.getGeneratedKeys() != null){
+			return options.getGeneratedKeys().booleanValue();
+		}
 
-		if(!isTransaction) {
-			throw new IllegalOperationException("Non puoi fare commit se non sei in transazione!");
+		String keyword = SqlClauses.firstKeyword(sql);
+		return "INSERT".equals(keyword) || "MERGE".equals(keyword) || "REPLACE".equals(keyword) || "UPSERT".equals(keyword);
+	}
+
+	/**
+	 * In modalit&agrave; thread-safe fa in modo che lo statement di una lettura venga chiuso
+	 * insieme al suo result set. Con i driver che non lo supportano lo statement viene chiuso
+	 * dal {@link StatementTracker} dopo la chiusura del result set.
+	 */
+	private void closeWithResults(Statement st, ResultSet rs){
+		if(!threadSafe){
+			return;
 		}
 
+		tracker.attach(st, rs);
+
 		try {
-			connection.commit();
-		} catch (SQLException e) {
-			throw new TransactionException("Impossibile effettuare il commit", e);
+			st.closeOnCompletion();
+		}
+
+		// Driver precedenti a JDBC 4.1
+		catch (SQLException e) {
+		}
+		catch (AbstractMethodError e) {
 		}
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * @see org.wolfetti.interfaces.db.DbConnector#rollback()
+	/**
+	 * In modalit&agrave; thread-safe chiude lo statement di una singola chiamata.
 	 */
-	public void rollback()
-	throws IllegalOperationException, TransactionException {
-		this.reset();
-
-		if(!isTransaction) {
-			throw new IllegalOperationException("Non puoi fare rollback se non sei in transazione!");
+	private void release(Statement st){
+		if(!threadSafe || st == null){
+			return;
 		}
 
+		tracker.untrack(st);
+
 		try {
-			connection.rollback();
-		} catch (SQLException e) {
-			throw new TransactionException("Impossibile effettuare il rollback", e);
+			st.close();
+		}
+
+		// Ignored closing exceptions
+		catch (SQLException e) {
+		}
+
+		if(!retired.isEmpty()){
+			this.closeRetired();
 		}
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * @see org.wolfetti.interfaces.db.DbConnector#rollback(java.sql.Savepoint)
+	/**
+	 * Memorizza il risultato dell'ultima scrittura, nel connettore o per thread in modalit&agrave; thread-safe.
 	 */
-	public void rollback(Savepoint savePoint)
-	throws IllegalOperationException, TransactionException {
-		this.reset();
+	private void setLastResult(int updatedRows, Long insertId){
+		long id = insertId == null ? 0 : insertId.longValue();
+
+		if(threadSafe){
+			long[] last = lastResults.get();
+			last[0] = updatedRows;
+			last[1] = id;
+		} else {
+			lastUpdatedRows = updatedRows;
+			lastInsertId = id;
+		}
+	}
 
-		if(!isTransaction) {
-			throw new IllegalOperationException("Non puoi fare rollback se non sei in transazione!");
+	/**
+	 * Legge le chiavi generate da una singola scrittura.
+	 */
+	private void readGeneratedKeys(Statement st, WriteResult result)
+	throws SQLException {
+		ResultSet rs = st.getGeneratedKeys();
+
+		if(rs == null){
+			return;
 		}
 
 		try {
-			connection.rollback(savePoint);
-		} catch (SQLException e) {
-			throw new TransactionException("Impossibile effettuare il rollback al savepoint '" + savePoint + "'", e);
+			int columns = rs.getMetaData().getColumnCount();
+
+			while(rs.next()){
+				Object[] row = new Object[columns];
+				for(int i = 0; i < columns; i++){
+					row[i] = rs.getObject(i + 1);
+				}
+
+				result.addGeneratedKeyRow(row);
+			}
+		} finally {
+			rs.close();
 		}
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * @see org.wolfetti.interfaces.db.DbConnector#savepoint()
+	/**
+	 * Legge le chiavi generate dall'ultimo blocco di un batch.
 	 */
-	public Savepoint savepoint()
-	throws IllegalOperationException, TransactionException {
-		this.reset();
+	private void readGeneratedKeys(Statement st, BatchResult result)
+	throws SQLException {
+		ResultSet rs = st.getGeneratedKeys();
 
-		if(!isTransaction){
-			throw new IllegalOperationException("Non puoi creare un savepoint se non sei in transazione!");
+		if(rs == null){
+			return;
 		}
 
 		try {
-			return connection.setSavepoint();
-		} catch (SQLException e) {
-			throw new TransactionException("Impossibile creare il savepoint", e);
+			while(rs.next()){
+				Object key = rs.getObject(1);
+
+				if(key instanceof Number){
+					result.addGeneratedKey(((Number) key).longValue());
+				}
+			}
+		} finally {
+			rs.close();
 		}
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * @see org.wolfetti.interfaces.db.DbConnector#savepoint(java.lang.String)
+	/**
+	 * Chiude i contenuti in streaming delle righe di un batch comprese tra <code>from</code> e <code>to</code> (escluso).
 	 */
-	public Savepoint savepoint(String name)
-	throws IllegalOperationException, TransactionException {
-		this.reset();
+	private void closeSources(List<Object[]> rows, int from, int to){
+		for(int i = from; i < to; i++){
+			BlobSource.closeAll(rows.get(i));
+		}
+	}
 
-		if(!isTransaction){
-			throw new IllegalOperationException("Non puoi creare un savepoint se non sei in transazione!");
+	/**
+	 * Restituisce lo stream del BLOB della prima colonna della prima riga, o <code>null</code> se non presente.
+	 */
+	private InputStream openBlob(ResultSet rs)
+	throws SQLException {
+		if(!rs.next()){
+			return null;
 		}
 
-		try {
-			return connection.setSavepoint(name);
-		} catch (SQLException e) {
-			throw new TransactionException("Impossibile creare il savepoint '" + name + "'", e);
+		return rs.getBinaryStream(1);
+	}
+
+	/**
+	 * Scrive lo stream sul canale a partire dalla sua posizione corrente e restituisce il numero di bytes scritti.
+	 */
+	private long transfer(InputStream in, FileChannel channel)
+	throws IOException {
+		ReadableByteChannel source = Channels.newChannel(in);
+		long start = channel.position();
+		long position = start;
+
+		for(long n = channel.transferFrom(source, position, Long.MAX_VALUE); n > 0; n = channel.transferFrom(source, position, Long.MAX_VALUE)){
+			position += n;
 		}
+
+		channel.position(position);
+		return position - start;
 	}
 
-	/* ==================================== */
-	/* ============= UTILITY ============== */
-	/* ==================================== */
-	@Override
-	public DbConnector clone() {
-		return this.clone(config, isTransaction);
+	/**
+	 * Effettua la commit di un blocco di batch se il connettore e' in transazione.
+	 */
+	private void commitChunk()
+	throws SQLException {
+		if(isTransaction){
+			connection.commit();
+		}
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * @see org.wolfetti.interfaces.db.DbConnector#close()
+	/**
+	 * Imposta lo stream da inviare al posto del file di un <code>LOAD DATA LOCAL INFILE</code>.
+	 * Il metodo non fa parte di JDBC: viene invocato tramite reflection sullo statement del driver
+	 * MySQL (Connector/J 5.x o 8.x), eventualmente contenuto nello statement del pool.
 	 */
-	public void close() {
-		try {
-			if(statement != null){
-				statement.close();
+	private static void setLocalInfileStream(Statement st, InputStream data)
+	throws SQLException, IllegalOperationException {
+		// Lo statement di un pool e' definito in un class loader che potrebbe non vedere il driver:
+		// le classi del driver vengono cercate nel class loader dello statement fisico
+		ClassLoader loader = physicalStatement(st).getClass().getClassLoader();
+
+		for(String name : LOCAL_INFILE_STATEMENTS){
+			Class<?> type;
+
+			try {
+				type = Class.forName(name, false, loader);
+			} catch (ClassNotFoundException | LinkageError e) {
+				continue;
 			}
 
-			if(connection != null && !connection.isClosed()) {
-				connection.close();
+			Object target = null;
+			if(type.isInstance(st)){
+				target = st;
+			} else {
+				try {
+					if(st.isWrapperFor(type)){
+						target = st.unwrap(type);
+					}
+				} catch (AbstractMethodError e) {
+					// Driver o pool precedenti a JDBC 4
+				}
 			}
 
-//			this.closeConnection();
-		} catch (SQLException e) {
-		} finally {
-			statement = null;
-			connection = null;
-			isClosed = true;
+			if(target == null){
+				continue;
+			}
+
+			try {
+				type.getMethod("setLocalInfileInputStream", InputStream.class).invoke(target, data);
+				return;
+			} catch (InvocationTargetException e) {
+				if(e.getCause() instanceof SQLException){
+					throw (SQLException) e.getCause();
+				}
+
+				throw new SQLException(e.getCause());
+			} catch (ReflectiveOperationException e) {
+				continue;
+			}
 		}
+
+		throw new IllegalOperationException("Il driver JDBC non permette di caricare i dati da uno stream (LOAD DATA LOCAL INFILE).");
 	}
 
-	/* ==================================== */
-	/* ============= PRIVATE ============== */
-	/* ==================================== */
+	/**
+	 * @return lo statement fisico contenuto nello statement di un pool, oppure lo statement in ingresso
+	 */
+	private static Statement physicalStatement(Statement st){
+		try {
+			if(st.isWrapperFor(Statement.class)){
+				return st.unwrap(Statement.class);
+			}
+		} catch (SQLException | AbstractMethodError e) {
+			// Driver o pool precedenti a JDBC 4
+		}
+
+		return st;
+	}
 
 	/**
-	 * Crea la connessione e imposta la transazione in base al valore passato al costruttore
+	 * Restituisce l'errore se l'operazione non va ripetuta, altrimenti attende prima del tentativo successivo.
+	 * In transazione le singole istruzioni non vengono ripetute: va ripetuta l'intera transazione
+	 * (vedi {@link #runInTransaction(TransactionCallback)}).
 	 */
-	private void setupConnection(){
-		// Creazione della connessione, demandata alle implementazioni di questa classe astratta
-		connection = this.initConnection(config);
+	private void retryOrThrow(SqlQueryException e, int attempt, boolean idempotent)
+	throws SqlQueryException {
+		if(isTransaction || !retryPolicy.retry(e, attempt, idempotent)){
+			throw e;
+		}
 
-		if(isTransaction){
+		// Dopo un errore di connessione la connessione viene validata prima del nuovo tentativo
+		if(SqlErrors.classify(e) == SqlErrorType.CONNECTION){
+			lastUse = System.nanoTime() - validationInterval - 1;
+		}
+	}
+
+	private void recovered(int attempt){
+		if(attempt > 1){
+			retryPolicy.recovered();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> se tra i parametri sono presenti contenuti in streaming, che non possono essere inviati di nuovo
+	 */
+	private static boolean isStreaming(Object[] parameters){
+		if(parameters != null){
+			for(Object p : parameters){
+				if(p instanceof BlobSource || p instanceof InputStream || p instanceof Reader){
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private static void rollbackQuietly(DbConnector transaction){
+		if(transaction != null && !transaction.isClosed()){
 			try {
-				connection.setAutoCommit(false);
-			} catch (SQLException e) {
-				throw new DbInitializationException("Transazione non supportata!", e);
+				transaction.rollback();
+			} catch (RuntimeException e) {
+				// Ignorata: la transazione viene comunque chiusa
 			}
 		}
+	}
+
+	/**
+	 * Inizia la misurazione della query, se la profilazione &egrave; attiva.
+	 */
+	private SqlProfiler.Probe probe(String sql, Object[] parameters){
+		return profiler == null ? null : profiler.start(sql, parameters);
+	}
+
+	private static void succeeded(SqlProfiler.Probe probe, long rows){
+		if(probe != null){
+			probe.succeeded(rows);
+		}
+	}
 
+	private static void finish(SqlProfiler.Probe probe){
+		if(probe != null){
+			probe.finish();
+		}
+	}
 
-		// Creazione dello statement
-		try {
-			statement = connection.createStatement();
-		} catch (SQLException e) {
-			throw new DbInitializationException("Creazione dello statement fallita", e);
+	/**
+	 * Svuota il batch dello statement dopo un errore, in maniera che possa essere riutilizzato.
+	 */
+	private void clearBatch(Statement st){
+		if(st == null){
+			return;
 		}
 
-		// Impostazione del fetch size
 		try {
-			if(config.getInt(SKConstants.CONF.DB.KEY_FETCHSIZE, 0) > 0){
-				fetchSize = config.getInt(SKConstants.CONF.DB.KEY_FETCHSIZE);
-				statement.setFetchSize(fetchSize);
-			}
+			st.clearBatch();
+		}
 
-		} catch (SQLException e) {
+		// Ignored clearing exceptions
+		catch (SQLException e) {
 		}
 	}
 
 	/**
-	 * Controlla che la connessione sia attiva e la rinnova in caso di necessita'
+	 * Controlla che la connessione sia attiva e la rinnova in caso di necessita' (vedi {@link #renew(boolean)}).
+	 *
+	 * @throws TransactionException
+	 * 	Se la connessione in transazione non &egrave; pi&ugrave; valida
 	 */
 	private void reset()
+	throws IllegalOperationException, DbInitializationException, TransactionException {
+		if(!this.renew(false)){
+			throw new TransactionException(LOST_TRANSACTION);
+		}
+	}
+
+	/**
+	 * Controlla che la connessione sia attiva e la rinnova in caso di necessita' (vedi {@link #renew(boolean)})
+	 * prima dell'esecuzione della query in ingresso.
+	 *
+	 * @throws SqlQueryException
+	 * 	Se la connessione in transazione non &egrave; pi&ugrave; valida
+	 */
+	private void reset(String sql)
+	throws IllegalOperationException, DbInitializationException, SqlQueryException {
+		if(!this.renew(false)){
+			throw new SqlQueryException(sql, LOST_TRANSACTION);
+		}
+	}
+
+	/**
+	 * Controlla che la connessione sia attiva e la rinnova in caso di necessita'.
+	 * La connessione viene validata solo se inattiva da oltre <code>sk.db.validationInterval</code> millisecondi,
+	 * in maniera che le query ravvicinate non paghino il controllo.
+	 * <br><br>
+	 * Se il connector &egrave; in transazione una connessione non pi&ugrave; valida non viene rinnovata,
+	 * perch&eacute; le modifiche non ancora confermate sono andate perse insieme ad essa: la transazione
+	 * va chiusa con {@link #rollback()}, che apre una nuova connessione.
+	 *
+	 * @param force
+	 * 	<code>true</code> per rinnovare la connessione anche se il connector &egrave; in transazione
+	 *
+	 * @return
+	 * 	<code>false</code> se la connessione in transazione non &egrave; pi&ugrave; valida e non &egrave; stata rinnovata
+	 */
+	private boolean renew(boolean force)
 	throws IllegalOperationException, DbInitializationException {
 		if(isClosed){
 			throw new IllegalOperationException("Impossibile rinnovare la connessione dopo che il connector è stato chiuso!");
 		}
 
+		long now = System.nanoTime();
+
+		if(connection == null || now - lastUse > validationInterval){
+			synchronized (tracker) {
+				try {
+					if(connection == null || (now - lastUse > validationInterval && !isValid(connection))){
+						if(connection != null && isTransaction && !force){
+							return false;
+						}
+
+						this.discardConnection();
+						this.setupConnection();
+					}
+				} catch (Exception e) {
+					throw new DbInitializationException("Impossibile rinnovare la connessione", e);
+				}
+			}
+		}
+
+		if(!retired.isEmpty()){
+			this.closeRetired();
+		}
+
+		lastUse = now;
+		this.setLastResult(0, null);
+		return true;
+	}
+
+	/**
+	 * Controlla che la connessione sia ancora utilizzabile, con <code>isValid</code> se supportato dal driver.
+	 */
+	private static boolean isValid(Connection connection){
 		try {
-			if(connection == null || connection.isClosed()){
-				this.setupConnection();
+			return connection.isValid(VALIDATION_TIMEOUT);
+		} catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+			try {
+				return !connection.isClosed();
+			} catch (SQLException e1) {
+				return false;
+			}
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Rilascia la connessione non pi&ugrave; valida, ignorando gli errori di chiusura.
+	 * In modalit&agrave; thread-safe gli altri thread potrebbero avere ancora dei result set aperti sulla connessione:
+	 * in questo caso la connessione viene chiusa solo dopo il rilascio di tutti i suoi statements.
+	 */
+	private void discardConnection(){
+		Connection old = connection;
+
+		if(old == null){
+			return;
+		}
+
+		log.warn("Connessione non valida dopo un periodo di inattivita': viene aperta una nuova connessione");
+
+		if(statementCache != null){
+			statementCache.clear();
+			statementCache = null;
+		}
+
+		try {
+			if(statement != null){
+				statement.close();
+			}
+		} catch (SQLException e) {
+			// Ignorata
+		}
+
+		statement = null;
+		connection = null;
+
+		if(tracker.isInUse(old)){
+			retired.add(old);
+		} else {
+			closeQuietly(old);
+		}
+	}
+
+	/**
+	 * Chiude le connessioni sostituite dal rinnovo che non hanno pi&ugrave; statements aperti.
+	 */
+	private void closeRetired(){
+		List<Connection> released = new ArrayList<Connection>();
+
+		synchronized (retired) {
+			for(Iterator<Connection> it = retired.iterator(); it.hasNext();){
+				Connection old = it.next();
+
+				if(!tracker.isInUse(old)){
+					it.remove();
+					released.add(old);
+				}
 			}
-		} catch (Exception e) {
-			throw new DbInitializationException("Impossibile rinnovare la connessione", e);
 		}
 
-		lastInsertId = 0;
-		lastUpdatedRows = 0;
+		for(Connection old : released){
+			closeQuietly(old);
+		}
+	}
+
+	private static void closeQuietly(Connection connection){
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			// Ignorata
+		}
 	}
 }
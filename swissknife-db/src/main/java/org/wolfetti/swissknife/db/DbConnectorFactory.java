@@ -23,8 +23,16 @@ import static org.wolfetti.swissknife.db.utils.DbConnectorUtils.getJndiConfigura
 import static org.wolfetti.swissknife.db.utils.DbConnectorUtils.getPooledConfiguration;
 
 import java.io.FileReader;
+import java.sql.Connection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.PropertiesConfiguration;
@@ -39,6 +47,8 @@ import org.wolfetti.swissknife.common.utils.StringUtils;
 import org.wolfetti.swissknife.db.exceptions.DbConfigKeyException;
 import org.wolfetti.swissknife.db.exceptions.DbConfigLoadException;
 import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+import org.wolfetti.swissknife.db.pool.ConnectionPools;
+import org.wolfetti.swissknife.db.utils.DbExecutor;
 
 /**
  * Classe che inizializza il DbConnector e tutti gli elementi necessari.
@@ -51,10 +61,21 @@ public class DbConnectorFactory {
 	private DbConnectorFactory(){}
 
 	/**
-	 * La singola istanza di configurazione
+	 * La configurazione del datasource di default (chiavi <code>sk.db.*</code>)
 	 */
 	private static Configuration config;
 
+	/**
+	 * Le configurazioni dei datasource con nome (chiavi <code>sk.db.&lt;nome&gt;.*</code>),
+	 * con le chiavi riportate nella forma <code>sk.db.*</code>
+	 */
+	private static volatile Map<String, Configuration> datasources = Collections.emptyMap();
+
+	/**
+	 * Le repliche in lettura dei datasource di tipo ROUTING, create al primo utilizzo
+	 */
+	private static final ConcurrentMap<String, ReadReplicas> readReplicas = new ConcurrentHashMap<String, ReadReplicas>();
+
 	/**
 	 * Logger
 	 */
@@ -114,7 +135,7 @@ public class DbConnectorFactory {
         }
 
 		// FIXME Eliminare la dipendenza dalle commons -----------
-		config = new PropertiesConfiguration();
+		Configuration conf = new PropertiesConfiguration();
 		// -------------------------------------------------------
 
 		Enumeration<?> names = props.propertyNames();
@@ -123,22 +144,56 @@ public class DbConnectorFactory {
 
 			if(name != null && name.startsWith(DB.PREFIX)){
 				String value = props.getProperty(name);
-				config.addProperty(name, value);
+				conf.addProperty(name, value);
 			}
 		}
-		
-		if("POOL".equals(getConnectionType())){
-			PooledConnector.ACQUIRE_INCREMENT = config.getInt(DB.KEY_POOL_ACQUIRE_INCREMENT, PooledConnector.ACQUIRE_INCREMENT);
-			PooledConnector.MIN_POOL_SIZE = config.getInt(DB.KEY_MIN_POOLSIZE, PooledConnector.MIN_POOL_SIZE);
-			PooledConnector.MAX_POOL_SIZE = config.getInt(DB.KEY_MAX_POOLSIZE, PooledConnector.MAX_POOL_SIZE);
-			logPoolDebugInformations();
+
+		conf.setProperty(DB.KEY_NAME, DB.DEFAULT_NAME);
+
+		// Datasource con nome: le chiavi sk.db.<nome>.* diventano sk.db.*
+		Map<String, Configuration> named = new LinkedHashMap<String, Configuration>();
+		for(String dsName : conf.getStringArray(DB.KEY_DATASOURCES)){
+			dsName = dsName.trim();
+
+			if(dsName.length() == 0 || DB.DEFAULT_NAME.equals(dsName)){
+				continue;
+			}
+
+			String dsPrefix = DB.PREFIX + "." + dsName + ".";
+			Configuration dsConf = new PropertiesConfiguration();
+
+			names = props.propertyNames();
+			while (names.hasMoreElements()) {
+				String name = (String) names.nextElement();
+
+				if(name != null && name.startsWith(dsPrefix)){
+					dsConf.addProperty(DB.PREFIX + "." + name.substring(dsPrefix.length()), props.getProperty(name));
+				}
+			}
+
+			dsConf.setProperty(DB.KEY_NAME, dsName);
+			named.put(dsName, dsConf);
+		}
+
+		config = conf;
+		datasources = Collections.unmodifiableMap(named);
+		readReplicas.clear();
+
+		if("POOL".equals(getConnectionType(conf))){
+			logPoolDebugInformations(conf);
+		}
+
+		for(Configuration dsConf : named.values()){
+			if("POOL".equals(getConnectionType(dsConf))){
+				logPoolDebugInformations(dsConf);
+			}
 		}
 	}
-	
+
 	/**
 	 * Logga le informazioni di debug per il connection pool.
 	 */
-	private static void logPoolDebugInformations(){
+	private static void logPoolDebugInformations(Configuration conf){
 		if(log.isDebugEnabled()){
 			StringBuffer msg = new StringBuffer();
 			
@@ -146,14 +201,23 @@ public class DbConnectorFactory {
 			msg.append(SKConstants.NEW_LINE);
 			msg.append("########## CONNECTION POOL DETAILS ##########");
 			msg.append(SKConstants.NEW_LINE);
+			msg.append("Datasource = ");
+			msg.append(conf.getString(DB.KEY_NAME, DB.DEFAULT_NAME));
+			msg.append(SKConstants.NEW_LINE);
+			msg.append("Pool type = ");
+			msg.append(ConnectionPools.getPoolType(conf));
+			msg.append(SKConstants.NEW_LINE);
 			msg.append("Minimal pool size = ");
-			msg.append(PooledConnector.MIN_POOL_SIZE);
+			msg.append(ConnectionPools.getMinPoolSize(conf));
 			msg.append(SKConstants.NEW_LINE);
 			msg.append("Maximal pool size = ");
-			msg.append(PooledConnector.MAX_POOL_SIZE);
+			msg.append(ConnectionPools.getMaxPoolSize(conf));
 			msg.append(SKConstants.NEW_LINE);
 			msg.append("Acquire increment = ");
-			msg.append(PooledConnector.ACQUIRE_INCREMENT);
+			msg.append(ConnectionPools.getAcquireIncrement(conf));
+			msg.append(SKConstants.NEW_LINE);
+			msg.append("Acquire timeout (ms) = ");
+			msg.append(ConnectionPools.getAcquireTimeout(conf));
 			msg.append(SKConstants.NEW_LINE);
 			msg.append("#############################################");
 			msg.append(SKConstants.NEW_LINE);
@@ -166,14 +230,14 @@ public class DbConnectorFactory {
 	 * Controllo che la configurazione esista
 	 * e che abbia tutte le chiavi necessarie
 	 */
-	private static void checkConfiguration(String[] requiredKeys)
+	private static void checkConfiguration(Configuration conf, String[] requiredKeys)
 	throws DbConfigLoadException, DbConfigKeyException {
-		if(config == null){
+		if(conf == null){
 			throw new DbConfigLoadException("Configuration not loaded.");
 		}
 
 		for(String key : requiredKeys){
-			if(!config.containsKey(key)){
+			if(!conf.containsKey(key)){
 				throw new DbConfigKeyException(key);
 			}
 		}
@@ -206,15 +270,16 @@ public class DbConnectorFactory {
 
 	/**
 	 *
+	 * @param conf
 	 * @param isTransaction
 	 * @return
 	 * @throws DbConfigLoadException
 	 * @throws DbConfigKeyException
 	 */
-	private static DbConnector getJdbcConnector(boolean isTransaction)
+	private static DbConnector getJdbcConnector(Configuration conf, boolean isTransaction)
 	throws DbConfigLoadException, DbConfigKeyException {
-		checkConfiguration(DB.JDBC_REQUIRED);
-		return new JdbcConnector(config, isTransaction);
+		checkConfiguration(conf, DB.JDBC_REQUIRED);
+		return new JdbcConnector(conf, isTransaction);
 	}
 
 	/**
@@ -226,8 +291,9 @@ public class DbConnectorFactory {
 	 * @return
 	 */
 	public static DbConnector getPooledConnector(String driver, String url, String user, String password) {
-		logPoolDebugInformations();
-		return new PooledConnector(getPooledConfiguration(driver, url, user, password));
+		Configuration conf = getPooledConfiguration(driver, url, user, password);
+		logPoolDebugInformations(conf);
+		return new PooledConnector(conf);
 	}
 
 	/**
@@ -240,21 +306,23 @@ public class DbConnectorFactory {
 	 * @return
 	 */
 	public static DbConnector getPooledConnector(String driver, String url, String user, String password, boolean isTransaction) {
-		logPoolDebugInformations();
-		return new PooledConnector(getPooledConfiguration(driver, url, user, password), isTransaction);
+		Configuration conf = getPooledConfiguration(driver, url, user, password);
+		logPoolDebugInformations(conf);
+		return new PooledConnector(conf, isTransaction);
 	}
 
 	/**
 	 *
+	 * @param conf
 	 * @param isTransaction
 	 * @return
 	 * @throws DbConfigLoadException
 	 * @throws DbConfigKeyException
 	 */
-	private static DbConnector getPooledConnector(boolean isTransaction)
+	private static DbConnector getPooledConnector(Configuration conf, boolean isTransaction)
 	throws DbConfigLoadException, DbConfigKeyException {
-		checkConfiguration(DB.POOLED_REQUIRED);
-		return new PooledConnector(config, isTransaction);
+		checkConfiguration(conf, DB.POOLED_REQUIRED);
+		return new PooledConnector(conf, isTransaction);
 	}
 
 	/**
@@ -280,15 +348,16 @@ public class DbConnectorFactory {
 
 	/**
 	 *
+	 * @param conf
 	 * @param isTransaction
 	 * @return
 	 * @throws DbConfigLoadException
 	 * @throws DbConfigKeyException
 	 */
-	private static DbConnector getJndiConnector(boolean isTransaction)
+	private static DbConnector getJndiConnector(Configuration conf, boolean isTransaction)
 	throws DbConfigLoadException, DbConfigKeyException {
-		checkConfiguration(DB.JNDI_REQUIRED);
-		return new JndiConnector(config, isTransaction);
+		checkConfiguration(conf, DB.JNDI_REQUIRED);
+		return new JndiConnector(conf, isTransaction);
 	}
 
 	/**
@@ -302,6 +371,20 @@ public class DbConnectorFactory {
 		return getDbConnector(false);
 	}
 
+	/**
+	 *
+	 * @param conf
+	 * @param isTransaction
+	 * @return
+	 * @throws DbConfigLoadException
+	 * @throws DbConfigKeyException
+	 */
+	private static DbConnector getRoutingConnector(Configuration conf, boolean isTransaction)
+	throws DbConfigLoadException, DbConfigKeyException {
+		checkConfiguration(conf, DB.ROUTING_REQUIRED);
+		return new RoutingConnector(conf, isTransaction);
+	}
+
 	/**
 	 * Istanzia un {@link DbConnector} in base alla configurazione effettuata su file.
 	 *
@@ -309,21 +392,129 @@ public class DbConnectorFactory {
 	 */
 	public static DbConnector getDbConnector(boolean isTransaction)
 	throws DbInitializationException {
+		return getDbConnector(DB.DEFAULT_NAME, isTransaction);
+	}
+
+	/**
+	 * Istanzia un {@link DbConnector} per il datasource indicato.
+	 * Il connettore restituito avra' il flag della transazione a <code>FALSE</code>
+	 *
+	 * @param name
+	 * 	Il nome del datasource, configurato con le chiavi <code>sk.db.&lt;nome&gt;.*</code>
+	 *
+	 * @throws DbInitializationException
+	 */
+	public static DbConnector getDbConnector(String name)
+	throws DbInitializationException {
+		return getDbConnector(name, false);
+	}
+
+	/**
+	 * Istanzia un {@link DbConnector} per il datasource indicato.
+	 *
+	 * @param name
+	 * 	Il nome del datasource, configurato con le chiavi <code>sk.db.&lt;nome&gt;.*</code>
+	 *
+	 * @param isTransaction
+	 * 	<code>true</code> se si vuole attivare la transazione
+	 *
+	 * @throws DbInitializationException
+	 */
+	public static DbConnector getDbConnector(String name, boolean isTransaction)
+	throws DbInitializationException {
+		Configuration conf = getConfiguration(name);
+		String type = getConnectionType(conf);
+
+		switch (type) {
+			case "JDBC": return getJdbcConnector(conf, isTransaction);
+			case "JNDI": return getJndiConnector(conf, isTransaction);
+			case "POOL": return getPooledConnector(conf, isTransaction);
+			case "ROUTING": return getRoutingConnector(conf, isTransaction);
+		}
+
+		throw new DbInitializationException("Tipo di connettore non riconosciuto: " + type);
+	}
+
+	/**
+	 * Restituisce i nomi dei datasource configurati con la chiave <code>sk.db.datasources</code>
+	 */
+	public static Set<String> getDatasourceNames(){
 		if(config == null){
 			loadConfigurationFile();
 		}
 
-		String type = getConnectionType();
-		
+		return datasources.keySet();
+	}
+
+	/**
+	 * Restituisce la configurazione del datasource indicato, con le chiavi nella forma <code>sk.db.*</code>
+	 *
+	 * @throws DbConfigLoadException
+	 * 	Quando il datasource non e' configurato
+	 */
+	static Configuration getConfiguration(String name)
+	throws DbConfigLoadException {
+		if(config == null){
+			loadConfigurationFile();
+		}
+
+		if(name == null || DB.DEFAULT_NAME.equals(name)){
+			return config;
+		}
+
+		Configuration conf = datasources.get(name);
+
+		if(conf == null){
+			throw new DbConfigLoadException("Datasource non configurato: " + name);
+		}
+
+		return conf;
+	}
+
+	/**
+	 * Apre una connessione verso il datasource configurato, in base al suo tipo.
+	 * Utilizzato dal {@link RoutingConnector} per la connessione al primario.
+	 *
+	 * @throws DbInitializationException
+	 */
+	static Connection openConnection(Configuration conf)
+	throws DbInitializationException {
+		String type = getConnectionType(conf);
+
 		switch (type) {
-			case "JDBC": return getJdbcConnector(isTransaction);
-			case "JNDI": return getJndiConnector(isTransaction);
-			case "POOL": return getPooledConnector(isTransaction);
+			case "JDBC":
+				checkConfiguration(conf, DB.JDBC_REQUIRED);
+				return JdbcConnector.open(conf);
+			case "JNDI":
+				checkConfiguration(conf, DB.JNDI_REQUIRED);
+				return JndiConnector.open(conf);
+			case "POOL":
+				checkConfiguration(conf, DB.POOLED_REQUIRED);
+				return PooledConnector.open(conf);
 		}
 
-		throw new DbInitializationException("Tipo di connettore non riconosciuto: " + type);
+		throw new DbInitializationException("Tipo di connettore non utilizzabile come primario: " + type);
 	}
-	
+
+	/**
+	 * Restituisce le repliche in lettura del datasource di routing, creandole al primo utilizzo.
+	 */
+	static ReadReplicas getReadReplicas(Configuration conf){
+		String name = conf.getString(DB.KEY_NAME, DB.DEFAULT_NAME);
+		ReadReplicas result = readReplicas.get(name);
+
+		if(result == null){
+			result = new ReadReplicas(conf);
+			ReadReplicas previous = readReplicas.putIfAbsent(name, result);
+
+			if(previous != null){
+				result = previous;
+			}
+		}
+
+		return result;
+	}
+
 	/**
 	 * Restituisce il tipo di connessione utilizzata
 	 * 
@@ -333,37 +524,47 @@ public class DbConnectorFactory {
 		if(config == null){
 			loadConfigurationFile();
 		}
-		
-		String type = config.getString(DB.KEY_TYPE);
+
+		return getConnectionType(config);
+	}
+
+	/**
+	 * Restituisce il tipo di connessione utilizzata dalla configurazione in ingresso
+	 */
+	private static String getConnectionType(Configuration conf){
+		String type = conf.getString(DB.KEY_TYPE);
 
 		if(StringUtils.isEmptyOrNull(type)){
 			log.warn(
-				"Nessun tipo di connector specificato in configurazione. " +
+				"Nessun tipo di connector specificato in configurazione per il datasource " +
+				conf.getString(DB.KEY_NAME, DB.DEFAULT_NAME) + ". " +
 				"Verra' utilizzato quello di default: " +
 				DB.DEFAULT_TYPE
 			);
 
 			type = DB.DEFAULT_TYPE;
 		} else {
-			type = type.trim().toUpperCase();
+			type = type.trim().toUpperCase(Locale.ROOT);
 		}
 		
 		return type;
 	}
 	
 	/**
-	 * Metodo che rilascia le risorse utilizzate
+	 * Metodo che rilascia le risorse utilizzate da tutti i datasource
 	 */
 	public static void releaseResources(){
+		DbExecutor.shutdown();
+		JdbcConnector.releaseResources();
+		JndiConnector.releaseResources();
+
 		String type = getConnectionType();
-		switch (type) {
-			case "JDBC": 
-			case "JNDI": 
-				log.debug("Release resources is not necessary for type " + type);
-				break;
-			case "POOL": 
-				PooledConnector.releaseResources();
-				break;
+
+		if(!"POOL".equals(type) && datasources.isEmpty()){
+			log.debug("Release resources is not necessary for type " + type);
+			return;
 		}
+
+		PooledConnector.releaseResources();
 	}
 }
@@ -19,8 +19,12 @@
 package org.wolfetti.swissknife.db;
 
 import java.sql.Connection;
+import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.configuration.Configuration;
 import org.wolfetti.swissknife.common.SKConstants;
@@ -33,6 +37,12 @@ import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
  */
 public final class JdbcConnector extends DbConnector {
 
+	/**
+	 * Le istanze dei driver JDBC per nome della classe, create alla prima connessione.
+	 * In caso di errore di connessione il driver viene rimosso e ricreato alla connessione successiva.
+	 */
+	private static final ConcurrentMap<String, Driver> drivers = new ConcurrentHashMap<String, Driver>();
+
 	/**
 	 * Creazione di un connector JDBC in base alla configurazione creata applicativamente.
 	 *
@@ -64,21 +74,75 @@ public final class JdbcConnector extends DbConnector {
 	@Override
 	protected Connection initConnection(Configuration conf)
 	throws DbInitializationException {
-		String driver = conf.getString(SKConstants.CONF.DB.KEY_DRIVER);
+		return open(conf);
+	}
+
+	/**
+	 * Apre una nuova connessione JDBC in base alla configurazione in ingresso,
+	 * utilizzando il driver in cache per la classe configurata.
+	 * Un errore di connessione non rimuove il driver dalla cache: in cache entrano solo i driver
+	 * caricati e istanziati correttamente.
+	 */
+	static Connection open(Configuration conf)
+	throws DbInitializationException {
+		String url = conf.getString(SKConstants.CONF.DB.KEY_URL);
+		String user = conf.getString(SKConstants.CONF.DB.KEY_USER);
+		String password = conf.getString(SKConstants.CONF.DB.KEY_PASSWORD);
+		Driver driver = getDriver(conf.getString(SKConstants.CONF.DB.KEY_DRIVER));
+
+		Properties info = new Properties();
+		if(user != null){
+			info.setProperty("user", user);
+		}
+
+		if(password != null){
+			info.setProperty("password", password);
+		}
+
 		try {
-			Class.forName(driver).newInstance();
-			return DriverManager.getConnection(
-				conf.getString(SKConstants.CONF.DB.KEY_URL),
-				conf.getString(SKConstants.CONF.DB.KEY_USER),
-				conf.getString(SKConstants.CONF.DB.KEY_PASSWORD)
-			);
-		} catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
-			throw new DbInitializationException("Driver non valido: " + driver, e);
+			Connection result = driver.connect(url, info);
+
+			// Il driver non accetta l'URL: viene cercato tra quelli registrati
+			return result != null ? result : DriverManager.getConnection(url, user, password);
 		} catch (SQLException e) {
 			throw new DbInitializationException("Apertura della connessione fallita", e);
 		}
 	}
 
+	/**
+	 * Restituisce l'istanza del driver indicato, creandola alla prima chiamata.
+	 */
+	private static Driver getDriver(String driverClass)
+	throws DbInitializationException {
+		if(driverClass == null){
+			throw new DbInitializationException("Driver non configurato");
+		}
+
+		Driver result = drivers.get(driverClass);
+
+		if(result == null){
+			try {
+				result = (Driver) Class.forName(driverClass).getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | ClassCastException e) {
+				throw new DbInitializationException("Driver non valido: " + driverClass, e);
+			}
+
+			Driver previous = drivers.putIfAbsent(driverClass, result);
+			if(previous != null){
+				result = previous;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Rimuove i driver dalla cache.
+	 */
+	public static void releaseResources() {
+		drivers.clear();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.wolfetti.lib.db.connector.DbConnector#clone(org.apache.commons.configuration.Configuration, boolean)
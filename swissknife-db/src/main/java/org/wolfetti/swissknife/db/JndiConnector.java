@@ -20,6 +20,8 @@ package org.wolfetti.swissknife.db;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -36,7 +38,11 @@ import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
  *
  */
 public final class JndiConnector extends DbConnector {
-	private DataSource ds;
+
+	/**
+	 * I datasource per nome del contesto JNDI, cercati alla prima connessione.
+	 */
+	private static final ConcurrentMap<String, DataSource> dataSources = new ConcurrentHashMap<String, DataSource>();
 
 	/**
 	 * Creazione di un connector JNDI in base alla configurazione creata applicativamente.
@@ -68,21 +74,60 @@ public final class JndiConnector extends DbConnector {
 	 */
 	@Override
 	protected Connection initConnection(Configuration conf)
+	throws DbInitializationException {
+		return open(conf);
+	}
+
+	/**
+	 * Apre una nuova connessione dal datasource del contesto JNDI configurato.
+	 * Il datasource viene cercato nel contesto solo alla prima connessione: se quello in cache
+	 * non fornisce la connessione (es. dopo un nuovo deploy) viene cercato di nuovo.
+	 */
+	static Connection open(Configuration conf)
 	throws DbInitializationException {
 		String ctxName = conf.getString(SKConstants.CONF.DB.KEY_CONTEXT);
-		try {
-			InitialContext ic = new InitialContext();
-			ds = (DataSource) ic.lookup(ctxName);
-			return ds.getConnection();
+		DataSource cached = dataSources.get(ctxName);
+
+		if(cached != null){
+			try {
+				return cached.getConnection();
+			} catch (SQLException e) {
+				dataSources.remove(ctxName, cached);
+			}
 		}
-		catch (NamingException e) {
-			throw new DbInitializationException("Context non valido: " + ctxName, e);
+
+		DataSource ds = lookup(ctxName);
+		try {
+			Connection result = ds.getConnection();
+			dataSources.put(ctxName, ds);
+			return result;
 		}
 		catch (SQLException e) {
 			throw new DbInitializationException("Apertura della connessione fallita", e);
 		}
 	}
 
+	/**
+	 * Cerca il datasource nel contesto JNDI.
+	 */
+	private static DataSource lookup(String ctxName)
+	throws DbInitializationException {
+		try {
+			InitialContext ic = new InitialContext();
+			return (DataSource) ic.lookup(ctxName);
+		}
+		catch (NamingException | ClassCastException e) {
+			throw new DbInitializationException("Context non valido: " + ctxName, e);
+		}
+	}
+
+	/**
+	 * Rimuove i datasource dalla cache.
+	 */
+	public static void releaseResources() {
+		dataSources.clear();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.wolfetti.lib.db.connector.DbConnector#clone(org.apache.commons.configuration.Configuration, boolean)
@@ -18,43 +18,31 @@
  */
 package org.wolfetti.swissknife.db;
 
-import java.beans.PropertyVetoException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.configuration.Configuration;
 import org.wolfetti.swissknife.common.SKConstants;
 import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
-
-import com.mchange.v2.c3p0.ComboPooledDataSource;
+import org.wolfetti.swissknife.db.pool.ConnectionPool;
+import org.wolfetti.swissknife.db.pool.ConnectionPools;
 
 /**
  * Classe che interroga il database sfruttando un pool di connessioni JDBC.
+ * L'implementazione del pool viene scelta con la chiave <code>sk.db.poolType</code> (vedi {@link ConnectionPools}).
  *
  * @author Fabio Frijo
  */
 public final class PooledConnector extends DbConnector {
-	
-	/**
-	 * La configurazione del numero di connessioni da aprire ogni volta che viene
-	 * richiesto un aumento di connessioni al connection pool.
-	 */
-	static int ACQUIRE_INCREMENT = 5;
-	
-	/**
-	 * Il numero di connessioni iniziali del pool.
-	 */
-	static int MIN_POOL_SIZE = 5;
-	
-	/**
-	 * Il numero di connessioni massime del pool.
-	 */
-	static int MAX_POOL_SIZE = 100;
-	
+
 	/**
-	 * The unique instance of combo pooled datasource
+	 * I connection pool, uno per ogni datasource, creati alla prima connessione.
 	 */
-	private static ComboPooledDataSource cpds = null;
+	private static final ConcurrentMap<String, ConnectionPool> pools = new ConcurrentHashMap<String, ConnectionPool>();
 
 	/**
 	 * Creazione di un connector JDBC pooled in base alla configurazione creata applicativamente.
@@ -87,35 +75,16 @@ public final class PooledConnector extends DbConnector {
 	@Override
 	protected Connection initConnection(Configuration conf)
 	throws DbInitializationException {
-		if(cpds != null){
-			try {
-				return cpds.getConnection();
-			} catch (SQLException e) {
-				throw new DbInitializationException("Apertura della connessione fallita", e);
-			}
-		}
-		
-		cpds = new ComboPooledDataSource();
+		return open(conf);
+	}
 
+	/**
+	 * Preleva una connessione dal pool del datasource configurato.
+	 */
+	static Connection open(Configuration conf)
+	throws DbInitializationException {
 		try {
-			
-			// Mandatory config options
-			cpds.setDriverClass(conf.getString(SKConstants.CONF.DB.KEY_DRIVER));
-			cpds.setJdbcUrl(conf.getString(SKConstants.CONF.DB.KEY_URL));
-			cpds.setUser(conf.getString(SKConstants.CONF.DB.KEY_USER));
-			cpds.setPassword(conf.getString(SKConstants.CONF.DB.KEY_PASSWORD));
-			
-			// Optional config options
-			cpds.setAcquireIncrement(ACQUIRE_INCREMENT);
-			cpds.setMinPoolSize(MIN_POOL_SIZE);
-			cpds.setMaxPoolSize(MAX_POOL_SIZE);
-			
-			// Static configuration options
-			cpds.setMaxIdleTime(600);
-
-			return cpds.getConnection();
-		} catch (PropertyVetoException e) {
-			throw new DbInitializationException("Driver non valido: " + conf.getString(SKConstants.CONF.DB.KEY_DRIVER), e);
+			return getPool(conf).getConnection();
 		} catch (SQLException e) {
 			throw new DbInitializationException("Apertura della connessione fallita", e);
 		}
@@ -131,14 +100,57 @@ public final class PooledConnector extends DbConnector {
 	}
 
 	/**
-	 * Rilascia le connessioni utilizzate dal pool.
+	 * Restituisce il connection pool del datasource configurato, creandolo alla prima chiamata.
+	 * La creazione e' sincronizzata, in maniera che thread concorrenti non possano creare due pool.
+	 */
+	private static ConnectionPool getPool(Configuration conf){
+		String name = conf.getString(SKConstants.CONF.DB.KEY_NAME, SKConstants.CONF.DB.DEFAULT_NAME);
+		ConnectionPool result = pools.get(name);
+
+		if(result == null){
+			synchronized (pools) {
+				result = pools.get(name);
+
+				if(result == null){
+					result = ConnectionPools.create(conf);
+					pools.put(name, result);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Restituisce il connection pool del datasource di default, o <code>null</code> se non ancora creato.
+	 */
+	public static ConnectionPool getPool(){
+		return getPool(SKConstants.CONF.DB.DEFAULT_NAME);
+	}
+
+	/**
+	 * Restituisce il connection pool del datasource indicato, o <code>null</code> se non ancora creato.
+	 *
+	 * @param name
+	 * 	Il nome del datasource
+	 */
+	public static ConnectionPool getPool(String name){
+		return pools.get(name);
+	}
+
+	/**
+	 * Rilascia le connessioni utilizzate da tutti i pool.
 	 */
 	public static void releaseResources() {
-		if(null != cpds){
-			cpds.setInitialPoolSize(0);
-			cpds.setMaxPoolSize(0);
-			cpds.setMaxIdleTime(60);
-			cpds.resetPoolManager();
+		List<ConnectionPool> released;
+
+		synchronized (pools) {
+			released = new ArrayList<ConnectionPool>(pools.values());
+			pools.clear();
+		}
+
+		for(ConnectionPool p : released){
+			p.close();
 		}
 	}
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants;
+import org.wolfetti.swissknife.db.exceptions.DbConfigKeyException;
+
+/**
+ * Le repliche in sola lettura di un datasource di tipo <code>ROUTING</code> e la strategia con la quale
+ * vengono assegnate ai connettori.
+ * <br><br>
+ * Con <code>ROUND_ROBIN</code> le repliche vengono assegnate a turno, con <code>LEAST_BUSY</code>
+ * viene scelta quella con meno connettori aperti in quel momento.
+ *
+ * @author Fabio Frijo
+ */
+final class ReadReplicas {
+
+	/**
+	 * I nomi dei datasource delle repliche
+	 */
+	private final String[] names;
+
+	/**
+	 * Il numero di connettori aperti su ogni replica
+	 */
+	private final AtomicInteger[] busy;
+
+	/**
+	 * Il contatore per l'assegnazione a turno
+	 */
+	private final AtomicInteger cursor = new AtomicInteger();
+
+	/**
+	 * <code>true</code> se va scelta la replica meno occupata
+	 */
+	private final boolean leastBusy;
+
+	/**
+	 * Crea l'insieme delle repliche in base alla configurazione del datasource di routing.
+	 *
+	 * @throws DbConfigKeyException
+	 * 	Quando la strategia configurata non &egrave; riconosciuta
+	 */
+	ReadReplicas(Configuration conf){
+		String[] configured = conf.getStringArray(SKConstants.CONF.DB.KEY_REPLICAS);
+		String strategy = conf.getString(SKConstants.CONF.DB.KEY_READ_STRATEGY, SKConstants.CONF.DB.DEFAULT_READ_STRATEGY).trim().toUpperCase(Locale.ROOT);
+
+		switch (strategy) {
+			case "ROUND_ROBIN": this.leastBusy = false; break;
+			case "LEAST_BUSY": this.leastBusy = true; break;
+			default: throw new DbConfigKeyException(
+				SKConstants.CONF.DB.KEY_READ_STRATEGY,
+				"Strategia di lettura non riconosciuta: " + strategy
+			);
+		}
+
+		int count = 0;
+		this.names = new String[configured.length];
+		for(String name : configured){
+			if(name != null && name.trim().length() > 0){
+				this.names[count++] = name.trim();
+			}
+		}
+
+		this.busy = new AtomicInteger[count];
+		for(int i = 0; i < count; i++){
+			this.busy[i] = new AtomicInteger();
+		}
+	}
+
+	/**
+	 * @return il numero di repliche configurate
+	 */
+	int size(){
+		return this.busy.length;
+	}
+
+	/**
+	 * Sceglie una replica e la segna come occupata.
+	 *
+	 * @return l'indice della replica, oppure <code>-1</code> se non ci sono repliche configurate
+	 */
+	int acquire(){
+		int size = this.busy.length;
+
+		if(size == 0){
+			return -1;
+		}
+
+		// Il punto di partenza ruota anche con LEAST_BUSY, per distribuire i pareggi
+		int start = (this.cursor.getAndIncrement() & Integer.MAX_VALUE) % size;
+		int chosen = start;
+
+		if(this.leastBusy){
+			int min = Integer.MAX_VALUE;
+
+			for(int i = 0; i < size; i++){
+				int index = (start + i) % size;
+				int current = this.busy[index].get();
+
+				if(current < min){
+					min = current;
+					chosen = index;
+				}
+			}
+		}
+
+		this.busy[chosen].incrementAndGet();
+		return chosen;
+	}
+
+	/**
+	 * Libera la replica scelta con {@link #acquire()}.
+	 */
+	void release(int index){
+		if(index >= 0){
+			this.busy[index].decrementAndGet();
+		}
+	}
+
+	/**
+	 * @return il nome del datasource della replica
+	 */
+	String getName(int index){
+		return this.names[index];
+	}
+
+	/**
+	 * @return il numero di connettori aperti sulla replica
+	 */
+	int getBusy(int index){
+		return this.busy[index].get();
+	}
+}
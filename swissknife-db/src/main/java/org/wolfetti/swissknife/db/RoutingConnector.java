@@ -0,0 +1,287 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import java.io.File;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.List;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants;
+import org.wolfetti.swissknife.db.dialect.Dialect;
+import org.wolfetti.swissknife.db.entities.BatchResult;
+import org.wolfetti.swissknife.db.entities.ExecutionOptions;
+import org.wolfetti.swissknife.db.entities.WriteResult;
+import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+import org.wolfetti.swissknife.db.exceptions.DuplicatedKeyException;
+import org.wolfetti.swissknife.db.exceptions.IllegalOperationException;
+import org.wolfetti.swissknife.db.exceptions.InvalidFileException;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+import org.wolfetti.swissknife.db.utils.BlobSource;
+
+/**
+ * Connettore che smista le query tra un datasource primario e le sue repliche in sola lettura.
+ * <br><br>
+ * Le letture (<code>query</code>, <code>preparedQuery</code>, <code>openCursor</code>) vengono eseguite
+ * su una replica, scelta alla prima lettura e mantenuta fino alla chiusura del connettore.
+ * Le scritture, le transazioni e tutte le letture successive ad una scrittura vengono eseguite sul primario,
+ * in maniera che il connettore legga sempre i dati che ha appena scritto.
+ * Se la replica non &egrave; raggiungibile le letture vengono eseguite sul primario.
+ * La connessione al primario viene aperta solo quando serve (prima scrittura, commit o lettura sul primario):
+ * un connettore che esegue solo letture utilizza soltanto la replica.
+ * <br><br>
+ * Esempio di configurazione:<pre>
+ * sk.db.datasources = main, replica1, replica2, app
+ * sk.db.app.type = ROUTING
+ * sk.db.app.primary = main
+ * sk.db.app.replicas = replica1, replica2
+ * sk.db.app.readStrategy = LEAST_BUSY
+ * </pre>
+ *
+ * @author Fabio Frijo
+ */
+public final class RoutingConnector extends DbConnector {
+
+	/**
+	 * La configurazione del datasource di routing
+	 */
+	private Configuration routing;
+
+	/**
+	 * Le repliche tra le quali scegliere
+	 */
+	private ReadReplicas replicas;
+
+	/**
+	 * Il connettore della replica scelta, aperto alla prima lettura
+	 */
+	private DbConnector replica;
+
+	/**
+	 * L'indice della replica scelta
+	 */
+	private int replicaIndex;
+
+	/**
+	 * Flag che viene attivato dopo la prima scrittura o se la replica non e' raggiungibile:
+	 * da quel momento le letture vengono eseguite sul primario.
+	 */
+	private volatile boolean primaryOnly;
+
+	/**
+	 * Creazione di un connector di routing in base alla configurazione del datasource.
+	 *
+	 * @param config
+	 * 	La configurazione del datasource di routing
+	 *
+	 * @param isTransaction
+	 * 	<code>true</code> se si vuole attivare la transazione (tutte le query vengono eseguite sul primario),
+	 * 	altrimenti la connessione avr&agrave; l'autocommit attivato
+	 */
+	protected RoutingConnector(Configuration config, boolean isTransaction) {
+		super(DbConnectorFactory.getConfiguration(config.getString(SKConstants.CONF.DB.KEY_PRIMARY)), isTransaction, true);
+		this.routing = config;
+		this.replicas = DbConnectorFactory.getReadReplicas(config);
+		this.replicaIndex = -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.wolfetti.lib.db.connector.DbConnector#initConnection(org.apache.commons.configuration.Configuration)
+	 */
+	@Override
+	protected Connection initConnection(Configuration conf)
+	throws DbInitializationException {
+		return DbConnectorFactory.openConnection(conf);
+	}
+
+	/**
+	 * Il clone utilizza sempre la configurazione di routing: quella in ingresso
+	 * &egrave; la configurazione del primario.
+	 */
+	@Override
+	protected DbConnector clone(Configuration config, boolean isTransaction) {
+		return new RoutingConnector(routing, isTransaction);
+	}
+
+	/* ==================================== */
+	/* ============= LETTURE ============== */
+	/* ==================================== */
+
+	@Override
+	public ResultSet query(String sql, ExecutionOptions options)
+	throws SqlQueryException {
+		DbConnector reader = this.reader();
+		return reader == null ? super.query(sql, options) : reader.query(sql, options);
+	}
+
+	@Override
+	public ResultSet preparedQuery(String sql, ExecutionOptions options, Object ... parameters)
+	throws SqlQueryException {
+		DbConnector reader = this.reader();
+		return reader == null ? super.preparedQuery(sql, options, parameters) : reader.preparedQuery(sql, options, parameters);
+	}
+
+	@Override
+	public ResultSet openCursor(String sql, ExecutionOptions options, Object ... parameters)
+	throws SqlQueryException {
+		DbConnector reader = this.reader();
+		return reader == null ? super.openCursor(sql, options, parameters) : reader.openCursor(sql, options, parameters);
+	}
+
+	/**
+	 * Il dialetto viene letto dalla replica, se utilizzata, in maniera da non aprire il primario.
+	 */
+	@Override
+	public Dialect getDialect() {
+		DbConnector reader = this.reader();
+		return reader == null ? super.getDialect() : reader.getDialect();
+	}
+
+	/* ==================================== */
+	/* ============ SCRITTURE ============= */
+	/* ==================================== */
+
+	@Override
+	public WriteResult write(String sql, ExecutionOptions options)
+	throws DuplicatedKeyException, SqlQueryException {
+		primaryOnly = true;
+		return super.write(sql, options);
+	}
+
+	@Override
+	public WriteResult executeUpdate(String sql, ExecutionOptions options, Object ... parameters)
+	throws DuplicatedKeyException, SqlQueryException {
+		primaryOnly = true;
+		return super.executeUpdate(sql, options, parameters);
+	}
+
+	@Override
+	public BatchResult writeBatch(String sql, List<Object[]> rows, int chunkSize)
+	throws DuplicatedKeyException, SqlQueryException {
+		primaryOnly = true;
+		return super.writeBatch(sql, rows, chunkSize);
+	}
+
+	@Override
+	public BatchResult writeBatch(List<String> sqls, int chunkSize)
+	throws DuplicatedKeyException, SqlQueryException {
+		primaryOnly = true;
+		return super.writeBatch(sqls, chunkSize);
+	}
+
+	@Override
+	public WriteResult write(String sql, BlobSource ... sources)
+	throws DuplicatedKeyException, SqlQueryException, InvalidFileException {
+		primaryOnly = true;
+		return super.write(sql, sources);
+	}
+
+	@Override
+	public long loadData(String sql, InputStream data)
+	throws IllegalOperationException, DuplicatedKeyException, SqlQueryException {
+		primaryOnly = true;
+		return super.loadData(sql, data);
+	}
+
+	@Override
+	public void write(String sql, File ... files)
+	throws DuplicatedKeyException, SqlQueryException, InvalidFileException {
+		primaryOnly = true;
+		super.write(sql, files);
+	}
+
+	@Override
+	public void write(String sql, byte[] ... filesBytes)
+	throws DuplicatedKeyException, SqlQueryException, InvalidFileException {
+		primaryOnly = true;
+		super.write(sql, filesBytes);
+	}
+
+	/* ==================================== */
+	/* ============= UTILITY ============== */
+	/* ==================================== */
+
+	/**
+	 * Restituisce il nome della replica utilizzata per le letture,
+	 * o <code>null</code> se le letture vengono eseguite sul primario.
+	 */
+	public String getReplicaName(){
+		return replica == null ? null : replicas.getName(replicaIndex);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.wolfetti.swissknife.db.DbConnector#close()
+	 */
+	@Override
+	public void close() {
+		try {
+			this.releaseReplica();
+		} finally {
+			super.close();
+		}
+	}
+
+	/**
+	 * Restituisce il connettore sul quale eseguire le letture,
+	 * oppure <code>null</code> se vanno eseguite sul primario.
+	 * La replica resta aperta fino alla chiusura del connettore anche dopo una scrittura,
+	 * perche' potrebbe avere dei cursori ancora in lettura.
+	 */
+	private synchronized DbConnector reader(){
+		if(isTransaction || primaryOnly || replicas.size() == 0){
+			return null;
+		}
+
+		if(replica == null){
+			replicaIndex = replicas.acquire();
+			String name = replicas.getName(replicaIndex);
+
+			try {
+				replica = DbConnectorFactory.getDbConnector(name, false);
+				log.debug("Letture assegnate alla replica " + name);
+			} catch (DbInitializationException e) {
+				log.warn("Replica " + name + " non raggiungibile, le letture verranno eseguite sul primario: " + e.getMessage());
+				replicas.release(replicaIndex);
+				replicaIndex = -1;
+				primaryOnly = true;
+			}
+		}
+
+		return replica;
+	}
+
+	/**
+	 * Chiude il connettore della replica, se aperto.
+	 */
+	private synchronized void releaseReplica(){
+		if(replica != null){
+			try {
+				replica.close();
+			} finally {
+				replica = null;
+				replicas.release(replicaIndex);
+				replicaIndex = -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU dei {@link PreparedStatement} aperti su una singola connessione.
+ * Quando viene superata la dimensione massima lo statement usato meno di recente viene chiuso.
+ * <br><br>
+ * Non &egrave; thread-safe: ogni istanza appartiene ad un singolo {@link DbConnector}.
+ *
+ * @author Fabio Frijo
+ */
+final class StatementCache {
+
+	/**
+	 * Il numero di statements mantenuti in cache se non configurato diversamente.
+	 */
+	static final int DEFAULT_SIZE = 50;
+
+	/**
+	 * La connessione sulla quale vengono preparati gli statements
+	 */
+	private final Connection connection;
+
+	/**
+	 * Gli statements, in ordine di accesso.
+	 */
+	private final LinkedHashMap<String, PreparedStatement> statements;
+
+	/**
+	 * Crea una cache per la connessione in ingresso.
+	 *
+	 * @param connection
+	 * 	La connessione sulla quale preparare gli statements
+	 *
+	 * @param maxSize
+	 * 	Il numero massimo di statements da mantenere aperti (almeno uno, l'ultimo utilizzato).
+	 */
+	StatementCache(Connection connection, int maxSize){
+		final int limit = Math.max(1, maxSize);
+
+		this.connection = connection;
+		this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if(size() > limit){
+					closeQuietly(eldest.getValue());
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Restituisce lo statement associato alla query, preparandolo se non presente in cache.
+	 *
+	 * @param sql
+	 * 	La query parametrizzata
+	 *
+	 * @param generatedKeys
+	 * 	<code>true</code> se lo statement deve restituire le chiavi generate
+	 */
+	PreparedStatement get(String sql, boolean generatedKeys)
+	throws SQLException {
+		return this.get(sql, generatedKeys, null);
+	}
+
+	/**
+	 * Restituisce lo statement associato alla query, preparandolo se non presente in cache.
+	 *
+	 * @param sql
+	 * 	La query parametrizzata
+	 *
+	 * @param generatedKeys
+	 * 	<code>true</code> se lo statement deve restituire le chiavi generate
+	 *
+	 * @param keyColumns
+	 * 	Le colonne delle chiavi generate da restituire, o <code>null</code> per quelle scelte dal driver
+	 */
+	PreparedStatement get(String sql, boolean generatedKeys, String[] keyColumns)
+	throws SQLException {
+		String key = keyColumns != null ? "C:" + Arrays.toString(keyColumns) + ":" + sql : generatedKeys ? "K:" + sql : "Q:" + sql;
+		PreparedStatement ps = this.statements.get(key);
+
+		if(ps == null || ps.isClosed()){
+			ps = keyColumns != null ?
+				this.connection.prepareStatement(sql, keyColumns) :
+			generatedKeys ?
+				this.connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) :
+				this.connection.prepareStatement(sql);
+
+			this.statements.put(key, ps);
+		} else {
+			ps.clearParameters();
+		}
+
+		return ps;
+	}
+
+	/**
+	 * @return il numero di statements attualmente in cache
+	 */
+	int size(){
+		return this.statements.size();
+	}
+
+	/**
+	 * Chiude tutti gli statements in cache e svuota la cache.
+	 */
+	void clear(){
+		for(PreparedStatement ps : this.statements.values()){
+			closeQuietly(ps);
+		}
+
+		this.statements.clear();
+	}
+
+	private static void closeQuietly(PreparedStatement ps){
+		try {
+			ps.close();
+		}
+
+		// Ignored closing exceptions
+		catch (SQLException e) {
+		}
+	}
+}
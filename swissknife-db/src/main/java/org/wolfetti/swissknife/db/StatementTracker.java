@@ -0,0 +1,179 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registro degli statements aperti da un {@link DbConnector} in modalit&agrave; thread-safe,
+ * in attesa che il chiamante chiuda il result set corrispondente.
+ * <br><br>
+ * Quando il numero di statements registrati supera la soglia di pulizia vengono rimossi quelli gi&agrave; chiusi
+ * e chiusi quelli il cui result set &egrave; stato chiuso dal chiamante (anche con i driver che non supportano
+ * <code>closeOnCompletion</code>); quelli ancora aperti vengono chiusi da {@link #closeAll()}.
+ * Con {@link #isInUse(Connection)} il connettore verifica se una connessione sostituita dal rinnovo
+ * ha ancora degli statements aperti prima di chiuderla.
+ *
+ * @author Fabio Frijo
+ */
+final class StatementTracker {
+
+	/**
+	 * Il numero di statements registrati oltre il quale vengono rimossi quelli chiusi.
+	 */
+	private static final int SWEEP_THRESHOLD = 64;
+
+	/**
+	 * Gli statements registrati, con la connessione che li ha creati e il result set restituito al chiamante
+	 */
+	private final Map<Statement, Tracked> statements = new ConcurrentHashMap<Statement, Tracked>();
+
+	/**
+	 * La soglia oltre la quale effettuare la prossima pulizia
+	 */
+	private final AtomicInteger threshold = new AtomicInteger(SWEEP_THRESHOLD);
+
+	/**
+	 * Registra uno statement aperto sulla connessione in ingresso.
+	 */
+	void track(Statement statement, Connection connection){
+		this.statements.put(statement, new Tracked(connection));
+
+		int limit = this.threshold.get();
+		if(this.statements.size() > limit && this.threshold.compareAndSet(limit, Integer.MAX_VALUE)){
+			int open = this.sweep();
+			this.threshold.set(Math.max(SWEEP_THRESHOLD, open * 2));
+		}
+	}
+
+	/**
+	 * Associa ad uno statement registrato il result set restituito al chiamante:
+	 * lo statement verr&agrave; chiuso dopo la chiusura del result set.
+	 */
+	void attach(Statement statement, ResultSet rs){
+		Tracked tracked = this.statements.get(statement);
+
+		if(tracked != null){
+			tracked.results = rs;
+		}
+	}
+
+	/**
+	 * Rimuove uno statement chiuso dal chiamante.
+	 */
+	void untrack(Statement statement){
+		this.statements.remove(statement);
+	}
+
+	/**
+	 * @return il numero di statements registrati, compresi quelli chiusi non ancora rimossi
+	 */
+	int size(){
+		return this.statements.size();
+	}
+
+	/**
+	 * Controlla se sulla connessione in ingresso sono ancora aperti degli statements registrati,
+	 * rimuovendo quelli chiusi e chiudendo quelli il cui result set &egrave; stato chiuso.
+	 */
+	boolean isInUse(Connection connection){
+		this.sweep();
+
+		for(Tracked tracked : this.statements.values()){
+			if(tracked.connection == connection){
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Chiude tutti gli statements registrati e ancora aperti.
+	 *
+	 * @return il numero di statements chiusi
+	 */
+	int closeAll(){
+		int closed = 0;
+
+		for(Iterator<Statement> it = this.statements.keySet().iterator(); it.hasNext();){
+			Statement statement = it.next();
+			it.remove();
+
+			try {
+				if(!statement.isClosed()){
+					statement.close();
+					closed++;
+				}
+			}
+
+			// Ignored closing exceptions
+			catch (SQLException e) {
+			}
+		}
+
+		return closed;
+	}
+
+	/**
+	 * Rimuove gli statements gi&agrave; chiusi, chiude quelli con il result set chiuso
+	 * e restituisce il numero di quelli ancora aperti.
+	 */
+	private int sweep(){
+		for(Iterator<Map.Entry<Statement, Tracked>> it = this.statements.entrySet().iterator(); it.hasNext();){
+			Map.Entry<Statement, Tracked> entry = it.next();
+			Statement statement = entry.getKey();
+			ResultSet results = entry.getValue().results;
+
+			try {
+				if(statement.isClosed()){
+					it.remove();
+				}
+
+				else if(results != null && results.isClosed()){
+					it.remove();
+					statement.close();
+				}
+			} catch (SQLException e) {
+				it.remove();
+			}
+		}
+
+		return this.statements.size();
+	}
+
+	/**
+	 * Uno statement registrato.
+	 */
+	private static final class Tracked {
+		final Connection connection;
+		volatile ResultSet results;
+
+		Tracked(Connection connection){
+			this.connection = connection;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import org.wolfetti.swissknife.db.exceptions.DuplicatedKeyException;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+
+/**
+ * Operazione da eseguire in una transazione tramite {@link DbConnector#runInTransaction(TransactionCallback)}.
+ * <br><br>
+ * In caso di errore transitorio la callback viene eseguita di nuovo in una nuova transazione: non deve
+ * quindi avere effetti esterni al database che non possano essere ripetuti (es. invio di email).
+ *
+ * @author Fabio Frijo
+ */
+public interface TransactionCallback<T> {
+
+	/**
+	 * Esegue l'operazione; la commit e il rollback vengono effettuati dal chiamante.
+	 *
+	 * @param connector
+	 * 	Il connettore in transazione, da non chiudere
+	 *
+	 * @return
+	 * 	Il risultato dell'operazione
+	 */
+	public T execute(DbConnector connector)
+	throws DuplicatedKeyException, SqlQueryException;
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.beanutils;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+
+/**
+ * Intestazione delle colonne di un <code>ResultSet</code>, letta una sola volta e condivisa
+ * da tutte le righe {@link RowMap} dello stesso risultato.
+ * <br><br>
+ * Se pi&ugrave; colonne hanno la stessa etichetta viene utilizzata l'ultima,
+ * come avverrebbe inserendo i valori in una <code>HashMap</code>.
+ *
+ * @author Fabio Frijo
+ */
+public final class ColumnHeader {
+
+	/**
+	 * Il numero di colonne del result set
+	 */
+	private final int columnCount;
+
+	/**
+	 * Le etichette distinte, nell'ordine delle colonne
+	 */
+	private final String[] keys;
+
+	/**
+	 * Per ogni etichetta distinta, la posizione (a partire da 0) del valore nella riga
+	 */
+	private final int[] positions;
+
+	/**
+	 * Indice delle etichette
+	 */
+	private final Map<String, Integer> index;
+
+	/**
+	 * Legge l'intestazione dai metadati in ingresso.
+	 *
+	 * @param md
+	 * 	I metadati del result set
+	 */
+	public ColumnHeader(ResultSetMetaData md) {
+		try {
+			this.columnCount = md.getColumnCount();
+			this.index = new HashMap<String, Integer>(this.columnCount * 2);
+
+			List<String> labels = new ArrayList<String>(this.columnCount);
+			for(int i = 1; i <= this.columnCount; i++){
+				String label = md.getColumnLabel(i);
+
+				if(this.index.put(label, Integer.valueOf(i - 1)) == null){
+					labels.add(label);
+				}
+			}
+
+			this.keys = labels.toArray(new String[labels.size()]);
+			this.positions = new int[this.keys.length];
+
+			for(int i = 0; i < this.keys.length; i++){
+				this.positions[i] = this.index.get(this.keys[i]).intValue();
+			}
+		} catch (SQLException e) {
+			throw new ConverterException("Errore durante la lettura dei metadati del result set", e);
+		}
+	}
+
+	/**
+	 * @return il numero di colonne del result set
+	 */
+	public int getColumnCount() {
+		return this.columnCount;
+	}
+
+	/**
+	 * @return il numero di etichette distinte
+	 */
+	public int size() {
+		return this.keys.length;
+	}
+
+	/**
+	 * @return l'etichetta distinta in posizione <code>i</code>
+	 */
+	public String getKey(int i) {
+		return this.keys[i];
+	}
+
+	/**
+	 * @return la posizione nella riga del valore dell'etichetta distinta <code>i</code>
+	 */
+	public int getPosition(int i) {
+		return this.positions[i];
+	}
+
+	/**
+	 * @return la posizione nella riga del valore associato all'etichetta, o <code>-1</code> se non presente
+	 */
+	public int indexOf(Object label) {
+		Integer i = this.index.get(label);
+		return i == null ? -1 : i.intValue();
+	}
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.beanutils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Timestamp;
+
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+
+/**
+ * Lettura di una singola colonna del <code>ResultSet</code> e scrittura del valore nella
+ * propriet&agrave; corrispondente del bean.<br>
+ * Ogni implementazione &egrave; specializzata per il tipo della propriet&agrave;: i tipi primitivi
+ * vengono letti con il getter JDBC appropriato e passati al setter senza boxing, tramite un
+ * {@link MethodHandle} adattato alla firma esatta <code>(Object, primitivo)void</code>.
+ *
+ * @author Fabio Frijo
+ */
+abstract class ColumnSetter {
+
+	/**
+	 * L'indice della colonna nel result set (a partire da 1)
+	 */
+	protected final int column;
+
+	/**
+	 * Il nome della proprieta', usato nei messaggi di errore
+	 */
+	protected final String property;
+
+	/**
+	 * Il setter della proprieta'
+	 */
+	protected final MethodHandle setter;
+
+	private ColumnSetter(int column, String property, MethodHandle setter) {
+		this.column = column;
+		this.property = property;
+		this.setter = setter;
+	}
+
+	/**
+	 * Legge la colonna dalla riga corrente e imposta il valore sul bean.
+	 */
+	abstract void apply(ResultSet rs, Object bean)
+	throws Throwable;
+
+	/**
+	 * Crea il setter specializzato per la proprieta' in ingresso, o <code>null</code> se la proprieta'
+	 * non e' scrivibile.
+	 *
+	 * @param column
+	 * 	L'indice della colonna nel result set
+	 *
+	 * @param prop
+	 * 	La proprieta' del bean
+	 */
+	static ColumnSetter create(int column, PropertyDescriptor prop)
+	throws ConverterException {
+		Method method = prop.getWriteMethod();
+
+		if(method == null){
+			return null;
+		}
+
+		Class<?> type = method.getParameterTypes()[0];
+		String name = prop.getName();
+
+		// Il flag di accessibilita' permette di usare anche i setter pubblici di classi non pubbliche
+		boolean accessible = true;
+		try {
+			method.setAccessible(true);
+		} catch (SecurityException e) {
+			accessible = false;
+		}
+
+		MethodHandle mh;
+		try {
+			mh = MethodHandles.publicLookup().unreflect(method);
+		} catch (IllegalAccessException e) {
+			String reason = accessible ? e.getMessage() : "access denied by the security manager";
+			throw new ConverterException("Cannot set " + name + ": " + reason, e);
+		}
+
+		if(type.isPrimitive()){
+			MethodHandle exact = mh.asType(MethodType.methodType(void.class, Object.class, type));
+
+			if(type == Integer.TYPE)   return new IntSetter(column, name, exact);
+			if(type == Long.TYPE)      return new LongSetter(column, name, exact);
+			if(type == Double.TYPE)    return new DoubleSetter(column, name, exact);
+			if(type == Float.TYPE)     return new FloatSetter(column, name, exact);
+			if(type == Short.TYPE)     return new ShortSetter(column, name, exact);
+			if(type == Byte.TYPE)      return new ByteSetter(column, name, exact);
+			if(type == Boolean.TYPE)   return new BooleanSetter(column, name, exact);
+
+			// char: letto come oggetto, come nel processor riflessivo
+			return new ObjectSetter(column, name, mh.asType(MethodType.methodType(void.class, Object.class, Object.class)), Character.class, true);
+		}
+
+		MethodHandle generic = mh.asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+		if(type == String.class)    return new StringSetter(column, name, generic);
+		if(type == Integer.class)   return new BoxedSetter(column, name, generic, Integer.TYPE);
+		if(type == Long.class)      return new BoxedSetter(column, name, generic, Long.TYPE);
+		if(type == Double.class)    return new BoxedSetter(column, name, generic, Double.TYPE);
+		if(type == Float.class)     return new BoxedSetter(column, name, generic, Float.TYPE);
+		if(type == Short.class)     return new BoxedSetter(column, name, generic, Short.TYPE);
+		if(type == Byte.class)      return new BoxedSetter(column, name, generic, Byte.TYPE);
+		if(type == Boolean.class)   return new BoxedSetter(column, name, generic, Boolean.TYPE);
+		if(type == Timestamp.class) return new TimestampSetter(column, name, generic);
+		if(type == SQLXML.class)    return new SqlXmlSetter(column, name, generic);
+
+		return new ObjectSetter(column, name, generic, type, false);
+	}
+
+	/**
+	 * Eccezione sollevata quando il valore letto non e' compatibile con la proprieta'
+	 */
+	protected ConverterException incompatible(Object value, Class<?> type){
+		return new ConverterException(
+			"Cannot set " + this.property + ": incompatible types, cannot convert "
+			+ value.getClass().getName() + " to " + type.getName()
+		);
+	}
+
+	/* ================================================= */
+	/* ============= IMPLEMENTAZIONI =================== */
+	/* ================================================= */
+
+	private static final class IntSetter extends ColumnSetter {
+		IntSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			int v = rs.getInt(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	private static final class LongSetter extends ColumnSetter {
+		LongSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			long v = rs.getLong(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	private static final class DoubleSetter extends ColumnSetter {
+		DoubleSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			double v = rs.getDouble(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	private static final class FloatSetter extends ColumnSetter {
+		FloatSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			float v = rs.getFloat(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	private static final class ShortSetter extends ColumnSetter {
+		ShortSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			short v = rs.getShort(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	private static final class ByteSetter extends ColumnSetter {
+		ByteSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			byte v = rs.getByte(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	private static final class BooleanSetter extends ColumnSetter {
+		BooleanSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			boolean v = rs.getBoolean(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	private static final class StringSetter extends ColumnSetter {
+		StringSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			Object v = rs.getString(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	/**
+	 * Tipi wrapper: letti con il getter primitivo e convertiti in <code>null</code> se SQL NULL.
+	 */
+	private static final class BoxedSetter extends ColumnSetter {
+		private final Class<?> primitive;
+
+		BoxedSetter(int column, String property, MethodHandle setter, Class<?> primitive) {
+			super(column, property, setter);
+			this.primitive = primitive;
+		}
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			Object v;
+
+			if(this.primitive == Integer.TYPE)      v = Integer.valueOf(rs.getInt(this.column));
+			else if(this.primitive == Long.TYPE)    v = Long.valueOf(rs.getLong(this.column));
+			else if(this.primitive == Double.TYPE)  v = Double.valueOf(rs.getDouble(this.column));
+			else if(this.primitive == Float.TYPE)   v = Float.valueOf(rs.getFloat(this.column));
+			else if(this.primitive == Short.TYPE)   v = Short.valueOf(rs.getShort(this.column));
+			else if(this.primitive == Byte.TYPE)    v = Byte.valueOf(rs.getByte(this.column));
+			else                                    v = Boolean.valueOf(rs.getBoolean(this.column));
+
+			if(rs.wasNull()){
+				v = null;
+			}
+
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	private static final class TimestampSetter extends ColumnSetter {
+		TimestampSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			Object v = rs.getTimestamp(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	private static final class SqlXmlSetter extends ColumnSetter {
+		SqlXmlSetter(int column, String property, MethodHandle setter) { super(column, property, setter); }
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			Object v = rs.getSQLXML(this.column);
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	/**
+	 * Tipi generici: letti con <code>getObject</code>, con la conversione delle date JDBC
+	 * e il controllo di compatibilita' del processor riflessivo.
+	 */
+	private static final class ObjectSetter extends ColumnSetter {
+		private final Class<?> type;
+		private final boolean primitive;
+
+		ObjectSetter(int column, String property, MethodHandle setter, Class<?> type, boolean primitive) {
+			super(column, property, setter);
+			this.type = type;
+			this.primitive = primitive;
+		}
+
+		@Override
+		void apply(ResultSet rs, Object bean) throws Throwable {
+			Object v = rs.getObject(this.column);
+
+			if(v == null){
+				if(this.primitive){
+					v = Character.valueOf((char) 0);
+				}
+			}
+
+			else if(v instanceof java.util.Date && !this.type.isInstance(v)){
+				long time = ((java.util.Date) v).getTime();
+
+				if(this.type == java.sql.Date.class){
+					v = new java.sql.Date(time);
+				} else if(this.type == java.sql.Time.class){
+					v = new java.sql.Time(time);
+				}
+			}
+
+			if(v != null && !this.type.isInstance(v)){
+				throw this.incompatible(v, this.type);
+			}
+
+			this.setter.invokeExact(bean, v);
+		}
+	}
+
+	/**
+	 * Converte le eccezioni di accesso al database in {@link ConverterException}.
+	 */
+	static ConverterException wrap(ColumnSetter setter, Throwable t){
+		if(t instanceof ConverterException){
+			return (ConverterException) t;
+		}
+
+		if(t instanceof SQLException){
+			return new ConverterException("Database access error", t);
+		}
+
+		return new ConverterException("Cannot set " + setter.property + ": " + t.getMessage(), t);
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.beanutils;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+
+/**
+ * <p>
+ * {@link BeanProcessor} che compila un mapper per ogni coppia (classe del bean, etichette delle colonne)
+ * e lo riutilizza per tutte le query successive con la stessa firma.
+ * </p>
+ *
+ * <p>
+ * Il mapper compilato contiene gli indici delle colonne gi&agrave; risolti, un lettore specializzato
+ * per il tipo di ogni propriet&agrave; e i setter come {@link MethodHandle}: per ogni riga non vengono
+ * quindi effettuate introspezione, ricerca delle propriet&agrave; o boxing dei tipi primitivi.
+ * Le regole di conversione sono le stesse di {@link SimpleBeanProcessor}.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author Fabio Frijo
+ */
+public class CompiledBeanProcessor implements BeanProcessor, RowMapperFactory {
+
+	/**
+	 * Istanza condivisa senza override delle colonne, utilizzata di default da {@link RsToBeanConverter}.
+	 */
+	static final CompiledBeanProcessor SHARED = new CompiledBeanProcessor();
+
+	/**
+	 * ResultSet column to bean property name overrides.
+	 */
+	private final Map<String, String> columnToPropertyOverrides;
+
+	/**
+	 * I mapper compilati per classe, indicizzati per firma delle colonne.
+	 */
+	private final ClassValue<ConcurrentMap<String, Mapper<?>>> mappers = new ClassValue<ConcurrentMap<String, Mapper<?>>>() {
+		@Override
+		protected ConcurrentMap<String, Mapper<?>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<String, Mapper<?>>();
+		}
+	};
+
+	/**
+	 * Le proprieta' scrivibili per classe, indicizzate per nome in minuscolo.
+	 */
+	private static final ClassValue<Map<String, PropertyDescriptor>> properties = new ClassValue<Map<String, PropertyDescriptor>>() {
+		@Override
+		protected Map<String, PropertyDescriptor> computeValue(Class<?> type) {
+			Map<String, PropertyDescriptor> result = new HashMap<String, PropertyDescriptor>();
+
+			try {
+				for(PropertyDescriptor pd : Introspector.getBeanInfo(type).getPropertyDescriptors()){
+					String key = pd.getName().toLowerCase(Locale.ENGLISH);
+
+					// A parita' di nome (case insensitive) vince la prima, come nel processor riflessivo
+					if(!result.containsKey(key)){
+						result.put(key, pd);
+					}
+				}
+			} catch (IntrospectionException e) {
+				throw new ConverterException("Bean introspection failed: " + e.getMessage());
+			}
+
+			return result;
+		}
+	};
+
+	/**
+	 * Constructor for CompiledBeanProcessor.
+	 */
+	public CompiledBeanProcessor() {
+		this(new HashMap<String, String>());
+	}
+
+	/**
+	 * Constructor for CompiledBeanProcessor configured with column to property name overrides.
+	 *
+	 * @param columnToPropertyOverrides ResultSet column to bean property name overrides
+	 */
+	public CompiledBeanProcessor(Map<String, String> columnToPropertyOverrides) {
+		if (columnToPropertyOverrides == null) {
+			throw new IllegalArgumentException("columnToPropertyOverrides map cannot be null");
+		}
+
+		this.columnToPropertyOverrides = new HashMap<String, String>(columnToPropertyOverrides);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.wolfetti.swissknife.db.beanutils.BeanProcessor#toBean(java.sql.ResultSet, java.lang.Class)
+	 */
+	@Override
+	public <T> T toBean(ResultSet rs, Class<T> type)
+	throws ConverterException {
+		try {
+			if (!rs.next()) {
+				return null;
+			}
+
+			return this.createRowMapper(rs, type).mapRow(rs);
+		} catch (SQLException e){
+			throw new ConverterException("Database access error", e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.wolfetti.swissknife.db.beanutils.BeanProcessor#toBeanList(java.sql.ResultSet, java.lang.Class)
+	 */
+	@Override
+	public <T> List<T> toBeanList(ResultSet rs, Class<T> type)
+	throws ConverterException {
+		List<T> results = new ArrayList<T>();
+
+		try {
+			if (!rs.next()) {
+				return results;
+			}
+
+			RowMapper<T> mapper = this.createRowMapper(rs, type);
+
+			do {
+				results.add(mapper.mapRow(rs));
+			}
+			while (rs.next());
+
+		} catch (SQLException e){
+			throw new ConverterException("Database access error", e);
+		}
+
+		return results;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.wolfetti.swissknife.db.beanutils.RowMapperFactory#createRowMapper(java.sql.ResultSet, java.lang.Class)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> RowMapper<T> createRowMapper(ResultSet rs, Class<T> type)
+	throws ConverterException {
+		String[] labels;
+
+		try {
+			ResultSetMetaData rsmd = rs.getMetaData();
+			labels = new String[rsmd.getColumnCount()];
+
+			for (int col = 1; col <= labels.length; col++) {
+				String columnName = rsmd.getColumnLabel(col);
+				if (null == columnName || 0 == columnName.length()) {
+					columnName = rsmd.getColumnName(col);
+				}
+
+				labels[col - 1] = columnName;
+			}
+		} catch (SQLException e){
+			throw new ConverterException("Database access error", e);
+		}
+
+		StringBuilder signature = new StringBuilder(labels.length * 16);
+		for(String label : labels){
+			signature.append(label).append('\u0000');
+		}
+
+		ConcurrentMap<String, Mapper<?>> byClass = this.mappers.get(type);
+		String key = signature.toString();
+
+		Mapper<?> mapper = byClass.get(key);
+		if(mapper == null){
+			mapper = this.compile(type, labels);
+			Mapper<?> previous = byClass.putIfAbsent(key, mapper);
+
+			if(previous != null){
+				mapper = previous;
+			}
+		}
+
+		return (RowMapper<T>) mapper;
+	}
+
+	/**
+	 * Compila il mapper per la classe e le colonne in ingresso.
+	 */
+	private <T> Mapper<T> compile(Class<T> type, String[] labels)
+	throws ConverterException {
+		Map<String, PropertyDescriptor> props = properties.get(type);
+		List<ColumnSetter> setters = new ArrayList<ColumnSetter>(labels.length);
+
+		for(int col = 1; col <= labels.length; col++){
+			String propertyName = this.columnToPropertyOverrides.get(labels[col - 1]);
+			if (propertyName == null) {
+				propertyName = labels[col - 1];
+			}
+
+			PropertyDescriptor pd = props.get(propertyName.toLowerCase(Locale.ENGLISH));
+			if(pd == null){
+				continue;
+			}
+
+			ColumnSetter setter = ColumnSetter.create(col, pd);
+			if(setter != null){
+				setters.add(setter);
+			}
+		}
+
+		MethodHandle constructor;
+		try {
+			constructor = MethodHandles.publicLookup()
+				.findConstructor(type, MethodType.methodType(void.class))
+				.asType(MethodType.methodType(Object.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ConverterException("Cannot create " + type.getName() + ": " + e.getMessage(), e);
+		}
+
+		return new Mapper<T>(type, constructor, setters.toArray(new ColumnSetter[setters.size()]));
+	}
+
+	/**
+	 * Mapper compilato per una classe e una firma di colonne.
+	 */
+	private static final class Mapper<T> implements RowMapper<T> {
+		private final Class<T> type;
+		private final MethodHandle constructor;
+		private final ColumnSetter[] setters;
+
+		Mapper(Class<T> type, MethodHandle constructor, ColumnSetter[] setters) {
+			this.type = type;
+			this.constructor = constructor;
+			this.setters = setters;
+		}
+
+		@Override
+		public T mapRow(ResultSet rs)
+		throws ConverterException {
+			Object bean;
+
+			try {
+				bean = (Object) this.constructor.invokeExact();
+			} catch (Throwable t) {
+				throw new ConverterException("Cannot create " + this.type.getName() + ": " + t.getMessage(), t);
+			}
+
+			ColumnSetter current = null;
+			try {
+				for(ColumnSetter setter : this.setters){
+					current = setter;
+					setter.apply(rs, bean);
+				}
+			} catch (Throwable t) {
+				throw ColumnSetter.wrap(current, t);
+			}
+
+			return this.type.cast(bean);
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.beanutils;
+
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+import org.wolfetti.swissknife.db.utils.ResultSetHelper;
+
+/**
+ * Iteratore che legge un <code>ResultSet</code> una riga alla volta, convertendo ogni riga
+ * solo quando viene richiesta. Le righe lette non vengono trattenute, quindi la memoria
+ * utilizzata non dipende dal numero di righe del risultato.
+ * <br><br>
+ * Il <code>ResultSet</code> (e lo statement che lo ha generato, se dedicato) viene chiuso
+ * al termine delle righe, al primo errore o alla chiamata di {@link #close()}.
+ * Va utilizzato all'interno di un blocco <code>try-with-resources</code>:
+ * <pre>
+ * 	try (ResultSetIterator&lt;Bean&gt; it = dao.stream("key", Bean.class)) {
+ * 		for (Bean b : it) { ... }
+ * 	}
+ * </pre>
+ *
+ * @author Fabio Frijo
+ *
+ * @param <T> Il tipo dell'oggetto restituito per ogni riga
+ */
+public class ResultSetIterator<T> implements Iterator<T>, Iterable<T>, Closeable {
+
+	/**
+	 * Il result set da leggere
+	 */
+	private final ResultSet rs;
+
+	/**
+	 * Il converter della singola riga
+	 */
+	private final RowMapper<T> mapper;
+
+	/**
+	 * Flag che indica se lo statement del result set va chiuso insieme al result set
+	 */
+	private final boolean closeStatement;
+
+	/**
+	 * Flag che indica se il cursore e' gia' posizionato su una riga non ancora restituita
+	 */
+	private boolean fetched = false;
+
+	/**
+	 * Flag che indica se il result set e' stato chiuso
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Crea un iteratore sul result set in ingresso.
+	 *
+	 * @param rs
+	 * 	Il result set da leggere
+	 *
+	 * @param mapper
+	 * 	Il converter della singola riga
+	 *
+	 * @param closeStatement
+	 * 	<code>true</code> se lo statement che ha generato il result set &egrave; dedicato
+	 * 	e va chiuso insieme al result set
+	 */
+	public ResultSetIterator(ResultSet rs, RowMapper<T> mapper, boolean closeStatement) {
+		this.rs = rs;
+		this.mapper = mapper;
+		this.closeStatement = closeStatement;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(this.closed){
+			return false;
+		}
+
+		if(!this.fetched){
+			try {
+				this.fetched = this.rs.next();
+			} catch (SQLException e) {
+				this.close();
+				throw new ConverterException("Errore durante la lettura del result set", e);
+			}
+
+			if(!this.fetched){
+				this.close();
+			}
+		}
+
+		return this.fetched;
+	}
+
+	@Override
+	public T next() {
+		if(!this.hasNext()){
+			throw new NoSuchElementException();
+		}
+
+		this.fetched = false;
+
+		try {
+			return this.mapper.mapRow(this.rs);
+		} catch (RuntimeException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Richiama la callback per ogni riga rimanente e chiude il result set.
+	 *
+	 * @param handler
+	 * 	La callback da richiamare
+	 *
+	 * @return
+	 * 	Il numero di righe elaborate
+	 */
+	public long forEachRow(RowHandler<? super T> handler) {
+		long count = 0;
+
+		try {
+			while(this.hasNext()){
+				handler.handle(this.next());
+				count++;
+			}
+		} finally {
+			this.close();
+		}
+
+		return count;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Impossibile rimuovere righe da un result set");
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return this;
+	}
+
+	/**
+	 * @return <code>true</code> se il result set &egrave; stato chiuso
+	 */
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * Chiude il result set e, se dedicato, il suo statement. Pu&ograve; essere richiamato pi&ugrave; volte.
+	 */
+	@Override
+	public void close() {
+		if(this.closed){
+			return;
+		}
+
+		this.closed = true;
+		this.fetched = false;
+
+		if(this.closeStatement){
+			ResultSetHelper.closeWithStatement(this.rs);
+			return;
+		}
+
+		try {
+			this.rs.close();
+		}
+
+		// Ignored closing exceptions
+		catch (SQLException e) {
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.beanutils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Vista in sola lettura di una riga di <code>ResultSet</code> come <code>Map&lt;String, Object&gt;</code>.<br>
+ * I valori sono memorizzati in un array, mentre le etichette delle colonne sono condivise
+ * tramite il {@link ColumnHeader} del risultato: ogni riga occupa quindi un solo oggetto e un array,
+ * invece di una <code>HashMap</code> con un'entry per colonna.
+ *
+ * @author Fabio Frijo
+ */
+public final class RowMap extends AbstractMap<String, Object> {
+
+	/**
+	 * L'intestazione condivisa
+	 */
+	private final ColumnHeader header;
+
+	/**
+	 * I valori della riga, uno per colonna
+	 */
+	private final Object[] values;
+
+	/**
+	 * La vista delle entries, creata al primo utilizzo
+	 */
+	private transient Set<Entry<String, Object>> entries;
+
+	/**
+	 * Crea la riga con i valori in ingresso.
+	 *
+	 * @param header
+	 * 	L'intestazione condivisa del risultato
+	 *
+	 * @param values
+	 * 	I valori della riga, uno per colonna del result set
+	 */
+	public RowMap(ColumnHeader header, Object[] values) {
+		this.header = header;
+		this.values = values;
+	}
+
+	@Override
+	public Object get(Object key) {
+		int i = this.header.indexOf(key);
+		return i < 0 ? null : this.values[i];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.header.indexOf(key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return this.header.size();
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		if(this.entries == null){
+			this.entries = new AbstractSet<Entry<String, Object>>() {
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					return new Iterator<Entry<String, Object>>() {
+						private int i = 0;
+
+						@Override
+						public boolean hasNext() {
+							return this.i < RowMap.this.header.size();
+						}
+
+						@Override
+						public Entry<String, Object> next() {
+							if(!this.hasNext()){
+								throw new NoSuchElementException();
+							}
+
+							int current = this.i++;
+							return new SimpleImmutableEntry<String, Object>(
+								RowMap.this.header.getKey(current),
+								RowMap.this.values[RowMap.this.header.getPosition(current)]
+							);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException("Riga in sola lettura");
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return RowMap.this.header.size();
+				}
+			};
+		}
+
+		return this.entries;
+	}
+}
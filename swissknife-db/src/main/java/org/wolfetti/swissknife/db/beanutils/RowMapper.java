@@ -0,0 +1,50 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.beanutils;
+
+import java.sql.ResultSet;
+
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+
+/**
+ * Interfaccia che converte la riga corrente di un <code>ResultSet</code> in un oggetto.<br>
+ * A differenza di {@link ResultSetConverter} non sposta il cursore: viene preparata una volta
+ * per result set e richiamata per ogni riga.
+ *
+ * @author Fabio Frijo
+ *
+ * @param <T> Il tipo dell'oggetto restituito per ogni riga
+ */
+public interface RowMapper<T> {
+
+	/**
+	 * Converte la riga su cui &egrave; posizionato il <code>ResultSet</code>.
+	 *
+	 * @param rs
+	 * 	Il ResultSet, gi&agrave; posizionato su una riga valida
+	 *
+	 * @return
+	 * 	L'oggetto corrispondente alla riga
+	 *
+	 * @throws ConverterException
+	 * 	Quando la conversione fallisce
+	 */
+	public T mapRow(ResultSet rs)
+	throws ConverterException;
+}
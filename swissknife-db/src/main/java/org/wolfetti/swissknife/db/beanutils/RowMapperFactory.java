@@ -0,0 +1,48 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.beanutils;
+
+import java.sql.ResultSet;
+
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+
+/**
+ * Interfaccia opzionale dei {@link BeanProcessor} in grado di preparare la conversione riga per riga,
+ * utilizzata dalle letture in streaming (vedi {@link RsToBeanConverter#createRowMapper(ResultSet)}).
+ * &Egrave; separata da {@link BeanProcessor} in maniera che le implementazioni esistenti
+ * continuino a compilare.
+ *
+ * @author Fabio Frijo
+ */
+public interface RowMapperFactory {
+
+	/**
+	 * Prepara la conversione delle righe di un <code>ResultSet</code> in JavaBeans, risolvendo
+	 * una sola volta la corrispondenza tra colonne e propriet&agrave;. Il mapper restituito converte
+	 * la riga corrente senza spostare il cursore.
+	 *
+	 * @param <T> The type of bean to create
+	 * @param rs ResultSet that supplies the bean data
+	 * @param type Class from which to create the bean instance
+	 * @throws ConverterException if a database access error or other occurs
+	 * @return the row mapper for the result set columns
+	 */
+	public <T> RowMapper<T> createRowMapper(ResultSet rs, Class<T> type)
+	throws ConverterException;
+}
@@ -54,11 +54,12 @@ public class RsToBeanConverter<T> implements ResultSetConverter {
     }
 
     /**
-     * Costruisce il converter corretto per il tipo scelto.
+     * Costruisce il converter corretto per il tipo scelto, utilizzando il {@link CompiledBeanProcessor}
+     * condiviso in maniera che i mapper compilati vengano riutilizzati tra le query.
      * @param type The bean type (the return type of the object).
      */
 	public RsToBeanConverter(Class<T> type){
-    	this(type, new SimpleBeanProcessor());
+    	this(type, CompiledBeanProcessor.SHARED);
     }
 
     /**
@@ -209,4 +210,20 @@ public class RsToBeanConverter<T> implements ResultSetConverter {
 	throws ConverterException {
 		return this.processor.toBeanList(rs, this.type);
 	}
-}
+	/**
+	 * Prepara la conversione riga per riga del <code>ResultSet</code> in ingresso.<br>
+	 * Se il processor non implementa {@link RowMapperFactory} viene utilizzato il {@link CompiledBeanProcessor} condiviso.
+	 *
+	 * @param rs ResultSet that supplies the bean data
+	 * @throws ConverterException if a database access error occurs
+	 * @return the row mapper for the result set columns
+	 */
+	public RowMapper<T> createRowMapper(ResultSet rs)
+	throws ConverterException {
+		RowMapperFactory factory = this.processor instanceof RowMapperFactory ?
+			(RowMapperFactory) this.processor :
+			CompiledBeanProcessor.SHARED;
+
+		return factory.createRowMapper(rs, this.type);
+	}
+}
\ No newline at end of file
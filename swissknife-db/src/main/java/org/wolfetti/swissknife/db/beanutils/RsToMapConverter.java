@@ -133,6 +133,48 @@ public class RsToMapConverter implements ResultSetConverter {
 		return response;
 	}
 
+	/**
+	 * Prepara la conversione riga per riga del <code>ResultSet</code> in ingresso.
+	 * Le etichette delle colonne vengono lette una sola volta.
+	 *
+	 * @param rs
+	 * 	Il ResultSet da parsare
+	 *
+	 * @return
+	 * 	Il converter della singola riga
+	 */
+	public RowMapper<Map<String, Object>> createRowMapper(ResultSet rs) {
+		final String[] labels;
+
+		try {
+			ResultSetMetaData md = rs.getMetaData();
+			labels = new String[md.getColumnCount()];
+
+			for(int i = 0; i < labels.length; i++){
+				labels[i] = md.getColumnLabel(i + 1);
+			}
+		} catch (SQLException e) {
+			throw new ConverterException("Errore durante il parsing del result set", e);
+		}
+
+		return new RowMapper<Map<String,Object>>() {
+			@Override
+			public Map<String, Object> mapRow(ResultSet row) {
+				Map<String, Object> item = new HashMap<String, Object>();
+
+				try {
+					for(int i = 0; i < labels.length; i++){
+						item.put(labels[i], ResultSetHelper.getCleanValue(row.getObject(i + 1)));
+					}
+				} catch (SQLException e) {
+					throw new ConverterException("Impossibile creare la mappa associata al record di database", e);
+				}
+
+				return item;
+			}
+		};
+	}
+
 	/**
 	 * Creazione dell'elemento che andra' a sostituire la riga di result set.
 	 *
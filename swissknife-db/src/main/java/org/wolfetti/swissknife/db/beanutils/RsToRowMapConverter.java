@@ -0,0 +1,138 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.beanutils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+import org.wolfetti.swissknife.db.utils.ResultSetHelper;
+
+/**
+ * Classe che trasforma i risultati di una query in mappe compatte e in liste di mappe compatte.<br>
+ * Alternativa a {@link RsToMapConverter}: le etichette delle colonne vengono lette una sola volta
+ * per result set e ogni riga viene memorizzata come array di valori dietro una {@link RowMap}
+ * in sola lettura, raccolte in un <code>ArrayList</code>.
+ *
+ * @author Fabio Frijo
+ */
+public class RsToRowMapConverter implements ResultSetConverter {
+
+	/**
+	 * Restituisce un singolo elemento come mappa in sola lettura.
+	 *
+	 * @param rs
+	 * 	Il ResultSet da parsare
+	 *
+	 * @return
+	 * 	Una mappa contenente i nomi dei campi di database come chiave e il loro valore,
+	 * 	vuota se il result set non ha righe
+	 */
+	public static Map<String, Object> getSingle(ResultSet rs) {
+		return new RsToRowMapConverter().getSingleItem(rs);
+	}
+
+	/**
+	 * Restituisce una lista di mappe in sola lettura corrispondenti ai risultati della query.
+	 *
+	 * @param rs
+	 * 	Il ResultSet da parsare
+	 *
+	 * @return
+	 * 	Una lista di mappe, una per ogni row del ResultSet.
+	 */
+	public static List<Map<String, Object>> getList(ResultSet rs){
+		return new RsToRowMapConverter().getItemsList(rs);
+	}
+
+	@Override
+	public Map<String, Object> getSingleItem(ResultSet rs){
+		try {
+			if(rs.next()){
+				return this.createRowMapper(rs).mapRow(rs);
+			}
+		} catch (SQLException e) {
+			throw new ConverterException("Errore durante il parsing del result set", e);
+		} finally {
+			ResultSetHelper.close(rs);
+		}
+
+		return Collections.emptyMap();
+	}
+
+	@Override
+	public List<Map<String, Object>> getItemsList(ResultSet rs) {
+		List<Map<String, Object>> response = new ArrayList<Map<String,Object>>();
+
+		try {
+			RowMapper<Map<String, Object>> mapper = this.createRowMapper(rs);
+
+			while(rs.next()){
+				response.add(mapper.mapRow(rs));
+			}
+		} catch (SQLException e) {
+			throw new ConverterException("Errore durante il parsing del result set", e);
+		} finally {
+			ResultSetHelper.close(rs);
+		}
+
+		return response;
+	}
+
+	/**
+	 * Prepara la conversione riga per riga del <code>ResultSet</code> in ingresso,
+	 * leggendo una sola volta l'intestazione delle colonne.
+	 *
+	 * @param rs
+	 * 	Il ResultSet da parsare
+	 *
+	 * @return
+	 * 	Il converter della singola riga
+	 */
+	public RowMapper<Map<String, Object>> createRowMapper(ResultSet rs) {
+		final ColumnHeader header;
+
+		try {
+			header = new ColumnHeader(rs.getMetaData());
+		} catch (SQLException e) {
+			throw new ConverterException("Errore durante il parsing del result set", e);
+		}
+
+		return new RowMapper<Map<String,Object>>() {
+			@Override
+			public Map<String, Object> mapRow(ResultSet row) {
+				Object[] values = new Object[header.getColumnCount()];
+
+				try {
+					for(int i = 0; i < values.length; i++){
+						values[i] = ResultSetHelper.getCleanValue(row.getObject(i + 1));
+					}
+				} catch (SQLException e) {
+					throw new ConverterException("Impossibile creare la mappa associata al record di database", e);
+				}
+
+				return new RowMap(header, values);
+			}
+		};
+	}
+}
@@ -53,7 +53,7 @@ import org.wolfetti.swissknife.db.exceptions.ConverterException;
  *
  * @since DbUtils 1.1
  */
-public class SimpleBeanProcessor implements BeanProcessor {
+public class SimpleBeanProcessor implements BeanProcessor, RowMapperFactory {
 
 	/**
 	 * The automatically created logger for instance.
@@ -164,6 +164,27 @@ public class SimpleBeanProcessor implements BeanProcessor {
         return results;
     }
 
+    /* (non-Javadoc)
+	 * @see org.wolfetti.swissknife.db.beanutils.RowMapperFactory#createRowMapper(java.sql.ResultSet, java.lang.Class)
+	 */
+    @Override
+	public <T> RowMapper<T> createRowMapper(ResultSet rs, final Class<T> type)
+    throws ConverterException {
+        try {
+	        final PropertyDescriptor[] props = this.propertyDescriptors(type);
+	        final int[] columnToProperty = this.mapColumnsToProperties(rs.getMetaData(), props);
+
+	        return new RowMapper<T>() {
+	            @Override
+	            public T mapRow(ResultSet row) throws ConverterException {
+	                return SimpleBeanProcessor.this.createBean(row, type, props, columnToProperty);
+	            }
+	        };
+        } catch (SQLException e){
+        	throw new ConverterException("Database access error", e);
+        }
+    }
+
     /**
      * Creates a new object and initializes its fields from the ResultSet.
      * @param <T> The type of bean to create
@@ -0,0 +1,38 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.bulk;
+
+import org.wolfetti.swissknife.db.entities.BulkLoadResult;
+
+/**
+ * Callback invocata da {@link BulkLoader} dopo la scrittura (e la commit) di ogni blocco.
+ *
+ * @author Fabio Frijo
+ */
+public interface BulkLoadListener {
+
+	/**
+	 * Invocato dal thread che esegue il caricamento dopo ogni blocco.
+	 * Un'eccezione sollevata dal listener interrompe il caricamento.
+	 *
+	 * @param progress
+	 * 	L'avanzamento del caricamento, aggiornato ad ogni blocco: non va conservato
+	 */
+	public void onChunk(BulkLoadResult progress);
+}
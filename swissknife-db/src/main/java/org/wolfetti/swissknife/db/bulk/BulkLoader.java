@@ -0,0 +1,836 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.bulk;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.wolfetti.swissknife.common.logger.Log;
+import org.wolfetti.swissknife.common.logger.LogFactory;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.dialect.Dialect;
+import org.wolfetti.swissknife.db.entities.BulkLoadResult;
+import org.wolfetti.swissknife.db.entities.ExecutionOptions;
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+import org.wolfetti.swissknife.db.exceptions.DuplicatedKeyException;
+import org.wolfetti.swissknife.db.exceptions.IllegalOperationException;
+import org.wolfetti.swissknife.db.exceptions.InvalidFileException;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+import org.wolfetti.swissknife.db.utils.BlobSource;
+
+/**
+ * Caricamento massivo di righe in una tabella, da un file CSV, da un {@link Iterator} di bean o di array di valori.
+ * <br><br>
+ * Le righe vengono raggruppate in blocchi limitati sia nel numero di righe ({@link #setMaxRows(int)}) sia
+ * nella dimensione stimata ({@link #setMaxBytes(long)}). Ogni blocco viene scritto con una INSERT di pi&ugrave;
+ * righe (<code>INSERT ... VALUES (...), (...)</code>, vedi {@link Dialect#insertRows(String, String[], int)}),
+ * oppure, se attivato con {@link #setLoadData(boolean)} e supportato dal dialetto, con il comando di caricamento
+ * massivo del database (es. <code>LOAD DATA LOCAL INFILE</code> di MySQL) leggendo il blocco da uno stream in memoria.
+ * I due percorsi non gestiscono allo stesso modo i duplicati: con le INSERT una riga con chiave duplicata
+ * solleva una {@link DuplicatedKeyException}, mentre <code>LOAD DATA LOCAL</code> la scarta con un warning
+ * e prosegue con le righe successive.
+ * Se il connettore &egrave; in transazione viene effettuata la commit al termine di ogni blocco, dopo la quale
+ * viene invocato il {@link BulkLoadListener}.
+ * <br><br>
+ * La lettura della sorgente e la preparazione dei blocchi vengono eseguite da un thread separato, mentre
+ * il thread chiamante scrive sul database: le due fasi si sovrappongono, con al massimo {@link #setQueueSize(int)}
+ * blocchi pronti in attesa di essere scritti. Il connettore viene utilizzato solo dal thread chiamante.
+ * <br><br>
+ * Se la scrittura di un blocco fallisce il caricamento si interrompe: i blocchi precedenti restano scritti
+ * e, se il connettore &egrave; in transazione, quello corrente viene annullato. Il numero dei blocchi e delle
+ * righe gi&agrave; scritti &egrave; riportato dall'eccezione ({@link SqlQueryException#getCommittedRows()},
+ * {@link DuplicatedKeyException#getCommittedRows()}); senza transazione il blocco fallito pu&ograve; essere
+ * stato scritto in parte.
+ *
+ * <pre>
+ * BulkLoader loader = new BulkLoader(connector, "persone", "id", "nome", "eta");
+ * loader.setListener(listener);
+ * BulkLoadResult result = loader.loadCsv(reader);
+ * </pre>
+ *
+ * @author Fabio Frijo
+ */
+public class BulkLoader {
+
+	/**
+	 * Il numero massimo di righe per blocco, se non impostato diversamente
+	 */
+	public static final int DEFAULT_MAX_ROWS = 1000;
+
+	/**
+	 * La dimensione massima stimata di un blocco, se non impostata diversamente: 1 MB
+	 */
+	public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+
+	/**
+	 * Il numero di blocchi pronti in attesa di scrittura, se non impostato diversamente
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 2;
+
+	/**
+	 * Logger
+	 */
+	private static final Log log = LogFactory.getLog(BulkLoader.class);
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Le INSERT multiple non leggono le chiavi generate
+	 */
+	private static final ExecutionOptions NO_KEYS = new ExecutionOptions();
+	static {
+		NO_KEYS.setGeneratedKeys(Boolean.FALSE);
+	}
+
+	/**
+	 * Il blocco che segnala la fine della sorgente
+	 */
+	private static final Chunk END = new Chunk();
+
+	private final DbConnector connector;
+	private final String table;
+	private final String[] columns;
+
+	private int maxRows = DEFAULT_MAX_ROWS;
+	private long maxBytes = DEFAULT_MAX_BYTES;
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+
+	/**
+	 * Flag che indica se utilizzare il comando di caricamento massivo del database, se supportato
+	 */
+	private boolean loadData = false;
+
+	/**
+	 * Flag che indica se leggere la sorgente in un thread separato
+	 */
+	private boolean pipelined = true;
+
+	private BulkLoadListener listener = null;
+
+	/**
+	 * L'executor del thread di lettura: se <code>null</code> viene creato un thread dedicato
+	 */
+	private Executor executor = null;
+
+	private char delimiter = ',';
+	private char quote = '"';
+	private boolean header = false;
+
+	/**
+	 * @param connector
+	 * 	Il connettore su cui scrivere
+	 *
+	 * @param table
+	 * 	La tabella da caricare
+	 *
+	 * @param columns
+	 * 	Le colonne da valorizzare, nell'ordine dei valori di ogni riga
+	 */
+	public BulkLoader(DbConnector connector, String table, String ... columns) {
+		if(columns == null || columns.length == 0){
+			throw new IllegalOperationException("Impossibile caricare la tabella " + table + " senza indicare le colonne.");
+		}
+
+		this.connector = connector;
+		this.table = table;
+		this.columns = columns.clone();
+	}
+
+	/* ===================================================================================== */
+	/* ==================================== CARICAMENTO ==================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * Carica le righe in ingresso, ognuna con un valore per colonna.
+	 *
+	 * @throws InvalidFileException
+	 * 	Se una riga non ha un valore per ogni colonna
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la scrittura di un blocco fallisce
+	 */
+	public BulkLoadResult loadRows(Iterator<Object[]> rows)
+	throws DuplicatedKeyException, SqlQueryException {
+		return this.load(rows, new RowExtractor());
+	}
+
+	/**
+	 * Carica i bean in ingresso: ogni colonna viene letta dalla propriet&agrave; con lo stesso nome,
+	 * senza distinzione tra maiuscole e minuscole e ignorando i caratteri <code>_</code>
+	 * (es. la colonna <code>DATA_NASCITA</code> dalla propriet&agrave; <code>dataNascita</code>).
+	 *
+	 * @throws ConverterException
+	 * 	Se un bean non ha una propriet&agrave; leggibile per una colonna
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la scrittura di un blocco fallisce
+	 */
+	public BulkLoadResult loadBeans(Iterator<?> beans)
+	throws DuplicatedKeyException, SqlQueryException {
+		return this.load(beans, new BeanExtractor());
+	}
+
+	/**
+	 * Carica le righe di un file CSV, con un campo per colonna (vedi {@link CsvReader}).
+	 * Il reader non viene chiuso.
+	 *
+	 * @throws InvalidFileException
+	 * 	Se il file non &egrave; leggibile o un record non ha un campo per ogni colonna
+	 *
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violata una chiave
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la scrittura di un blocco fallisce
+	 */
+	public BulkLoadResult loadCsv(Reader reader)
+	throws InvalidFileException, DuplicatedKeyException, SqlQueryException {
+		CsvReader csv = new CsvReader(reader, this.delimiter, this.quote);
+
+		if(this.header && csv.hasNext()){
+			csv.next();
+		}
+
+		return this.loadRows(csv);
+	}
+
+	/**
+	 * Esegue il caricamento: la sorgente viene letta dal thread di lettura, i blocchi
+	 * vengono scritti dal thread chiamante.
+	 */
+	private BulkLoadResult load(Iterator<?> source, Extractor extractor)
+	throws DuplicatedKeyException, SqlQueryException {
+		Dialect dialect = this.connector.getDialect();
+
+		final Run run = new Run(source, extractor);
+		run.loadSql = this.loadData ? dialect.loadData(this.table, this.columns) : null;
+		run.insertRows = Math.max(1, Math.min(dialect.getMaxInsertRows(), dialect.getMaxParameters() / this.columns.length));
+
+		BulkLoadResult result = new BulkLoadResult();
+
+		if(this.pipelined){
+			Runnable reader = new Runnable() {
+				@Override
+				public void run() {
+					run.produce();
+				}
+			};
+
+			if(this.executor != null){
+				this.executor.execute(reader);
+			} else {
+				Thread thread = new Thread(reader, "BulkLoader-" + this.table);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+
+		try {
+			while(true){
+				Chunk chunk = this.pipelined ? run.queue.take() : run.nextChunk();
+
+				if(chunk == null || chunk == END){
+					break;
+				}
+
+				if(chunk.error != null){
+					throw this.readError(chunk.error);
+				}
+
+				boolean viaLoadData = chunk.data != null && run.loadSql != null;
+				long updated = this.write(run, chunk, dialect);
+
+				if(this.connector.isTransaction()){
+					this.connector.commit();
+				}
+
+				result.addChunk(chunk.rows.size(), updated, chunk.bytes, viaLoadData && run.loadSql != null);
+
+				if(this.listener != null){
+					this.listener.onChunk(result);
+				}
+			}
+		} catch (DuplicatedKeyException e) {
+			throw new DuplicatedKeyException(e.getMessage(), e.getCause() != null ? e.getCause() : e, result.getChunks(), result.getRows());
+		} catch (SqlQueryException e) {
+			throw new SqlQueryException(e.getSql(), e.getMessage(), e.getCause() != null ? e.getCause() : e, result.getChunks(), result.getRows());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SqlQueryException(null, "Caricamento della tabella " + this.table + " interrotto", e, result.getChunks(), result.getRows());
+		} finally {
+			run.cancelled = true;
+			run.queue.clear();
+		}
+
+		log.debug(
+			"Caricate " + result.getRows() + " righe nella tabella " + this.table + " in " +
+			result.getChunks() + " blocchi (" + result.getElapsedMillis() + " ms)"
+		);
+
+		return result;
+	}
+
+	/**
+	 * Scrive un blocco, con il comando di caricamento massivo se possibile, altrimenti
+	 * con una o pi&ugrave; INSERT multiple.
+	 */
+	private long write(Run run, Chunk chunk, Dialect dialect)
+	throws DuplicatedKeyException, SqlQueryException {
+		try {
+			if(chunk.data != null && run.loadSql != null){
+				try {
+					return this.connector.loadData(run.loadSql, new ByteArrayInputStream(chunk.data));
+				} catch (IllegalOperationException e) {
+					log.warn(e.getMessage() + " Il caricamento della tabella " + this.table + " prosegue con INSERT multiple.");
+
+					run.loadSql = null;
+					run.encode = false;
+				}
+			}
+
+			int size = chunk.rows.size();
+			long updated = 0;
+
+			for(int from = 0; from < size; from += run.insertRows){
+				int count = Math.min(run.insertRows, size - from);
+
+				String sql;
+				if(count == run.insertRows){
+					if(run.fullInsert == null){
+						run.fullInsert = dialect.insertRows(this.table, this.columns, count);
+					}
+
+					sql = run.fullInsert;
+				} else {
+					sql = dialect.insertRows(this.table, this.columns, count);
+				}
+
+				Object[] parameters = new Object[count * this.columns.length];
+				for(int r = 0; r < count; r++){
+					System.arraycopy(chunk.rows.get(from + r), 0, parameters, r * this.columns.length, this.columns.length);
+				}
+
+				updated += this.connector.executeUpdate(sql, NO_KEYS, parameters).getUpdatedRows();
+			}
+
+			return updated;
+		} catch (DuplicatedKeyException | SqlQueryException e) {
+			if(this.connector.isTransaction()){
+				this.connector.rollback();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Rilancia l'errore del thread di lettura nel thread chiamante.
+	 */
+	private RuntimeException readError(Throwable error)
+	throws SqlQueryException {
+		if(error instanceof RuntimeException){
+			return (RuntimeException) error;
+		}
+
+		if(error instanceof Error){
+			throw (Error) error;
+		}
+
+		throw new SqlQueryException(null, "Errore durante la lettura dei dati da caricare nella tabella " + this.table, error);
+	}
+
+	/* ===================================================================================== */
+	/* ====================================== BLOCCHI ====================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * Lo stato di un caricamento, condiviso tra il thread di lettura e quello di scrittura.
+	 */
+	private final class Run {
+		private final Iterator<?> source;
+		private final Extractor extractor;
+		private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<Chunk>(Math.max(1, queueSize));
+
+		/**
+		 * Il comando di caricamento massivo, <code>null</code> se non supportato o disattivato
+		 */
+		private volatile String loadSql;
+
+		/**
+		 * Flag che indica se preparare i blocchi nel formato del comando di caricamento massivo
+		 */
+		private volatile boolean encode = true;
+
+		/**
+		 * Flag attivato dal thread di scrittura al termine, anche in caso di errore
+		 */
+		private volatile boolean cancelled = false;
+
+		/**
+		 * Il numero massimo di righe di una INSERT multipla
+		 */
+		private int insertRows;
+
+		/**
+		 * La INSERT multipla completa, riutilizzata per tutti i blocchi
+		 */
+		private String fullInsert;
+
+		/**
+		 * Il numero di righe lette
+		 */
+		private long count = 0;
+
+		private Run(Iterator<?> source, Extractor extractor){
+			this.source = source;
+			this.extractor = extractor;
+		}
+
+		/**
+		 * Il ciclo del thread di lettura: prepara i blocchi finch&eacute; la sorgente non &egrave; esaurita
+		 * o il caricamento non viene interrotto.
+		 */
+		private void produce(){
+			try {
+				Chunk chunk;
+				while((chunk = this.nextChunk()) != null){
+					if(!this.offer(chunk)){
+						return;
+					}
+				}
+
+				this.offer(END);
+			} catch (Throwable t) {
+				Chunk error = new Chunk();
+				error.error = t;
+
+				try {
+					this.offer(error);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		/**
+		 * Accoda il blocco, attendendo che il thread di scrittura liberi spazio.
+		 *
+		 * @return <code>false</code> se nel frattempo il caricamento &egrave; stato interrotto
+		 */
+		private boolean offer(Chunk chunk)
+		throws InterruptedException {
+			while(!this.cancelled){
+				if(this.queue.offer(chunk, 100, TimeUnit.MILLISECONDS)){
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Legge dalla sorgente il prossimo blocco.
+		 *
+		 * @return il blocco, oppure <code>null</code> se la sorgente &egrave; esaurita
+		 */
+		private Chunk nextChunk(){
+			if(this.cancelled || !this.source.hasNext()){
+				return null;
+			}
+
+			Chunk chunk = new Chunk();
+			StringBuilder text = this.encode && this.loadSql != null ? new StringBuilder((int) Math.min(maxBytes + 1024, 1 << 24)) : null;
+
+			while(chunk.rows.size() < maxRows && chunk.bytes < maxBytes && this.source.hasNext()){
+				Object[] row = this.extractor.toRow(this.source.next());
+				this.count++;
+
+				if(row == null || row.length != columns.length){
+					throw new InvalidFileException(
+						"La riga " + this.count + " contiene " + (row == null ? 0 : row.length) +
+						" valori invece dei " + columns.length + " previsti dalle colonne della tabella " + table + "."
+					);
+				}
+
+				chunk.rows.add(row);
+
+				if(text != null){
+					int start = text.length();
+
+					if(appendText(text, row)){
+						chunk.bytes += text.length() - start;
+						continue;
+					}
+
+					// Valori binari: il blocco verra' scritto con una INSERT
+					text.setLength(start);
+					text = null;
+				}
+
+				chunk.bytes += estimate(row);
+			}
+
+			if(text != null){
+				chunk.data = text.toString().getBytes(UTF8);
+			}
+
+			return chunk;
+		}
+	}
+
+	/**
+	 * Un blocco di righe pronto per la scrittura.
+	 */
+	private static final class Chunk {
+		private final List<Object[]> rows = new ArrayList<Object[]>();
+
+		/**
+		 * La dimensione stimata del blocco
+		 */
+		private long bytes = 0;
+
+		/**
+		 * Il blocco nel formato del comando di caricamento massivo, se preparato
+		 */
+		private byte[] data = null;
+
+		/**
+		 * L'errore del thread di lettura
+		 */
+		private Throwable error = null;
+	}
+
+	/**
+	 * Aggiunge la riga nel formato testo del comando di caricamento massivo (vedi {@link Dialect#loadData(String, String[])}).
+	 *
+	 * @return <code>false</code> se la riga contiene valori binari, non rappresentabili in formato testo
+	 */
+	private static boolean appendText(StringBuilder text, Object[] row){
+		for(int i = 0; i < row.length; i++){
+			Object value = row[i];
+
+			if(i > 0){
+				text.append('\t');
+			}
+
+			if(value == null){
+				text.append("\\N");
+			}
+
+			else if(value instanceof byte[] || value instanceof BlobSource || value instanceof InputStream || value instanceof ByteBuffer){
+				return false;
+			}
+
+			else if(value instanceof Boolean){
+				text.append(((Boolean) value).booleanValue() ? '1' : '0');
+			}
+
+			else if(value instanceof BigDecimal){
+				text.append(((BigDecimal) value).toPlainString());
+			}
+
+			else if(value instanceof java.util.Date && !(value instanceof java.sql.Date) && !(value instanceof java.sql.Time)){
+				text.append(value instanceof Timestamp ? value : new Timestamp(((java.util.Date) value).getTime()));
+			}
+
+			else {
+				String s = value.toString();
+
+				for(int c = 0; c < s.length(); c++){
+					char ch = s.charAt(c);
+
+					switch (ch) {
+						case '\\': text.append("\\\\"); break;
+						case '\t': text.append("\\t"); break;
+						case '\n': text.append("\\n"); break;
+						case '\r': text.append("\\r"); break;
+						case '\0': text.append("\\0"); break;
+						default: text.append(ch);
+					}
+				}
+			}
+		}
+
+		text.append('\n');
+		return true;
+	}
+
+	/**
+	 * Stima la dimensione della riga all'interno di una INSERT.
+	 */
+	private static long estimate(Object[] row){
+		long size = 2;
+
+		for(Object value : row){
+			if(value == null || value instanceof Number || value instanceof Boolean){
+				size += 10;
+			} else if(value instanceof CharSequence){
+				size += ((CharSequence) value).length() + 4;
+			} else if(value instanceof byte[]){
+				size += ((byte[]) value).length + 4;
+			} else if(value instanceof BlobSource){
+				size += Math.max(0, ((BlobSource) value).getLength()) + 4;
+			} else {
+				size += 28;
+			}
+		}
+
+		return size;
+	}
+
+	/* ===================================================================================== */
+	/* ===================================== SORGENTI ====================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * Trasforma un elemento della sorgente nei valori di una riga.
+	 */
+	private interface Extractor {
+		public Object[] toRow(Object item);
+	}
+
+	/**
+	 * Gli elementi sono gi&agrave; i valori della riga.
+	 */
+	private static final class RowExtractor implements Extractor {
+		@Override
+		public Object[] toRow(Object item) {
+			return (Object[]) item;
+		}
+	}
+
+	/**
+	 * Legge i valori delle colonne dalle propriet&agrave; dei bean.
+	 */
+	private final class BeanExtractor implements Extractor {
+		private Class<?> type = null;
+		private Method[] getters = null;
+
+		@Override
+		public Object[] toRow(Object item) {
+			if(item.getClass() != this.type){
+				this.getters = this.resolve(item.getClass());
+				this.type = item.getClass();
+			}
+
+			Object[] row = new Object[this.getters.length];
+
+			try {
+				for(int i = 0; i < row.length; i++){
+					row[i] = this.getters[i].invoke(item);
+				}
+			} catch (Exception e) {
+				throw new ConverterException("Impossibile leggere le proprieta' del bean " + this.type.getName(), e);
+			}
+
+			return row;
+		}
+
+		private Method[] resolve(Class<?> beanType){
+			Map<String, Method> readers = new HashMap<String, Method>();
+
+			try {
+				for(PropertyDescriptor pd : Introspector.getBeanInfo(beanType).getPropertyDescriptors()){
+					if(pd.getReadMethod() != null){
+						readers.put(normalize(pd.getName()), pd.getReadMethod());
+					}
+				}
+			} catch (IntrospectionException e) {
+				throw new ConverterException("Bean introspection failed: " + e.getMessage());
+			}
+
+			Method[] result = new Method[columns.length];
+			for(int i = 0; i < columns.length; i++){
+				result[i] = readers.get(normalize(columns[i]));
+
+				if(result[i] == null){
+					throw new ConverterException(
+						"Il bean " + beanType.getName() + " non ha una proprieta' leggibile per la colonna '" + columns[i] + "'."
+					);
+				}
+
+				result[i].setAccessible(true);
+			}
+
+			return result;
+		}
+	}
+
+	private static String normalize(String name){
+		return name.replace("_", "").toLowerCase(Locale.ENGLISH);
+	}
+
+	/* ===================================================================================== */
+	/* ==================================== IMPOSTAZIONI =================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * @return il numero massimo di righe per blocco
+	 */
+	public int getMaxRows() {
+		return this.maxRows;
+	}
+
+	/**
+	 * Imposta il numero massimo di righe per blocco (default {@value #DEFAULT_MAX_ROWS}).
+	 */
+	public void setMaxRows(int maxRows) {
+		this.maxRows = Math.max(1, maxRows);
+	}
+
+	/**
+	 * @return la dimensione massima stimata di un blocco, in byte
+	 */
+	public long getMaxBytes() {
+		return this.maxBytes;
+	}
+
+	/**
+	 * Imposta la dimensione massima stimata di un blocco, in byte: deve restare al di sotto della
+	 * dimensione massima di un comando accettata dal database (es. <code>max_allowed_packet</code> di MySQL).
+	 */
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = Math.max(1, maxBytes);
+	}
+
+	/**
+	 * @return il numero di blocchi pronti in attesa di scrittura
+	 */
+	public int getQueueSize() {
+		return this.queueSize;
+	}
+
+	/**
+	 * Imposta il numero di blocchi che il thread di lettura pu&ograve; preparare in anticipo.
+	 */
+	public void setQueueSize(int queueSize) {
+		this.queueSize = Math.max(1, queueSize);
+	}
+
+	/**
+	 * @return <code>true</code> se viene utilizzato il comando di caricamento massivo del database, se supportato
+	 */
+	public boolean isLoadData() {
+		return this.loadData;
+	}
+
+	/**
+	 * Attiva o disattiva il comando di caricamento massivo del database (disattivo di default).
+	 * Se disattivato vengono sempre utilizzate le INSERT multiple.
+	 * <br><br>
+	 * Attenzione: su MySQL <code>LOAD DATA LOCAL INFILE</code> scarta silenziosamente (con un warning) le righe
+	 * con chiave duplicata, mentre le INSERT sollevano una {@link DuplicatedKeyException}. Il confronto tra
+	 * {@link BulkLoadResult#getRows()} e {@link BulkLoadResult#getUpdatedRows()} permette di verificare
+	 * se qualche riga &egrave; stata scartata.
+	 */
+	public void setLoadData(boolean loadData) {
+		this.loadData = loadData;
+	}
+
+	/**
+	 * @return <code>true</code> se la sorgente viene letta in un thread separato
+	 */
+	public boolean isPipelined() {
+		return this.pipelined;
+	}
+
+	/**
+	 * Attiva o disattiva la lettura della sorgente in un thread separato (attiva di default).
+	 * Va disattivata se la sorgente pu&ograve; essere letta solo dal thread chiamante.
+	 */
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
+	/**
+	 * @return il listener invocato dopo ogni blocco
+	 */
+	public BulkLoadListener getListener() {
+		return this.listener;
+	}
+
+	public void setListener(BulkLoadListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return l'executor del thread di lettura, <code>null</code> per un thread dedicato
+	 */
+	public Executor getExecutor() {
+		return this.executor;
+	}
+
+	/**
+	 * Imposta l'executor del thread di lettura. Non deve eseguire il task nel thread chiamante
+	 * (come fa ad esempio l'executor condiviso dei connettori quando &egrave; saturo).
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Imposta il formato dei file CSV (default <code>,</code> e <code>"</code>, senza intestazione).
+	 *
+	 * @param delimiter
+	 * 	Il separatore dei campi
+	 *
+	 * @param quote
+	 * 	Il carattere che racchiude i campi
+	 *
+	 * @param header
+	 * 	<code>true</code> se il primo record contiene i nomi delle colonne e va ignorato
+	 */
+	public void setCsvFormat(char delimiter, char quote, boolean header) {
+		this.delimiter = delimiter;
+		this.quote = quote;
+		this.header = header;
+	}
+
+	/**
+	 * @return la tabella da caricare
+	 */
+	public String getTable() {
+		return this.table;
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.wolfetti.swissknife.db.exceptions.InvalidFileException;
+
+/**
+ * Lettore CSV in streaming (RFC 4180), che restituisce un record alla volta senza caricare il file in memoria.
+ * <br><br>
+ * I campi tra virgolette possono contenere separatori, virgolette raddoppiate e a capo. Un campo vuoto
+ * senza virgolette viene restituito come <code>null</code>, un campo <code>""</code> come stringa vuota.
+ * Le righe vuote vengono ignorate e le righe possono terminare con <code>\n</code>, <code>\r\n</code> o <code>\r</code>.
+ * <br><br>
+ * Come {@link Iterator} restituisce i record come array di stringhe; gli errori di lettura vengono
+ * rilanciati come {@link InvalidFileException}.
+ *
+ * @author Fabio Frijo
+ */
+public class CsvReader implements Iterator<Object[]>, Closeable {
+
+	/**
+	 * La dimensione del buffer di lettura
+	 */
+	private static final int BUFFER_SIZE = 16384;
+
+	private final Reader reader;
+	private final char delimiter;
+	private final char quote;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+	private boolean eof = false;
+
+	/**
+	 * Il campo in lettura, riutilizzato per tutti i campi
+	 */
+	private final StringBuilder field = new StringBuilder(64);
+
+	/**
+	 * Il numero di campi dell'ultimo record, per dimensionare il successivo
+	 */
+	private int lastSize = 8;
+
+	/**
+	 * Il numero di record letti
+	 */
+	private long records = 0;
+
+	/**
+	 * Il prossimo record, letto da {@link #hasNext()}
+	 */
+	private String[] next = null;
+
+	/**
+	 * Lettore con separatore <code>,</code> e virgolette <code>"</code>.
+	 */
+	public CsvReader(Reader reader) {
+		this(reader, ',', '"');
+	}
+
+	/**
+	 * @param reader
+	 * 	La sorgente dei dati
+	 *
+	 * @param delimiter
+	 * 	Il separatore dei campi, es. <code>;</code> o <code>\t</code>
+	 *
+	 * @param quote
+	 * 	Il carattere che racchiude i campi
+	 */
+	public CsvReader(Reader reader, char delimiter, char quote) {
+		this.reader = reader;
+		this.delimiter = delimiter;
+		this.quote = quote;
+	}
+
+	/**
+	 * Legge il prossimo record.
+	 *
+	 * @return
+	 * 	I campi del record, oppure <code>null</code> alla fine del file
+	 *
+	 * @throws InvalidFileException
+	 * 	Se un campo tra virgolette non viene chiuso
+	 */
+	public String[] readRecord()
+	throws IOException, InvalidFileException {
+		if(this.next != null){
+			String[] record = this.next;
+			this.next = null;
+			return record;
+		}
+
+		int c = this.read();
+
+		// Righe vuote
+		while(c == '\n' || c == '\r'){
+			c = this.read();
+		}
+
+		if(c < 0){
+			return null;
+		}
+
+		List<String> fields = new ArrayList<String>(this.lastSize);
+		StringBuilder value = this.field;
+		boolean quoted = false;
+
+		value.setLength(0);
+
+		while(true){
+			if(c == this.quote && !quoted && value.length() == 0){
+				quoted = true;
+
+				while(true){
+					c = this.read();
+
+					if(c < 0){
+						throw new InvalidFileException("Virgolette non chiuse nel record " + (this.records + 1) + " del file CSV.");
+					}
+
+					if(c == this.quote){
+						c = this.read();
+
+						if(c != this.quote){
+							break;
+						}
+					}
+
+					value.append((char) c);
+				}
+
+				continue;
+			}
+
+			if(c == this.delimiter){
+				fields.add(this.value(quoted));
+				value.setLength(0);
+				quoted = false;
+				c = this.read();
+				continue;
+			}
+
+			if(c == '\n' || c == '\r' || c < 0){
+				if(c == '\r'){
+					int lf = this.read();
+
+					if(lf >= 0 && lf != '\n'){
+						this.unread();
+					}
+				}
+
+				fields.add(this.value(quoted));
+				break;
+			}
+
+			value.append((char) c);
+			c = this.read();
+		}
+
+		this.records++;
+		this.lastSize = fields.size();
+
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/**
+	 * @return il numero di record letti
+	 */
+	public long getRecords() {
+		return this.records;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(this.next == null){
+			try {
+				this.next = this.readRecord();
+			} catch (IOException e) {
+				throw new InvalidFileException("Errore di lettura del file CSV dopo il record " + this.records + ".", e);
+			}
+		}
+
+		return this.next != null;
+	}
+
+	@Override
+	public Object[] next() {
+		if(!this.hasNext()){
+			throw new NoSuchElementException();
+		}
+
+		String[] record = this.next;
+		this.next = null;
+		return record;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close()
+	throws IOException {
+		this.reader.close();
+	}
+
+	private String value(boolean quoted){
+		return quoted || this.field.length() > 0 ? this.field.toString() : null;
+	}
+
+	/**
+	 * @return il prossimo carattere, oppure <code>-1</code> alla fine del file
+	 */
+	private int read()
+	throws IOException {
+		if(this.position >= this.limit){
+			if(this.eof){
+				return -1;
+			}
+
+			this.limit = this.reader.read(this.buffer, 0, this.buffer.length);
+			this.position = 0;
+
+			if(this.limit <= 0){
+				this.limit = 0;
+				this.eof = true;
+				return -1;
+			}
+		}
+
+		return this.buffer[this.position++];
+	}
+
+	/**
+	 * Restituisce al buffer l'ultimo carattere letto, che &egrave; sempre nel buffer corrente.
+	 */
+	private void unread(){
+		this.position--;
+	}
+}
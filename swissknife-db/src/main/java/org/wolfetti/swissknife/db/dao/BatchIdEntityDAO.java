@@ -0,0 +1,46 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Estensione di {@link IdEntityDAO} per i DAO che sanno leggere pi&ugrave; entit&agrave; con una sola query
+ * (es. con {@link PropertyFileDAO#getListIn(String, Class, Collection)}), per evitare una query per ogni
+ * {@link #findById(int)}. Ogni chiamata a {@link #findById(int)} resta una query: il raggruppamento si ottiene
+ * chiamando {@link #findByIds(Collection)} o prenotando gli id con {@link IdBatchLoader#load(int)}.
+ *
+ * @author Fabio Frijo
+ */
+public interface BatchIdEntityDAO<T extends ApplicationEntity> extends IdEntityDAO<T> {
+
+	/**
+	 * Legge le entit&agrave; con gli id in ingresso.
+	 *
+	 * @param ids
+	 * 	Gli id delle entit&agrave;, anche duplicati
+	 *
+	 * @return
+	 * 	Le entit&agrave; trovate indicizzate per id; gli id non presenti su database non compaiono nella mappa
+	 */
+	public Map<Integer, T> findByIds(Collection<Integer> ids);
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+import org.wolfetti.swissknife.db.entities.CacheStats;
+
+/**
+ * Implementazione di {@link CodedEntityDAO} che mantiene in cache le entit&agrave; lette da un altro DAO
+ * (vedi {@link EntityCache}). La cancellazione invalida l'entit&agrave;; dopo le altre scritture va invocato
+ * {@link #invalidate(String)}, a meno che la cache non sia stata creata con le tabelle dell'entit&agrave;.
+ *
+ * <pre>
+ * CodedEntityDAO&lt;Nazione&gt; nazioni = new CachingCodedEntityDAO&lt;Nazione&gt;(new NazioneDAO(), new EntityCache&lt;String, Nazione&gt;("nazioni"));
+ * </pre>
+ *
+ * @author Fabio Frijo
+ */
+public class CachingCodedEntityDAO<T extends ApplicationEntity> implements CodedEntityDAO<T> {
+	private final CodedEntityDAO<T> dao;
+	private final EntityCache<String, T> cache;
+
+	private final EntityCache.Loader<String, T> loader = new EntityCache.Loader<String, T>() {
+		@Override
+		public T load(String code) {
+			return CachingCodedEntityDAO.this.dao.findByCode(code);
+		}
+	};
+
+	/**
+	 * Crea il DAO con una cache di dimensione e validit&agrave; predefinite.
+	 *
+	 * @param dao
+	 * 	Il DAO che legge le entit&agrave; dal database
+	 */
+	public CachingCodedEntityDAO(CodedEntityDAO<T> dao) {
+		this(dao, new EntityCache<String, T>());
+	}
+
+	/**
+	 * Crea il DAO con la cache in ingresso.
+	 *
+	 * @param dao
+	 * 	Il DAO che legge le entit&agrave; dal database
+	 *
+	 * @param cache
+	 * 	La cache delle entit&agrave;
+	 */
+	public CachingCodedEntityDAO(CodedEntityDAO<T> dao, EntityCache<String, T> cache) {
+		this.dao = dao;
+		this.cache = cache;
+	}
+
+	@Override
+	public T findByCode(String code) {
+		return this.cache.get(code, this.loader);
+	}
+
+	@Override
+	public void deleteByCode(String code) {
+		try {
+			this.dao.deleteByCode(code);
+		} finally {
+			this.cache.invalidate(code);
+		}
+	}
+
+	/**
+	 * Rimuove l'entit&agrave; dalla cache, da invocare dopo averla modificata.
+	 */
+	public void invalidate(String code) {
+		this.cache.invalidate(code);
+	}
+
+	/**
+	 * @return il DAO che legge le entit&agrave; dal database
+	 */
+	public CodedEntityDAO<T> getDao() {
+		return this.dao;
+	}
+
+	/**
+	 * @return la cache delle entit&agrave;
+	 */
+	public EntityCache<String, T> getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * @return le statistiche di utilizzo della cache
+	 */
+	public CacheStats getStats() {
+		return this.cache.getStats();
+	}
+}
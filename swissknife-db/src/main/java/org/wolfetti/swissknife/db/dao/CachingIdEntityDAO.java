@@ -0,0 +1,111 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+import org.wolfetti.swissknife.db.entities.CacheStats;
+
+/**
+ * Implementazione di {@link IdEntityDAO} che mantiene in cache le entit&agrave; lette da un altro DAO
+ * (vedi {@link EntityCache}). La cancellazione invalida l'entit&agrave;; dopo le altre scritture va invocato
+ * {@link #invalidate(int)}, a meno che la cache non sia stata creata con le tabelle dell'entit&agrave;.
+ *
+ * <pre>
+ * IdEntityDAO&lt;Cliente&gt; clienti = new CachingIdEntityDAO&lt;Cliente&gt;(new ClienteDAO(), new EntityCache&lt;Integer, Cliente&gt;("clienti"));
+ * </pre>
+ *
+ * @author Fabio Frijo
+ */
+public class CachingIdEntityDAO<T extends ApplicationEntity> implements IdEntityDAO<T> {
+	private final IdEntityDAO<T> dao;
+	private final EntityCache<Integer, T> cache;
+
+	private final EntityCache.Loader<Integer, T> loader = new EntityCache.Loader<Integer, T>() {
+		@Override
+		public T load(Integer id) {
+			return CachingIdEntityDAO.this.dao.findById(id.intValue());
+		}
+	};
+
+	/**
+	 * Crea il DAO con una cache di dimensione e validit&agrave; predefinite.
+	 *
+	 * @param dao
+	 * 	Il DAO che legge le entit&agrave; dal database
+	 */
+	public CachingIdEntityDAO(IdEntityDAO<T> dao) {
+		this(dao, new EntityCache<Integer, T>());
+	}
+
+	/**
+	 * Crea il DAO con la cache in ingresso.
+	 *
+	 * @param dao
+	 * 	Il DAO che legge le entit&agrave; dal database
+	 *
+	 * @param cache
+	 * 	La cache delle entit&agrave;
+	 */
+	public CachingIdEntityDAO(IdEntityDAO<T> dao, EntityCache<Integer, T> cache) {
+		this.dao = dao;
+		this.cache = cache;
+	}
+
+	@Override
+	public T findById(int id) {
+		return this.cache.get(Integer.valueOf(id), this.loader);
+	}
+
+	@Override
+	public void deleteById(int id) {
+		try {
+			this.dao.deleteById(id);
+		} finally {
+			this.cache.invalidate(Integer.valueOf(id));
+		}
+	}
+
+	/**
+	 * Rimuove l'entit&agrave; dalla cache, da invocare dopo averla modificata.
+	 */
+	public void invalidate(int id) {
+		this.cache.invalidate(Integer.valueOf(id));
+	}
+
+	/**
+	 * @return il DAO che legge le entit&agrave; dal database
+	 */
+	public IdEntityDAO<T> getDao() {
+		return this.dao;
+	}
+
+	/**
+	 * @return la cache delle entit&agrave;
+	 */
+	public EntityCache<Integer, T> getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * @return le statistiche di utilizzo della cache
+	 */
+	public CacheStats getStats() {
+		return this.cache.getStats();
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache dei risultati delle query di conteggio, con scadenza.
+ * <br><br>
+ * Quando viene superato il numero massimo di elementi vengono rimossi quelli scaduti
+ * e, se non basta, la cache viene svuotata.
+ *
+ * @author Fabio Frijo
+ */
+final class CountCache {
+
+	/**
+	 * Il numero massimo di conteggi mantenuti in cache
+	 */
+	static final int DEFAULT_MAX_SIZE = 10000;
+
+	/**
+	 * I conteggi, indicizzati per datasource, query e parametri
+	 */
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Il numero massimo di conteggi
+	 */
+	private final int maxSize;
+
+	CountCache(int maxSize){
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Restituisce il conteggio in cache, o <code>null</code> se assente o scaduto.
+	 */
+	Long get(String key){
+		Entry entry = this.entries.get(key);
+
+		if(entry == null){
+			return null;
+		}
+
+		if(entry.expiresAt < System.currentTimeMillis()){
+			this.entries.remove(key, entry);
+			return null;
+		}
+
+		return Long.valueOf(entry.total);
+	}
+
+	/**
+	 * Memorizza il conteggio per il tempo indicato.
+	 */
+	void put(String key, long total, long ttl){
+		if(this.entries.size() >= this.maxSize){
+			this.purge();
+		}
+
+		this.entries.put(key, new Entry(total, System.currentTimeMillis() + ttl));
+	}
+
+	/**
+	 * Svuota la cache.
+	 */
+	void clear(){
+		this.entries.clear();
+	}
+
+	/**
+	 * Rimuove i conteggi scaduti e, se sono ancora troppi, svuota la cache.
+	 */
+	private void purge(){
+		long now = System.currentTimeMillis();
+
+		for(Iterator<Entry> it = this.entries.values().iterator(); it.hasNext();){
+			if(it.next().expiresAt < now){
+				it.remove();
+			}
+		}
+
+		if(this.entries.size() >= this.maxSize){
+			this.entries.clear();
+		}
+	}
+
+	private static final class Entry {
+		private final long total;
+		private final long expiresAt;
+
+		private Entry(long total, long expiresAt){
+			this.total = total;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+/**
+ * Callback invocata al termine di un'operazione asincrona di un DAO (vedi {@link DaoFuture}).
+ *
+ * @author Fabio Frijo
+ */
+public interface DaoCallback<T> {
+
+	/**
+	 * Invocato quando l'operazione termina con successo.
+	 *
+	 * @param result
+	 * 	Il risultato dell'operazione
+	 */
+	public void onSuccess(T result);
+
+	/**
+	 * Invocato quando l'operazione fallisce o viene annullata.
+	 *
+	 * @param error
+	 * 	L'eccezione sollevata dall'operazione
+	 */
+	public void onFailure(Throwable error);
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.wolfetti.swissknife.common.logger.Log;
+import org.wolfetti.swissknife.common.logger.LogFactory;
+
+/**
+ * Il risultato di un'operazione asincrona di un DAO.
+ * <br><br>
+ * Oltre ai metodi di {@link Future} permette di registrare delle {@link DaoCallback} da invocare
+ * al termine dell'operazione, ad esempio per avviare un'altra operazione asincrona con il risultato della prima.
+ * Le callback registrate prima del termine vengono invocate dal thread che ha eseguito l'operazione,
+ * quelle registrate dopo dal thread che le registra.
+ *
+ * @author Fabio Frijo
+ */
+public class DaoFuture<T> extends FutureTask<T> {
+
+	/**
+	 * Logger
+	 */
+	private static final Log log = LogFactory.getLog(DaoFuture.class);
+
+	/**
+	 * Le callback in attesa del termine dell'operazione
+	 */
+	private final List<DaoCallback<? super T>> callbacks = new ArrayList<DaoCallback<? super T>>();
+
+	/**
+	 * Flag che viene attivato al termine dell'operazione
+	 */
+	private boolean completed = false;
+
+	/**
+	 * Crea il risultato dell'operazione in ingresso, che verr&agrave; eseguita quando il future
+	 * viene passato ad un executor.
+	 */
+	public DaoFuture(Callable<T> callable) {
+		super(callable);
+	}
+
+	/**
+	 * Registra una callback da invocare al termine dell'operazione.
+	 * Se l'operazione &egrave; gi&agrave; terminata la callback viene invocata subito.
+	 *
+	 * @return
+	 * 	Questo stesso future, per registrare altre callback
+	 */
+	public DaoFuture<T> addCallback(DaoCallback<? super T> callback) {
+		synchronized (this.callbacks) {
+			if(!this.completed){
+				this.callbacks.add(callback);
+				return this;
+			}
+		}
+
+		this.notify(callback);
+		return this;
+	}
+
+	/**
+	 * Attende il termine dell'operazione e ne restituisce il risultato, sollevando direttamente
+	 * l'eccezione dell'operazione invece di una {@link ExecutionException}.
+	 *
+	 * @throws Exception
+	 * 	L'eccezione sollevata dall'operazione
+	 */
+	public T join()
+	throws Exception {
+		try {
+			return this.get();
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof Exception){
+				throw (Exception) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Attende il termine di tutte le operazioni in ingresso.
+	 *
+	 * @throws ExecutionException
+	 * 	La prima eccezione sollevata da una delle operazioni, dopo aver atteso anche tutte le altre
+	 *
+	 * @throws InterruptedException
+	 * 	Quando il thread viene interrotto durante l'attesa
+	 */
+	public static void awaitAll(Future<?> ... futures)
+	throws ExecutionException, InterruptedException {
+		ExecutionException first = null;
+
+		for(Future<?> future : futures){
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if(first == null){
+					first = e;
+				}
+			} catch (CancellationException e) {
+				if(first == null){
+					first = new ExecutionException(e);
+				}
+			}
+		}
+
+		if(first != null){
+			throw first;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.concurrent.FutureTask#done()
+	 */
+	@Override
+	protected void done() {
+		List<DaoCallback<? super T>> pending;
+
+		synchronized (this.callbacks) {
+			this.completed = true;
+			pending = new ArrayList<DaoCallback<? super T>>(this.callbacks);
+			this.callbacks.clear();
+		}
+
+		for(DaoCallback<? super T> callback : pending){
+			this.notify(callback);
+		}
+	}
+
+	/**
+	 * Invoca la callback con l'esito dell'operazione terminata.
+	 */
+	private void notify(DaoCallback<? super T> callback) {
+		T result;
+
+		try {
+			result = this.get();
+		} catch (ExecutionException e) {
+			this.fail(callback, e.getCause());
+			return;
+		} catch (CancellationException e) {
+			this.fail(callback, e);
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.fail(callback, e);
+			return;
+		}
+
+		try {
+			callback.onSuccess(result);
+		} catch (RuntimeException e) {
+			log.error("Errore nella callback di un'operazione asincrona", e);
+		}
+	}
+
+	private void fail(DaoCallback<? super T> callback, Throwable error) {
+		try {
+			callback.onFailure(error);
+		} catch (RuntimeException e) {
+			log.error("Errore nella callback di un'operazione asincrona", e);
+		}
+	}
+}
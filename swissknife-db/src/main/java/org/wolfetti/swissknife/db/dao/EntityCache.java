@@ -0,0 +1,393 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.wolfetti.swissknife.db.entities.CacheStats;
+
+/**
+ * Cache delle entit&agrave; lette per chiave, con scadenza e dimensione massima, utilizzata dai DAO
+ * {@link CachingIdEntityDAO} e {@link CachingCodedEntityDAO}.
+ * <br><br>
+ * Le entit&agrave; sono suddivise in {@value #SEGMENTS} segmenti per hash della chiave, ognuno con il proprio lock
+ * e con la rimozione degli elementi usati meno di recente (LRU): letture di chiavi diverse raramente si contendono
+ * lo stesso lock e l'ordine di rimozione approssima quello di un'unica LRU.
+ * <br><br>
+ * Le letture concorrenti di una chiave non presente vengono raggruppate in un solo caricamento dal database:
+ * il primo thread esegue il caricamento e gli altri ne attendono il risultato. Un'invalidazione durante
+ * il caricamento impedisce che il valore letto, potenzialmente gi&agrave; superato, venga memorizzato.
+ * <br><br>
+ * Se vengono indicate delle tabelle, le entit&agrave; vengono invalidate anche dalle scritture di
+ * {@link PropertyFileDAO} su quelle tabelle (vedi {@link ResultCache#invalidate(String...)}).
+ * Anche i risultati <code>null</code> vengono memorizzati, in maniera che le chiavi inesistenti non
+ * generino una query ad ogni lettura. Le entit&agrave; in cache sono condivise tra tutti i chiamanti e non vanno modificate.
+ *
+ * @author Fabio Frijo
+ */
+public final class EntityCache<K, V> {
+
+	/**
+	 * Il numero massimo di entit&agrave; in cache, se non impostato diversamente.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	/**
+	 * Il tempo di validit&agrave; delle entit&agrave;, se non impostato diversamente: 5 minuti.
+	 */
+	public static final long DEFAULT_TTL = 5 * 60 * 1000L;
+
+	/**
+	 * Il numero di segmenti
+	 */
+	private static final int SEGMENTS = 16;
+
+	private static final long[] NO_VERSIONS = new long[0];
+
+	/**
+	 * Il caricamento di un'entit&agrave; dal database, in caso di assenza dalla cache.
+	 */
+	public static interface Loader<K, V> {
+
+		/**
+		 * @return l'entit&agrave; con la chiave in ingresso, o <code>null</code> se non esiste
+		 */
+		public V load(K key);
+	}
+
+	private final Segment<K, V>[] segments;
+
+	/**
+	 * I caricamenti in corso, per chiave
+	 */
+	private final ConcurrentMap<K, FutureTask<V>> loading = new ConcurrentHashMap<K, FutureTask<V>>();
+
+	private final long ttl;
+	private final String[] tables;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	/**
+	 * Crea una cache con la dimensione massima e il tempo di validit&agrave; predefiniti.
+	 *
+	 * @param tables
+	 * 	Le tabelle le cui scritture invalidano le entit&agrave; in cache
+	 */
+	public EntityCache(String ... tables) {
+		this(DEFAULT_MAX_SIZE, DEFAULT_TTL, tables);
+	}
+
+	/**
+	 * Crea una cache con la dimensione massima e il tempo di validit&agrave; in ingresso.
+	 *
+	 * @param maxSize
+	 * 	Il numero massimo di entit&agrave; in cache
+	 *
+	 * @param ttl
+	 * 	Il tempo di validit&agrave; delle entit&agrave;, in millisecondi
+	 *
+	 * @param tables
+	 * 	Le tabelle le cui scritture invalidano le entit&agrave; in cache
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public EntityCache(int maxSize, long ttl, String ... tables) {
+		int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+
+		this.segments = new Segment[SEGMENTS];
+		for(int i = 0; i < SEGMENTS; i++){
+			this.segments[i] = new Segment<K, V>(segmentSize, this.evictions);
+		}
+
+		this.ttl = Math.max(1L, ttl);
+		this.tables = ResultCache.normalize(tables);
+	}
+
+	/**
+	 * Restituisce l'entit&agrave; con la chiave in ingresso, caricandola con il {@link Loader} se non presente
+	 * in cache, scaduta o invalidata da una scrittura. I caricamenti concorrenti della stessa chiave vengono
+	 * eseguiti una sola volta.
+	 *
+	 * @param key
+	 * 	La chiave dell'entit&agrave;: le chiavi <code>null</code> non vengono messe in cache
+	 *
+	 * @param loader
+	 * 	Il caricamento dal database
+	 */
+	public V get(final K key, final Loader<K, V> loader) {
+		if(key == null){
+			return loader.load(null);
+		}
+
+		Segment<K, V> segment = this.segmentFor(key);
+		CachedEntity<V> entry = this.lookup(segment, key);
+
+		if(entry != null){
+			this.hits.incrementAndGet();
+			return entry.value;
+		}
+
+		this.misses.incrementAndGet();
+
+		FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+			@Override
+			public V call() {
+				return loader.load(key);
+			}
+		});
+
+		FutureTask<V> running = this.loading.putIfAbsent(key, task);
+
+		if(running == null){
+			running = task;
+			long[] versions = this.snapshot();
+
+			try {
+				task.run();
+			} finally {
+				synchronized (segment) {
+					if(this.loading.remove(key, task) && succeeded(task)){
+						segment.put(key, new CachedEntity<V>(value(task), System.currentTimeMillis() + this.ttl, versions));
+					}
+				}
+			}
+		}
+
+		return value(running);
+	}
+
+	/**
+	 * @return l'entit&agrave; in cache con la chiave in ingresso, o <code>null</code> se non presente
+	 */
+	public V getIfPresent(K key) {
+		if(key == null){
+			return null;
+		}
+
+		CachedEntity<V> entry = this.lookup(this.segmentFor(key), key);
+		return entry != null ? entry.value : null;
+	}
+
+	/**
+	 * Memorizza l'entit&agrave;, ad esempio dopo averla salvata sul database.
+	 */
+	public void put(K key, V value) {
+		if(key == null){
+			return;
+		}
+
+		Segment<K, V> segment = this.segmentFor(key);
+
+		synchronized (segment) {
+			this.loading.remove(key);
+			segment.put(key, new CachedEntity<V>(value, System.currentTimeMillis() + this.ttl, this.snapshot()));
+		}
+	}
+
+	/**
+	 * Rimuove l'entit&agrave; dalla cache, ad esempio dopo una sua modifica o cancellazione.
+	 * Se &egrave; in corso un caricamento della stessa chiave, il suo risultato non viene memorizzato.
+	 */
+	public void invalidate(K key) {
+		if(key == null){
+			return;
+		}
+
+		Segment<K, V> segment = this.segmentFor(key);
+
+		synchronized (segment) {
+			this.loading.remove(key);
+
+			if(segment.remove(key) != null){
+				this.invalidations.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Svuota la cache, senza azzerare le statistiche.
+	 */
+	public void invalidateAll() {
+		for(Segment<K, V> segment : this.segments){
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+
+		this.loading.clear();
+	}
+
+	/**
+	 * @return il numero di entit&agrave; in cache
+	 */
+	public int size() {
+		int size = 0;
+
+		for(Segment<K, V> segment : this.segments){
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * @return le statistiche di utilizzo della cache
+	 */
+	public CacheStats getStats() {
+		return new CacheStats(
+			this.hits.get(),
+			this.misses.get(),
+			this.evictions.get(),
+			this.expirations.get(),
+			this.invalidations.get(),
+			this.size()
+		);
+	}
+
+	/**
+	 * Cerca l'entit&agrave; nel segmento, rimuovendola se scaduta o invalidata da una scrittura sulle tabelle.
+	 */
+	private CachedEntity<V> lookup(Segment<K, V> segment, K key) {
+		synchronized (segment) {
+			CachedEntity<V> entry = segment.get(key);
+
+			if(entry == null){
+				return null;
+			}
+
+			if(entry.expiresAt < System.currentTimeMillis()){
+				segment.remove(key);
+				this.expirations.incrementAndGet();
+				return null;
+			}
+
+			if(!Arrays.equals(entry.versions, this.snapshot())){
+				segment.remove(key);
+				this.invalidations.incrementAndGet();
+				return null;
+			}
+
+			return entry;
+		}
+	}
+
+	private long[] snapshot() {
+		return this.tables.length == 0 ? NO_VERSIONS : PropertyFileDAO.getResultCache().snapshot(this.tables);
+	}
+
+	private Segment<K, V> segmentFor(K key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+
+		return this.segments[h & (SEGMENTS - 1)];
+	}
+
+	private static boolean succeeded(FutureTask<?> task) {
+		try {
+			task.get();
+			return true;
+		} catch (ExecutionException | InterruptedException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Attende il risultato del caricamento, rilanciando l'eventuale eccezione del {@link Loader}.
+	 */
+	private static <V> V value(FutureTask<V> task) {
+		boolean interrupted = false;
+
+		try {
+			while(true){
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+
+					if(cause instanceof RuntimeException){
+						throw (RuntimeException) cause;
+					}
+
+					if(cause instanceof Error){
+						throw (Error) cause;
+					}
+
+					throw new IllegalStateException(cause);
+				}
+			}
+		} finally {
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Segmento della cache: una mappa in ordine di accesso limitata nel numero di elementi.
+	 */
+	private static final class Segment<K, V> extends LinkedHashMap<K, CachedEntity<V>> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+		private final AtomicLong evictions;
+
+		private Segment(int maxSize, AtomicLong evictions) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, CachedEntity<V>> eldest) {
+			if(this.size() > this.maxSize){
+				this.evictions.incrementAndGet();
+				return true;
+			}
+
+			return false;
+		}
+	}
+
+	private static final class CachedEntity<V> {
+		private final V value;
+		private final long expiresAt;
+		private final long[] versions;
+
+		private CachedEntity(V value, long expiresAt, long[] versions) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+			this.versions = versions;
+		}
+	}
+}
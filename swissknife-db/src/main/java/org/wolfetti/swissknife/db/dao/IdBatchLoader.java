@@ -0,0 +1,205 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Raccoglie le letture per id di un'unit&agrave; di lavoro (es. una richiesta web) e le risolve con
+ * {@link BatchIdEntityDAO#findByIds(Collection)}, trasformando N letture in una query per blocco di id.
+ * <br><br>
+ * Gli id vengono prenotati con {@link #load(int)} e letti tutti insieme alla prima {@link #findById(int)}
+ * successiva (oppure con {@link #dispatch()}); le entit&agrave; lette, comprese quelle non trovate, restano
+ * in memoria fino a {@link #clear()}, per cui il loader va creato per ogni unit&agrave; di lavoro e non condiviso.
+ * <br><br>
+ * Il raggruppamento avviene solo per gli id prenotati: un ciclo di {@link #findById(int)} senza le chiamate
+ * a {@link #load(int)} esegue ancora una query per ogni id diverso, come il DAO sottostante.
+ *
+ * <pre>
+ * IdBatchLoader&lt;Cliente&gt; clienti = new IdBatchLoader&lt;Cliente&gt;(clienteDAO);
+ *
+ * for(Ordine ordine : ordini){
+ * 	clienti.load(ordine.getIdCliente());
+ * }
+ *
+ * for(Ordine ordine : ordini){
+ * 	Cliente cliente = clienti.findById(ordine.getIdCliente()); // una sola query per tutti i clienti
+ * }
+ * </pre>
+ *
+ * @author Fabio Frijo
+ */
+public class IdBatchLoader<T extends ApplicationEntity> implements BatchIdEntityDAO<T> {
+	private final BatchIdEntityDAO<T> dao;
+
+	/**
+	 * Le entit&agrave; gi&agrave; lette, con valore <code>null</code> per gli id non trovati
+	 */
+	private final Map<Integer, T> loaded = new HashMap<Integer, T>();
+
+	/**
+	 * Gli id prenotati e non ancora letti, in ordine di prenotazione
+	 */
+	private final Set<Integer> pending = new LinkedHashSet<Integer>();
+
+	/**
+	 * Il numero di letture effettuate sul DAO
+	 */
+	private int batches = 0;
+
+	/**
+	 * @param dao
+	 * 	Il DAO che legge le entit&agrave; dal database
+	 */
+	public IdBatchLoader(BatchIdEntityDAO<T> dao) {
+		this.dao = dao;
+	}
+
+	/**
+	 * Prenota la lettura dell'entit&agrave;, che verr&agrave; effettuata insieme alle altre alla prossima lettura.
+	 */
+	public synchronized void load(int id) {
+		Integer key = Integer.valueOf(id);
+
+		if(!this.loaded.containsKey(key)){
+			this.pending.add(key);
+		}
+	}
+
+	/**
+	 * Prenota la lettura delle entit&agrave; in ingresso, ignorando gli id <code>null</code>.
+	 */
+	public synchronized void loadAll(Collection<Integer> ids) {
+		for(Integer id : ids){
+			if(id != null){
+				this.load(id.intValue());
+			}
+		}
+	}
+
+	/**
+	 * Restituisce l'entit&agrave;, leggendola insieme a tutte quelle prenotate se non &egrave; gi&agrave; stata letta.
+	 * Se non ci sono altri id prenotati la lettura riguarda solo questa entit&agrave;.
+	 */
+	@Override
+	public synchronized T findById(int id) {
+		Integer key = Integer.valueOf(id);
+
+		if(!this.loaded.containsKey(key)){
+			this.pending.add(key);
+			this.dispatch();
+		}
+
+		return this.loaded.get(key);
+	}
+
+	/**
+	 * Restituisce le entit&agrave;, leggendo con le stesse query anche quelle prenotate.
+	 */
+	@Override
+	public synchronized Map<Integer, T> findByIds(Collection<Integer> ids) {
+		this.loadAll(ids);
+		this.dispatch();
+
+		Map<Integer, T> result = new LinkedHashMap<Integer, T>();
+		for(Integer id : ids){
+			T entity = id != null ? this.loaded.get(id) : null;
+
+			if(entity != null){
+				result.put(id, entity);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Legge tutte le entit&agrave; prenotate. Se la lettura fallisce le prenotazioni vengono scartate
+	 * e gli id verranno letti di nuovo alla prossima richiesta.
+	 */
+	public synchronized void dispatch() {
+		if(this.pending.isEmpty()){
+			return;
+		}
+
+		List<Integer> ids = new ArrayList<Integer>(this.pending);
+		this.pending.clear();
+
+		Map<Integer, T> found = this.dao.findByIds(ids);
+		this.batches++;
+
+		for(Integer id : ids){
+			this.loaded.put(id, found.get(id));
+		}
+	}
+
+	@Override
+	public synchronized void deleteById(int id) {
+		try {
+			this.dao.deleteById(id);
+		} finally {
+			this.invalidate(id);
+		}
+	}
+
+	/**
+	 * Rimuove l'entit&agrave; letta, da invocare dopo averla modificata.
+	 */
+	public synchronized void invalidate(int id) {
+		this.loaded.remove(Integer.valueOf(id));
+	}
+
+	/**
+	 * Rimuove tutte le entit&agrave; lette e le prenotazioni.
+	 */
+	public synchronized void clear() {
+		this.loaded.clear();
+		this.pending.clear();
+	}
+
+	/**
+	 * @return il numero di id prenotati e non ancora letti
+	 */
+	public synchronized int getPendingCount() {
+		return this.pending.size();
+	}
+
+	/**
+	 * @return il numero di letture effettuate sul DAO
+	 */
+	public synchronized int getBatchCount() {
+		return this.batches;
+	}
+
+	/**
+	 * @return il DAO che legge le entit&agrave; dal database
+	 */
+	public BatchIdEntityDAO<T> getDao() {
+		return this.dao;
+	}
+}
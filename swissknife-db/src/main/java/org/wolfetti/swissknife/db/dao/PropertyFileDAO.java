@@ -19,24 +19,51 @@
 package org.wolfetti.swissknife.db.dao;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import org.wolfetti.swissknife.common.utils.FileUtils;
 import org.wolfetti.swissknife.common.utils.ReflectionUtils;
+import org.wolfetti.swissknife.common.utils.StringUtils;
 import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.beanutils.ResultSetIterator;
+import org.wolfetti.swissknife.db.beanutils.RowMap;
+import org.wolfetti.swissknife.db.beanutils.RowHandler;
+import org.wolfetti.swissknife.db.beanutils.RowMapper;
 import org.wolfetti.swissknife.db.beanutils.RsToBeanConverter;
 import org.wolfetti.swissknife.db.beanutils.RsToMapConverter;
+import org.wolfetti.swissknife.db.beanutils.RsToRowMapConverter;
+import org.wolfetti.swissknife.db.entities.BatchResult;
+import org.wolfetti.swissknife.db.entities.ExecutionOptions;
 import org.wolfetti.swissknife.db.entities.Search;
+import org.wolfetti.swissknife.db.entities.WriteResult;
 import org.wolfetti.swissknife.db.exceptions.ConverterException;
 import org.wolfetti.swissknife.db.exceptions.DuplicatedKeyException;
+import org.wolfetti.swissknife.db.exceptions.IllegalOperationException;
 import org.wolfetti.swissknife.db.exceptions.InvalidFileException;
 import org.wolfetti.swissknife.db.exceptions.SqlKeyException;
 import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+import org.wolfetti.swissknife.db.utils.BlobSource;
+import org.wolfetti.swissknife.db.utils.ResultSetHelper;
 import org.wolfetti.swissknife.db.utils.SqlFormatter;
+import org.wolfetti.swissknife.db.utils.SqlProfiler;
+import org.wolfetti.swissknife.db.utils.SqlTemplate;
 
 /**
  * Dao che prende in ingresso un property file ed esegue le query
@@ -52,15 +79,103 @@ public class PropertyFileDAO extends SkDAO {
 	public static final String DEFAULT_SQL_FILE_NAME = "sql.properties";
 
 	/**
-	 * Il file contenente le query
+	 * Il separatore tra la chiave di una query e il nome di un suo metadato, es. <code>elenco@cache</code>
 	 */
-	private Properties sqlQueries;
+	public static final String META_SEPARATOR = "@";
+
+	/**
+	 * Metadato che attiva la cache dei risultati di una query: il tempo di validit&agrave; in secondi.
+	 * I risultati vengono invalidati dalle scritture eseguite tramite i DAO sulle stesse tabelle (vedi
+	 * {@link #META_TABLES}); le scritture eseguite direttamente sul {@link DbConnector}, o da altre applicazioni,
+	 * non invalidano la cache e diventano visibili solo alla scadenza dei risultati.
+	 */
+	public static final String META_CACHE = "cache";
+
+	/**
+	 * Metadato con l'elenco (separato da virgole) delle tabelle lette o scritte da una query.
+	 * Per le scritture, se non indicato, viene ricavato dalla query (<code>INSERT INTO</code>,
+	 * <code>UPDATE</code>, <code>DELETE FROM</code>, ...).
+	 */
+	public static final String META_TABLES = "tables";
+
+	/**
+	 * Metadato con il timeout della query in secondi (vedi {@link ExecutionOptions#setQueryTimeout(Integer)}).
+	 */
+	public static final String META_TIMEOUT = "timeout";
+
+	/**
+	 * Metadato con il numero massimo di righe lette dalla query (vedi {@link ExecutionOptions#setMaxRows(Integer)}).
+	 */
+	public static final String META_MAX_ROWS = "maxRows";
+
+	/**
+	 * Metadato con la fetch size della query (vedi {@link ExecutionOptions#setFetchSize(Integer)}).
+	 */
+	public static final String META_FETCH_SIZE = "fetchSize";
+
+	/**
+	 * Metadato che indica se leggere le chiavi generate da una scrittura: <code>true</code>, <code>false</code>
+	 * oppure l'elenco (separato da virgole) delle colonne da leggere, es. per le chiavi composte.
+	 */
+	public static final String META_GENERATED_KEYS = "generatedKeys";
+
+	/**
+	 * Metadato con l'elenco (separato da virgole) delle colonne chiave di una INSERT da eseguire come upsert
+	 * (vedi {@link #upsert(String, Object...)}), es. <code>salva@upsert=id</code>.
+	 */
+	public static final String META_UPSERT = "upsert";
+
+	/**
+	 * Il numero predefinito di valori per ogni query di {@link #getListIn(String, Class, Collection)},
+	 * inferiore al limite di 1000 elementi di una IN su Oracle.
+	 */
+	public static final int DEFAULT_IN_SIZE = 500;
+
+	/**
+	 * Riconosce la tabella scritta da una query di scrittura
+	 */
+	private static final Pattern WRITE_TARGET = Pattern.compile(
+		"^\\s*(?:INSERT\\s+(?:IGNORE\\s+)?INTO|REPLACE\\s+INTO|MERGE\\s+INTO|UPDATE(?:\\s+IGNORE)?|DELETE\\s+FROM)\\s+([\\w.`\"\\[\\]]+)",
+		Pattern.CASE_INSENSITIVE
+	);
+
+	/**
+	 * La cache dei risultati, condivisa da tutti i DAO
+	 */
+	private static final ResultCache resultCache = new ResultCache(ResultCache.DEFAULT_MAX_SIZE);
+
+	/**
+	 * Il catalogo delle query, condiviso da tutti i DAO dello stesso file
+	 */
+	private SqlCatalog catalog;
+
+	/**
+	 * Le tabelle scritte nella transazione corrente, da invalidare di nuovo alla commit o alla rollback
+	 */
+	private Set<String> pendingInvalidations = new HashSet<String>();
 
 	/**
 	 * Il nome del file delle query
 	 */
 	private String filename;
 
+	/**
+	 * Flag che indica se i valori delle query vanno passati come parametri di un PreparedStatement
+	 * invece di essere formattati all'interno della query.
+	 */
+	private boolean bindParameters = false;
+
+	/**
+	 * Flag che indica se le righe restituite come mappe vanno memorizzate in forma compatta
+	 * (vedi {@link RsToRowMapConverter}).
+	 */
+	private boolean compactRows = false;
+
+	/**
+	 * L'executor delle operazioni asincrone, se diverso da quello condiviso del connettore
+	 */
+	private Executor executor = null;
+
 	/**
 	 * Inizializzazione del DAO con le query presenti nel file 'sql.properties'.
 	 *
@@ -73,6 +188,7 @@ public class PropertyFileDAO extends SkDAO {
 
 	/**
 	 * Inizializzazione del DAO con le query presenti nel file indicato in ingresso.
+	 * Il file viene letto e compilato solo alla prima richiesta (vedi {@link SqlCatalog}).
 	 *
 	 * @param filename
 	 * 	Il nome del file delle query
@@ -85,16 +201,21 @@ public class PropertyFileDAO extends SkDAO {
 
 		this.filename = filename;
 
-		ClassLoader cl = ReflectionUtils.getContextClassLoader(this.getClass());
-		this.sqlQueries = FileUtils.getPropertiesFile(cl, filename);
+		this.catalog = SqlCatalog.get(ReflectionUtils.getContextClassLoader(this.getClass()), filename);
+	}
 
-		if(null == this.sqlQueries){
-			throw new InvalidFileException("Unable to find file '" + filename + "' in classpath.");
-		}
+	/**
+	 * Copia del DAO in ingresso senza connettore, utilizzata dalle operazioni asincrone:
+	 * condivide il file delle query e ne copia le impostazioni al momento della richiesta.
+	 */
+	private PropertyFileDAO(PropertyFileDAO source){
+		super(null);
 
-		else if(this.sqlQueries.isEmpty()){
-			this.log.warn("The SQL container file '" + filename + "' is empty.");
-		}
+		this.filename = source.filename;
+		this.catalog = source.catalog;
+		this.bindParameters = source.bindParameters;
+		this.compactRows = source.compactRows;
+		this.copySettings(source);
 	}
 
 	/**
@@ -109,13 +230,12 @@ public class PropertyFileDAO extends SkDAO {
 	protected ResultSet runQuery(String key, Object... values)
 	throws SqlQueryException {
 		this.checkSqlKey(key);
-		String sql = SqlFormatter.format(this.getSql(key), values);
 
-		if(this.isPagingEnabled()){
-			sql = this.addPagination(sql);
-		}
+		SqlTemplate template = this.getTemplate(key);
+		String sql = template != null ? template.getSql() : this.format(key, values);
+		Object[] parameters = template != null ? template.getParameters(values) : null;
 
-		return this.connector.query(sql);
+		return this.runPage(key, sql, parameters, this.getOptions(key));
 	}
 
 	/**
@@ -126,21 +246,169 @@ public class PropertyFileDAO extends SkDAO {
 	protected ResultSet runSearch(Search searchObject, String key, Object... values)
 	throws SqlQueryException {
 		this.checkSqlKey(key);
-		String sql = SqlFormatter.format(this.getSql(key), values);
+
+		SqlTemplate template = this.getTemplate(key);
+		String sql = template != null ? template.getSql() : this.format(key, values);
+		Object[] parameters = template != null ? template.getParameters(values) : null;
 
 		if(searchObject != null){
 			this.log.debug("Oggetto di filtraggio: " + searchObject.toString());
 
 			if(searchObject.isValid()){
-				sql += searchObject.getQuery();
+				Object[] searchParameters = searchObject.getParameters();
+
+				if(searchParameters.length > 0){
+					sql += searchObject.getCondition();
+					parameters = concat(parameters, searchParameters);
+				}
+			}
+		}
+
+		return this.runPage(key, sql, parameters, this.getOptions(key));
+	}
+
+	/**
+	 * Copia le righe da memorizzare in cache o da restituire dalla cache, in maniera che le modifiche
+	 * del chiamante non raggiungano i risultati condivisi. Le righe compatte sono in sola lettura e non vengono copiate.
+	 */
+	private static List<Map<String, Object>> copyRows(List<Map<String, Object>> rows){
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(rows.size());
+		for(Map<String, Object> row : rows){
+			result.add(copyRow(row));
+		}
+
+		return result;
+	}
+
+	private static Map<String, Object> copyRow(Map<String, Object> row){
+		return row == null || row instanceof RowMap ? row : new HashMap<String, Object>(row);
+	}
+
+	/**
+	 * Accoda i parametri della ricerca a quelli della query, che possono essere <code>null</code>.
+	 */
+	private static Object[] concat(Object[] parameters, Object[] searchParameters){
+		if(parameters == null){
+			return searchParameters;
+		}
+
+		Object[] result = Arrays.copyOf(parameters, parameters.length + searchParameters.length);
+		System.arraycopy(searchParameters, 0, result, parameters.length, searchParameters.length);
+		return result;
+	}
+
+	/**
+	 * Esegue la query aggiungendo l'eventuale paginazione e, se richiesto, calcola il totale delle righe
+	 * in parallelo alla query paginata.
+	 */
+	private ResultSet runPage(String key, String sql, Object[] parameters, ExecutionOptions options)
+	throws SqlQueryException {
+		Future<Long> count = this.isCountEnabled() ? this.startCount(sql, parameters) : null;
+
+		if(this.isPagingEnabled()){
+			sql = this.addPagination(sql);
+			parameters = this.addPaginationParameters(parameters);
+		}
+
+		this.label(key, sql);
+
+		ResultSet rs;
+		try {
+			rs = parameters != null ?
+				this.connector.preparedQuery(sql, options, parameters) :
+				this.connector.query(sql, options);
+		} catch (SqlQueryException e) {
+			if(count != null){
+				count.cancel(false);
+			}
+
+			throw e;
+		}
+
+		if(count != null){
+			try {
+				this.total = this.awaitCount(count);
+			} catch (SqlQueryException e) {
+				ResultSetHelper.close(rs);
+				throw e;
 			}
 		}
 
+		return rs;
+	}
+
+	/**
+	 * Apre un cursore sulla query indicata dalla chiave, per le letture in streaming.
+	 *
+	 * @param key
+	 * @param values
+	 * @return
+	 * @throws SqlQueryException
+	 */
+	protected ResultSet openCursor(String key, Object... values)
+	throws SqlQueryException {
+		this.checkSqlKey(key);
+
+		SqlTemplate template = this.getTemplate(key);
+		String sql = template != null ? template.getSql() : this.format(key, values);
+
+		Object[] parameters = template != null ? template.getParameters(values) : null;
+
 		if(this.isPagingEnabled()){
 			sql = this.addPagination(sql);
+			parameters = this.addPaginationParameters(parameters);
+		}
+
+		return this.connector.openCursor(this.label(key, sql), this.getOptions(key), parameters);
+	}
+
+	/**
+	 * Associa la query all'etichetta <code>file:chiave</code> per la profilazione e la restituisce.
+	 * Se la profilazione non &egrave; attiva l'etichetta non viene nemmeno composta.
+	 */
+	private String label(String key, String sql){
+		return SqlProfiler.isActive() ? SqlProfiler.label(this.getLabel(key), sql) : sql;
+	}
+
+	/**
+	 * Aggiunge le righe lette alle statistiche della query, se la profilazione &egrave; attiva.
+	 */
+	private void addRows(String key, long rows){
+		if(SqlProfiler.isActive()){
+			SqlProfiler.addRows(this.getLabel(key), rows);
+		}
+	}
+
+	/**
+	 * Restituisce l'etichetta della query nelle statistiche di {@link SqlProfiler}.
+	 */
+	protected String getLabel(String key){
+		return this.filename + ":" + key;
+	}
+
+	/**
+	 * Restituisce il template parametrizzato della query se il binding dei parametri
+	 * &egrave; attivo e la query lo supporta, altrimenti <code>null</code>.
+	 *
+	 * @param key
+	 * @return
+	 */
+	protected SqlTemplate getTemplate(String key){
+		if(!this.bindParameters){
+			return null;
+		}
+
+		SqlTemplate template = this.getCatalog().getTemplate(key);
+		if(template == null){
+			return null;
+		}
+
+		if(!template.isBindable()){
+			this.log.debug("La query '" + key + "' non supporta il binding dei parametri: verra' formattata.");
+			return null;
 		}
 
-		return this.connector.query(sql);
+		return template;
 	}
 
 	/**
@@ -151,10 +419,24 @@ public class PropertyFileDAO extends SkDAO {
 	 * @return
 	 * @throws SqlQueryException
 	 */
+	@SuppressWarnings("unchecked")
 	public List<Map<String, Object>> getList(String key, Object ... values)
 	throws SqlQueryException {
+		ResultCache.Lookup lookup = this.lookup(key, Map.class, false, values);
+		if(lookup != null && lookup.isHit()){
+			this.restoreTotal(lookup);
+			return copyRows((List<Map<String, Object>>) lookup.getValue());
+		}
+
 		ResultSet rs = this.runQuery(key, values);
-		return RsToMapConverter.getList(rs);
+		List<Map<String, Object>> result = this.compactRows ? RsToRowMapConverter.getList(rs) : RsToMapConverter.getList(rs);
+		this.addRows(key, result.size());
+
+		if(lookup != null){
+			lookup.store(copyRows(result), this.total);
+		}
+
+		return result;
 	}
 
 	/**
@@ -166,10 +448,24 @@ public class PropertyFileDAO extends SkDAO {
 	 * @throws SqlQueryException
 	 * @throws ConverterException
 	 */
+	@SuppressWarnings("unchecked")
 	public <T> List<T> getList(String key, Class<T> beanClass, Object ... values)
 	throws SqlQueryException, ConverterException {
+		ResultCache.Lookup lookup = this.lookup(key, beanClass, false, values);
+		if(lookup != null && lookup.isHit()){
+			this.restoreTotal(lookup);
+			return new ArrayList<T>((List<T>) lookup.getValue());
+		}
+
 		ResultSet rs = this.runQuery(key, values);
-		return RsToBeanConverter.getList(rs, beanClass);
+		List<T> result = RsToBeanConverter.getList(rs, beanClass);
+		this.addRows(key, result.size());
+
+		if(lookup != null){
+			lookup.store(new ArrayList<T>(result), this.total);
+		}
+
+		return result;
 	}
 
 	/**
@@ -184,8 +480,19 @@ public class PropertyFileDAO extends SkDAO {
 	 */
 	public <T> T getSingle(String key, Class<T> beanClass, Object ... values)
 	throws SqlQueryException, ConverterException {
+		ResultCache.Lookup lookup = this.lookup(key, beanClass, true, values);
+		if(lookup != null && lookup.isHit()){
+			return beanClass.cast(lookup.getValue());
+		}
+
 		ResultSet rs = this.runQuery(key, values);
-		return RsToBeanConverter.getSingle(rs, beanClass);
+		T result = RsToBeanConverter.getSingle(rs, beanClass);
+
+		if(lookup != null){
+			lookup.store(result, this.total);
+		}
+
+		return result;
 	}
 
 	/**
@@ -196,10 +503,178 @@ public class PropertyFileDAO extends SkDAO {
 	 * @return
 	 * @throws SqlQueryException
 	 */
+	@SuppressWarnings("unchecked")
 	public Map<String, Object> getSingle(String key, Object ... values)
 	throws SqlQueryException {
+		ResultCache.Lookup lookup = this.lookup(key, Map.class, true, values);
+		if(lookup != null && lookup.isHit()){
+			return copyRow((Map<String, Object>) lookup.getValue());
+		}
+
 		ResultSet rs = this.runQuery(key, values);
-		return RsToMapConverter.getSingle(rs);
+		Map<String, Object> result = this.compactRows ? RsToRowMapConverter.getSingle(rs) : RsToMapConverter.getSingle(rs);
+
+		if(lookup != null){
+			lookup.store(copyRow(result), this.total);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Restituisce una lista di beans leggendo le righe indicate da un elenco di valori (es. le chiavi primarie)
+	 * con una query ogni {@link #DEFAULT_IN_SIZE} valori, invece di una query per valore.
+	 *
+	 * @see #getListIn(String, Class, Collection, int)
+	 */
+	public <T> List<T> getListIn(String key, Class<T> beanClass, Collection<?> values)
+	throws SqlQueryException, ConverterException {
+		return this.getListIn(key, beanClass, values, DEFAULT_IN_SIZE);
+	}
+
+	/**
+	 * Restituisce una lista di beans leggendo le righe indicate da un elenco di valori (es. le chiavi primarie),
+	 * con una query per ogni blocco di <code>chunkSize</code> valori. Il placeholder <code>{0}</code>
+	 * della query rappresenta l'elenco dei valori, che vengono passati in binding:
+	 * <pre>
+	 * clientiPerId=SELECT * FROM clienti WHERE id IN ({0})
+	 * </pre>
+	 * I valori duplicati vengono letti una sola volta e l'ultimo blocco viene completato ripetendo l'ultimo valore,
+	 * in maniera che tutte le query abbiano lo stesso testo e riutilizzino lo stesso statement.
+	 * L'ordine delle righe restituite non &egrave; garantito.
+	 *
+	 * @param key
+	 * 	La chiave della query
+	 *
+	 * @param beanClass
+	 * 	La classe dei beans
+	 *
+	 * @param values
+	 * 	I valori da cercare
+	 *
+	 * @param chunkSize
+	 * 	Il numero di valori per query
+	 *
+	 * @return
+	 * 	Le righe trovate, oppure una lista vuota senza interrogare il database se non ci sono valori
+	 *
+	 * @throws SqlQueryException
+	 * @throws ConverterException
+	 */
+	public <T> List<T> getListIn(String key, Class<T> beanClass, Collection<?> values, int chunkSize)
+	throws SqlQueryException, ConverterException {
+		this.checkSqlKey(key);
+
+		List<Object> distinct = new ArrayList<Object>(new LinkedHashSet<Object>(values));
+		List<T> result = new ArrayList<T>(distinct.size());
+		int size = Math.max(1, Math.min(chunkSize, distinct.size()));
+
+		for(int from = 0; from < distinct.size(); from += size){
+			result.addAll(RsToBeanConverter.getList(this.runIn(key, distinct, from, size), beanClass));
+		}
+
+		this.addRows(key, result.size());
+		return result;
+	}
+
+	/**
+	 * Esegue la query con un blocco di <code>size</code> valori a partire da <code>from</code>,
+	 * ripetendo l'ultimo valore per completare l'ultimo blocco.
+	 */
+	private ResultSet runIn(String key, List<Object> values, int from, int size)
+	throws SqlQueryException {
+		Object[] parameters = new Object[size];
+		StringBuilder list = new StringBuilder(size * 2);
+
+		for(int i = 0; i < size; i++){
+			parameters[i] = values.get(Math.min(from + i, values.size() - 1));
+			list.append(i > 0 ? ",?" : "?");
+		}
+
+		String sql = this.format(key, list.toString());
+		return this.connector.preparedQuery(this.label(key, sql), this.getOptions(key), parameters);
+	}
+
+	/**
+	 * Legge in streaming i records restituiti dalla query, convertendo una riga alla volta in un bean.
+	 * L'iteratore va chiuso (es. con un blocco <code>try-with-resources</code>) se non viene letto
+	 * fino all'ultima riga.
+	 *
+	 * @param key
+	 * @param beanClass
+	 * @param values
+	 * @return
+	 * @throws SqlQueryException
+	 * @throws ConverterException
+	 */
+	public <T> ResultSetIterator<T> stream(String key, Class<T> beanClass, Object ... values)
+	throws SqlQueryException, ConverterException {
+		ResultSet rs = this.openCursor(key, values);
+
+		try {
+			return new ResultSetIterator<T>(rs, new RsToBeanConverter<T>(beanClass).createRowMapper(rs), true);
+		} catch (ConverterException e) {
+			ResultSetHelper.closeWithStatement(rs);
+			throw e;
+		}
+	}
+
+	/**
+	 * Legge in streaming i records restituiti dalla query, convertendo una riga alla volta in una mappa.
+	 * L'iteratore va chiuso (es. con un blocco <code>try-with-resources</code>) se non viene letto
+	 * fino all'ultima riga.
+	 *
+	 * @param key
+	 * @param values
+	 * @return
+	 * @throws SqlQueryException
+	 */
+	public ResultSetIterator<Map<String, Object>> stream(String key, Object ... values)
+	throws SqlQueryException {
+		ResultSet rs = this.openCursor(key, values);
+
+		try {
+			RowMapper<Map<String, Object>> mapper = this.compactRows ?
+				new RsToRowMapConverter().createRowMapper(rs) :
+				new RsToMapConverter().createRowMapper(rs);
+
+			return new ResultSetIterator<Map<String, Object>>(rs, mapper, true);
+		} catch (ConverterException e) {
+			ResultSetHelper.closeWithStatement(rs);
+			throw e;
+		}
+	}
+
+	/**
+	 * Legge in streaming i records restituiti dalla query e richiama la callback per ogni riga.
+	 * Il result set viene chiuso al termine, anche in caso di errore.
+	 *
+	 * @param key
+	 * @param beanClass
+	 * @param handler
+	 * @param values
+	 * @return il numero di righe elaborate
+	 * @throws SqlQueryException
+	 * @throws ConverterException
+	 */
+	public <T> long forEach(String key, Class<T> beanClass, RowHandler<? super T> handler, Object ... values)
+	throws SqlQueryException, ConverterException {
+		return this.stream(key, beanClass, values).forEachRow(handler);
+	}
+
+	/**
+	 * Legge in streaming i records restituiti dalla query e richiama la callback per ogni riga.
+	 * Il result set viene chiuso al termine, anche in caso di errore.
+	 *
+	 * @param key
+	 * @param handler
+	 * @param values
+	 * @return il numero di righe elaborate
+	 * @throws SqlQueryException
+	 */
+	public long forEach(String key, RowHandler<? super Map<String, Object>> handler, Object ... values)
+	throws SqlQueryException {
+		return this.stream(key, values).forEachRow(handler);
 	}
 
 	/**
@@ -209,11 +684,192 @@ public class PropertyFileDAO extends SkDAO {
 	 * @param values
 	 * @throws DuplicatedKeyException
 	 * @throws SqlQueryException
+	 * @see #writeWithResult(String, Object...)
 	 */
 	public void write(String key, Object ... values)
 	throws DuplicatedKeyException, SqlQueryException {
+		this.writeWithResult(key, values);
+	}
+
+	/**
+	 * Scrive uno o pi&ugrave; records su database e restituisce le righe interessate e le chiavi generate.
+	 *
+	 * @param key
+	 * @param values
+	 * @return le righe interessate e le chiavi generate
+	 * @throws DuplicatedKeyException
+	 * @throws SqlQueryException
+	 */
+	public WriteResult writeWithResult(String key, Object ... values)
+	throws DuplicatedKeyException, SqlQueryException {
+		this.checkSqlKey(key);
+
+		WriteResult result;
+		SqlTemplate template = this.getTemplate(key);
+		if(template != null){
+			result = this.connector.executeUpdate(this.label(key, template.getSql()), this.getOptions(key), template.getParameters(values));
+		} else {
+			result = this.connector.write(this.label(key, this.format(key, values)), this.getOptions(key));
+		}
+
+		this.invalidate(key);
+		return result;
+	}
+
+	/**
+	 * Esegue la query indicata dalla chiave una volta per ogni riga di valori, inviando
+	 * le righe al database in batch con la dimensione di blocco configurata sul connettore.
+	 *
+	 * @see #writeBatch(String, List, int)
+	 */
+	public BatchResult writeBatch(String key, List<Object[]> rows)
+	throws DuplicatedKeyException, SqlQueryException {
+		return this.writeBatch(key, rows, this.connector.getBatchSize());
+	}
+
+	/**
+	 * Esegue la query indicata dalla chiave una volta per ogni riga di valori, inviando
+	 * le righe al database in blocchi da <code>chunkSize</code> righe.<br>
+	 * Se il binding dei parametri &egrave; attivo (vedi {@link #setBindParameters(boolean)}) e la query pu&ograve;
+	 * essere parametrizzata viene eseguito un unico PreparedStatement in batch, altrimenti ogni riga viene
+	 * formattata ed inviata in un batch di query, come in {@link #write(String, Object...)}.
+	 *
+	 * @param key
+	 * 	La chiave della query
+	 *
+	 * @param rows
+	 * 	I valori dei placeholders, uno per ogni riga
+	 *
+	 * @param chunkSize
+	 * 	Il numero di righe per blocco
+	 *
+	 * @return
+	 * 	Le righe interessate per ogni riga del batch e le chiavi generate
+	 *
+	 * @throws DuplicatedKeyException
+	 * @throws SqlQueryException
+	 */
+	public BatchResult writeBatch(String key, List<Object[]> rows, int chunkSize)
+	throws DuplicatedKeyException, SqlQueryException {
+		this.checkSqlKey(key);
+
+		SqlTemplate template = this.getTemplate(key);
+		if(template != null){
+			List<Object[]> parameters = new ArrayList<Object[]>(rows.size());
+			for(Object[] values : rows){
+				parameters.add(template.getParameters(values));
+			}
+
+			try {
+				return this.connector.writeBatch(this.label(key, template.getSql()), parameters, chunkSize);
+			} finally {
+				this.invalidate(key);
+			}
+		}
+
+		List<String> sqls = new ArrayList<String>(rows.size());
+		for(Object[] values : rows){
+			sqls.add(this.format(key, values));
+		}
+
+		if(!sqls.isEmpty()){
+			this.label(key, sqls.get(0));
+		}
+
+		try {
+			return this.connector.writeBatch(sqls, chunkSize);
+		} finally {
+			this.invalidate(key);
+		}
+	}
+
+	/**
+	 * Esegue la INSERT indicata dalla chiave come upsert: se esiste gi&agrave; una riga con la chiave dichiarata
+	 * nel metadato <code>@upsert</code>, ne vengono aggiornate le altre colonne della INSERT.
+	 * La INSERT viene trasformata una sola volta nel comando nativo del database
+	 * (<code>ON DUPLICATE KEY UPDATE</code>, <code>ON CONFLICT</code> o <code>MERGE</code>), senza tentare
+	 * prima l'inserimento e senza eccezioni di chiave duplicata.
+	 * <pre>
+	 * salva=INSERT INTO persone (id, nome, eta) VALUES ({0}, '{1}', {2})
+	 * salva@upsert=id
+	 * </pre>
+	 *
+	 * @param key
+	 * @param values
+	 * @return le righe interessate e le chiavi generate
+	 * @throws DuplicatedKeyException
+	 * 	Quando viene violato un altro vincolo di unicit&agrave;
+	 * @throws SqlQueryException
+	 * @throws IllegalOperationException
+	 * 	Se la query non ha il metadato <code>@upsert</code> o non &egrave; una INSERT di una sola riga
+	 */
+	public WriteResult upsert(String key, Object ... values)
+	throws DuplicatedKeyException, SqlQueryException {
+		SqlTemplate template = this.getUpsertTemplate(key);
+
+		WriteResult result;
+		if(this.bindParameters && template.isBindable()){
+			result = this.connector.executeUpdate(this.label(key, template.getSql()), this.getOptions(key), template.getParameters(values));
+		} else {
+			result = this.connector.write(this.label(key, template.format(values)), this.getOptions(key));
+		}
+
+		this.invalidate(key);
+		return result;
+	}
+
+	/**
+	 * Esegue l'upsert una volta per ogni riga di valori, in batch con la dimensione di blocco configurata sul connettore.
+	 *
+	 * @see #upsert(String, Object...)
+	 * @see #writeBatch(String, List)
+	 */
+	public BatchResult upsertBatch(String key, List<Object[]> rows)
+	throws DuplicatedKeyException, SqlQueryException {
+		SqlTemplate template = this.getUpsertTemplate(key);
+
+		try {
+			if(this.bindParameters && template.isBindable()){
+				List<Object[]> parameters = new ArrayList<Object[]>(rows.size());
+				for(Object[] values : rows){
+					parameters.add(template.getParameters(values));
+				}
+
+				return this.connector.writeBatch(this.label(key, template.getSql()), parameters);
+			}
+
+			List<String> sqls = new ArrayList<String>(rows.size());
+			for(Object[] values : rows){
+				sqls.add(template.format(values));
+			}
+
+			if(!sqls.isEmpty()){
+				this.label(key, sqls.get(0));
+			}
+
+			return this.connector.writeBatch(sqls);
+		} finally {
+			this.invalidate(key);
+		}
+	}
+
+	/**
+	 * Restituisce l'upsert compilato corrispondente alla INSERT indicata dalla chiave, con le colonne chiave
+	 * del metadato <code>@upsert</code>, nella sintassi del database del connettore.
+	 * L'upsert viene costruito una sola volta per catalogo (vedi {@link SqlCatalog#getUpsertTemplate}).
+	 *
+	 * @throws IllegalOperationException
+	 * 	Se la query non ha il metadato <code>@upsert</code> o non &egrave; una INSERT di una sola riga
+	 */
+	protected SqlTemplate getUpsertTemplate(String key){
 		this.checkSqlKey(key);
-		this.connector.write(SqlFormatter.format(this.getSql(key), values));
+
+		String keyColumns = this.getMetadata(key, META_UPSERT);
+		if(StringUtils.isEmptyOrNull(keyColumns)){
+			throw new IllegalOperationException("La query '" + key + "' non ha il metadato @" + META_UPSERT + " con le colonne chiave");
+		}
+
+		return this.getCatalog().getUpsertTemplate(key, this.connector.getDialect(), keyColumns.trim().split("\\s*,\\s*"));
 	}
 
 	/**
@@ -229,7 +885,8 @@ public class PropertyFileDAO extends SkDAO {
 	public void writeWithFile(String key, File[] files, Object ... values)
 	throws InvalidFileException, DuplicatedKeyException, SqlQueryException {
 		this.checkSqlKey(key);
-		this.connector.write(SqlFormatter.format(this.getSql(key), values), files);
+		this.connector.write(this.label(key, this.format(key, values)), files);
+		this.invalidate(key);
 	}
 
 	/**
@@ -245,7 +902,77 @@ public class PropertyFileDAO extends SkDAO {
 	public void writeWithFileBytes(String key, byte[][] filesBytes, Object ... values)
 	throws InvalidFileException, DuplicatedKeyException, SqlQueryException {
 		this.checkSqlKey(key);
-		this.connector.write(SqlFormatter.format(this.getSql(key), values), filesBytes);
+		this.connector.write(this.label(key, this.format(key, values)), filesBytes);
+		this.invalidate(key);
+	}
+
+	/**
+	 * Scrive uno o pi&ugrave; records su database, salvando in streaming i contenuti in ingresso
+	 * (files, stream o buffer) nei parametri <code>?</code> della query.
+	 * <br><br>
+	 * Con il binding dei parametri attivo i contenuti possono essere passati anche direttamente
+	 * come valori a {@link #write(String, Object...)}.
+	 *
+	 * @param key
+	 * @param sources
+	 * @param values
+	 * @return le righe interessate e le chiavi generate
+	 * @throws InvalidFileException
+	 * @throws DuplicatedKeyException
+	 * @throws SqlQueryException
+	 */
+	public WriteResult writeWithStreams(String key, BlobSource[] sources, Object ... values)
+	throws InvalidFileException, DuplicatedKeyException, SqlQueryException {
+		this.checkSqlKey(key);
+		WriteResult result = this.connector.write(this.label(key, this.format(key, values)), sources);
+		this.invalidate(key);
+		return result;
+	}
+
+	/**
+	 * Copia sullo stream in ingresso il BLOB restituito dalla query (prima colonna della prima riga),
+	 * senza caricarlo in memoria.
+	 *
+	 * @param key
+	 * @param out
+	 * @param values
+	 * @return il numero di bytes copiati, oppure <code>-1</code> se la query non restituisce il BLOB
+	 * @throws InvalidFileException
+	 * @throws SqlQueryException
+	 */
+	public long readBlob(String key, OutputStream out, Object ... values)
+	throws InvalidFileException, SqlQueryException {
+		this.checkSqlKey(key);
+
+		SqlTemplate template = this.getTemplate(key);
+		if(template != null){
+			return this.connector.readBlob(this.label(key, template.getSql()), out, template.getParameters(values));
+		}
+
+		return this.connector.readBlob(this.label(key, this.format(key, values)), out);
+	}
+
+	/**
+	 * Salva nel file in ingresso il BLOB restituito dalla query (prima colonna della prima riga),
+	 * senza caricarlo in memoria.
+	 *
+	 * @param key
+	 * @param target
+	 * @param values
+	 * @return il numero di bytes scritti, oppure <code>-1</code> se la query non restituisce il BLOB
+	 * @throws InvalidFileException
+	 * @throws SqlQueryException
+	 */
+	public long readBlob(String key, Path target, Object ... values)
+	throws InvalidFileException, SqlQueryException {
+		this.checkSqlKey(key);
+
+		SqlTemplate template = this.getTemplate(key);
+		if(template != null){
+			return this.connector.readBlob(this.label(key, template.getSql()), target, template.getParameters(values));
+		}
+
+		return this.connector.readBlob(this.label(key, this.format(key, values)), target);
 	}
 
 	/**
@@ -256,7 +983,10 @@ public class PropertyFileDAO extends SkDAO {
 	public <T> List<T> search(Search searchObject, String key, Class<T> beanClass, Object ... values)
 	throws SqlQueryException, ConverterException {
 		ResultSet rs = this.runSearch(searchObject, key, values);
-		return RsToBeanConverter.getList(rs, beanClass);
+		List<T> result = RsToBeanConverter.getList(rs, beanClass);
+		this.addRows(key, result.size());
+
+		return result;
 	}
 
 	/**
@@ -267,7 +997,309 @@ public class PropertyFileDAO extends SkDAO {
 	public List<Map<String, Object>> search(Search searchObject, String key, Object... values)
 	throws SqlQueryException{
 		ResultSet rs = this.runSearch(searchObject, key, values);
-		return RsToMapConverter.getList(rs);
+		List<Map<String, Object>> result = this.compactRows ? RsToRowMapConverter.getList(rs) : RsToMapConverter.getList(rs);
+		this.addRows(key, result.size());
+
+		return result;
+	}
+
+	/* ==================================== */
+	/* ======= OPERAZIONI ASINCRONE ======= */
+	/* ==================================== */
+
+	/**
+	 * Versione asincrona di {@link #getList(String, Object...)}.
+	 *
+	 * @see #submit(AsyncCall)
+	 */
+	public DaoFuture<List<Map<String, Object>>> getListAsync(final String key, final Object ... values){
+		return this.submit(new AsyncCall<List<Map<String, Object>>>() {
+			@Override
+			public List<Map<String, Object>> call(PropertyFileDAO dao)
+			throws Exception {
+				return dao.getList(key, values);
+			}
+		});
+	}
+
+	/**
+	 * Versione asincrona di {@link #getList(String, Class, Object...)}.
+	 *
+	 * @see #submit(AsyncCall)
+	 */
+	public <T> DaoFuture<List<T>> getListAsync(final String key, final Class<T> beanClass, final Object ... values){
+		return this.submit(new AsyncCall<List<T>>() {
+			@Override
+			public List<T> call(PropertyFileDAO dao)
+			throws Exception {
+				return dao.getList(key, beanClass, values);
+			}
+		});
+	}
+
+	/**
+	 * Versione asincrona di {@link #getSingle(String, Object...)}.
+	 *
+	 * @see #submit(AsyncCall)
+	 */
+	public DaoFuture<Map<String, Object>> getSingleAsync(final String key, final Object ... values){
+		return this.submit(new AsyncCall<Map<String, Object>>() {
+			@Override
+			public Map<String, Object> call(PropertyFileDAO dao)
+			throws Exception {
+				return dao.getSingle(key, values);
+			}
+		});
+	}
+
+	/**
+	 * Versione asincrona di {@link #getSingle(String, Class, Object...)}.
+	 *
+	 * @see #submit(AsyncCall)
+	 */
+	public <T> DaoFuture<T> getSingleAsync(final String key, final Class<T> beanClass, final Object ... values){
+		return this.submit(new AsyncCall<T>() {
+			@Override
+			public T call(PropertyFileDAO dao)
+			throws Exception {
+				return dao.getSingle(key, beanClass, values);
+			}
+		});
+	}
+
+	/**
+	 * Versione asincrona di {@link #writeWithResult(String, Object...)}: il risultato contiene le righe interessate e le chiavi generate.
+	 *
+	 * @see #submit(AsyncCall)
+	 */
+	public DaoFuture<WriteResult> writeAsync(final String key, final Object ... values){
+		return this.submit(new AsyncCall<WriteResult>() {
+			@Override
+			public WriteResult call(PropertyFileDAO dao)
+			throws Exception {
+				return dao.writeWithResult(key, values);
+			}
+		});
+	}
+
+	/**
+	 * Avvia un'operazione asincrona.<br>
+	 * L'operazione viene eseguita sull'executor del DAO (vedi {@link #setExecutor(Executor)}) o, se non impostato,
+	 * su quello condiviso del connettore, limitato dalle chiavi <code>sk.db.executorThreads</code> e
+	 * <code>sk.db.executorQueueSize</code>: quando la coda &egrave; piena l'operazione viene eseguita dal thread chiamante.
+	 * <br><br>
+	 * Ogni operazione utilizza un proprio connettore in autocommit sullo stesso datasource (con un pool, una
+	 * connessione presa in prestito) che viene chiuso al termine, e una copia del DAO con le impostazioni
+	 * (paginazione, conteggio, binding) presenti al momento della chiamata.
+	 * Le operazioni asincrone quindi <b>non</b> partecipano all'eventuale transazione del DAO.
+	 */
+	protected <T> DaoFuture<T> submit(final AsyncCall<T> call){
+		final PropertyFileDAO snapshot = new PropertyFileDAO(this);
+		final DbConnector source = this.connector;
+
+		DaoFuture<T> future = new DaoFuture<T>(new Callable<T>() {
+			@Override
+			public T call()
+			throws Exception {
+				snapshot.connector = source.clone(false);
+
+				try {
+					return call.call(snapshot);
+				} finally {
+					snapshot.connector.close();
+					snapshot.connector = null;
+				}
+			}
+		});
+
+		Executor target = this.executor != null ? this.executor : this.connector.getExecutor();
+		target.execute(future);
+		return future;
+	}
+
+	/**
+	 * Un'operazione asincrona, eseguita su una copia del DAO con un proprio connettore.
+	 *
+	 * @see PropertyFileDAO#submit(AsyncCall)
+	 */
+	protected static interface AsyncCall<T> {
+		public T call(PropertyFileDAO dao)
+		throws Exception;
+	}
+
+	/**
+	 * Conferma la transazione e invalida di nuovo i risultati in cache delle tabelle scritte,
+	 * che potrebbero essere stati letti da altri connettori prima della commit.
+	 */
+	@Override
+	public void commit()
+	throws Exception {
+		try {
+			super.commit();
+		} finally {
+			this.flushInvalidations();
+		}
+	}
+
+	/**
+	 * Annulla la transazione e invalida di nuovo i risultati in cache delle tabelle scritte.
+	 */
+	@Override
+	public void rollback()
+	throws Exception {
+		try {
+			super.rollback();
+		} finally {
+			this.flushInvalidations();
+		}
+	}
+
+	/**
+	 * Restituisce la cache dei risultati condivisa da tutti i DAO, ad esempio per leggerne le statistiche.
+	 */
+	public static ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Restituisce il valore di un metadato della query, es. <code>elenco@cache</code>,
+	 * o <code>null</code> se non presente.
+	 *
+	 * @param key
+	 * 	La chiave della query
+	 *
+	 * @param name
+	 * 	Il nome del metadato
+	 */
+	public String getMetadata(String key, String name){
+		String value = this.getCatalog().getSql(key + META_SEPARATOR + name);
+		return value == null ? null : value.trim();
+	}
+
+	/**
+	 * Restituisce le opzioni di esecuzione dichiarate nei metadati della query
+	 * (<code>@timeout</code>, <code>@maxRows</code>, <code>@fetchSize</code>, <code>@generatedKeys</code>),
+	 * o <code>null</code> se la query non ne dichiara.
+	 *
+	 * @param key
+	 * 	La chiave della query
+	 *
+	 * @throws SqlKeyException
+	 * 	Quando un metadato non ha un valore valido
+	 */
+	protected ExecutionOptions getOptions(String key){
+		String timeout = this.getMetadata(key, META_TIMEOUT);
+		String maxRows = this.getMetadata(key, META_MAX_ROWS);
+		String fetchSize = this.getMetadata(key, META_FETCH_SIZE);
+		String generatedKeys = this.getMetadata(key, META_GENERATED_KEYS);
+
+		if(timeout == null && maxRows == null && fetchSize == null && generatedKeys == null){
+			return null;
+		}
+
+		ExecutionOptions options = new ExecutionOptions();
+		options.setQueryTimeout(this.getIntMetadata(key, META_TIMEOUT, timeout));
+		options.setMaxRows(this.getIntMetadata(key, META_MAX_ROWS, maxRows));
+		options.setFetchSize(this.getIntMetadata(key, META_FETCH_SIZE, fetchSize));
+
+		if("true".equalsIgnoreCase(generatedKeys) || "false".equalsIgnoreCase(generatedKeys)){
+			options.setGeneratedKeys(Boolean.valueOf(generatedKeys));
+		} else if(StringUtils.isNotEmptyOrNull(generatedKeys)){
+			options.setKeyColumns(generatedKeys.split("\\s*,\\s*"));
+		}
+
+		return options;
+	}
+
+	private Integer getIntMetadata(String key, String name, String value){
+		if(StringUtils.isEmptyOrNull(value)){
+			return null;
+		}
+
+		try {
+			return Integer.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new SqlKeyException(key, "Valore non valido per il metadato '" + name + "' della query '" + key + "': " + value, e);
+		}
+	}
+
+	/**
+	 * Restituisce le tabelle lette o scritte dalla query: quelle dichiarate con il metadato
+	 * <code>@tables</code> o, per le scritture, quella ricavata dalla query.
+	 *
+	 * @param key
+	 * 	La chiave della query
+	 */
+	protected String[] getTables(String key){
+		String declared = this.getMetadata(key, META_TABLES);
+
+		if(StringUtils.isNotEmptyOrNull(declared)){
+			return declared.split("\\s*,\\s*");
+		}
+
+		Matcher m = WRITE_TARGET.matcher(this.getSql(key));
+		return m.find() ? new String[]{m.group(1)} : new String[0];
+	}
+
+	/**
+	 * Cerca in cache il risultato della query, se la query ha il metadato <code>@cache</code>.
+	 * Le letture in transazione non usano la cache.
+	 *
+	 * @return
+	 * 	L'esito della ricerca, o <code>null</code> se la query non va messa in cache
+	 */
+	protected ResultCache.Lookup lookup(String key, Class<?> resultType, boolean single, Object[] values){
+		this.checkSqlKey(key);
+
+		String ttl = this.getMetadata(key, META_CACHE);
+		if(StringUtils.isEmptyOrNull(ttl) || this.connector.isTransaction()){
+			return null;
+		}
+
+		List<Object> cacheKey = Arrays.<Object>asList(
+			this.connector.getDatasourceName(), this.filename, key,
+			resultType, Boolean.valueOf(single), Boolean.valueOf(this.compactRows),
+			Integer.valueOf(this.start), Integer.valueOf(this.limit),
+			this.keysetColumn, this.keysetValue, Boolean.valueOf(this.keysetDescending),
+			Boolean.valueOf(this.isCountEnabled()),
+			values == null ? null : Arrays.asList(values)
+		);
+
+		return resultCache.lookup(cacheKey, Long.parseLong(ttl) * 1000L, this.getTables(key));
+	}
+
+	/**
+	 * Invalida i risultati in cache delle tabelle scritte dalla query.
+	 * In transazione le tabelle vengono invalidate di nuovo alla commit o alla rollback.
+	 */
+	protected void invalidate(String key){
+		String[] tables = this.getTables(key);
+
+		if(tables.length == 0){
+			return;
+		}
+
+		resultCache.invalidate(tables);
+
+		if(this.connector.isTransaction()){
+			this.pendingInvalidations.addAll(Arrays.asList(tables));
+		}
+	}
+
+	/**
+	 * Riporta il totale memorizzato insieme al risultato in cache.
+	 */
+	private void restoreTotal(ResultCache.Lookup lookup){
+		if(this.isCountEnabled() && lookup.getTotal() >= 0){
+			this.total = lookup.getTotal();
+		}
+	}
+
+	private void flushInvalidations(){
+		if(!this.pendingInvalidations.isEmpty()){
+			resultCache.invalidate(this.pendingInvalidations.toArray(new String[this.pendingInvalidations.size()]));
+			this.pendingInvalidations.clear();
+		}
 	}
 
 	/**
@@ -278,7 +1310,7 @@ public class PropertyFileDAO extends SkDAO {
 	 */
 	protected void checkSqlKey(String key)
 	throws SqlKeyException {
-		if(!this.sqlQueries.containsKey(key)){
+		if(!this.getCatalog().contains(key)){
 			String message =
 				"Impossibile eseguire la query identificata con la chiave '" + key +
 				"': query non presente nel file " + this.filename
@@ -295,16 +1327,45 @@ public class PropertyFileDAO extends SkDAO {
 	 * @return
 	 */
 	public String getSql(String key){
-		return this.sqlQueries.getProperty(key);
+		return this.getCatalog().getSql(key);
+	}
+
+	/**
+	 * Formatta la query associata alla chiave {@code key} con i valori in ingresso,
+	 * utilizzando la versione gi&agrave; compilata del catalogo.
+	 *
+	 * @param key
+	 * @param values
+	 * @return
+	 */
+	protected String format(String key, Object... values){
+		SqlTemplate template = this.getCatalog().getTemplate(key);
+		return template != null ? template.format(values) : SqlFormatter.format(this.getSql(key), values);
+	}
+
+	/**
+	 * Restituisce il catalogo delle query, passando alla versione pi&ugrave; recente
+	 * se nel frattempo il file &egrave; stato ricaricato.
+	 */
+	protected SqlCatalog getCatalog(){
+		SqlCatalog current = this.catalog;
+
+		if(current.isStale()){
+			current = current.getLatest();
+			this.catalog = current;
+		}
+
+		return current;
 	}
 
 	/**
-	 * Restituisce l'oggetto {@link Properties} che contiene tutte le query
+	 * Restituisce una copia dell'oggetto {@link Properties} che contiene tutte le query,
+	 * con i riferimenti ad altre query gi&agrave; risolti.
 	 *
 	 * @return the sqlQueries
 	 */
 	public Properties getSqlQueries() {
-		return this.sqlQueries;
+		return this.getCatalog().toProperties();
 	}
 
 	/**
@@ -313,4 +1374,60 @@ public class PropertyFileDAO extends SkDAO {
 	public String getFilename() {
 		return this.filename;
 	}
+
+	/**
+	 * @return <code>true</code> se i valori vengono passati come parametri di un PreparedStatement
+	 */
+	public boolean isBindParameters() {
+		return this.bindParameters;
+	}
+
+	/**
+	 * Attiva o disattiva il binding dei parametri.<br>
+	 * Con il binding attivo ogni query viene compilata una sola volta in un {@link SqlTemplate},
+	 * i valori vengono impostati con i metodi <code>setXxx</code> tipizzati e lo statement viene
+	 * riutilizzato dalla cache del connettore. Le query che non possono essere parametrizzate
+	 * (es. placeholders all'interno di una stringa) continuano ad essere formattate.
+	 *
+	 * @param bindParameters the bindParameters to set
+	 */
+	public void setBindParameters(boolean bindParameters) {
+		this.bindParameters = bindParameters;
+	}
+
+	/**
+	 * @return <code>true</code> se le righe restituite come mappe sono in forma compatta
+	 */
+	public boolean isCompactRows() {
+		return this.compactRows;
+	}
+
+	/**
+	 * Attiva o disattiva la forma compatta delle righe restituite come mappe.<br>
+	 * In forma compatta le etichette delle colonne sono condivise da tutte le righe e ogni riga
+	 * &egrave; un array di valori dietro una mappa <b>in sola lettura</b>: i metodi che restituiscono
+	 * <code>List&lt;Map&lt;String, Object&gt;&gt;</code> mantengono la stessa firma con una frazione
+	 * della memoria occupata.
+	 *
+	 * @param compactRows the compactRows to set
+	 */
+	public void setCompactRows(boolean compactRows) {
+		this.compactRows = compactRows;
+	}
+
+	/**
+	 * @return l'executor delle operazioni asincrone, o <code>null</code> se viene utilizzato quello condiviso del connettore
+	 */
+	public Executor getExecutor() {
+		return this.executor;
+	}
+
+	/**
+	 * Imposta l'executor delle operazioni asincrone, o <code>null</code> per utilizzare quello condiviso del connettore.
+	 *
+	 * @param executor the executor to set
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
 }
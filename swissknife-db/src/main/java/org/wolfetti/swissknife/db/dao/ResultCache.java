@@ -0,0 +1,353 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.wolfetti.swissknife.db.entities.CacheStats;
+
+/**
+ * Cache dei risultati delle query, con scadenza, dimensione massima (LRU) e invalidazione per tabella.
+ * <br><br>
+ * Ogni tabella ha un numero di versione che viene incrementato ad ogni scrittura: un risultato viene
+ * memorizzato insieme alle versioni delle tabelle lette al momento della query e non viene pi&ugrave;
+ * restituito quando una di queste cambia. In questo modo l'invalidazione costa un incremento per tabella,
+ * indipendentemente dal numero di risultati in cache, e un risultato letto durante una scrittura concorrente
+ * non pu&ograve; sopravvivere alla scrittura stessa.
+ * <br><br>
+ * I risultati in cache sono condivisi tra tutti i chiamanti e non vanno modificati: {@link PropertyFileDAO}
+ * memorizza e restituisce delle copie delle liste e delle mappe, mentre i bean restano condivisi.
+ * <br><br>
+ * Le tabelle vengono invalidate solo dalle scritture che passano da {@link #invalidate(String...)}, cio&egrave;
+ * da quelle eseguite tramite i DAO: le scritture eseguite direttamente sul connettore o da altre applicazioni
+ * diventano visibili alla scadenza dei risultati.
+ *
+ * @author Fabio Frijo
+ */
+public final class ResultCache {
+
+	/**
+	 * Il numero massimo di risultati in cache, se non impostato diversamente.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	private static final String[] NO_TABLES = new String[0];
+	private static final long[] NO_VERSIONS = new long[0];
+
+	/**
+	 * I risultati, in ordine di accesso.
+	 */
+	private final LinkedHashMap<Object, CacheEntry> entries;
+
+	/**
+	 * Le versioni delle tabelle
+	 */
+	private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * Il numero massimo di risultati
+	 */
+	private volatile int maxSize;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	/**
+	 * Crea una cache con la dimensione massima indicata.
+	 */
+	public ResultCache(int maxSize) {
+		this.maxSize = Math.max(1, maxSize);
+		this.entries = new LinkedHashMap<Object, CacheEntry>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry> eldest) {
+				if(size() > ResultCache.this.maxSize){
+					evictions.incrementAndGet();
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Cerca il risultato associato alla chiave. Se non presente (o non pi&ugrave; valido) la ricerca
+	 * registra le versioni correnti delle tabelle, in maniera che il risultato letto dal database
+	 * possa essere memorizzato con {@link Lookup#store(Object, long)}.
+	 *
+	 * @param key
+	 * 	La chiave del risultato (deve implementare <code>equals</code> e <code>hashCode</code>)
+	 *
+	 * @param ttl
+	 * 	Il tempo di validit&agrave; del risultato, in millisecondi
+	 *
+	 * @param tables
+	 * 	Le tabelle lette dalla query, le cui scritture invalidano il risultato
+	 */
+	public Lookup lookup(Object key, long ttl, String ... tables) {
+		String[] normalized = normalize(tables);
+		CacheEntry entry;
+
+		synchronized (this.entries) {
+			entry = this.entries.get(key);
+
+			if(entry != null){
+				if(entry.expiresAt < System.currentTimeMillis()){
+					this.entries.remove(key);
+					this.expirations.incrementAndGet();
+					entry = null;
+				}
+
+				else if(!this.isCurrent(entry)){
+					this.entries.remove(key);
+					this.invalidations.incrementAndGet();
+					entry = null;
+				}
+			}
+		}
+
+		if(entry != null){
+			this.hits.incrementAndGet();
+			return new Lookup(this, key, entry);
+		}
+
+		this.misses.incrementAndGet();
+		return new Lookup(this, key, ttl, normalized, this.snapshot(normalized));
+	}
+
+	/**
+	 * Invalida tutti i risultati che hanno letto le tabelle indicate.
+	 */
+	public void invalidate(String ... tables) {
+		for(String table : normalize(tables)){
+			this.version(table).incrementAndGet();
+		}
+	}
+
+	/**
+	 * Svuota la cache, senza azzerare le statistiche.
+	 */
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+		}
+	}
+
+	/**
+	 * @return il numero di risultati in cache
+	 */
+	public int size() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * @return il numero massimo di risultati in cache
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Imposta il numero massimo di risultati in cache. Se la cache contiene pi&ugrave; elementi,
+	 * quelli usati meno di recente vengono rimossi al prossimo inserimento.
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = Math.max(1, maxSize);
+	}
+
+	/**
+	 * @return le statistiche di utilizzo della cache
+	 */
+	public CacheStats getStats() {
+		return new CacheStats(
+			this.hits.get(),
+			this.misses.get(),
+			this.evictions.get(),
+			this.expirations.get(),
+			this.invalidations.get(),
+			this.size()
+		);
+	}
+
+	/**
+	 * Riporta i nomi delle tabelle in minuscolo, senza schema e senza caratteri di quotatura.
+	 */
+	static String[] normalize(String ... tables) {
+		if(tables == null || tables.length == 0){
+			return NO_TABLES;
+		}
+
+		String[] result = new String[tables.length];
+		for(int i = 0; i < tables.length; i++){
+			String table = tables[i].trim();
+
+			int dot = table.lastIndexOf('.');
+			if(dot >= 0){
+				table = table.substring(dot + 1);
+			}
+
+			result[i] = table.replaceAll("[`\"\\[\\]]", "").toLowerCase(Locale.ROOT);
+		}
+
+		return result;
+	}
+
+	private void put(Object key, CacheEntry entry) {
+		synchronized (this.entries) {
+			this.entries.put(key, entry);
+		}
+	}
+
+	private boolean isCurrent(CacheEntry entry) {
+		for(int i = 0; i < entry.tables.length; i++){
+			if(this.version(entry.tables[i]).get() != entry.versions[i]){
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Restituisce le versioni correnti delle tabelle in ingresso, gi&agrave; normalizzate con {@link #normalize(String...)}.
+	 * Utilizzato anche da {@link EntityCache} per invalidare le entit&agrave; alle scritture sulle tabelle.
+	 */
+	long[] snapshot(String[] tables) {
+		if(tables.length == 0){
+			return NO_VERSIONS;
+		}
+
+		long[] result = new long[tables.length];
+		for(int i = 0; i < tables.length; i++){
+			result[i] = this.version(tables[i]).get();
+		}
+
+		return result;
+	}
+
+	private AtomicLong version(String table) {
+		AtomicLong version = this.versions.get(table);
+
+		if(version == null){
+			version = new AtomicLong();
+			AtomicLong previous = this.versions.putIfAbsent(table, version);
+
+			if(previous != null){
+				version = previous;
+			}
+		}
+
+		return version;
+	}
+
+	/**
+	 * L'esito della ricerca di un risultato in cache.
+	 */
+	public static final class Lookup {
+		private final ResultCache cache;
+		private final Object key;
+		private final CacheEntry entry;
+		private final long ttl;
+		private final String[] tables;
+		private final long[] versions;
+
+		private Lookup(ResultCache cache, Object key, CacheEntry entry) {
+			this.cache = cache;
+			this.key = key;
+			this.entry = entry;
+			this.ttl = 0L;
+			this.tables = entry.tables;
+			this.versions = entry.versions;
+		}
+
+		private Lookup(ResultCache cache, Object key, long ttl, String[] tables, long[] versions) {
+			this.cache = cache;
+			this.key = key;
+			this.entry = null;
+			this.ttl = ttl;
+			this.tables = tables;
+			this.versions = versions;
+		}
+
+		/**
+		 * @return <code>true</code> se il risultato &egrave; stato trovato in cache
+		 */
+		public boolean isHit() {
+			return this.entry != null;
+		}
+
+		/**
+		 * @return il risultato in cache (anche <code>null</code>, se memorizzato come tale)
+		 */
+		public Object getValue() {
+			return this.entry == null ? null : this.entry.value;
+		}
+
+		/**
+		 * @return il totale delle righe memorizzato con il risultato, o <code>-1</code>
+		 */
+		public long getTotal() {
+			return this.entry == null ? -1L : this.entry.total;
+		}
+
+		/**
+		 * Memorizza il risultato letto dal database, con le versioni delle tabelle
+		 * registrate al momento della ricerca.
+		 *
+		 * @param value
+		 * 	Il risultato
+		 *
+		 * @param total
+		 * 	Il totale delle righe, o <code>-1</code> se non calcolato
+		 */
+		public void store(Object value, long total) {
+			if(this.entry == null && this.ttl > 0){
+				this.cache.put(this.key, new CacheEntry(value, total, System.currentTimeMillis() + this.ttl, this.tables, this.versions));
+			}
+		}
+	}
+
+	private static final class CacheEntry {
+		private final Object value;
+		private final long total;
+		private final long expiresAt;
+		private final String[] tables;
+		private final long[] versions;
+
+		private CacheEntry(Object value, long total, long expiresAt, String[] tables, long[] versions) {
+			this.value = value;
+			this.total = total;
+			this.expiresAt = expiresAt;
+			this.tables = tables;
+			this.versions = versions;
+		}
+	}
+}
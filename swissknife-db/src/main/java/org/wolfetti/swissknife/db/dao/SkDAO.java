@@ -19,10 +19,18 @@
 package org.wolfetti.swissknife.db.dao;
 
 import java.sql.Savepoint;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.wolfetti.swissknife.common.logger.Log;
 import org.wolfetti.swissknife.common.logger.LogFactory;
 import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.dialect.Dialect;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+import org.wolfetti.swissknife.db.utils.DbExecutor;
 
 /**
  * Classe che definisce una serie di metodi comuni a tutte le implementazioni dei vari tipi di DAO.
@@ -61,6 +69,36 @@ public abstract class SkDAO {
 	 */
 	protected long total = -1L;
 
+	/**
+	 * La chiave di ordinamento della paginazione per chiave, o <code>null</code> per la paginazione per offset.
+	 */
+	protected String keysetColumn = null;
+
+	/**
+	 * L'ultimo valore della chiave di ordinamento letto nella pagina precedente, o <code>null</code> per la prima pagina.
+	 */
+	protected Object keysetValue = null;
+
+	/**
+	 * Flag che indica se la paginazione per chiave &egrave; in ordine decrescente.
+	 */
+	protected boolean keysetDescending = false;
+
+	/**
+	 * Flag che indica se le query paginate devono calcolare anche il totale delle righe
+	 */
+	protected boolean countTotal = false;
+
+	/**
+	 * Il tempo (in millisecondi) per il quale un totale viene mantenuto in cache, 0 per non usare la cache
+	 */
+	protected long countCacheTtl = 0L;
+
+	/**
+	 * La cache dei totali, condivisa da tutti i DAO
+	 */
+	private static final CountCache countCache = new CountCache(CountCache.DEFAULT_MAX_SIZE);
+
 	/**
 	 * Costruttore che inizializza la variabile associata al
 	 * connettore del database e inizializza il logger di classe.
@@ -141,17 +179,196 @@ public abstract class SkDAO {
 	 * Restituisce <code>true</code> se la paginazione $egrave; abilitata
 	 */
 	public final boolean isPagingEnabled(){
-		return this.start > NOT_PAGING && this.limit > NOT_PAGING;
+		return this.limit > NOT_PAGING && (this.start > NOT_PAGING || this.keysetColumn != null);
 	}
 
 	/**
-	 * Formatta la query in ingresso aggiungendo i parametri di paginazione.
+	 * Restituisce <code>true</code> se &egrave; attiva la paginazione per chiave
+	 */
+	public final boolean isKeysetPaging(){
+		return this.limit > NOT_PAGING && this.keysetColumn != null;
+	}
+
+	/**
+	 * Formatta la query in ingresso aggiungendo i parametri di paginazione,
+	 * con la sintassi del {@link Dialect} del connettore.
 	 * @param sql
 	 * @return
 	 */
 	protected String addPagination(String sql){
-		// TODO Questo funziona solo su MySQL. Creare una funzione che formatta la query in base al tipo di database.
-		return sql + " LIMIT " + this.start + ", " + this.limit;
+		Dialect dialect = this.connector.getDialect();
+
+		if(this.isKeysetPaging()){
+			return dialect.seek(sql, this.keysetColumn, this.keysetDescending, this.keysetValue != null, this.limit);
+		}
+
+		return dialect.limit(sql, this.start, this.limit);
+	}
+
+	/**
+	 * Aggiunge ai parametri della query quelli richiesti dalla paginazione:
+	 * l'ultimo valore letto della chiave, se &egrave; attiva la paginazione per chiave.
+	 *
+	 * @param parameters
+	 * 	I parametri della query, o <code>null</code> se la query non ha parametri
+	 *
+	 * @return
+	 * 	I parametri da utilizzare, o <code>null</code> se non ce ne sono
+	 */
+	protected Object[] addPaginationParameters(Object[] parameters){
+		if(!this.isKeysetPaging() || this.keysetValue == null){
+			return parameters;
+		}
+
+		if(parameters == null){
+			return new Object[]{this.keysetValue};
+		}
+
+		Object[] result = Arrays.copyOf(parameters, parameters.length + 1);
+		result[parameters.length] = this.keysetValue;
+		return result;
+	}
+
+	/**
+	 * Restituisce <code>true</code> se la query paginata deve calcolare anche il totale delle righe
+	 */
+	public final boolean isCountEnabled(){
+		return this.countTotal && this.isPagingEnabled();
+	}
+
+	/**
+	 * Avvia il conteggio delle righe della query non paginata, da completare con {@link #awaitCount(Future)}
+	 * dopo aver eseguito la query paginata.
+	 * <br><br>
+	 * Se il connettore non &egrave; in transazione il conteggio viene eseguito in parallelo su un altro connettore
+	 * dello stesso datasource, altrimenti viene eseguito subito sul connettore del DAO, in maniera che
+	 * veda anche le modifiche non ancora confermate.<br>
+	 * Il conteggio viene eseguito subito anche quando il DAO &egrave; gi&agrave; in esecuzione su un thread
+	 * dell'executor condiviso (es. con {@link PropertyFileDAO#getListAsync(String, Object...)}): attendere
+	 * un conteggio accodato allo stesso executor potrebbe bloccare tutti i suoi thread.
+	 *
+	 * @param sql
+	 * 	La query non paginata
+	 *
+	 * @param parameters
+	 * 	I parametri della query, o <code>null</code> se la query non ha parametri
+	 */
+	protected Future<Long> startCount(final String sql, final Object[] parameters){
+		final String cacheKey = this.connector.getDatasourceName() + "\n" + sql + "\n" + Arrays.deepToString(parameters);
+		final long ttl = this.countCacheTtl;
+
+		if(ttl > 0){
+			final Long cached = countCache.get(cacheKey);
+
+			if(cached != null){
+				this.log.debug("Totale letto dalla cache: " + cached);
+				return done(cached);
+			}
+		}
+
+		if(this.connector.isTransaction() || DbExecutor.isWorkerThread()){
+			long count;
+
+			try {
+				count = this.connector.total(sql, parameters);
+			} catch (SqlQueryException e) {
+				return failed(e);
+			}
+
+			if(ttl > 0){
+				countCache.put(cacheKey, count, ttl);
+			}
+
+			return done(Long.valueOf(count));
+		}
+
+		final DbConnector source = this.connector;
+		return this.connector.getExecutor().submit(new Callable<Long>() {
+			@Override
+			public Long call()
+			throws Exception {
+				DbConnector counter = source.clone();
+
+				try {
+					long count = counter.total(sql, parameters);
+
+					if(ttl > 0){
+						countCache.put(cacheKey, count, ttl);
+					}
+
+					return Long.valueOf(count);
+				} finally {
+					counter.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Attende il conteggio avviato con {@link #startCount(String, Object[])} e lo restituisce.
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la query di conteggio fallisce
+	 */
+	protected long awaitCount(Future<Long> count)
+	throws SqlQueryException {
+		try {
+			return count.get().longValue();
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof SqlQueryException){
+				throw (SqlQueryException) e.getCause();
+			}
+
+			throw new SqlQueryException(null, "Errore durante la query di conteggio", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SqlQueryException(null, "Query di conteggio interrotta", e);
+		}
+	}
+
+	/**
+	 * Copia le impostazioni di paginazione e di conteggio del DAO in ingresso.
+	 */
+	protected void copySettings(SkDAO source){
+		this.start = source.start;
+		this.limit = source.limit;
+		this.keysetColumn = source.keysetColumn;
+		this.keysetValue = source.keysetValue;
+		this.keysetDescending = source.keysetDescending;
+		this.countTotal = source.countTotal;
+		this.countCacheTtl = source.countCacheTtl;
+	}
+
+	/**
+	 * Svuota la cache dei totali.
+	 */
+	public static void clearCountCache(){
+		countCache.clear();
+	}
+
+	private static Future<Long> done(final Long value){
+		FutureTask<Long> task = new FutureTask<Long>(new Callable<Long>() {
+			@Override
+			public Long call() {
+				return value;
+			}
+		});
+
+		task.run();
+		return task;
+	}
+
+	private static Future<Long> failed(final SqlQueryException error){
+		FutureTask<Long> task = new FutureTask<Long>(new Callable<Long>() {
+			@Override
+			public Long call()
+			throws SqlQueryException {
+				throw error;
+			}
+		});
+
+		task.run();
+		return task;
 	}
 
 	/**
@@ -174,4 +391,73 @@ public abstract class SkDAO {
 	public void setLimit(int limit) {
 		this.limit = limit;
 	}
+
+	/**
+	 * Attiva la paginazione per chiave in ordine crescente.
+	 *
+	 * @see #setKeyset(String, Object, boolean)
+	 */
+	public void setKeyset(String column, Object lastValue) {
+		this.setKeyset(column, lastValue, false);
+	}
+
+	/**
+	 * Attiva la paginazione per chiave: ogni pagina contiene le prime {@link #setLimit(int) limit} righe
+	 * con la chiave successiva a <code>lastValue</code>, indipendentemente dalla posizione della pagina.
+	 * Il parametro <code>start</code> viene ignorato.
+	 *
+	 * @param column
+	 * 	La colonna (univoca e possibilmente indicizzata) sulla quale ordinare, es. <code>a.id</code>
+	 *
+	 * @param lastValue
+	 * 	Il valore della chiave dell'ultima riga della pagina precedente, o <code>null</code> per la prima pagina
+	 *
+	 * @param descending
+	 * 	<code>true</code> per scorrere le righe in ordine decrescente
+	 */
+	public void setKeyset(String column, Object lastValue, boolean descending) {
+		this.keysetColumn = column;
+		this.keysetValue = lastValue;
+		this.keysetDescending = descending;
+	}
+
+	/**
+	 * Disattiva la paginazione per chiave.
+	 */
+	public void clearKeyset() {
+		this.setKeyset(null, null, false);
+	}
+
+	/**
+	 * @return <code>true</code> se le query paginate calcolano anche il totale delle righe
+	 */
+	public boolean isCountTotal() {
+		return this.countTotal;
+	}
+
+	/**
+	 * Attiva o disattiva il calcolo del totale delle righe delle query paginate,
+	 * disponibile dopo ogni query con {@link #getTotal()}.
+	 */
+	public void setCountTotal(boolean countTotal) {
+		this.countTotal = countTotal;
+	}
+
+	/**
+	 * @return il tempo (in millisecondi) per il quale un totale viene mantenuto in cache
+	 */
+	public long getCountCacheTtl() {
+		return this.countCacheTtl;
+	}
+
+	/**
+	 * Imposta il tempo (in millisecondi) per il quale il totale di una query, con gli stessi parametri,
+	 * viene mantenuto in cache. Da utilizzare per i conteggi costosi che non devono essere esatti.
+	 *
+	 * @param countCacheTtl
+	 * 	Il tempo di validit&agrave; del totale, 0 per non usare la cache
+	 */
+	public void setCountCacheTtl(long countCacheTtl) {
+		this.countCacheTtl = countCacheTtl;
+	}
 }
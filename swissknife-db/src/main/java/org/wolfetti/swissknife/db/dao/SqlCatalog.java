@@ -0,0 +1,652 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.common.logger.Log;
+import org.wolfetti.swissknife.common.logger.LogFactory;
+import org.wolfetti.swissknife.common.utils.FileUtils;
+import org.wolfetti.swissknife.db.dialect.Dialect;
+import org.wolfetti.swissknife.db.exceptions.InvalidFileException;
+import org.wolfetti.swissknife.db.utils.SqlTemplate;
+import org.wolfetti.swissknife.db.utils.Upserts;
+
+/**
+ * Il contenuto di un file delle query, letto e compilato una sola volta e condiviso da tutti i DAO.
+ * <br><br>
+ * Al caricamento i riferimenti <code>${chiave}</code> ad altre query dello stesso file vengono sostituiti
+ * con il testo della query indicata: un riferimento ad una query non presente oppure circolare rende
+ * il file non valido. Ogni query viene poi compilata in un {@link SqlTemplate}, in maniera che
+ * l'esecuzione non debba pi&ugrave; analizzarne il testo.
+ * <br><br>
+ * I cataloghi vengono condivisi per class loader: il file viene cercato con
+ * {@link FileUtils#getPropertiesFileUrl(ClassLoader, String)}, come per gli altri file di configurazione, e due
+ * applicazioni che condividono la libreria utilizzano ognuna il proprio file.
+ * <br><br>
+ * Il catalogo &egrave; immutabile. Con il ricaricamento automatico attivo (<code>sk.db.sqlHotReload</code> oppure
+ * {@link #setHotReload(boolean)}, disattivo se non indicato) i file che si trovano in una cartella del file system
+ * (e non ad esempio all'interno di un jar) vengono controllati tramite un {@link WatchService}: ad ogni modifica il file
+ * viene ricaricato e il nuovo catalogo sostituisce atomicamente il precedente, che viene marcato come non pi&ugrave;
+ * aggiornato. Se il nuovo contenuto non &egrave; valido viene mantenuto il catalogo precedente.
+ *
+ * @author Fabio Frijo
+ */
+public final class SqlCatalog {
+
+	/**
+	 * Logger
+	 */
+	private static final Log log = LogFactory.getLog(SqlCatalog.class);
+
+	/**
+	 * Riconosce i riferimenti ad altre query, es. <code>${elenco.base}</code>
+	 */
+	private static final Pattern REFERENCE = Pattern.compile("\\$\\{([^}]*)\\}");
+
+	/**
+	 * I cataloghi caricati, indicizzati per class loader e nome del file.
+	 * I class loader sono referenziati in maniera debole, per non trattenere le applicazioni rimosse.
+	 */
+	private static final Map<ClassLoader, Map<String, SqlCatalog>> catalogs = new WeakHashMap<ClassLoader, Map<String, SqlCatalog>>();
+
+	/**
+	 * Flag che indica se i file modificati vanno ricaricati automaticamente
+	 */
+	private static volatile boolean hotReload = false;
+
+	/**
+	 * Il thread che controlla le modifiche dei file, avviato al primo file da controllare
+	 */
+	private static Watcher watcher = null;
+
+	/**
+	 * Il nome del file delle query
+	 */
+	private final String filename;
+
+	/**
+	 * La posizione del file nel classpath
+	 */
+	private final URL url;
+
+	/**
+	 * Le query e i metadati, con i riferimenti gi&agrave; risolti
+	 */
+	private final Map<String, String> entries;
+
+	/**
+	 * Le query compilate
+	 */
+	private final Map<String, SqlTemplate> templates;
+
+	/**
+	 * Gli upsert compilati, per dialetto e chiave della INSERT
+	 */
+	private final ConcurrentMap<String, SqlTemplate> upserts = new ConcurrentHashMap<String, SqlTemplate>();
+
+	/**
+	 * Il catalogo che ha sostituito questo dopo la modifica del file, oppure <code>null</code> se aggiornato
+	 */
+	private volatile SqlCatalog replacement = null;
+
+	private SqlCatalog(String filename, URL url, Map<String, String> entries, Map<String, SqlTemplate> templates){
+		this.filename = filename;
+		this.url = url;
+		this.entries = entries;
+		this.templates = templates;
+	}
+
+	/* ===================================================================================== */
+	/* ====================================== REGISTRY ===================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * Restituisce il catalogo del file indicato, caricandolo dal classpath alla prima richiesta.
+	 *
+	 * @param classLoader
+	 * 	Il class loader in cui cercare il file
+	 *
+	 * @param filename
+	 * 	Il nome del file delle query
+	 *
+	 * @throws InvalidFileException
+	 * 	Se il file non esiste, non &egrave; leggibile oppure contiene dei riferimenti non validi.
+	 */
+	public static SqlCatalog get(ClassLoader classLoader, String filename){
+		synchronized (catalogs) {
+			Map<String, SqlCatalog> loaded = catalogs.get(classLoader);
+
+			if(loaded == null){
+				loaded = new HashMap<String, SqlCatalog>();
+				catalogs.put(classLoader, loaded);
+			}
+
+			SqlCatalog catalog = loaded.get(filename);
+
+			if(catalog == null){
+				URL url = FileUtils.getPropertiesFileUrl(classLoader, filename);
+
+				if(url == null){
+					throw new InvalidFileException("Unable to find file '" + filename + "' in classpath.");
+				}
+
+				catalog = load(filename, url);
+				loaded.put(filename, catalog);
+
+				if(hotReload){
+					watch(catalog);
+				}
+			}
+
+			return catalog;
+		}
+	}
+
+	/**
+	 * Ricarica il file indicato in tutti i class loader in cui &egrave; stato caricato e sostituisce i cataloghi correnti.
+	 * Se il nuovo contenuto non &egrave; valido l'errore viene registrato nel log e il catalogo
+	 * corrente resta in uso.
+	 *
+	 * @param filename
+	 * 	Il nome del file delle query
+	 *
+	 * @return
+	 * 	<code>true</code> se almeno un catalogo &egrave; stato sostituito
+	 */
+	public static boolean reload(String filename){
+		boolean reloaded = false;
+
+		synchronized (catalogs) {
+			for(Map<String, SqlCatalog> loaded : catalogs.values()){
+				SqlCatalog current = loaded.get(filename);
+
+				if(current != null && replace(loaded, current)){
+					reloaded = true;
+				}
+			}
+		}
+
+		return reloaded;
+	}
+
+	/**
+	 * Ricarica i cataloghi letti dal file indicato, dopo una modifica rilevata dal {@link Watcher}.
+	 */
+	private static void reload(Path file){
+		synchronized (catalogs) {
+			for(Map<String, SqlCatalog> loaded : catalogs.values()){
+				for(SqlCatalog current : new ArrayList<SqlCatalog>(loaded.values())){
+					if(file.equals(toPath(current.url))){
+						replace(loaded, current);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rilegge il file del catalogo e lo sostituisce con la nuova versione.
+	 */
+	private static boolean replace(Map<String, SqlCatalog> loaded, SqlCatalog current){
+		SqlCatalog catalog;
+		try {
+			catalog = load(current.filename, current.url);
+		} catch (RuntimeException e) {
+			log.error("Impossibile ricaricare il file delle query '" + current.filename + "': resta in uso la versione precedente.", e);
+			return false;
+		}
+
+		loaded.put(current.filename, catalog);
+		current.replacement = catalog;
+
+		log.info("File delle query '" + current.filename + "' ricaricato (" + catalog.templates.size() + " query).");
+		return true;
+	}
+
+	/**
+	 * Attiva o disattiva il ricaricamento automatico dei file delle query modificati. All'attivazione
+	 * vengono controllati anche i file gi&agrave; caricati; alla disattivazione il thread di controllo viene terminato.
+	 */
+	public static void setHotReload(boolean enabled){
+		synchronized (catalogs) {
+			if(enabled == hotReload){
+				return;
+			}
+
+			hotReload = enabled;
+
+			if(enabled){
+				for(Map<String, SqlCatalog> loaded : catalogs.values()){
+					for(SqlCatalog catalog : loaded.values()){
+						watch(catalog);
+					}
+				}
+			}
+
+			else if(watcher != null){
+				watcher.close();
+				watcher = null;
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> se i file delle query modificati vengono ricaricati automaticamente
+	 */
+	public static boolean isHotReload(){
+		return hotReload;
+	}
+
+	/**
+	 * Attiva il ricaricamento automatico se richiesto dalla configurazione del connettore (<code>sk.db.sqlHotReload</code>).
+	 */
+	public static void configure(Configuration conf){
+		if(!hotReload && conf.getBoolean(DB.KEY_SQL_HOT_RELOAD, false)){
+			setHotReload(true);
+		}
+	}
+
+	/**
+	 * Legge il file e ne compila le query.
+	 */
+	private static SqlCatalog load(String filename, URL url){
+		Properties properties = new Properties();
+
+		InputStream in = null;
+		try {
+			in = url.openStream();
+			properties.load(in);
+		} catch (IOException e) {
+			throw new InvalidFileException("Unable to read file '" + filename + "' from " + url + ".", e);
+		} finally {
+			if(in != null){
+				try {
+					in.close();
+				} catch (IOException e) {
+					// Ignorata
+				}
+			}
+		}
+
+		if(properties.isEmpty()){
+			log.warn("The SQL container file '" + filename + "' is empty.");
+		}
+
+		Map<String, String> entries = new HashMap<String, String>(properties.size() * 2);
+		for(String key : properties.stringPropertyNames()){
+			resolve(filename, key, properties, entries, new HashSet<String>());
+		}
+
+		Map<String, SqlTemplate> templates = new HashMap<String, SqlTemplate>(entries.size() * 2);
+		for(Map.Entry<String, String> entry : entries.entrySet()){
+			if(entry.getKey().indexOf(PropertyFileDAO.META_SEPARATOR) < 0 && entry.getValue().length() > 0){
+				templates.put(entry.getKey(), SqlTemplate.compile(entry.getValue()));
+			}
+		}
+
+		return new SqlCatalog(
+			filename, url,
+			Collections.unmodifiableMap(entries),
+			Collections.unmodifiableMap(templates)
+		);
+	}
+
+	/**
+	 * Restituisce il valore della chiave con i riferimenti <code>${...}</code> risolti, risolvendo
+	 * prima le query referenziate.
+	 */
+	private static String resolve(String filename, String key, Properties properties, Map<String, String> resolved, Set<String> path){
+		String value = resolved.get(key);
+
+		if(value != null){
+			return value;
+		}
+
+		value = properties.getProperty(key);
+
+		if(value.indexOf("${") >= 0){
+			if(!path.add(key)){
+				throw new InvalidFileException(
+					"Riferimento circolare nel file delle query '" + filename + "': " + path + " -> " + key
+				);
+			}
+
+			Matcher m = REFERENCE.matcher(value);
+			StringBuffer sql = new StringBuffer(value.length() * 2);
+
+			while(m.find()){
+				String reference = m.group(1).trim();
+
+				if(properties.getProperty(reference) == null){
+					throw new InvalidFileException(
+						"La query identificata con la chiave '" + reference + "', referenziata dalla query '" + key +
+						"', non esiste nel file delle query SQL '" + filename + "'."
+					);
+				}
+
+				m.appendReplacement(sql, Matcher.quoteReplacement(resolve(filename, reference, properties, resolved, path)));
+			}
+
+			m.appendTail(sql);
+			path.remove(key);
+
+			value = sql.toString();
+		}
+
+		resolved.put(key, value);
+		return value;
+	}
+
+	/**
+	 * Registra il file del catalogo per il ricaricamento automatico, se si trova sul file system.
+	 */
+	private static void watch(SqlCatalog catalog){
+		Path file = toPath(catalog.url);
+
+		if(file == null){
+			return;
+		}
+
+		try {
+			if(watcher == null){
+				watcher = new Watcher(FileSystems.getDefault().newWatchService());
+
+				Thread thread = new Thread(watcher, "SqlCatalog-watcher");
+				thread.setDaemon(true);
+				thread.start();
+			}
+
+			watcher.register(file);
+		} catch (IOException | RuntimeException e) {
+			log.warn("Impossibile controllare le modifiche del file delle query '" + catalog.filename + "'.", e);
+		}
+	}
+
+	/**
+	 * Restituisce il percorso assoluto del file, oppure <code>null</code> se non si trova sul file system.
+	 */
+	private static Path toPath(URL url){
+		if(!"file".equals(url.getProtocol())){
+			return null;
+		}
+
+		try {
+			return Paths.get(url.toURI()).toAbsolutePath();
+		} catch (URISyntaxException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/* ===================================================================================== */
+	/* ====================================== CATALOG ====================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * @return <code>true</code> se il file contiene la query indicata
+	 */
+	public boolean contains(String key){
+		return this.entries.containsKey(key);
+	}
+
+	/**
+	 * Restituisce la query, oppure un metadato (es. <code>elenco@cache</code>), associata alla chiave,
+	 * con i riferimenti ad altre query gi&agrave; risolti.
+	 *
+	 * @return
+	 * 	Il valore associato alla chiave, oppure <code>null</code> se non presente
+	 */
+	public String getSql(String key){
+		return this.entries.get(key);
+	}
+
+	/**
+	 * Restituisce la query compilata associata alla chiave, oppure <code>null</code> se non presente.
+	 */
+	public SqlTemplate getTemplate(String key){
+		return this.templates.get(key);
+	}
+
+	/**
+	 * Restituisce l'upsert compilato corrispondente alla INSERT associata alla chiave, nella sintassi del dialetto
+	 * in ingresso (vedi {@link Upserts#fromInsert(Dialect, String, String[])}). L'upsert viene costruito alla prima
+	 * richiesta per ogni dialetto e insieme di colonne chiave e riutilizzato fino al ricaricamento del file.
+	 *
+	 * @param key
+	 * 	La chiave della INSERT
+	 *
+	 * @param dialect
+	 * 	Il dialetto del database
+	 *
+	 * @param keyColumns
+	 * 	Le colonne chiave dell'upsert
+	 */
+	public SqlTemplate getUpsertTemplate(String key, Dialect dialect, String[] keyColumns){
+		StringBuilder id = new StringBuilder(dialect.getClass().getName()).append(':').append(key);
+		for(String column : keyColumns){
+			id.append(':').append(column);
+		}
+
+		SqlTemplate result = this.upserts.get(id.toString());
+		if(result == null){
+			result = SqlTemplate.compile(Upserts.fromInsert(dialect, this.getSql(key), keyColumns));
+
+			SqlTemplate previous = this.upserts.putIfAbsent(id.toString(), result);
+			if(previous != null){
+				result = previous;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return le chiavi presenti nel file, comprese quelle dei metadati
+	 */
+	public Set<String> getKeys(){
+		return this.entries.keySet();
+	}
+
+	/**
+	 * Restituisce una copia del contenuto del file, con i riferimenti gi&agrave; risolti.
+	 */
+	public Properties toProperties(){
+		Properties properties = new Properties();
+		properties.putAll(this.entries);
+		return properties;
+	}
+
+	/**
+	 * @return <code>true</code> se il catalogo &egrave; vuoto
+	 */
+	public boolean isEmpty(){
+		return this.entries.isEmpty();
+	}
+
+	/**
+	 * @return <code>true</code> se il file &egrave; stato ricaricato e questo catalogo non &egrave; pi&ugrave; aggiornato
+	 */
+	public boolean isStale(){
+		return this.replacement != null;
+	}
+
+	/**
+	 * Restituisce la versione pi&ugrave; recente di questo catalogo, seguendo le sostituzioni
+	 * dovute ai ricaricamenti del file.
+	 */
+	public SqlCatalog getLatest(){
+		SqlCatalog current = this;
+
+		while(current.replacement != null){
+			current = current.replacement;
+		}
+
+		return current;
+	}
+
+	/**
+	 * @return il nome del file delle query
+	 */
+	public String getFilename(){
+		return this.filename;
+	}
+
+	/**
+	 * @return la posizione del file nel classpath
+	 */
+	public URL getUrl(){
+		return this.url;
+	}
+
+	/* ===================================================================================== */
+	/* ====================================== WATCHER ====================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * Il thread che ricarica i file delle query modificati.
+	 */
+	private static final class Watcher implements Runnable {
+
+		/**
+		 * L'intervallo senza modifiche, in millisecondi, dopo il quale un file viene ricaricato
+		 */
+		private static final long QUIET_PERIOD = 300;
+
+		private final WatchService service;
+
+		/**
+		 * Le cartelle controllate
+		 */
+		private final Map<WatchKey, Path> folders = new ConcurrentHashMap<WatchKey, Path>();
+
+		/**
+		 * I file controllati
+		 */
+		private final Set<Path> files = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+
+		private Watcher(WatchService service){
+			this.service = service;
+		}
+
+		private void register(Path file) throws IOException {
+			Path folder = file.getParent();
+			WatchKey key = folder.register(this.service, ENTRY_CREATE, ENTRY_MODIFY);
+
+			this.folders.put(key, folder);
+			this.files.add(file);
+		}
+
+		/**
+		 * Termina il controllo dei file e il thread.
+		 */
+		private void close(){
+			try {
+				this.service.close();
+			} catch (IOException e) {
+				log.warn("Errore durante la chiusura del controllo dei file delle query.", e);
+			}
+		}
+
+		@Override
+		public void run() {
+			while(true){
+				Set<Path> changed = new HashSet<Path>();
+
+				try {
+					WatchKey key = this.service.take();
+
+					// Un salvataggio genera spesso piu' eventi (es. troncamento e scrittura):
+					// ricarico solo quando il file non viene modificato per un breve intervallo
+					while(key != null){
+						this.collect(key, changed);
+						key = this.service.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+					}
+				} catch (InterruptedException | ClosedWatchServiceException e) {
+					return;
+				}
+
+				for(Path file : changed){
+					reload(file);
+				}
+			}
+		}
+
+		/**
+		 * Aggiunge ai file da ricaricare quelli interessati dagli eventi della chiave.
+		 */
+		private void collect(WatchKey key, Set<Path> changed){
+			Path folder = this.folders.get(key);
+
+			for(WatchEvent<?> event : key.pollEvents()){
+				if(folder == null){
+					continue;
+				}
+
+				// Eventi persi: ricarico tutti i file della cartella
+				if(event.kind() == OVERFLOW){
+					for(Path file : this.files){
+						if(folder.equals(file.getParent())){
+							changed.add(file);
+						}
+					}
+
+					continue;
+				}
+
+				Path file = folder.resolve((Path) event.context());
+				if(this.files.contains(file)){
+					changed.add(file);
+				}
+			}
+
+			if(!key.reset()){
+				this.folders.remove(key);
+			}
+		}
+	}
+}
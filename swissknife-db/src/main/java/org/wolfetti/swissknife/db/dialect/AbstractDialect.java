@@ -0,0 +1,242 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dialect;
+
+import org.wolfetti.swissknife.db.utils.SqlClauses;
+
+/**
+ * Implementazione di base di un {@link Dialect}: la paginazione per chiave viene costruita con SQL standard
+ * e demanda a {@link #limit(String, int, int)} soltanto la limitazione del numero di righe.
+ *
+ * @author Fabio Frijo
+ */
+public abstract class AbstractDialect implements Dialect {
+
+	/**
+	 * L'alias della tabella derivata utilizzata quando la condizione non pu&ograve; essere aggiunta alla query
+	 */
+	protected static final String PAGE_ALIAS = "sk_page";
+
+	/**
+	 * L'alias della tabella derivata utilizzata dalle query di conteggio
+	 */
+	protected static final String COUNT_ALIAS = "sk_count";
+
+	/**
+	 * L'alias della tabella aggiornata da una MERGE
+	 */
+	protected static final String TARGET_ALIAS = "sk_target";
+
+	/**
+	 * L'alias della riga da inserire o aggiornare in una MERGE
+	 */
+	protected static final String SOURCE_ALIAS = "sk_source";
+
+	/**
+	 * La condizione sulla chiave viene aggiunta alla WHERE della query, in maniera che possa sfruttare
+	 * l'indice della colonna. Le query con GROUP BY, HAVING o UNION vengono invece racchiuse in una
+	 * tabella derivata: in quel caso la chiave deve essere un'etichetta di colonna del risultato.
+	 *
+	 * @see org.wolfetti.swissknife.db.dialect.Dialect#seek(java.lang.String, java.lang.String, boolean, boolean, int)
+	 */
+	@Override
+	public String seek(String sql, String column, boolean descending, boolean afterValue, int limit) {
+		String body = SqlClauses.removeOrderBy(sql.trim());
+
+		if(afterValue){
+			String condition = column + (descending ? " < ?" : " > ?");
+
+			if(SqlClauses.contains(body, "GROUP BY") || SqlClauses.contains(body, "HAVING") || SqlClauses.contains(body, "UNION")){
+				body = "SELECT * FROM (" + body + ") " + PAGE_ALIAS + " WHERE " + condition;
+			} else {
+				int where = SqlClauses.indexOf(body, "WHERE");
+
+				if(where < 0){
+					body = body + " WHERE " + condition;
+				} else {
+					String filter = body.substring(where + "WHERE".length()).trim();
+					body = body.substring(0, where) + "WHERE (" + filter + ") AND " + condition;
+				}
+			}
+		}
+
+		return this.limit(body + " ORDER BY " + column + (descending ? " DESC" : " ASC"), 0, limit);
+	}
+
+	/**
+	 * La query viene racchiusa in una tabella derivata, senza ORDER BY (non ammessa in una tabella derivata
+	 * da alcuni database e comunque inutile per il conteggio).
+	 *
+	 * @see org.wolfetti.swissknife.db.dialect.Dialect#count(java.lang.String)
+	 */
+	@Override
+	public String count(String sql) {
+		return "SELECT COUNT(*) FROM (" + SqlClauses.removeOrderBy(sql.trim()) + ") " + COUNT_ALIAS;
+	}
+
+	/**
+	 * INSERT standard con pi&ugrave; righe nella clausola VALUES: <code>VALUES (?, ?), (?, ?)</code>.
+	 *
+	 * @see org.wolfetti.swissknife.db.dialect.Dialect#insertRows(java.lang.String, java.lang.String[], int)
+	 */
+	@Override
+	public String insertRows(String table, String[] columns, int rows) {
+		String values = this.placeholders(columns.length);
+		StringBuilder sql = new StringBuilder(32 + table.length() + rows * (values.length() + 2));
+
+		sql.append("INSERT INTO ").append(table).append(" (").append(this.columnList(columns)).append(") VALUES ");
+		for(int i = 0; i < rows; i++){
+			if(i > 0){
+				sql.append(", ");
+			}
+
+			sql.append(values);
+		}
+
+		return sql.toString();
+	}
+
+	@Override
+	public int getMaxInsertRows() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public int getMaxParameters() {
+		return 32767;
+	}
+
+	/**
+	 * Non supportato di default.
+	 *
+	 * @see org.wolfetti.swissknife.db.dialect.Dialect#loadData(java.lang.String, java.lang.String[])
+	 */
+	@Override
+	public String loadData(String table, String[] columns) {
+		return null;
+	}
+
+	/**
+	 * MERGE standard (SQL:2003).
+	 *
+	 * @see #merge(String, String[], String[], String[], String[])
+	 * @see org.wolfetti.swissknife.db.dialect.Dialect#upsert(java.lang.String, java.lang.String[], java.lang.String[], java.lang.String[], java.lang.String[])
+	 */
+	@Override
+	public String upsert(String table, String[] columns, String[] values, String[] keyColumns, String[] updateColumns) {
+		return this.merge(table, columns, values, keyColumns, updateColumns);
+	}
+
+	/**
+	 * Restituisce la MERGE standard che confronta la riga, in una tabella derivata, con quella della tabella per chiave:
+	 * <pre>
+	 * MERGE INTO t sk_target USING (VALUES (?, ?)) AS sk_source (id, nome) ON (sk_target.id = sk_source.id)
+	 * WHEN MATCHED THEN UPDATE SET nome = sk_source.nome
+	 * WHEN NOT MATCHED THEN INSERT (id, nome) VALUES (sk_source.id, sk_source.nome)
+	 * </pre>
+	 * La tabella e la riga vengono scritte da {@link #mergeTarget(String)} e {@link #mergeSource(String[], String[])}.
+	 */
+	protected String merge(String table, String[] columns, String[] values, String[] keyColumns, String[] updateColumns){
+		StringBuilder sql = new StringBuilder(128)
+			.append("MERGE INTO ").append(this.mergeTarget(table))
+			.append(" USING ").append(this.mergeSource(columns, values))
+			.append(" ON (");
+
+		for(int i = 0; i < keyColumns.length; i++){
+			if(i > 0){
+				sql.append(" AND ");
+			}
+
+			sql.append(TARGET_ALIAS).append('.').append(keyColumns[i]).append(" = ").append(SOURCE_ALIAS).append('.').append(keyColumns[i]);
+		}
+
+		sql.append(')');
+
+		if(updateColumns.length > 0){
+			sql.append(" WHEN MATCHED THEN UPDATE SET ");
+
+			for(int i = 0; i < updateColumns.length; i++){
+				if(i > 0){
+					sql.append(", ");
+				}
+
+				sql.append(updateColumns[i]).append(" = ").append(SOURCE_ALIAS).append('.').append(updateColumns[i]);
+			}
+		}
+
+		sql.append(" WHEN NOT MATCHED THEN INSERT (").append(this.columnList(columns)).append(") VALUES (");
+
+		for(int i = 0; i < columns.length; i++){
+			if(i > 0){
+				sql.append(", ");
+			}
+
+			sql.append(SOURCE_ALIAS).append('.').append(columns[i]);
+		}
+
+		return sql.append(')').toString();
+	}
+
+	/**
+	 * @return la tabella di destinazione di una MERGE, con l'alias {@value #TARGET_ALIAS}
+	 */
+	protected String mergeTarget(String table){
+		return table + " " + TARGET_ALIAS;
+	}
+
+	/**
+	 * @return la riga di una MERGE come tabella derivata, con l'alias {@value #SOURCE_ALIAS}
+	 */
+	protected String mergeSource(String[] columns, String[] values){
+		return "(VALUES (" + this.columnList(values) + ")) AS " + SOURCE_ALIAS + " (" + this.columnList(columns) + ")";
+	}
+
+	/**
+	 * @return l'elenco delle colonne separate da virgole
+	 */
+	protected String columnList(String[] columns){
+		StringBuilder list = new StringBuilder();
+		for(int i = 0; i < columns.length; i++){
+			if(i > 0){
+				list.append(", ");
+			}
+
+			list.append(columns[i]);
+		}
+
+		return list.toString();
+	}
+
+	/**
+	 * @return la lista di parametri di una riga, es. <code>(?, ?, ?)</code>
+	 */
+	protected String placeholders(int count){
+		StringBuilder values = new StringBuilder(count * 3 + 2).append('(');
+		for(int i = 0; i < count; i++){
+			values.append(i > 0 ? ", ?" : "?");
+		}
+
+		return values.append(')').toString();
+	}
+
+	@Override
+	public String toString() {
+		return this.getName();
+	}
+}
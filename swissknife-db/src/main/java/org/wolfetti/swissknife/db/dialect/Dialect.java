@@ -0,0 +1,150 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dialect;
+
+/**
+ * Sintassi specifica di un database per le funzionalit&agrave; non standard, come la paginazione.
+ * <br><br>
+ * Le implementazioni devono essere thread-safe: la stessa istanza viene condivisa da tutti i connettori
+ * dello stesso datasource.
+ *
+ * @author Fabio Frijo
+ */
+public interface Dialect {
+
+	/**
+	 * @return il nome del dialetto
+	 */
+	public String getName();
+
+	/**
+	 * Aggiunge alla query la paginazione per offset.
+	 *
+	 * @param sql
+	 * 	La query da paginare
+	 *
+	 * @param start
+	 * 	L'indice della prima riga da restituire, a partire da 0
+	 *
+	 * @param limit
+	 * 	Il numero massimo di righe da restituire
+	 */
+	public String limit(String sql, int start, int limit);
+
+	/**
+	 * Trasforma la query in una query paginata per chiave (<i>keyset</i> o <i>seek</i>): invece di saltare
+	 * le prime righe, vengono lette solo quelle successive all'ultimo valore della chiave di ordinamento
+	 * gi&agrave; letto, in maniera che il costo di una pagina non dipenda dalla sua posizione.
+	 * <br><br>
+	 * Se <code>afterValue</code> &egrave; <code>true</code> la query restituita contiene un parametro
+	 * <code>?</code> aggiuntivo, da valorizzare con l'ultimo valore letto, in coda a quelli della query originale.
+	 *
+	 * @param sql
+	 * 	La query da paginare. L'eventuale ORDER BY viene sostituita dall'ordinamento per chiave.
+	 *
+	 * @param column
+	 * 	La chiave di ordinamento: deve essere univoca, altrimenti le righe con lo stesso valore
+	 * 	a cavallo di due pagine vengono saltate.
+	 *
+	 * @param descending
+	 * 	<code>true</code> per l'ordinamento decrescente
+	 *
+	 * @param afterValue
+	 * 	<code>true</code> se va aggiunta la condizione sull'ultimo valore letto, <code>false</code> per la prima pagina
+	 *
+	 * @param limit
+	 * 	Il numero massimo di righe da restituire
+	 */
+	public String seek(String sql, String column, boolean descending, boolean afterValue, int limit);
+
+	/**
+	 * Trasforma la query nella query che ne conta le righe.
+	 *
+	 * @param sql
+	 * 	La query da contare, senza paginazione. L'eventuale ORDER BY viene rimossa.
+	 */
+	public String count(String sql);
+
+	/**
+	 * Restituisce la INSERT che scrive pi&ugrave; righe con un solo comando, con un parametro <code>?</code>
+	 * per ogni valore, riga per riga e nell'ordine delle colonne.
+	 *
+	 * @param table
+	 * 	La tabella
+	 *
+	 * @param columns
+	 * 	Le colonne da valorizzare
+	 *
+	 * @param rows
+	 * 	Il numero di righe, al massimo {@link #getMaxInsertRows()}
+	 */
+	public String insertRows(String table, String[] columns, int rows);
+
+	/**
+	 * @return il numero massimo di righe di una INSERT multipla (vedi {@link #insertRows(String, String[], int)})
+	 */
+	public int getMaxInsertRows();
+
+	/**
+	 * @return il numero massimo di parametri <code>?</code> di una query
+	 */
+	public int getMaxParameters();
+
+	/**
+	 * Restituisce il comando di caricamento massivo dei dati da uno stream fornito dal client, oppure
+	 * <code>null</code> se il database non lo supporta.
+	 * <br><br>
+	 * I dati vengono inviati in formato testo UTF-8: una riga per record terminata da <code>\n</code>, i campi separati
+	 * da <code>\t</code>, il carattere <code>\</code> come escape e <code>\N</code> per i valori <code>null</code>.
+	 *
+	 * @param table
+	 * 	La tabella
+	 *
+	 * @param columns
+	 * 	Le colonne da valorizzare, nell'ordine dei campi
+	 *
+	 * @see org.wolfetti.swissknife.db.DbConnector#loadData(String, java.io.InputStream)
+	 */
+	public String loadData(String table, String[] columns);
+
+	/**
+	 * Restituisce il comando nativo che inserisce una riga o, se esiste gi&agrave; una riga con la stessa chiave,
+	 * ne aggiorna le colonne indicate (<i>upsert</i>), con un solo comando e senza generare errori di chiave duplicata.
+	 * <br><br>
+	 * Ogni espressione di <code>values</code> compare una sola volta nel comando, nello stesso ordine delle colonne:
+	 * i parametri <code>?</code> vanno quindi valorizzati come per la INSERT corrispondente.
+	 *
+	 * @param table
+	 * 	La tabella
+	 *
+	 * @param columns
+	 * 	Le colonne da inserire, chiave compresa
+	 *
+	 * @param values
+	 * 	Le espressioni SQL dei valori, una per colonna (di solito <code>?</code>)
+	 *
+	 * @param keyColumns
+	 * 	Le colonne della chiave primaria o di un vincolo di unicit&agrave;, comprese in <code>columns</code>
+	 *
+	 * @param updateColumns
+	 * 	Le colonne da aggiornare se la riga esiste gi&agrave;, comprese in <code>columns</code>.
+	 * 	Se vuoto la riga esistente non viene modificata.
+	 */
+	public String upsert(String table, String[] columns, String[] values, String[] keyColumns, String[] updateColumns);
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.common.logger.Log;
+import org.wolfetti.swissknife.common.logger.LogFactory;
+import org.wolfetti.swissknife.common.utils.ReflectionUtils;
+import org.wolfetti.swissknife.common.utils.StringUtils;
+import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+
+/**
+ * Classe che restituisce il {@link Dialect} da utilizzare per una connessione.
+ * <br><br>
+ * Il dialetto viene letto dalla chiave <code>sk.db.dialect</code> (<code>MYSQL</code>, <code>POSTGRESQL</code>,
+ * <code>H2</code>, <code>ORACLE</code>, <code>SQLSERVER</code> o il nome di una classe che implementa {@link Dialect}).
+ * Se non configurato viene riconosciuto dai metadati della connessione, una sola volta per datasource.
+ *
+ * @author Fabio Frijo
+ */
+public final class Dialects {
+	private Dialects(){}
+
+	/**
+	 * MySQL e MariaDB
+	 */
+	public static final String MYSQL = "MYSQL";
+
+	/**
+	 * PostgreSQL
+	 */
+	public static final String POSTGRESQL = "POSTGRESQL";
+
+	/**
+	 * H2
+	 */
+	public static final String H2 = "H2";
+
+	/**
+	 * Oracle 12c o successivo
+	 */
+	public static final String ORACLE = "ORACLE";
+
+	/**
+	 * SQL Server 2012 o successivo
+	 */
+	public static final String SQLSERVER = "SQLSERVER";
+
+	/**
+	 * Logger
+	 */
+	private static final Log log = LogFactory.getLog(Dialects.class);
+
+	/**
+	 * I dialetti gia' risolti, indicizzati per nome o per url del datasource
+	 */
+	private static final ConcurrentMap<String, Dialect> dialects = new ConcurrentHashMap<String, Dialect>();
+
+	/**
+	 * Restituisce il dialetto configurato per la connessione o, se non configurato,
+	 * quello riconosciuto dai metadati della connessione.
+	 * Se il database non viene riconosciuto viene utilizzato il dialetto MySQL.
+	 *
+	 * @param conf
+	 * 	La configurazione della connessione
+	 *
+	 * @param connection
+	 * 	La connessione dalla quale leggere i metadati, se necessario
+	 *
+	 * @throws DbInitializationException
+	 * 	Quando il dialetto configurato non e' valido
+	 */
+	public static Dialect get(Configuration conf, Connection connection)
+	throws DbInitializationException {
+		String name = conf.getString(DB.KEY_DIALECT);
+
+		if(StringUtils.isNotEmptyOrNull(name)){
+			return forName(name.trim());
+		}
+
+		String key = conf.getString(DB.KEY_URL, conf.getString(DB.KEY_CONTEXT, conf.getString(DB.KEY_NAME, DB.DEFAULT_NAME)));
+		Dialect dialect = dialects.get(key);
+
+		if(dialect == null){
+			dialect = detect(connection);
+			dialects.putIfAbsent(key, dialect);
+		}
+
+		return dialect;
+	}
+
+	/**
+	 * Restituisce il dialetto indicato dal nome.
+	 *
+	 * @param name
+	 * 	Il nome del dialetto o il nome di una classe che implementa {@link Dialect}
+	 *
+	 * @throws DbInitializationException
+	 * 	Quando il dialetto non e' valido
+	 */
+	public static Dialect forName(String name)
+	throws DbInitializationException {
+		Dialect dialect = dialects.get(name);
+
+		if(dialect == null){
+			dialect = create(name);
+
+			Dialect previous = dialects.putIfAbsent(name, dialect);
+			if(previous != null){
+				dialect = previous;
+			}
+		}
+
+		return dialect;
+	}
+
+	/**
+	 * Riconosce il dialetto dal nome del prodotto restituito dai metadati della connessione.
+	 */
+	private static Dialect detect(Connection connection){
+		String product = null;
+
+		try {
+			if(connection != null){
+				product = connection.getMetaData().getDatabaseProductName();
+			}
+		} catch (SQLException e) {
+			log.warn("Impossibile leggere i metadati della connessione: " + e.getMessage());
+		}
+
+		String upper = product == null ? "" : product.toUpperCase(Locale.ROOT);
+
+		if(upper.contains("POSTGRES")){
+			return forName(POSTGRESQL);
+		}
+
+		if(upper.equals("H2")){
+			return forName(H2);
+		}
+
+		if(upper.contains("ORACLE")){
+			return forName(ORACLE);
+		}
+
+		if(upper.contains("SQL SERVER")){
+			return forName(SQLSERVER);
+		}
+
+		if(!upper.contains("MYSQL") && !upper.contains("MARIADB")){
+			log.warn("Database non riconosciuto (" + product + "): verra' utilizzato il dialetto " + MYSQL);
+		}
+
+		return forName(MYSQL);
+	}
+
+	private static Dialect create(String name){
+		switch (name.toUpperCase(Locale.ROOT)) {
+			case MYSQL: return new MySqlDialect();
+			case POSTGRESQL: return new PostgreSqlDialect();
+			case H2: return new H2Dialect();
+			case ORACLE: return new OracleDialect();
+			case SQLSERVER: return new SqlServerDialect();
+		}
+
+		try {
+			Class<?> dialectClass = Class.forName(name, true, ReflectionUtils.getContextClassLoader(Dialects.class));
+			return (Dialect) dialectClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new DbInitializationException("Dialetto non valido: " + name, e);
+		}
+	}
+}
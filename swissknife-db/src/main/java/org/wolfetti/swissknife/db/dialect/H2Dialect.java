@@ -0,0 +1,66 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dialect;
+
+/**
+ * Dialetto H2: stessa sintassi di PostgreSQL, tranne che per l'upsert. Se vanno aggiornate tutte le colonne
+ * non chiave viene utilizzata la sintassi nativa <code>MERGE INTO ... KEY (...) VALUES (...)</code>,
+ * altrimenti la MERGE standard.
+ *
+ * @author Fabio Frijo
+ */
+public class H2Dialect extends PostgreSqlDialect {
+
+	@Override
+	public String getName() {
+		return Dialects.H2;
+	}
+
+	@Override
+	public String upsert(String table, String[] columns, String[] values, String[] keyColumns, String[] updateColumns) {
+		if(updateColumns.length + keyColumns.length != columns.length){
+			return this.merge(table, columns, values, keyColumns, updateColumns);
+		}
+
+		return
+			"MERGE INTO " + table + " (" + this.columnList(columns) + ") KEY (" + this.columnList(keyColumns) + ")" +
+			" VALUES (" + this.columnList(values) + ")"
+		;
+	}
+
+	/**
+	 * H2 non ammette l'elenco delle colonne dopo l'alias della tabella derivata e non ricava il tipo dei parametri
+	 * di una SELECT senza tabella: le colonne della <code>VALUES</code> (<code>C1</code>, <code>C2</code>, ...)
+	 * vengono rinominate con una SELECT.
+	 */
+	@Override
+	protected String mergeSource(String[] columns, String[] values) {
+		StringBuilder source = new StringBuilder("(SELECT ");
+
+		for(int i = 0; i < columns.length; i++){
+			if(i > 0){
+				source.append(", ");
+			}
+
+			source.append('C').append(i + 1).append(" AS ").append(columns[i]);
+		}
+
+		return source.append(" FROM (VALUES (").append(this.columnList(values)).append("))) ").append(SOURCE_ALIAS).toString();
+	}
+}
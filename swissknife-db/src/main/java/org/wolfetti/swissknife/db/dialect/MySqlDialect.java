@@ -0,0 +1,80 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dialect;
+
+/**
+ * Dialetto MySQL e MariaDB: <code>LIMIT start, limit</code>.
+ * Il caricamento massivo utilizza <code>LOAD DATA LOCAL INFILE</code>: il driver deve permetterlo
+ * (<code>allowLoadLocalInfile=true</code>) e il server deve avere <code>local_infile</code> attivo.
+ * Con <code>LOCAL</code> le righe con chiave duplicata vengono scartate con un warning invece di generare un errore.
+ * L'upsert utilizza <code>INSERT ... ON DUPLICATE KEY UPDATE</code>, che considera tutte le chiavi univoche della tabella
+ * e restituisce 1 riga interessata per un inserimento e 2 per un aggiornamento.
+ *
+ * @author Fabio Frijo
+ */
+public class MySqlDialect extends AbstractDialect {
+
+	@Override
+	public String getName() {
+		return Dialects.MYSQL;
+	}
+
+	@Override
+	public String limit(String sql, int start, int limit) {
+		return start > 0 ?
+			sql + " LIMIT " + start + ", " + limit :
+			sql + " LIMIT " + limit;
+	}
+
+	@Override
+	public int getMaxParameters() {
+		return 65535;
+	}
+
+	@Override
+	public String upsert(String table, String[] columns, String[] values, String[] keyColumns, String[] updateColumns) {
+		StringBuilder sql = new StringBuilder(128)
+			.append("INSERT INTO ").append(table).append(" (").append(this.columnList(columns)).append(")")
+			.append(" VALUES (").append(this.columnList(values)).append(") ON DUPLICATE KEY UPDATE ");
+
+		// Senza colonne da aggiornare la riga esistente resta invariata
+		if(updateColumns.length == 0){
+			return sql.append(keyColumns[0]).append(" = ").append(keyColumns[0]).toString();
+		}
+
+		for(int i = 0; i < updateColumns.length; i++){
+			if(i > 0){
+				sql.append(", ");
+			}
+
+			sql.append(updateColumns[i]).append(" = VALUES(").append(updateColumns[i]).append(')');
+		}
+
+		return sql.toString();
+	}
+
+	@Override
+	public String loadData(String table, String[] columns) {
+		return
+			"LOAD DATA LOCAL INFILE 'sk_bulk.tsv' INTO TABLE " + table + " CHARACTER SET utf8mb4" +
+			" FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'" +
+			" (" + this.columnList(columns) + ")"
+		;
+	}
+}
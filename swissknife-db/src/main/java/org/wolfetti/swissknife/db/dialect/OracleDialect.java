@@ -0,0 +1,66 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dialect;
+
+/**
+ * Dialetto Oracle (12c o successivo): <code>OFFSET start ROWS FETCH NEXT limit ROWS ONLY</code>.
+ * La INSERT di pi&ugrave; righe utilizza <code>INSERT ALL ... SELECT 1 FROM DUAL</code>
+ * e la MERGE dell'upsert legge la riga da <code>DUAL</code>.
+ *
+ * @author Fabio Frijo
+ */
+public class OracleDialect extends AbstractDialect {
+
+	@Override
+	public String getName() {
+		return Dialects.ORACLE;
+	}
+
+	@Override
+	public String limit(String sql, int start, int limit) {
+		return sql + " OFFSET " + Math.max(0, start) + " ROWS FETCH NEXT " + limit + " ROWS ONLY";
+	}
+
+	@Override
+	public String insertRows(String table, String[] columns, int rows) {
+		String into = "INTO " + table + " (" + this.columnList(columns) + ") VALUES " + this.placeholders(columns.length);
+		StringBuilder sql = new StringBuilder(32 + rows * (into.length() + 1)).append("INSERT ALL");
+
+		for(int i = 0; i < rows; i++){
+			sql.append(' ').append(into);
+		}
+
+		return sql.append(" SELECT 1 FROM DUAL").toString();
+	}
+
+	@Override
+	protected String mergeSource(String[] columns, String[] values) {
+		StringBuilder source = new StringBuilder("(SELECT ");
+
+		for(int i = 0; i < columns.length; i++){
+			if(i > 0){
+				source.append(", ");
+			}
+
+			source.append(values[i]).append(' ').append(columns[i]);
+		}
+
+		return source.append(" FROM DUAL) ").append(SOURCE_ALIAS).toString();
+	}
+}
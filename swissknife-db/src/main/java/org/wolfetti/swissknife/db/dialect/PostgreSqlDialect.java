@@ -0,0 +1,63 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dialect;
+
+/**
+ * Dialetto PostgreSQL: <code>LIMIT limit OFFSET start</code>.
+ * L'upsert utilizza <code>INSERT ... ON CONFLICT (chiave) DO UPDATE</code> (PostgreSQL 9.5 o successivo).
+ *
+ * @author Fabio Frijo
+ */
+public class PostgreSqlDialect extends AbstractDialect {
+
+	@Override
+	public String getName() {
+		return Dialects.POSTGRESQL;
+	}
+
+	@Override
+	public String limit(String sql, int start, int limit) {
+		return start > 0 ?
+			sql + " LIMIT " + limit + " OFFSET " + start :
+			sql + " LIMIT " + limit;
+	}
+
+	@Override
+	public String upsert(String table, String[] columns, String[] values, String[] keyColumns, String[] updateColumns) {
+		StringBuilder sql = new StringBuilder(128)
+			.append("INSERT INTO ").append(table).append(" (").append(this.columnList(columns)).append(")")
+			.append(" VALUES (").append(this.columnList(values)).append(")")
+			.append(" ON CONFLICT (").append(this.columnList(keyColumns)).append(")");
+
+		if(updateColumns.length == 0){
+			return sql.append(" DO NOTHING").toString();
+		}
+
+		sql.append(" DO UPDATE SET ");
+		for(int i = 0; i < updateColumns.length; i++){
+			if(i > 0){
+				sql.append(", ");
+			}
+
+			sql.append(updateColumns[i]).append(" = EXCLUDED.").append(updateColumns[i]);
+		}
+
+		return sql.toString();
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dialect;
+
+import org.wolfetti.swissknife.db.utils.SqlClauses;
+
+/**
+ * Dialetto SQL Server (2012 o successivo): <code>OFFSET start ROWS FETCH NEXT limit ROWS ONLY</code>.
+ * La sintassi richiede una ORDER BY: se la query non ne ha una viene aggiunta <code>ORDER BY (SELECT NULL)</code>.
+ * Una INSERT pu&ograve; contenere al massimo 1000 righe e una query 2100 parametri.
+ * La MERGE dell'upsert mantiene il lock sulla chiave (<code>HOLDLOCK</code>) fino al termine del comando, altrimenti
+ * due upsert concorrenti della stessa chiave potrebbero entrambi tentare l'inserimento.
+ *
+ * @author Fabio Frijo
+ */
+public class SqlServerDialect extends AbstractDialect {
+
+	@Override
+	public String getName() {
+		return Dialects.SQLSERVER;
+	}
+
+	@Override
+	public String limit(String sql, int start, int limit) {
+		if(!SqlClauses.contains(sql, "ORDER BY")){
+			sql = sql + " ORDER BY (SELECT NULL)";
+		}
+
+		return sql + " OFFSET " + Math.max(0, start) + " ROWS FETCH NEXT " + limit + " ROWS ONLY";
+	}
+
+	@Override
+	public String upsert(String table, String[] columns, String[] values, String[] keyColumns, String[] updateColumns) {
+		return this.merge(table, columns, values, keyColumns, updateColumns) + ";";
+	}
+
+	@Override
+	protected String mergeTarget(String table) {
+		return table + " WITH (HOLDLOCK) AS " + TARGET_ALIAS;
+	}
+
+	@Override
+	public int getMaxInsertRows() {
+		return 1000;
+	}
+
+	@Override
+	public int getMaxParameters() {
+		return 2100;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Risultato di una scrittura in batch: il numero di righe interessate da ogni riga del batch
+ * e le eventuali chiavi generate dal database.
+ *
+ * @author Fabio Frijo
+ */
+public final class BatchResult extends ApplicationEntity {
+	private static final long serialVersionUID = -3417306045093542861L;
+
+	/**
+	 * Il numero di righe interessate per ogni riga del batch, nell'ordine di inserimento.
+	 * Pu&ograve; contenere {@link java.sql.Statement#SUCCESS_NO_INFO} se il driver non fornisce il dato.
+	 */
+	private int[] updateCounts;
+
+	/**
+	 * Le chiavi generate, nell'ordine restituito dal driver.
+	 */
+	private List<Long> generatedKeys;
+
+	/**
+	 * Il numero di blocchi (e di round trip) eseguiti.
+	 */
+	private int chunks;
+
+	/**
+	 * Crea un risultato vuoto per un batch della dimensione indicata.
+	 *
+	 * @param rows
+	 * 	Il numero di righe del batch
+	 */
+	public BatchResult(int rows) {
+		this.updateCounts = new int[rows];
+		this.generatedKeys = new ArrayList<Long>();
+	}
+
+	/**
+	 * Registra l'esito di un blocco del batch.
+	 *
+	 * @param offset
+	 * 	L'indice della prima riga del blocco
+	 *
+	 * @param counts
+	 * 	Il numero di righe interessate restituito da <code>executeBatch</code>
+	 */
+	public void addChunk(int offset, int[] counts) {
+		System.arraycopy(counts, 0, this.updateCounts, offset, Math.min(counts.length, this.updateCounts.length - offset));
+		this.chunks++;
+	}
+
+	/**
+	 * Aggiunge una chiave generata.
+	 */
+	public void addGeneratedKey(long key) {
+		this.generatedKeys.add(Long.valueOf(key));
+	}
+
+	/**
+	 * @return il numero di righe interessate per ogni riga del batch
+	 */
+	public int[] getUpdateCounts() {
+		return this.updateCounts;
+	}
+
+	/**
+	 * @return il totale delle righe interessate, escluse quelle per le quali il driver non fornisce il dato
+	 */
+	public long getTotalUpdatedRows() {
+		long total = 0;
+		for(int c : this.updateCounts){
+			if(c > 0){
+				total += c;
+			}
+		}
+
+		return total;
+	}
+
+	/**
+	 * @return le chiavi generate dal database
+	 */
+	public List<Long> getGeneratedKeys() {
+		return Collections.unmodifiableList(this.generatedKeys);
+	}
+
+	/**
+	 * @return il numero di blocchi eseguiti
+	 */
+	public int getChunks() {
+		return this.chunks;
+	}
+}
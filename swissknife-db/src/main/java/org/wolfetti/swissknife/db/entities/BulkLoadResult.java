@@ -0,0 +1,148 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.entities;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * L'avanzamento, e al termine il risultato, di un caricamento massivo.
+ *
+ * @author Fabio Frijo
+ */
+public final class BulkLoadResult extends ApplicationEntity {
+	private static final long serialVersionUID = -5530170227719426584L;
+
+	/**
+	 * Il numero di righe lette dalla sorgente e inviate al database
+	 */
+	private long rows;
+
+	/**
+	 * Il numero di righe scritte secondo il database
+	 */
+	private long updatedRows;
+
+	/**
+	 * La dimensione stimata dei dati inviati, in byte
+	 */
+	private long bytes;
+
+	/**
+	 * Il numero di blocchi (e di commit) eseguiti
+	 */
+	private int chunks;
+
+	/**
+	 * Il numero di blocchi caricati con il comando di caricamento massivo del database
+	 */
+	private int loadDataChunks;
+
+	/**
+	 * L'istante di inizio del caricamento
+	 */
+	private final long startTime;
+
+	/**
+	 * L'istante dell'ultimo blocco scritto
+	 */
+	private long lastChunkTime;
+
+	public BulkLoadResult() {
+		this.startTime = System.currentTimeMillis();
+		this.lastChunkTime = this.startTime;
+	}
+
+	/**
+	 * Registra l'esito di un blocco.
+	 *
+	 * @param rows
+	 * 	Il numero di righe del blocco
+	 *
+	 * @param updatedRows
+	 * 	Il numero di righe scritte secondo il database
+	 *
+	 * @param bytes
+	 * 	La dimensione stimata del blocco
+	 *
+	 * @param loadData
+	 * 	<code>true</code> se il blocco &egrave; stato caricato con il comando di caricamento massivo
+	 */
+	public void addChunk(int rows, long updatedRows, long bytes, boolean loadData) {
+		this.rows += rows;
+		this.updatedRows += updatedRows;
+		this.bytes += bytes;
+		this.chunks++;
+
+		if(loadData){
+			this.loadDataChunks++;
+		}
+
+		this.lastChunkTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return il numero di righe lette dalla sorgente e inviate al database
+	 */
+	public long getRows() {
+		return this.rows;
+	}
+
+	/**
+	 * @return il numero di righe scritte secondo il database
+	 */
+	public long getUpdatedRows() {
+		return this.updatedRows;
+	}
+
+	/**
+	 * @return la dimensione stimata dei dati inviati, in byte
+	 */
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * @return il numero di blocchi eseguiti
+	 */
+	public int getChunks() {
+		return this.chunks;
+	}
+
+	/**
+	 * @return il numero di blocchi caricati con il comando di caricamento massivo del database
+	 */
+	public int getLoadDataChunks() {
+		return this.loadDataChunks;
+	}
+
+	/**
+	 * @return il tempo trascorso dall'inizio del caricamento all'ultimo blocco, in millisecondi
+	 */
+	public long getElapsedMillis() {
+		return this.lastChunkTime - this.startTime;
+	}
+
+	/**
+	 * @return il numero medio di righe al secondo
+	 */
+	public double getRowsPerSecond() {
+		long elapsed = this.getElapsedMillis();
+		return elapsed > 0 ? this.rows * 1000d / elapsed : 0d;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.entities;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Le statistiche di utilizzo di una cache in un determinato istante.
+ *
+ * @author Fabio Frijo
+ */
+public final class CacheStats extends ApplicationEntity {
+	private static final long serialVersionUID = 6121406735381729215L;
+
+	/**
+	 * Il numero di letture servite dalla cache
+	 */
+	private final long hits;
+
+	/**
+	 * Il numero di letture che sono andate sul database
+	 */
+	private final long misses;
+
+	/**
+	 * Il numero di elementi rimossi per far posto ad altri
+	 */
+	private final long evictions;
+
+	/**
+	 * Il numero di elementi scaduti
+	 */
+	private final long expirations;
+
+	/**
+	 * Il numero di elementi invalidati da una scrittura
+	 */
+	private final long invalidations;
+
+	/**
+	 * Il numero di elementi presenti in cache
+	 */
+	private final int size;
+
+	public CacheStats(long hits, long misses, long evictions, long expirations, long invalidations, int size) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+		this.invalidations = invalidations;
+		this.size = size;
+	}
+
+	/**
+	 * @return il numero di letture servite dalla cache
+	 */
+	public long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * @return il numero di letture che sono andate sul database
+	 */
+	public long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * @return il numero di elementi rimossi per far posto ad altri
+	 */
+	public long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * @return il numero di elementi scaduti
+	 */
+	public long getExpirations() {
+		return this.expirations;
+	}
+
+	/**
+	 * @return il numero di elementi invalidati da una scrittura
+	 */
+	public long getInvalidations() {
+		return this.invalidations;
+	}
+
+	/**
+	 * @return il numero di elementi presenti in cache
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * @return la percentuale di letture servite dalla cache, tra 0 e 1
+	 */
+	public double getHitRatio() {
+		long requests = this.hits + this.misses;
+		return requests == 0 ? 0d : (double) this.hits / requests;
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.entities;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Un connettore aperto e non ancora chiuso, con il punto di apertura
+ * (vedi {@link org.wolfetti.swissknife.db.utils.ConnectorTracker}).
+ *
+ * @author Fabio Frijo
+ */
+public final class ConnectorHolder extends ApplicationEntity {
+	private static final long serialVersionUID = 6310427795319804412L;
+
+	/**
+	 * Il numero di frames dello stack di apertura riportati da {@link #toString()}
+	 */
+	private static final int TO_STRING_FRAMES = 8;
+
+	/**
+	 * Il progressivo del connettore
+	 */
+	private final long id;
+
+	/**
+	 * Il nome del datasource
+	 */
+	private final String datasource;
+
+	/**
+	 * Flag che indica se il connettore &egrave; in transazione
+	 */
+	private final boolean transaction;
+
+	/**
+	 * Il thread che ha aperto il connettore
+	 */
+	private final String thread;
+
+	/**
+	 * L'istante di apertura
+	 */
+	private final long acquiredAt;
+
+	/**
+	 * Il tempo trascorso dall'apertura
+	 */
+	private final long heldMillis;
+
+	/**
+	 * Lo stack del thread al momento dell'apertura, a partire dal chiamante della libreria
+	 */
+	private final StackTraceElement[] stack;
+
+	public ConnectorHolder(long id, String datasource, boolean transaction, String thread, long acquiredAt, long heldMillis, StackTraceElement[] stack) {
+		this.id = id;
+		this.datasource = datasource;
+		this.transaction = transaction;
+		this.thread = thread;
+		this.acquiredAt = acquiredAt;
+		this.heldMillis = heldMillis;
+		this.stack = stack;
+	}
+
+	/**
+	 * @return il progressivo del connettore
+	 */
+	public long getId() {
+		return this.id;
+	}
+
+	/**
+	 * @return il nome del datasource
+	 */
+	public String getDatasource() {
+		return this.datasource;
+	}
+
+	/**
+	 * @return <code>true</code> se il connettore &egrave; in transazione
+	 */
+	public boolean isTransaction() {
+		return this.transaction;
+	}
+
+	/**
+	 * @return il nome del thread che ha aperto il connettore
+	 */
+	public String getThread() {
+		return this.thread;
+	}
+
+	/**
+	 * @return l'istante di apertura
+	 */
+	public long getAcquiredAt() {
+		return this.acquiredAt;
+	}
+
+	/**
+	 * @return il tempo trascorso dall'apertura, in millisecondi
+	 */
+	public long getHeldMillis() {
+		return this.heldMillis;
+	}
+
+	/**
+	 * @return lo stack del thread al momento dell'apertura, a partire dal chiamante della libreria
+	 */
+	public StackTraceElement[] getStack() {
+		return this.stack.clone();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder(String.format(
+			"#%d %s%s aperto da %.1fs il %s [%s]",
+			this.id, this.datasource, this.transaction ? " (transazione)" : "", this.heldMillis / 1000d,
+			new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(this.acquiredAt)), this.thread
+		));
+
+		int frames = Math.min(TO_STRING_FRAMES, this.stack.length);
+		for(int i = 0; i < frames; i++){
+			result.append("\n\tat ").append(this.stack[i]);
+		}
+
+		if(frames < this.stack.length){
+			result.append("\n\t... ").append(this.stack.length - frames).append(" more");
+		}
+
+		return result.toString();
+	}
+}
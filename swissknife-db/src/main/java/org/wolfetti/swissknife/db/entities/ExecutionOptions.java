@@ -0,0 +1,141 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.entities;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Le opzioni di esecuzione di una singola query.<br>
+ * Le opzioni non impostate (<code>null</code>) mantengono il comportamento predefinito del connettore:
+ * <ul>
+ * 	<li><b>queryTimeout</b>: il timeout in secondi configurato con <code>sk.db.queryTimeout</code> (nessun timeout se non configurato);</li>
+ * 	<li><b>maxRows</b>: nessun limite di righe;</li>
+ * 	<li><b>fetchSize</b>: la fetch size configurata con <code>sk.db.fetchsize</code>;</li>
+ * 	<li><b>generatedKeys</b>: le chiavi generate vengono lette solo per le query <code>INSERT</code>,
+ * 		<code>MERGE</code>, <code>REPLACE</code> e <code>UPSERT</code>;</li>
+ * 	<li><b>keyColumns</b>: viene letta la chiave generata scelta dal driver.</li>
+ * </ul>
+ *
+ * @author Fabio Frijo
+ */
+public class ExecutionOptions extends ApplicationEntity {
+	private static final long serialVersionUID = -2260857385117640216L;
+
+	/**
+	 * Il timeout della query in secondi, <code>0</code> per nessun timeout
+	 */
+	private Integer queryTimeout;
+
+	/**
+	 * Il numero massimo di righe lette, <code>0</code> per nessun limite
+	 */
+	private Integer maxRows;
+
+	/**
+	 * La fetch size della query
+	 */
+	private Integer fetchSize;
+
+	/**
+	 * Flag che indica se vanno lette le chiavi generate dalla query di scrittura
+	 */
+	private Boolean generatedKeys;
+
+	/**
+	 * Le colonne delle chiavi generate da leggere, per le chiavi composte o non scelte dal driver
+	 */
+	private String[] keyColumns;
+
+	/**
+	 * @return il timeout della query in secondi, o <code>null</code> per quello del connettore
+	 */
+	public Integer getQueryTimeout() {
+		return this.queryTimeout;
+	}
+
+	/**
+	 * @param queryTimeout il timeout della query in secondi, <code>0</code> per nessun timeout
+	 */
+	public void setQueryTimeout(Integer queryTimeout) {
+		this.queryTimeout = queryTimeout;
+	}
+
+	/**
+	 * @return il numero massimo di righe lette, o <code>null</code> per nessun limite
+	 */
+	public Integer getMaxRows() {
+		return this.maxRows;
+	}
+
+	/**
+	 * @param maxRows il numero massimo di righe lette, <code>0</code> per nessun limite
+	 */
+	public void setMaxRows(Integer maxRows) {
+		this.maxRows = maxRows;
+	}
+
+	/**
+	 * @return la fetch size della query, o <code>null</code> per quella del connettore
+	 */
+	public Integer getFetchSize() {
+		return this.fetchSize;
+	}
+
+	/**
+	 * @param fetchSize la fetch size della query
+	 */
+	public void setFetchSize(Integer fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * @return <code>true</code> o <code>false</code> se la lettura delle chiavi generate &egrave; forzata,
+	 * 	<code>null</code> se dipende dal tipo di query
+	 */
+	public Boolean getGeneratedKeys() {
+		return this.generatedKeys;
+	}
+
+	/**
+	 * @param generatedKeys <code>true</code> per leggere le chiavi generate, <code>false</code> per non leggerle
+	 */
+	public void setGeneratedKeys(Boolean generatedKeys) {
+		this.generatedKeys = generatedKeys;
+	}
+
+	/**
+	 * @return le colonne delle chiavi generate da leggere, o <code>null</code>
+	 */
+	public String[] getKeyColumns() {
+		return this.keyColumns;
+	}
+
+	/**
+	 * Imposta le colonne delle chiavi generate da leggere e attiva la lettura delle chiavi generate.
+	 *
+	 * @param keyColumns le colonne delle chiavi generate, es. <code>{"id", "version"}</code>
+	 */
+	public void setKeyColumns(String ... keyColumns) {
+		this.keyColumns = keyColumns == null || keyColumns.length == 0 ? null : keyColumns;
+
+		if(this.keyColumns != null){
+			this.generatedKeys = Boolean.TRUE;
+		}
+	}
+}
@@ -18,11 +18,13 @@
  */
 package org.wolfetti.swissknife.db.entities;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.wolfetti.swissknife.common.business.ApplicationEntity;
 import org.wolfetti.swissknife.common.utils.ListUtils;
 import org.wolfetti.swissknife.common.utils.StringUtils;
+import org.wolfetti.swissknife.db.utils.SearchCompiler;
 
 /**
  * Classe ideata per fare da container ai campi ed al tipo di eventuali ricerche implementate lato client.
@@ -33,9 +35,14 @@ public final class Search extends ApplicationEntity {
 	private static final long serialVersionUID = -7045794582870386779L;
 
 	/**
-	 * La stringa compilata per comporre la query SQL.
+	 * La condizione compilata per comporre la query SQL, con i parametri <code>?</code>.
 	 */
-	private StringBuffer compiledQuery;
+	private transient String compiledCondition;
+
+	/**
+	 * I valori dei parametri della condizione compilata.
+	 */
+	private transient Object[] parameters;
 
 	/**
 	 * La stringa da cercare all'interno del database.
@@ -43,7 +50,7 @@ public final class Search extends ApplicationEntity {
 	private String query;
 
 	/**
-	 * La stringa da cercare all'interno del database.
+	 * L'operatore da anteporre alla condizione di ricerca.
 	 */
 	private String sqlOperator;
 
@@ -101,12 +108,50 @@ public final class Search extends ApplicationEntity {
 	}
 
 	/**
-	 * Compila la stringa di ricerca in base al tipo di ricerca utilizzato.
+	 * Compila la condizione di ricerca in base al tipo di ricerca utilizzato.
+	 * La condizione contiene un parametro <code>?</code> per ogni termine e colonna,
+	 * i cui valori vengono restituiti da {@link #getParameters()}.
+	 */
+	private void compileSearchQuery(){
+
+		// Controllo che la query non sia stata compilata in precedenza.
+		// In caso di sostituzione della query, delle colonne o del tipo di ricerca, la condizione compilata
+		// viene riportata a NULL dai setters interessati, in maniera che al primo accesso
+		// a questo metodo la condizione venga compilata ex novo.
+		if(null != this.compiledCondition){
+			return;
+		}
+
+		// E' inutile eseguire la compilazione se la query e' NULL o vuota
+		// o se non sono state specificate delle colonne sulle quali effettuare la ricerca.
+		List<String> terms = this.isValid() ? SearchCompiler.tokenize(this.query) : Collections.<String>emptyList();
+
+		this.parameters = SearchCompiler.parameters(terms, terms.isEmpty() ? 0 : this.columns.size(), this.searchType);
+		this.compiledCondition = SearchCompiler.compile(this.columns, this.sqlOperator, terms.size());
+	}
+
+	/**
+	 * Restituisce la condizione SQL di ricerca, con un parametro <code>?</code> per ogni termine e colonna,
+	 * oppure una stringa vuota se la ricerca non &egrave; {@link #isValid() valida}.
+	 * I valori dei parametri sono restituiti da {@link #getParameters()}.
+	 */
+	public String getCondition() {
+		this.compileSearchQuery();
+		return this.compiledCondition;
+	}
+
+	/**
+	 * Restituisce la condizione SQL di ricerca con la stringa cercata inserita come letterale
+	 * (con i caratteri di escape di MySQL), oppure una stringa vuota se la ricerca non &egrave; {@link #isValid() valida}.
 	 *
-	 * @param searchQuery
-	 * @return
+	 * @return the search
+	 *
+	 * @deprecated
+	 * 	La condizione non usa parametri in binding e cambia ad ogni stringa cercata:
+	 * 	utilizzare {@link #getCondition()} con {@link #getParameters()}.
 	 */
-	private String compileSearchQuery(){
+	@Deprecated
+	public String getQuery() {
 
 		// E' inutile eseguire la compilazione se la query e' NULL o vuota
 		// o se non sono state specificate delle colonne sulle quali effettuare la ricerca.
@@ -114,65 +159,75 @@ public final class Search extends ApplicationEntity {
 			return "";
 		}
 
-		// Controllo che la query non sia stata compilata in precedenza.
-		// In caso di sostituzione della query o del tipo di ricerca, la query compilata
-		// viene riportata a NULL dai setters interessati, in maniera che al primo accesso
-		// a questo metodo la query venga compilata ex novo.
-		if(null == this.compiledQuery){
-
-			String searchQuery = String.copyValueOf(this.query.toCharArray());
-			this.compiledQuery = new StringBuffer((10 + searchQuery.length()) * this.columns.size());
-
-			if(StringUtils.isNotEmptyOrNull(this.sqlOperator)){
-				this.compiledQuery.append(" ");
-				this.compiledQuery.append(this.sqlOperator);
-			}
-
-			this.compiledQuery.append(" (");
+		String searchQuery = this.query;
+		StringBuilder compiledQuery = new StringBuilder((10 + searchQuery.length()) * this.columns.size());
 
-			/* ---------------------------------------------------------------------------------- */
-			/* TODO Questo sotto e' valido solo per mysql. Implementare una risoluzione dinamica. */
-			/* ---------------------------------------------------------------------------------- */
-			/* ------------- */ searchQuery = searchQuery.replace("\\", "\\\\"); /* ------------- */
-			/* ------------- */ searchQuery = searchQuery.replace("%",  "\\%");  /* ------------- */
-			/* ------------- */ searchQuery = searchQuery.replace("_",  "\\_");  /* ------------- */
-			/* ------------- */ searchQuery = searchQuery.replace("'",  "''");   /* ------------- */
-			/* ---------------------------------------------------------------------------------- */
+		if(StringUtils.isNotEmptyOrNull(this.sqlOperator)){
+			compiledQuery.append(" ");
+			compiledQuery.append(this.sqlOperator);
+		}
 
-			searchQuery = this.searchType.compile(searchQuery);
+		compiledQuery.append(" (");
 
-			for (int i = 0, l = this.columns.size(); i < l; i++){
-				if(i > 0){
-					this.compiledQuery.append(" OR ");
-				}
+		searchQuery = searchQuery.replace("\\", "\\\\");
+		searchQuery = searchQuery.replace("%",  "\\%");
+		searchQuery = searchQuery.replace("_",  "\\_");
+		searchQuery = searchQuery.replace("'",  "''");
+		searchQuery = this.searchType.compile(searchQuery);
 
-				this.compiledQuery.append(this.columns.get(i));
-				this.compiledQuery.append(" = '");
-				this.compiledQuery.append(searchQuery);
-				this.compiledQuery.append("'");
+		for (int i = 0, l = this.columns.size(); i < l; i++){
+			if(i > 0){
+				compiledQuery.append(" OR ");
 			}
 
-			this.compiledQuery.append(")");
+			compiledQuery.append(this.columns.get(i));
+			compiledQuery.append(" = '");
+			compiledQuery.append(searchQuery);
+			compiledQuery.append("'");
 		}
 
-		return this.compiledQuery.toString();
+		compiledQuery.append(")");
+		return compiledQuery.toString();
 	}
 
 	/**
-	 * @return the search
+	 * Restituisce i valori da associare ai parametri della condizione restituita da {@link #getCondition()}.
 	 */
-	public String getQuery() {
-		return this.compileSearchQuery();
+	public Object[] getParameters() {
+		this.compileSearchQuery();
+		return this.parameters.clone();
+	}
+
+	/**
+	 * Restituisce la stringa da cercare, cos&igrave; come &egrave; stata impostata.
+	 */
+	public String getText() {
+		return this.query;
 	}
 
 	/**
 	 * @param query the search to set
 	 */
 	public void setQuery(String query) {
-		this.compiledQuery = null;
+		this.compiledCondition = null;
 		this.query = query;
 	}
 
+	/**
+	 * @return the sqlOperator
+	 */
+	public String getSqlOperator() {
+		return this.sqlOperator;
+	}
+
+	/**
+	 * @param sqlOperator the sqlOperator to set
+	 */
+	public void setSqlOperator(String sqlOperator) {
+		this.compiledCondition = null;
+		this.sqlOperator = sqlOperator;
+	}
+
 	/**
 	 * @return the columns
 	 */
@@ -184,6 +239,7 @@ public final class Search extends ApplicationEntity {
 	 * @param columns the columns to set
 	 */
 	public void setColumns(List<String> columns) {
+		this.compiledCondition = null;
 		this.columns = columns;
 	}
 
@@ -198,7 +254,14 @@ public final class Search extends ApplicationEntity {
 	 * @param type the type to set
 	 */
 	public void setSearchType(SearchType type) {
-		this.compiledQuery = null;
+		this.compiledCondition = null;
 		this.searchType = type;
 	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getName() + "@" + System.identityHashCode(this) +
+			" [query=" + this.query + ", sqlOperator=" + this.sqlOperator +
+			", columns=" + this.columns + ", searchType=" + this.searchType + "]";
+	}
 }
@@ -26,24 +26,34 @@ package org.wolfetti.swissknife.db.entities;
 public enum SearchType {
 
 	/**
-	 * Tipo che rappresenta una ricerca di tutti i valori che iniziano con il valore in ingresso al metodo {@link #getLike(String)}
+	 * Tipo che rappresenta una ricerca di tutti i valori che iniziano con il valore in ingresso al metodo {@link #compile(String)}
 	 */
 	STARTS("{VALUE}%"),
 
 	/**
-	 * Tipo che rappresenta una ricerca di tutti i valori che contengono il valore in ingresso al metodo {@link #getLike(String)}
+	 * Tipo che rappresenta una ricerca di tutti i valori che contengono il valore in ingresso al metodo {@link #compile(String)}
 	 */
 	CONTAINS("%{VALUE}%"),
 
 	/**
-	 * Tipo che rappresenta una ricerca di tutti i valori che terminano con il valore in ingresso al metodo {@link #getLike(String)}
+	 * Tipo che rappresenta una ricerca di tutti i valori che terminano con il valore in ingresso al metodo {@link #compile(String)}
 	 */
 	ENDS("%{VALUE}");
 
 	/**
-	 * La formula utilizzata per effettuare la like
+	 * Il segnaposto del valore all'interno della formula
 	 */
-	private String likeExpression;
+	private static final String VALUE = "{VALUE}";
+
+	/**
+	 * Il testo della formula che precede il valore
+	 */
+	private final String prefix;
+
+	/**
+	 * Il testo della formula che segue il valore
+	 */
+	private final String suffix;
 
 	/**
 	 * Costruttore che imposta la formula per creare l'espressione LIKE appropriata per il tipo di ricerca.
@@ -51,16 +61,28 @@ public enum SearchType {
 	 * @param likeExpression
 	 */
 	private SearchType(String likeExpression){
-		this.likeExpression = likeExpression;
+		int index = likeExpression.indexOf(VALUE);
+		this.prefix = likeExpression.substring(0, index);
+		this.suffix = likeExpression.substring(index + VALUE.length());
 	}
 
 	/**
 	 * Compila l'espressione LIKE con il valore corretto.
+	 * Il valore non viene modificato: eventuali caratteri jolly vanno gi&agrave; protetti con
+	 * {@link org.wolfetti.swissknife.db.utils.SearchCompiler#escape(String) SearchCompiler.escape(String)}.
 	 *
 	 * @param value
 	 * @return
 	 */
 	public String compile(String value){
-		return this.likeExpression.replaceAll("{VALUE}", value);
+		return this.prefix + value + this.suffix;
+	}
+
+	/**
+	 * Restituisce <code>true</code> se l'espressione non inizia con un carattere jolly,
+	 * e pu&ograve; quindi essere risolta tramite un indice sulla colonna.
+	 */
+	public boolean isPrefixSearch(){
+		return this.prefix.length() == 0;
 	}
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.entities;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Un'esecuzione registrata nel log delle query lente (vedi {@link org.wolfetti.swissknife.db.utils.SqlProfiler}).
+ *
+ * @author Fabio Frijo
+ */
+public final class SlowQuery extends ApplicationEntity {
+	private static final long serialVersionUID = -2874107322810951738L;
+
+	/**
+	 * L'istante di fine dell'esecuzione
+	 */
+	private final long timestamp;
+
+	/**
+	 * La chiave della query nel file SQL, oppure la query normalizzata
+	 */
+	private final String label;
+
+	/**
+	 * La query eseguita, eventualmente troncata
+	 */
+	private final String sql;
+
+	/**
+	 * Un riepilogo dei parametri, limitato nel numero e nella lunghezza dei valori
+	 */
+	private final String parameters;
+
+	/**
+	 * Il tempo di esecuzione
+	 */
+	private final double millis;
+
+	/**
+	 * Flag che indica se l'esecuzione &egrave; fallita
+	 */
+	private final boolean failed;
+
+	/**
+	 * Il thread che ha eseguito la query
+	 */
+	private final String thread;
+
+	public SlowQuery(long timestamp, String label, String sql, String parameters, double millis, boolean failed, String thread) {
+		this.timestamp = timestamp;
+		this.label = label;
+		this.sql = sql;
+		this.parameters = parameters;
+		this.millis = millis;
+		this.failed = failed;
+		this.thread = thread;
+	}
+
+	/**
+	 * @return l'istante di fine dell'esecuzione
+	 */
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+	/**
+	 * @return la chiave della query nel file SQL, oppure la query normalizzata
+	 */
+	public String getLabel() {
+		return this.label;
+	}
+
+	/**
+	 * @return la query eseguita, eventualmente troncata
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * @return il riepilogo dei parametri, <code>null</code> se la query non era parametrizzata
+	 */
+	public String getParameters() {
+		return this.parameters;
+	}
+
+	/**
+	 * @return il tempo di esecuzione in millisecondi
+	 */
+	public double getMillis() {
+		return this.millis;
+	}
+
+	/**
+	 * @return <code>true</code> se l'esecuzione &egrave; fallita
+	 */
+	public boolean isFailed() {
+		return this.failed;
+	}
+
+	/**
+	 * @return il nome del thread che ha eseguito la query
+	 */
+	public String getThread() {
+		return this.thread;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+			"%s %.1fms%s [%s] %s: %s%s",
+			new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(this.timestamp)),
+			this.millis, this.failed ? " FAILED" : "", this.thread, this.label, this.sql,
+			this.parameters != null ? " " + this.parameters : ""
+		);
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.entities;
+
+/**
+ * Enumerazione che rappresenta la categoria di un errore SQL, indipendentemente dal driver
+ * (vedi {@link org.wolfetti.swissknife.db.utils.SqlErrors}).
+ *
+ * @author Fabio Frijo
+ */
+public enum SqlErrorType {
+
+	/**
+	 * Deadlock o errore di serializzazione: il database ha annullato la transazione (o l'istruzione in autocommit)
+	 */
+	DEADLOCK(true, false),
+
+	/**
+	 * Timeout nell'attesa di un lock: l'istruzione &egrave; stata annullata
+	 */
+	LOCK_TIMEOUT(true, false),
+
+	/**
+	 * Connessione persa o non disponibile: l'esito di un'eventuale scrittura non &egrave; noto
+	 */
+	CONNECTION(true, false),
+
+	/**
+	 * Violazione di una chiave primaria o di un vincolo di unicit&agrave;
+	 */
+	DUPLICATE_KEY(false, true),
+
+	/**
+	 * Violazione di una chiave esterna: riga referenziata mancante o righe collegate ancora presenti
+	 */
+	FOREIGN_KEY(false, true),
+
+	/**
+	 * Valore <code>null</code> in una colonna obbligatoria
+	 */
+	NOT_NULL(false, true),
+
+	/**
+	 * Violazione di un altro vincolo di integrit&agrave; (es. <code>CHECK</code>)
+	 */
+	CONSTRAINT(false, true),
+
+	/**
+	 * Qualsiasi altro errore
+	 */
+	OTHER(false, false);
+
+	/**
+	 * Flag che indica se l'errore pu&ograve; non ripetersi eseguendo di nuovo l'operazione
+	 */
+	private boolean transientError;
+
+	/**
+	 * Flag che indica se l'errore &egrave; la violazione di un vincolo di integrit&agrave;
+	 */
+	private boolean constraint;
+
+	private SqlErrorType(boolean transientError, boolean constraint){
+		this.transientError = transientError;
+		this.constraint = constraint;
+	}
+
+	/**
+	 * @return <code>true</code> se l'errore pu&ograve; non ripetersi eseguendo di nuovo l'operazione
+	 */
+	public boolean isTransient(){
+		return this.transientError;
+	}
+
+	/**
+	 * @return <code>true</code> se l'errore &egrave; la violazione di un vincolo di integrit&agrave;
+	 */
+	public boolean isConstraint(){
+		return this.constraint;
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.entities;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Le statistiche di esecuzione di una query in un determinato istante (vedi {@link org.wolfetti.swissknife.db.utils.SqlProfiler}).
+ * I tempi sono in millisecondi e i percentili hanno un errore massimo del 25%.
+ *
+ * @author Fabio Frijo
+ */
+public final class SqlStats extends ApplicationEntity {
+	private static final long serialVersionUID = 4018231935611750623L;
+
+	/**
+	 * La chiave della query nel file SQL, oppure la query normalizzata
+	 */
+	private final String label;
+
+	/**
+	 * Il numero di esecuzioni
+	 */
+	private final long count;
+
+	/**
+	 * Il numero di esecuzioni fallite
+	 */
+	private final long errors;
+
+	/**
+	 * Il numero di righe lette o scritte
+	 */
+	private final long rows;
+
+	/**
+	 * Il tempo totale di esecuzione
+	 */
+	private final double totalMillis;
+
+	/**
+	 * Il tempo massimo di esecuzione
+	 */
+	private final double maxMillis;
+
+	private final double p50Millis;
+	private final double p95Millis;
+	private final double p99Millis;
+
+	public SqlStats(String label, long count, long errors, long rows, double totalMillis, double maxMillis, double p50Millis, double p95Millis, double p99Millis) {
+		this.label = label;
+		this.count = count;
+		this.errors = errors;
+		this.rows = rows;
+		this.totalMillis = totalMillis;
+		this.maxMillis = maxMillis;
+		this.p50Millis = p50Millis;
+		this.p95Millis = p95Millis;
+		this.p99Millis = p99Millis;
+	}
+
+	/**
+	 * @return la chiave della query nel file SQL, oppure la query normalizzata
+	 */
+	public String getLabel() {
+		return this.label;
+	}
+
+	/**
+	 * @return il numero di esecuzioni
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return il numero di esecuzioni fallite
+	 */
+	public long getErrors() {
+		return this.errors;
+	}
+
+	/**
+	 * @return il numero di righe lette o scritte
+	 */
+	public long getRows() {
+		return this.rows;
+	}
+
+	/**
+	 * @return il tempo totale di esecuzione
+	 */
+	public double getTotalMillis() {
+		return this.totalMillis;
+	}
+
+	/**
+	 * @return il tempo medio di esecuzione
+	 */
+	public double getMeanMillis() {
+		return this.count > 0 ? this.totalMillis / this.count : 0d;
+	}
+
+	/**
+	 * @return il tempo massimo di esecuzione
+	 */
+	public double getMaxMillis() {
+		return this.maxMillis;
+	}
+
+	/**
+	 * @return il tempo entro il quale termina la met&agrave; delle esecuzioni
+	 */
+	public double getP50Millis() {
+		return this.p50Millis;
+	}
+
+	/**
+	 * @return il tempo entro il quale termina il 95% delle esecuzioni
+	 */
+	public double getP95Millis() {
+		return this.p95Millis;
+	}
+
+	/**
+	 * @return il tempo entro il quale termina il 99% delle esecuzioni
+	 */
+	public double getP99Millis() {
+		return this.p99Millis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+			"%s count=%d errors=%d rows=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms total=%.0fms",
+			this.label, this.count, this.errors, this.rows, this.getMeanMillis(),
+			this.p50Millis, this.p95Millis, this.p99Millis, this.maxMillis, this.totalMillis
+		);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Risultato di una singola query di scrittura: il numero di righe interessate
+ * e le eventuali chiavi generate dal database.
+ *
+ * @author Fabio Frijo
+ */
+public final class WriteResult extends ApplicationEntity {
+	private static final long serialVersionUID = 5209712386433405817L;
+
+	/**
+	 * Il numero di righe interessate dalla query
+	 */
+	private int updatedRows;
+
+	/**
+	 * Le chiavi generate numeriche (la prima colonna di ogni riga), nell'ordine restituito dal driver.
+	 */
+	private List<Long> generatedKeys;
+
+	/**
+	 * Le righe delle chiavi generate, con tutte le colonne richieste (es. chiavi composte)
+	 */
+	private List<Object[]> generatedKeyRows;
+
+	/**
+	 * Crea il risultato di una query che ha interessato il numero di righe indicato.
+	 */
+	public WriteResult(int updatedRows) {
+		this.updatedRows = updatedRows;
+		this.generatedKeys = new ArrayList<Long>(1);
+	}
+
+	/**
+	 * Aggiunge una chiave generata.
+	 */
+	public void addGeneratedKey(long key) {
+		this.generatedKeys.add(Long.valueOf(key));
+	}
+
+	/**
+	 * Aggiunge una riga di chiavi generate: se la prima colonna &egrave; numerica
+	 * viene aggiunta anche alle chiavi restituite da {@link #getGeneratedKeys()}.
+	 */
+	public void addGeneratedKeyRow(Object[] values) {
+		if(this.generatedKeyRows == null){
+			this.generatedKeyRows = new ArrayList<Object[]>(1);
+		}
+
+		this.generatedKeyRows.add(values);
+
+		if(values.length > 0 && values[0] instanceof Number){
+			this.addGeneratedKey(((Number) values[0]).longValue());
+		}
+	}
+
+	/**
+	 * @return il numero di righe interessate dalla query
+	 */
+	public int getUpdatedRows() {
+		return this.updatedRows;
+	}
+
+	/**
+	 * @return la prima chiave generata, o <code>null</code> se la query non ha generato chiavi
+	 */
+	public Long getGeneratedKey() {
+		return this.generatedKeys.isEmpty() ? null : this.generatedKeys.get(0);
+	}
+
+	/**
+	 * @return le chiavi generate dal database
+	 */
+	public List<Long> getGeneratedKeys() {
+		return Collections.unmodifiableList(this.generatedKeys);
+	}
+
+	/**
+	 * @return le righe delle chiavi generate, con una colonna per ogni colonna di chiave richiesta
+	 */
+	public List<Object[]> getGeneratedKeyRows() {
+		if(this.generatedKeyRows == null){
+			return Collections.emptyList();
+		}
+
+		return Collections.unmodifiableList(this.generatedKeyRows);
+	}
+}
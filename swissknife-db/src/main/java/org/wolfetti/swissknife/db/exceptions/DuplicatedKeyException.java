@@ -28,6 +28,16 @@ import org.wolfetti.swissknife.common.business.ApplicationException;
 public class DuplicatedKeyException extends ApplicationException {
 	private static final long serialVersionUID = -7769592971361809141L;
 
+	/**
+	 * Il numero di blocchi di una scrittura in batch confermati prima dell'errore
+	 */
+	private int committedChunks;
+
+	/**
+	 * Il numero di righe di una scrittura in batch confermate prima dell'errore
+	 */
+	private long committedRows;
+
 	/**
 	 * @param message
 	 * @param cause
@@ -36,10 +46,39 @@ public class DuplicatedKeyException extends ApplicationException {
 		super(message, cause);
 	}
 
+	/**
+	 * Eccezione di una scrittura a blocchi interrotta: i blocchi confermati prima dell'errore restano scritti.
+	 *
+	 * @param committedChunks
+	 * 	Il numero di blocchi confermati prima dell'errore
+	 *
+	 * @param committedRows
+	 * 	Il numero di righe confermate prima dell'errore
+	 */
+	public DuplicatedKeyException(String message, Throwable cause, int committedChunks, long committedRows) {
+		super(message + " (" + committedRows + " righe confermate in " + committedChunks + " blocchi)", cause);
+		this.committedChunks = committedChunks;
+		this.committedRows = committedRows;
+	}
+
 	/**
 	 * @param message
 	 */
 	public DuplicatedKeyException(String message) {
 		super(message);
 	}
+
+	/**
+	 * @return il numero di blocchi di una scrittura in batch confermati prima dell'errore
+	 */
+	public int getCommittedChunks() {
+		return this.committedChunks;
+	}
+
+	/**
+	 * @return il numero di righe di una scrittura in batch confermate prima dell'errore
+	 */
+	public long getCommittedRows() {
+		return this.committedRows;
+	}
 }
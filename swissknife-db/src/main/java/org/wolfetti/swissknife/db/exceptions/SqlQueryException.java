@@ -32,6 +32,16 @@ public class SqlQueryException extends ApplicationException {
 
 	private String sql;
 
+	/**
+	 * Il numero di blocchi di una scrittura in batch confermati prima dell'errore
+	 */
+	private int committedChunks;
+
+	/**
+	 * Il numero di righe di una scrittura in batch confermate prima dell'errore
+	 */
+	private long committedRows;
+
 	/**
 	 *
 	 */
@@ -48,6 +58,22 @@ public class SqlQueryException extends ApplicationException {
 		this.sql = sql;
 	}
 
+	/**
+	 * Eccezione di una scrittura a blocchi interrotta: i blocchi confermati prima dell'errore restano scritti.
+	 *
+	 * @param committedChunks
+	 * 	Il numero di blocchi confermati prima dell'errore
+	 *
+	 * @param committedRows
+	 * 	Il numero di righe confermate prima dell'errore
+	 */
+	public SqlQueryException(String sql, String message, Throwable cause, int committedChunks, long committedRows) {
+		super(message + " (" + committedRows + " righe confermate in " + committedChunks + " blocchi)", cause);
+		this.sql = sql;
+		this.committedChunks = committedChunks;
+		this.committedRows = committedRows;
+	}
+
 	/**
 	 * @param message
 	 */
@@ -62,4 +88,18 @@ public class SqlQueryException extends ApplicationException {
 	public String getSql() {
 		return this.sql;
 	}
+
+	/**
+	 * @return il numero di blocchi di una scrittura in batch confermati prima dell'errore
+	 */
+	public int getCommittedChunks() {
+		return this.committedChunks;
+	}
+
+	/**
+	 * @return il numero di righe di una scrittura in batch confermate prima dell'errore
+	 */
+	public long getCommittedRows() {
+		return this.committedRows;
+	}
 }
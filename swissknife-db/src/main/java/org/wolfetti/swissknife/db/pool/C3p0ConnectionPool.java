@@ -0,0 +1,117 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.pool;
+
+import java.beans.PropertyVetoException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants;
+import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+
+/**
+ * Connection pool basato su c3p0.
+ *
+ * @author Fabio Frijo
+ */
+public class C3p0ConnectionPool implements ConnectionPool {
+
+	/**
+	 * Il datasource di c3p0
+	 */
+	private final ComboPooledDataSource cpds;
+
+	/**
+	 * Crea il pool in base alla configurazione del connettore.
+	 *
+	 * @param conf
+	 * 	La configurazione della connessione
+	 */
+	public C3p0ConnectionPool(Configuration conf) {
+		cpds = new ComboPooledDataSource();
+
+		try {
+
+			// Mandatory config options
+			cpds.setDriverClass(conf.getString(SKConstants.CONF.DB.KEY_DRIVER));
+			cpds.setJdbcUrl(conf.getString(SKConstants.CONF.DB.KEY_URL));
+			cpds.setUser(conf.getString(SKConstants.CONF.DB.KEY_USER));
+			cpds.setPassword(conf.getString(SKConstants.CONF.DB.KEY_PASSWORD));
+
+			// Optional config options
+			cpds.setAcquireIncrement(ConnectionPools.getAcquireIncrement(conf));
+			cpds.setMinPoolSize(ConnectionPools.getMinPoolSize(conf));
+			cpds.setMaxPoolSize(ConnectionPools.getMaxPoolSize(conf));
+			cpds.setMaxIdleTime(ConnectionPools.getMaxIdleTime(conf));
+
+			// c3p0 attende indefinitamente se il timeout non e' configurato esplicitamente
+			if(conf.containsKey(SKConstants.CONF.DB.KEY_POOL_ACQUIRE_TIMEOUT)){
+				cpds.setCheckoutTimeout((int) Math.min(Integer.MAX_VALUE, ConnectionPools.getAcquireTimeout(conf)));
+			}
+
+		} catch (PropertyVetoException e) {
+			throw new DbInitializationException("Driver non valido: " + conf.getString(SKConstants.CONF.DB.KEY_DRIVER), e);
+		}
+	}
+
+	@Override
+	public Connection getConnection()
+	throws SQLException {
+		return cpds.getConnection();
+	}
+
+	@Override
+	public int getActiveConnections() {
+		try {
+			return cpds.getNumBusyConnectionsDefaultUser();
+		} catch (SQLException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public int getIdleConnections() {
+		try {
+			return cpds.getNumIdleConnectionsDefaultUser();
+		} catch (SQLException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public int getTotalConnections() {
+		try {
+			return cpds.getNumConnectionsDefaultUser();
+		} catch (SQLException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public void close() {
+		cpds.setInitialPoolSize(0);
+		cpds.setMaxPoolSize(0);
+		cpds.setMaxIdleTime(60);
+		cpds.resetPoolManager();
+		cpds.close();
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Interfaccia che va implementata dai connection pool utilizzati da
+ * {@link org.wolfetti.swissknife.db.PooledConnector}.
+ * <br><br>
+ * Le implementazioni vengono create da {@link ConnectionPools} in base alla chiave di configurazione
+ * <code>sk.db.poolType</code> e devono esporre un costruttore pubblico che accetta la
+ * {@link org.apache.commons.configuration.Configuration Configuration} del connettore.
+ *
+ * @author Fabio Frijo
+ */
+public interface ConnectionPool {
+
+	/**
+	 * Restituisce una connessione del pool. La chiamata a <code>close()</code> sulla connessione
+	 * restituita la riconsegna al pool.
+	 *
+	 * @throws SQLException
+	 * 	Quando non &egrave; possibile ottenere una connessione entro il tempo massimo di attesa
+	 */
+	public Connection getConnection()
+	throws SQLException;
+
+	/**
+	 * @return il numero di connessioni attualmente in uso
+	 */
+	public int getActiveConnections();
+
+	/**
+	 * @return il numero di connessioni aperte e non in uso
+	 */
+	public int getIdleConnections();
+
+	/**
+	 * @return il numero totale di connessioni aperte
+	 */
+	public int getTotalConnections();
+
+	/**
+	 * Chiude tutte le connessioni e rilascia le risorse del pool.
+	 */
+	public void close();
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.pool;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.common.utils.ReflectionUtils;
+import org.wolfetti.swissknife.common.utils.StringUtils;
+import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+
+/**
+ * Classe che crea il {@link ConnectionPool} configurato e ne legge i parametri.
+ *
+ * @author Fabio Frijo
+ */
+public final class ConnectionPools {
+	private ConnectionPools(){}
+
+	/**
+	 * Pool basato su c3p0 (default)
+	 */
+	public static final String TYPE_C3P0 = "C3P0";
+
+	/**
+	 * Pool nativo di swissknife
+	 */
+	public static final String TYPE_NATIVE = "NATIVE";
+
+	/**
+	 * Il numero di connessioni da aprire ad ogni aumento del pool, se non configurato.
+	 */
+	public static final int DEFAULT_ACQUIRE_INCREMENT = 5;
+
+	/**
+	 * Il numero di connessioni iniziali del pool, se non configurato.
+	 */
+	public static final int DEFAULT_MIN_POOL_SIZE = 5;
+
+	/**
+	 * Il numero di connessioni massime del pool, se non configurato.
+	 */
+	public static final int DEFAULT_MAX_POOL_SIZE = 100;
+
+	/**
+	 * Il tempo massimo di inattivita' di una connessione (in secondi), se non configurato.
+	 */
+	public static final int DEFAULT_MAX_IDLE_TIME = 600;
+
+	/**
+	 * Il tempo massimo di attesa di una connessione (in millisecondi), se non configurato.
+	 */
+	public static final long DEFAULT_ACQUIRE_TIMEOUT = 30000L;
+
+	/**
+	 * Il tempo di inattivita' dopo il quale una connessione viene validata (in millisecondi), se non configurato.
+	 */
+	public static final long DEFAULT_VALIDATION_INTERVAL = 30000L;
+
+	/**
+	 * Crea il pool indicato dalla chiave <code>sk.db.poolType</code>.
+	 *
+	 * @param conf
+	 * 	La configurazione della connessione
+	 *
+	 * @throws DbInitializationException
+	 * 	Quando il tipo di pool non e' valido
+	 */
+	public static ConnectionPool create(Configuration conf)
+	throws DbInitializationException {
+		String type = getPoolType(conf);
+
+		if(TYPE_C3P0.equalsIgnoreCase(type)){
+			return new C3p0ConnectionPool(conf);
+		}
+
+		if(TYPE_NATIVE.equalsIgnoreCase(type)){
+			return new SkConnectionPool(conf);
+		}
+
+		try {
+			Class<?> poolClass = Class.forName(type, true, ReflectionUtils.getContextClassLoader(ConnectionPools.class));
+			return (ConnectionPool) poolClass.getConstructor(Configuration.class).newInstance(conf);
+		} catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException | ClassCastException e) {
+			throw new DbInitializationException("Tipo di connection pool non valido: " + type, e);
+		} catch (InvocationTargetException e) {
+			throw new DbInitializationException("Creazione del connection pool fallita: " + type, e.getCause());
+		}
+	}
+
+	/**
+	 * @return il tipo di pool configurato
+	 */
+	public static String getPoolType(Configuration conf){
+		String type = conf.getString(DB.KEY_POOL_TYPE);
+		return StringUtils.isEmptyOrNull(type) ? TYPE_C3P0 : type.trim();
+	}
+
+	/**
+	 * @return il numero di connessioni da aprire ad ogni aumento del pool
+	 */
+	public static int getAcquireIncrement(Configuration conf){
+		return conf.getInt(DB.KEY_POOL_ACQUIRE_INCREMENT, DEFAULT_ACQUIRE_INCREMENT);
+	}
+
+	/**
+	 * @return il numero di connessioni iniziali del pool
+	 */
+	public static int getMinPoolSize(Configuration conf){
+		return conf.getInt(DB.KEY_MIN_POOLSIZE, DEFAULT_MIN_POOL_SIZE);
+	}
+
+	/**
+	 * @return il numero di connessioni massime del pool
+	 */
+	public static int getMaxPoolSize(Configuration conf){
+		return conf.getInt(DB.KEY_MAX_POOLSIZE, DEFAULT_MAX_POOL_SIZE);
+	}
+
+	/**
+	 * @return il tempo massimo di inattivita' di una connessione (in secondi)
+	 */
+	public static int getMaxIdleTime(Configuration conf){
+		return conf.getInt(DB.KEY_POOL_MAX_IDLE_TIME, DEFAULT_MAX_IDLE_TIME);
+	}
+
+	/**
+	 * @return il tempo massimo di attesa di una connessione (in millisecondi)
+	 */
+	public static long getAcquireTimeout(Configuration conf){
+		return conf.getLong(DB.KEY_POOL_ACQUIRE_TIMEOUT, DEFAULT_ACQUIRE_TIMEOUT);
+	}
+
+	/**
+	 * @return il tempo di inattivita' dopo il quale una connessione viene validata (in millisecondi)
+	 */
+	public static long getValidationInterval(Configuration conf){
+		return conf.getLong(DB.KEY_POOL_VALIDATION_INTERVAL, DEFAULT_VALIDATION_INTERVAL);
+	}
+}
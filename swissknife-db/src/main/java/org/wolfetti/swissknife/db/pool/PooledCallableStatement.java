@@ -0,0 +1,734 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.pool;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Callable statement di una connessione del {@link SkConnectionPool}, che delega tutte le chiamate
+ * allo statement fisico (vedi {@link PooledStatement}).
+ *
+ * @author Fabio Frijo
+ */
+class PooledCallableStatement extends PooledPreparedStatement implements CallableStatement {
+	private final CallableStatement delegate;
+
+	PooledCallableStatement(CallableStatement delegate, Connection connection, Set<PooledStatement> open) {
+		super(delegate, connection, open);
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void registerOutParameter(int parameterIndex, int sqlType)
+	throws SQLException {
+		this.delegate.registerOutParameter(parameterIndex, sqlType);
+	}
+
+	@Override
+	public void registerOutParameter(int parameterIndex, int sqlType, int scale)
+	throws SQLException {
+		this.delegate.registerOutParameter(parameterIndex, sqlType, scale);
+	}
+
+	@Override
+	public boolean wasNull()
+	throws SQLException {
+		return this.delegate.wasNull();
+	}
+
+	@Override
+	public String getString(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getString(parameterIndex);
+	}
+
+	@Override
+	public boolean getBoolean(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getBoolean(parameterIndex);
+	}
+
+	@Override
+	public byte getByte(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getByte(parameterIndex);
+	}
+
+	@Override
+	public short getShort(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getShort(parameterIndex);
+	}
+
+	@Override
+	public int getInt(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getInt(parameterIndex);
+	}
+
+	@Override
+	public long getLong(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getLong(parameterIndex);
+	}
+
+	@Override
+	public float getFloat(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getFloat(parameterIndex);
+	}
+
+	@Override
+	public double getDouble(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getDouble(parameterIndex);
+	}
+
+	@Deprecated
+	@Override
+	public BigDecimal getBigDecimal(int parameterIndex, int scale)
+	throws SQLException {
+		return this.delegate.getBigDecimal(parameterIndex, scale);
+	}
+
+	@Override
+	public byte[] getBytes(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getBytes(parameterIndex);
+	}
+
+	@Override
+	public java.sql.Date getDate(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getDate(parameterIndex);
+	}
+
+	@Override
+	public java.sql.Time getTime(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getTime(parameterIndex);
+	}
+
+	@Override
+	public java.sql.Timestamp getTimestamp(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getTimestamp(parameterIndex);
+	}
+
+	@Override
+	public Object getObject(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getObject(parameterIndex);
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getBigDecimal(parameterIndex);
+	}
+
+	@Override
+	public Object getObject(int parameterIndex, java.util.Map<String,Class<?>> map)
+	throws SQLException {
+		return this.delegate.getObject(parameterIndex, map);
+	}
+
+	@Override
+	public Ref getRef(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getRef(parameterIndex);
+	}
+
+	@Override
+	public Blob getBlob(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getBlob(parameterIndex);
+	}
+
+	@Override
+	public Clob getClob(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getClob(parameterIndex);
+	}
+
+	@Override
+	public Array getArray(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getArray(parameterIndex);
+	}
+
+	@Override
+	public java.sql.Date getDate(int parameterIndex, Calendar cal)
+	throws SQLException {
+		return this.delegate.getDate(parameterIndex, cal);
+	}
+
+	@Override
+	public java.sql.Time getTime(int parameterIndex, Calendar cal)
+	throws SQLException {
+		return this.delegate.getTime(parameterIndex, cal);
+	}
+
+	@Override
+	public java.sql.Timestamp getTimestamp(int parameterIndex, Calendar cal)
+	throws SQLException {
+		return this.delegate.getTimestamp(parameterIndex, cal);
+	}
+
+	@Override
+	public void registerOutParameter(int parameterIndex, int sqlType, String typeName)
+	throws SQLException {
+		this.delegate.registerOutParameter(parameterIndex, sqlType, typeName);
+	}
+
+	@Override
+	public void registerOutParameter(String parameterName, int sqlType)
+	throws SQLException {
+		this.delegate.registerOutParameter(parameterName, sqlType);
+	}
+
+	@Override
+	public void registerOutParameter(String parameterName, int sqlType, int scale)
+	throws SQLException {
+		this.delegate.registerOutParameter(parameterName, sqlType, scale);
+	}
+
+	@Override
+	public void registerOutParameter(String parameterName, int sqlType, String typeName)
+	throws SQLException {
+		this.delegate.registerOutParameter(parameterName, sqlType, typeName);
+	}
+
+	@Override
+	public java.net.URL getURL(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getURL(parameterIndex);
+	}
+
+	@Override
+	public void setURL(String parameterName, java.net.URL val)
+	throws SQLException {
+		this.delegate.setURL(parameterName, val);
+	}
+
+	@Override
+	public void setNull(String parameterName, int sqlType)
+	throws SQLException {
+		this.delegate.setNull(parameterName, sqlType);
+	}
+
+	@Override
+	public void setBoolean(String parameterName, boolean x)
+	throws SQLException {
+		this.delegate.setBoolean(parameterName, x);
+	}
+
+	@Override
+	public void setByte(String parameterName, byte x)
+	throws SQLException {
+		this.delegate.setByte(parameterName, x);
+	}
+
+	@Override
+	public void setShort(String parameterName, short x)
+	throws SQLException {
+		this.delegate.setShort(parameterName, x);
+	}
+
+	@Override
+	public void setInt(String parameterName, int x)
+	throws SQLException {
+		this.delegate.setInt(parameterName, x);
+	}
+
+	@Override
+	public void setLong(String parameterName, long x)
+	throws SQLException {
+		this.delegate.setLong(parameterName, x);
+	}
+
+	@Override
+	public void setFloat(String parameterName, float x)
+	throws SQLException {
+		this.delegate.setFloat(parameterName, x);
+	}
+
+	@Override
+	public void setDouble(String parameterName, double x)
+	throws SQLException {
+		this.delegate.setDouble(parameterName, x);
+	}
+
+	@Override
+	public void setBigDecimal(String parameterName, BigDecimal x)
+	throws SQLException {
+		this.delegate.setBigDecimal(parameterName, x);
+	}
+
+	@Override
+	public void setString(String parameterName, String x)
+	throws SQLException {
+		this.delegate.setString(parameterName, x);
+	}
+
+	@Override
+	public void setBytes(String parameterName, byte[] x)
+	throws SQLException {
+		this.delegate.setBytes(parameterName, x);
+	}
+
+	@Override
+	public void setDate(String parameterName, java.sql.Date x)
+	throws SQLException {
+		this.delegate.setDate(parameterName, x);
+	}
+
+	@Override
+	public void setTime(String parameterName, java.sql.Time x)
+	throws SQLException {
+		this.delegate.setTime(parameterName, x);
+	}
+
+	@Override
+	public void setTimestamp(String parameterName, java.sql.Timestamp x)
+	throws SQLException {
+		this.delegate.setTimestamp(parameterName, x);
+	}
+
+	@Override
+	public void setAsciiStream(String parameterName, java.io.InputStream x, int length)
+	throws SQLException {
+		this.delegate.setAsciiStream(parameterName, x, length);
+	}
+
+	@Override
+	public void setBinaryStream(String parameterName, java.io.InputStream x, int length)
+	throws SQLException {
+		this.delegate.setBinaryStream(parameterName, x, length);
+	}
+
+	@Override
+	public void setObject(String parameterName, Object x, int targetSqlType, int scale)
+	throws SQLException {
+		this.delegate.setObject(parameterName, x, targetSqlType, scale);
+	}
+
+	@Override
+	public void setObject(String parameterName, Object x, int targetSqlType)
+	throws SQLException {
+		this.delegate.setObject(parameterName, x, targetSqlType);
+	}
+
+	@Override
+	public void setObject(String parameterName, Object x)
+	throws SQLException {
+		this.delegate.setObject(parameterName, x);
+	}
+
+	@Override
+	public void setCharacterStream(String parameterName, java.io.Reader reader, int length)
+	throws SQLException {
+		this.delegate.setCharacterStream(parameterName, reader, length);
+	}
+
+	@Override
+	public void setDate(String parameterName, java.sql.Date x, Calendar cal)
+	throws SQLException {
+		this.delegate.setDate(parameterName, x, cal);
+	}
+
+	@Override
+	public void setTime(String parameterName, java.sql.Time x, Calendar cal)
+	throws SQLException {
+		this.delegate.setTime(parameterName, x, cal);
+	}
+
+	@Override
+	public void setTimestamp(String parameterName, java.sql.Timestamp x, Calendar cal)
+	throws SQLException {
+		this.delegate.setTimestamp(parameterName, x, cal);
+	}
+
+	@Override
+	public void setNull(String parameterName, int sqlType, String typeName)
+	throws SQLException {
+		this.delegate.setNull(parameterName, sqlType, typeName);
+	}
+
+	@Override
+	public String getString(String parameterName)
+	throws SQLException {
+		return this.delegate.getString(parameterName);
+	}
+
+	@Override
+	public boolean getBoolean(String parameterName)
+	throws SQLException {
+		return this.delegate.getBoolean(parameterName);
+	}
+
+	@Override
+	public byte getByte(String parameterName)
+	throws SQLException {
+		return this.delegate.getByte(parameterName);
+	}
+
+	@Override
+	public short getShort(String parameterName)
+	throws SQLException {
+		return this.delegate.getShort(parameterName);
+	}
+
+	@Override
+	public int getInt(String parameterName)
+	throws SQLException {
+		return this.delegate.getInt(parameterName);
+	}
+
+	@Override
+	public long getLong(String parameterName)
+	throws SQLException {
+		return this.delegate.getLong(parameterName);
+	}
+
+	@Override
+	public float getFloat(String parameterName)
+	throws SQLException {
+		return this.delegate.getFloat(parameterName);
+	}
+
+	@Override
+	public double getDouble(String parameterName)
+	throws SQLException {
+		return this.delegate.getDouble(parameterName);
+	}
+
+	@Override
+	public byte[] getBytes(String parameterName)
+	throws SQLException {
+		return this.delegate.getBytes(parameterName);
+	}
+
+	@Override
+	public java.sql.Date getDate(String parameterName)
+	throws SQLException {
+		return this.delegate.getDate(parameterName);
+	}
+
+	@Override
+	public java.sql.Time getTime(String parameterName)
+	throws SQLException {
+		return this.delegate.getTime(parameterName);
+	}
+
+	@Override
+	public java.sql.Timestamp getTimestamp(String parameterName)
+	throws SQLException {
+		return this.delegate.getTimestamp(parameterName);
+	}
+
+	@Override
+	public Object getObject(String parameterName)
+	throws SQLException {
+		return this.delegate.getObject(parameterName);
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(String parameterName)
+	throws SQLException {
+		return this.delegate.getBigDecimal(parameterName);
+	}
+
+	@Override
+	public Object getObject(String parameterName, java.util.Map<String,Class<?>> map)
+	throws SQLException {
+		return this.delegate.getObject(parameterName, map);
+	}
+
+	@Override
+	public Ref getRef(String parameterName)
+	throws SQLException {
+		return this.delegate.getRef(parameterName);
+	}
+
+	@Override
+	public Blob getBlob(String parameterName)
+	throws SQLException {
+		return this.delegate.getBlob(parameterName);
+	}
+
+	@Override
+	public Clob getClob(String parameterName)
+	throws SQLException {
+		return this.delegate.getClob(parameterName);
+	}
+
+	@Override
+	public Array getArray(String parameterName)
+	throws SQLException {
+		return this.delegate.getArray(parameterName);
+	}
+
+	@Override
+	public java.sql.Date getDate(String parameterName, Calendar cal)
+	throws SQLException {
+		return this.delegate.getDate(parameterName, cal);
+	}
+
+	@Override
+	public java.sql.Time getTime(String parameterName, Calendar cal)
+	throws SQLException {
+		return this.delegate.getTime(parameterName, cal);
+	}
+
+	@Override
+	public java.sql.Timestamp getTimestamp(String parameterName, Calendar cal)
+	throws SQLException {
+		return this.delegate.getTimestamp(parameterName, cal);
+	}
+
+	@Override
+	public java.net.URL getURL(String parameterName)
+	throws SQLException {
+		return this.delegate.getURL(parameterName);
+	}
+
+	@Override
+	public RowId getRowId(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getRowId(parameterIndex);
+	}
+
+	@Override
+	public RowId getRowId(String parameterName)
+	throws SQLException {
+		return this.delegate.getRowId(parameterName);
+	}
+
+	@Override
+	public void setRowId(String parameterName, RowId x)
+	throws SQLException {
+		this.delegate.setRowId(parameterName, x);
+	}
+
+	@Override
+	public void setNString(String parameterName, String value)
+	throws SQLException {
+		this.delegate.setNString(parameterName, value);
+	}
+
+	@Override
+	public void setNCharacterStream(String parameterName, Reader value, long length)
+	throws SQLException {
+		this.delegate.setNCharacterStream(parameterName, value, length);
+	}
+
+	@Override
+	public void setNClob(String parameterName, NClob value)
+	throws SQLException {
+		this.delegate.setNClob(parameterName, value);
+	}
+
+	@Override
+	public void setClob(String parameterName, Reader reader, long length)
+	throws SQLException {
+		this.delegate.setClob(parameterName, reader, length);
+	}
+
+	@Override
+	public void setBlob(String parameterName, InputStream inputStream, long length)
+	throws SQLException {
+		this.delegate.setBlob(parameterName, inputStream, length);
+	}
+
+	@Override
+	public void setNClob(String parameterName, Reader reader, long length)
+	throws SQLException {
+		this.delegate.setNClob(parameterName, reader, length);
+	}
+
+	@Override
+	public NClob getNClob(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getNClob(parameterIndex);
+	}
+
+	@Override
+	public NClob getNClob(String parameterName)
+	throws SQLException {
+		return this.delegate.getNClob(parameterName);
+	}
+
+	@Override
+	public void setSQLXML(String parameterName, SQLXML xmlObject)
+	throws SQLException {
+		this.delegate.setSQLXML(parameterName, xmlObject);
+	}
+
+	@Override
+	public SQLXML getSQLXML(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getSQLXML(parameterIndex);
+	}
+
+	@Override
+	public SQLXML getSQLXML(String parameterName)
+	throws SQLException {
+		return this.delegate.getSQLXML(parameterName);
+	}
+
+	@Override
+	public String getNString(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getNString(parameterIndex);
+	}
+
+	@Override
+	public String getNString(String parameterName)
+	throws SQLException {
+		return this.delegate.getNString(parameterName);
+	}
+
+	@Override
+	public java.io.Reader getNCharacterStream(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getNCharacterStream(parameterIndex);
+	}
+
+	@Override
+	public java.io.Reader getNCharacterStream(String parameterName)
+	throws SQLException {
+		return this.delegate.getNCharacterStream(parameterName);
+	}
+
+	@Override
+	public java.io.Reader getCharacterStream(int parameterIndex)
+	throws SQLException {
+		return this.delegate.getCharacterStream(parameterIndex);
+	}
+
+	@Override
+	public java.io.Reader getCharacterStream(String parameterName)
+	throws SQLException {
+		return this.delegate.getCharacterStream(parameterName);
+	}
+
+	@Override
+	public void setBlob(String parameterName, Blob x)
+	throws SQLException {
+		this.delegate.setBlob(parameterName, x);
+	}
+
+	@Override
+	public void setClob(String parameterName, Clob x)
+	throws SQLException {
+		this.delegate.setClob(parameterName, x);
+	}
+
+	@Override
+	public void setAsciiStream(String parameterName, java.io.InputStream x, long length)
+	throws SQLException {
+		this.delegate.setAsciiStream(parameterName, x, length);
+	}
+
+	@Override
+	public void setBinaryStream(String parameterName, java.io.InputStream x, long length)
+	throws SQLException {
+		this.delegate.setBinaryStream(parameterName, x, length);
+	}
+
+	@Override
+	public void setCharacterStream(String parameterName, java.io.Reader reader, long length)
+	throws SQLException {
+		this.delegate.setCharacterStream(parameterName, reader, length);
+	}
+
+	@Override
+	public void setAsciiStream(String parameterName, java.io.InputStream x)
+	throws SQLException {
+		this.delegate.setAsciiStream(parameterName, x);
+	}
+
+	@Override
+	public void setBinaryStream(String parameterName, java.io.InputStream x)
+	throws SQLException {
+		this.delegate.setBinaryStream(parameterName, x);
+	}
+
+	@Override
+	public void setCharacterStream(String parameterName, java.io.Reader reader)
+	throws SQLException {
+		this.delegate.setCharacterStream(parameterName, reader);
+	}
+
+	@Override
+	public void setNCharacterStream(String parameterName, Reader value)
+	throws SQLException {
+		this.delegate.setNCharacterStream(parameterName, value);
+	}
+
+	@Override
+	public void setClob(String parameterName, Reader reader)
+	throws SQLException {
+		this.delegate.setClob(parameterName, reader);
+	}
+
+	@Override
+	public void setBlob(String parameterName, InputStream inputStream)
+	throws SQLException {
+		this.delegate.setBlob(parameterName, inputStream);
+	}
+
+	@Override
+	public void setNClob(String parameterName, Reader reader)
+	throws SQLException {
+		this.delegate.setNClob(parameterName, reader);
+	}
+
+	@Override
+	public <T> T getObject(int parameterIndex, Class<T> type)
+	throws SQLException {
+		return this.delegate.getObject(parameterIndex, type);
+	}
+
+	@Override
+	public <T> T getObject(String parameterName, Class<T> type)
+	throws SQLException {
+		return this.delegate.getObject(parameterName, type);
+	}
+}
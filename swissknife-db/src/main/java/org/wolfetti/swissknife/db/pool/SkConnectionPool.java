@@ -0,0 +1,624 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.pool;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants;
+import org.wolfetti.swissknife.common.logger.Log;
+import org.wolfetti.swissknife.common.logger.LogFactory;
+import org.wolfetti.swissknife.common.utils.StringUtils;
+import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+
+/**
+ * Connection pool nativo, senza lock sul percorso di acquisizione.
+ * <br><br>
+ * Una connessione viene cercata, nell'ordine:
+ * <ol>
+ * 	<li>tra l'ultima connessione utilizzata dallo stesso thread (affinit&agrave;);</li>
+ * 	<li>tra le connessioni del pool, riservandola con un compare-and-set sul suo stato;</li>
+ * 	<li>aprendone una nuova se non &egrave; stata raggiunta la dimensione massima;</li>
+ * 	<li>attendendo che un altro thread la restituisca, tramite una coda di passaggio diretto,
+ * 	fino al tempo massimo configurato in <code>sk.db.poolAcquireTimeout</code>.</li>
+ * </ol>
+ * Le connessioni vengono validate con <code>isValid</code> solo se inattive da pi&ugrave; di
+ * <code>sk.db.poolValidationInterval</code> millisecondi, non ad ogni acquisizione.
+ * Un thread di manutenzione chiude le connessioni inattive oltre <code>sk.db.poolMaxIdleTime</code>
+ * secondi e mantiene aperte almeno <code>sk.db.minPoolSize</code> connessioni.
+ *
+ * @author Fabio Frijo
+ */
+public class SkConnectionPool implements ConnectionPool {
+
+	/**
+	 * Il tempo massimo concesso alla validazione di una connessione (in secondi)
+	 */
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	/**
+	 * La durata massima di una singola attesa sulla coda di passaggio (in millisecondi)
+	 */
+	private static final long HANDOFF_SLICE = 10L;
+
+	/**
+	 * Contatore dei pool creati, per il nome del thread di manutenzione
+	 */
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+	/* Stati di una connessione del pool */
+	private static final int IDLE = 0;
+	private static final int IN_USE = 1;
+	private static final int REMOVED = -1;
+
+	/**
+	 * Logger
+	 */
+	private final Log log = LogFactory.getLog(SkConnectionPool.class);
+
+	/**
+	 * Tutte le connessioni aperte dal pool
+	 */
+	private final CopyOnWriteArrayList<Entry> entries = new CopyOnWriteArrayList<Entry>();
+
+	/**
+	 * Coda di passaggio diretto delle connessioni restituite ai thread in attesa
+	 */
+	private final SynchronousQueue<Entry> handoff = new SynchronousQueue<Entry>(true);
+
+	/**
+	 * L'ultima connessione utilizzata da ogni thread
+	 */
+	private final ThreadLocal<WeakReference<Entry>> lastUsed = new ThreadLocal<WeakReference<Entry>>();
+
+	/**
+	 * Il numero di connessioni aperte o in apertura
+	 */
+	private final AtomicInteger total = new AtomicInteger();
+
+	/**
+	 * Il numero di thread in attesa di una connessione
+	 */
+	private final AtomicInteger waiters = new AtomicInteger();
+
+	/**
+	 * Flag di chiusura del pool
+	 */
+	private final AtomicBoolean closed = new AtomicBoolean(false);
+
+	/**
+	 * Il thread di manutenzione
+	 */
+	private final ScheduledExecutorService housekeeper;
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int minSize;
+	private final int maxSize;
+	private final long acquireTimeout;
+	private final long validationInterval;
+	private final long maxIdleTime;
+
+	/**
+	 * Crea il pool in base alla configurazione del connettore.
+	 *
+	 * @param conf
+	 * 	La configurazione della connessione
+	 */
+	public SkConnectionPool(Configuration conf) {
+		String driver = conf.getString(SKConstants.CONF.DB.KEY_DRIVER);
+
+		if(StringUtils.isNotEmptyOrNull(driver)){
+			try {
+				Class.forName(driver);
+			} catch (ClassNotFoundException e) {
+				throw new DbInitializationException("Driver non valido: " + driver, e);
+			}
+		}
+
+		this.url = conf.getString(SKConstants.CONF.DB.KEY_URL);
+		this.user = conf.getString(SKConstants.CONF.DB.KEY_USER);
+		this.password = conf.getString(SKConstants.CONF.DB.KEY_PASSWORD);
+		this.maxSize = Math.max(1, ConnectionPools.getMaxPoolSize(conf));
+		this.minSize = Math.min(Math.max(0, ConnectionPools.getMinPoolSize(conf)), this.maxSize);
+		this.acquireTimeout = ConnectionPools.getAcquireTimeout(conf);
+		this.validationInterval = ConnectionPools.getValidationInterval(conf);
+		this.maxIdleTime = ConnectionPools.getMaxIdleTime(conf) * 1000L;
+
+		final String threadName = "sk-pool-housekeeper-" + POOL_COUNTER.incrementAndGet();
+		this.housekeeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, threadName);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		long period = Math.max(1000L, Math.min(30000L, this.maxIdleTime / 2));
+		this.housekeeper.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				SkConnectionPool.this.housekeep();
+			}
+		}, 0L, period, TimeUnit.MILLISECONDS);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.wolfetti.swissknife.db.pool.ConnectionPool#getConnection()
+	 */
+	@Override
+	public Connection getConnection()
+	throws SQLException {
+		if(this.closed.get()){
+			throw new SQLException("Connection pool chiuso");
+		}
+
+		long deadline = System.currentTimeMillis() + this.acquireTimeout;
+
+		// 1. Affinita' con l'ultima connessione utilizzata dal thread
+		WeakReference<Entry> ref = this.lastUsed.get();
+		Entry entry = ref == null ? null : ref.get();
+
+		if(entry != null && this.claim(entry)){
+			return this.wrap(entry);
+		}
+
+		// 2. Ricerca di una connessione libera e 3. apertura di una nuova connessione
+		Connection c = this.scanOrCreate();
+		if(c != null){
+			return c;
+		}
+
+		// 4. Attesa di una connessione restituita da un altro thread
+		this.waiters.incrementAndGet();
+		try {
+			while(true){
+				c = this.scanOrCreate();
+				if(c != null){
+					return c;
+				}
+
+				long remaining = deadline - System.currentTimeMillis();
+				if(remaining <= 0){
+					throw new SQLTimeoutException(
+						"Nessuna connessione disponibile entro " + this.acquireTimeout + " ms " +
+						"(attive: " + this.getActiveConnections() + ", massimo: " + this.maxSize + ")"
+					);
+				}
+
+				entry = this.handoff.poll(Math.min(remaining, HANDOFF_SLICE), TimeUnit.MILLISECONDS);
+				if(entry != null && this.claim(entry)){
+					return this.wrap(entry);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Attesa della connessione interrotta", e);
+		} finally {
+			this.waiters.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Cerca una connessione libera nel pool o ne apre una nuova se possibile.
+	 */
+	private Connection scanOrCreate()
+	throws SQLException {
+		for(Entry entry : this.entries){
+			if(this.claim(entry)){
+				return this.wrap(entry);
+			}
+		}
+
+		if(this.reserve()){
+			Entry entry = this.open(IN_USE);
+			return this.wrap(entry);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Riserva la connessione e la valida se inattiva da troppo tempo.
+	 *
+	 * @return <code>true</code> se la connessione e' stata riservata ed e' valida
+	 */
+	private boolean claim(Entry entry){
+		if(!entry.state.compareAndSet(IDLE, IN_USE)){
+			return false;
+		}
+
+		if(System.currentTimeMillis() - entry.lastAccess > this.validationInterval){
+			boolean valid;
+
+			try {
+				valid = entry.connection.isValid(VALIDATION_TIMEOUT);
+			} catch (SQLException e) {
+				valid = false;
+			}
+
+			if(!valid){
+				this.log.debug("Connessione non valida rimossa dal pool");
+				this.remove(entry);
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Prenota un posto per una nuova connessione, se non e' stata raggiunta la dimensione massima.
+	 */
+	private boolean reserve(){
+		while(true){
+			int current = this.total.get();
+
+			if(current >= this.maxSize){
+				return false;
+			}
+
+			if(this.total.compareAndSet(current, current + 1)){
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Apre una nuova connessione fisica per un posto gia' prenotato.
+	 */
+	private Entry open(int state)
+	throws SQLException {
+		Connection connection = null;
+
+		try {
+			connection = DriverManager.getConnection(this.url, this.user, this.password);
+
+			Entry entry = new Entry(connection, state);
+			this.entries.add(entry);
+			return entry;
+		} catch (SQLException | RuntimeException e) {
+			this.total.decrementAndGet();
+
+			if(connection != null){
+				try {
+					connection.close();
+				}
+
+				// Ignored closing exceptions
+				catch (SQLException ce) {
+				}
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Restituisce la connessione al pool, passandola direttamente ad un thread in attesa se presente.
+	 */
+	private void release(Entry entry){
+		try {
+			if(!entry.connection.getAutoCommit()){
+				entry.connection.rollback();
+				entry.connection.setAutoCommit(true);
+			}
+
+			// Le impostazioni di chi ha utilizzato la connessione non passano al successivo
+			if(entry.readOnlyChanged){
+				entry.connection.setReadOnly(entry.readOnly);
+				entry.readOnlyChanged = false;
+			}
+
+			if(entry.isolationChanged){
+				entry.connection.setTransactionIsolation(entry.isolation);
+				entry.isolationChanged = false;
+			}
+		} catch (SQLException e) {
+			this.remove(entry);
+			return;
+		}
+
+		if(this.closed.get()){
+			this.remove(entry);
+			return;
+		}
+
+		entry.lastAccess = System.currentTimeMillis();
+		entry.state.set(IDLE);
+		this.lastUsed.set(new WeakReference<Entry>(entry));
+
+		for(int spins = 0; this.waiters.get() > 0 && spins < 256; spins++){
+			if(entry.state.get() != IDLE || this.handoff.offer(entry)){
+				return;
+			}
+
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Rimuove la connessione dal pool e la chiude.
+	 */
+	private void remove(Entry entry){
+		if(entry.state.getAndSet(REMOVED) == REMOVED){
+			return;
+		}
+
+		if(this.entries.remove(entry)){
+			this.total.decrementAndGet();
+		}
+
+		try {
+			entry.connection.close();
+		}
+
+		// Ignored closing exceptions
+		catch (SQLException e) {
+		}
+	}
+
+	/**
+	 * Chiude le connessioni inattive oltre il tempo massimo e riporta il pool alla dimensione minima.
+	 */
+	private void housekeep(){
+		if(this.closed.get()){
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+
+		for(Entry entry : this.entries){
+			if(this.total.get() <= this.minSize){
+				break;
+			}
+
+			if(now - entry.lastAccess > this.maxIdleTime && entry.state.compareAndSet(IDLE, IN_USE)){
+				this.remove(entry);
+			}
+		}
+
+		while(this.total.get() < this.minSize && this.reserve()){
+			try {
+				this.open(IDLE);
+			} catch (SQLException e) {
+				this.log.warn("Impossibile aprire le connessioni minime del pool: " + e.getMessage());
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Restituisce un proxy della connessione che alla chiusura la riconsegna al pool.
+	 * Gli statement e i metadati ottenuti dalla connessione vengono restituiti tramite classi che delegano
+	 * a quelli fisici (vedi {@link PooledStatement}), in maniera che <code>getConnection()</code> non esponga
+	 * mai la connessione fisica; gli statement non chiusi dal chiamante vengono chiusi alla restituzione.
+	 */
+	private Connection wrap(final Entry entry){
+		final AtomicBoolean returned = new AtomicBoolean(false);
+		final Connection[] self = new Connection[1];
+
+		self[0] = (Connection) Proxy.newProxyInstance(
+			SkConnectionPool.class.getClassLoader(),
+			new Class<?>[] { Connection.class },
+			new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+					String name = method.getName();
+
+					if("close".equals(name)){
+						if(returned.compareAndSet(false, true)){
+							SkConnectionPool.this.closeStatements(entry);
+							SkConnectionPool.this.release(entry);
+						}
+
+						return null;
+					}
+
+					if("isClosed".equals(name)){
+						return Boolean.valueOf(returned.get() || entry.connection.isClosed());
+					}
+
+					if("equals".equals(name)){
+						return Boolean.valueOf(proxy == args[0]);
+					}
+
+					if("hashCode".equals(name)){
+						return Integer.valueOf(System.identityHashCode(proxy));
+					}
+
+					if("toString".equals(name)){
+						return "SkPooledConnection[" + entry.connection + "]";
+					}
+
+					if(returned.get()){
+						throw new SQLException("Connessione gia' restituita al pool");
+					}
+
+					// Impostazioni da ripristinare alla restituzione
+					if("setReadOnly".equals(name)){
+						entry.readOnlyChanged = true;
+					}
+
+					else if("setTransactionIsolation".equals(name)){
+						entry.isolationChanged = true;
+					}
+
+					Object result;
+					try {
+						result = method.invoke(entry.connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+
+					if(result == null){
+						return null;
+					}
+
+					Class<?> type = method.getReturnType();
+
+					if(type == PreparedStatement.class){
+						return new PooledPreparedStatement((PreparedStatement) result, self[0], entry.statements);
+					}
+
+					if(type == Statement.class){
+						return new PooledStatement((Statement) result, self[0], entry.statements);
+					}
+
+					if(type == CallableStatement.class){
+						return new PooledCallableStatement((CallableStatement) result, self[0], entry.statements);
+					}
+
+					if(type == DatabaseMetaData.class){
+						return new PooledDatabaseMetaData((DatabaseMetaData) result, self[0]);
+					}
+
+					return result;
+				}
+			}
+		);
+
+		return self[0];
+	}
+
+	/**
+	 * Chiude gli statement che il chiamante non ha chiuso prima di restituire la connessione.
+	 */
+	private void closeStatements(Entry entry){
+		for(PooledStatement statement : entry.statements){
+			try {
+				statement.close();
+			}
+
+			// Ignored closing exceptions
+			catch (SQLException e) {
+			}
+		}
+
+		entry.statements.clear();
+	}
+
+	@Override
+	public int getActiveConnections() {
+		int count = 0;
+		for(Entry entry : this.entries){
+			if(entry.state.get() == IN_USE){
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Override
+	public int getIdleConnections() {
+		int count = 0;
+		for(Entry entry : this.entries){
+			if(entry.state.get() == IDLE){
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Override
+	public int getTotalConnections() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return il numero di thread in attesa di una connessione
+	 */
+	public int getWaitingThreads() {
+		return this.waiters.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.wolfetti.swissknife.db.pool.ConnectionPool#close()
+	 */
+	@Override
+	public void close() {
+		if(!this.closed.compareAndSet(false, true)){
+			return;
+		}
+
+		this.housekeeper.shutdownNow();
+
+		// Le connessioni in uso vengono chiuse alla restituzione
+		for(Entry entry : this.entries){
+			if(entry.state.compareAndSet(IDLE, IN_USE)){
+				this.remove(entry);
+			}
+		}
+	}
+
+	/**
+	 * Connessione fisica del pool con il suo stato.
+	 */
+	private static final class Entry {
+		final Connection connection;
+		final AtomicInteger state;
+		volatile long lastAccess;
+
+		/* Le impostazioni iniziali della connessione, ripristinate alla restituzione se modificate */
+		final boolean readOnly;
+		final int isolation;
+		boolean readOnlyChanged;
+		boolean isolationChanged;
+
+		/* Gli statement aperti da chi utilizza la connessione */
+		final Set<PooledStatement> statements = Collections.newSetFromMap(new ConcurrentHashMap<PooledStatement, Boolean>());
+
+		Entry(Connection connection, int state)
+		throws SQLException {
+			this.connection = connection;
+			this.state = new AtomicInteger(state);
+			this.lastAccess = System.currentTimeMillis();
+			this.readOnly = connection.isReadOnly();
+			this.isolation = connection.getTransactionIsolation();
+		}
+	}
+}
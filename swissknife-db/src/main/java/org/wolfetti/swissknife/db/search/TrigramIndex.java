@@ -0,0 +1,860 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.search;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.wolfetti.swissknife.common.logger.Log;
+import org.wolfetti.swissknife.common.logger.LogFactory;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.beanutils.RsToBeanConverter;
+import org.wolfetti.swissknife.db.beanutils.RsToMapConverter;
+import org.wolfetti.swissknife.db.entities.Search;
+import org.wolfetti.swissknife.db.entities.SearchType;
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+import org.wolfetti.swissknife.db.exceptions.IllegalOperationException;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+import org.wolfetti.swissknife.db.utils.ResultSetHelper;
+import org.wolfetti.swissknife.db.utils.SearchCompiler;
+
+/**
+ * Indice in memoria per trigrammi delle colonne testuali di una tabella, utilizzabile per risolvere
+ * gli oggetti {@link Search} senza effettuare una scansione completa della tabella sul database.
+ * <br><br>
+ * Ogni riga viene indicizzata per i trigrammi (sequenze di tre caratteri) dei valori delle colonne, convertiti
+ * in minuscolo: la ricerca di un termine interseca le liste delle righe che contengono tutti i suoi trigrammi e
+ * verifica i candidati sui valori in memoria, quindi il risultato &egrave; esatto e non solo un insieme di candidati.
+ * I termini pi&ugrave; corti di tre caratteri vengono verificati su tutte le righe. La ricerca non distingue
+ * tra maiuscole e minuscole, come le collation predefinite di MySQL.
+ * <br><br>
+ * L'indice va costruito con {@link #build(DbConnector)} e pu&ograve; essere aggiornato in maniera incrementale:
+ * <ul>
+ * <li>con {@link #refresh(DbConnector)}, che rilegge le righe modificate dall'ultimo aggiornamento in base alla
+ * colonna indicata in {@link #setUpdatedColumn(String)} (le righe eliminate non vengono rilevate);</li>
+ * <li>con {@link #refresh(DbConnector, Object...)}, che rilegge le righe con le chiavi indicate, rimuovendo
+ * quelle non pi&ugrave; presenti;</li>
+ * <li>con {@link #remove(Object...)}, che rimuove le righe indicate senza accedere al database.</li>
+ * </ul>
+ * Le righe aggiornate o rimosse restano nelle liste dei trigrammi fino alla compattazione automatica,
+ * eseguita quando superano la met&agrave; delle righe indicizzate.
+ * <br><br>
+ * Le chiavi numeriche intere vengono normalizzate in {@link Long}, in maniera che una chiave letta come
+ * {@link Integer} o {@link BigDecimal} corrisponda a quella passata dal chiamante.
+ * L'indice &egrave; thread safe: le ricerche possono essere eseguite in concorrenza tra loro e con la lettura
+ * delle righe da aggiornare, che vengono applicate in esclusiva solo al termine della query.
+ *
+ * <pre>
+ * TrigramIndex index = new TrigramIndex("prodotti", "id", "codice", "descrizione");
+ * index.setUpdatedColumn("modificato");
+ * index.build(connector);
+ *
+ * List&lt;Prodotto&gt; result = index.find(connector, search, Prodotto.class);
+ * </pre>
+ *
+ * @author Fabio Frijo
+ */
+public class TrigramIndex {
+
+	/**
+	 * Il numero massimo di chiavi per ogni lettura per chiave, se non impostato diversamente
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+
+	/**
+	 * Il numero minimo di righe obsolete prima di una compattazione
+	 */
+	private static final int MIN_COMPACT = 1024;
+
+	/**
+	 * Logger
+	 */
+	private static final Log log = LogFactory.getLog(TrigramIndex.class);
+
+	private final String table;
+	private final String keyColumn;
+	private final String[] columns;
+
+	/**
+	 * La colonna con la data di ultima modifica delle righe, oppure <code>null</code>
+	 */
+	private volatile String updatedColumn = null;
+
+	private volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Il contenuto dell'indice, <code>null</code> finch&eacute; non viene costruito
+	 */
+	private Segment segment = null;
+
+	/**
+	 * Il valore massimo della colonna di ultima modifica tra le righe lette
+	 */
+	private Object lastUpdated = null;
+
+	/**
+	 * Crea un indice sulle colonne indicate.
+	 *
+	 * @param table
+	 * 	La tabella da indicizzare
+	 *
+	 * @param keyColumn
+	 * 	La colonna della chiave primaria
+	 *
+	 * @param columns
+	 * 	Le colonne testuali da indicizzare, con gli stessi nomi utilizzati negli oggetti {@link Search}
+	 */
+	public TrigramIndex(String table, String keyColumn, String ... columns) {
+		if(columns == null || columns.length == 0){
+			throw new IllegalArgumentException("Nessuna colonna da indicizzare");
+		}
+
+		this.table = table;
+		this.keyColumn = keyColumn;
+		this.columns = columns.clone();
+	}
+
+	/**
+	 * Imposta la colonna con la data (o la versione) di ultima modifica delle righe,
+	 * utilizzata da {@link #refresh(DbConnector)} per leggere soltanto le righe modificate.
+	 */
+	public void setUpdatedColumn(String updatedColumn) {
+		this.updatedColumn = updatedColumn;
+	}
+
+	/**
+	 * Imposta il numero massimo di chiavi per ogni query di lettura per chiave, di default {@value #DEFAULT_CHUNK_SIZE}.
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = Math.max(1, chunkSize);
+	}
+
+	/* ==================================== */
+	/* ======= COSTRUZIONE INDICE ========= */
+	/* ==================================== */
+
+	/**
+	 * Costruisce l'indice leggendo tutte le righe della tabella in streaming.
+	 * Le ricerche concorrenti continuano ad utilizzare l'indice precedente fino al termine della lettura.
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la lettura fallisce
+	 */
+	public void build(DbConnector connector)
+	throws SqlQueryException {
+		long start = System.currentTimeMillis();
+
+		Segment built = new Segment(this.columns.length);
+		Object updated = this.read(connector, this.select(null), built);
+
+		this.lock.writeLock().lock();
+		try {
+			this.segment = built;
+			this.lastUpdated = updated;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+
+		log.info("Indice " + this.table + " costruito: " + built.live + " righe, " +
+			built.postings.size() + " trigrammi in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Aggiorna l'indice con le righe modificate dall'ultima lettura, in base alla colonna
+	 * di {@link #setUpdatedColumn(String) ultima modifica}. Se la colonna non &egrave; impostata,
+	 * o se l'indice non &egrave; ancora stato costruito, l'indice viene ricostruito per intero.
+	 * <br><br>
+	 * Vengono rilette anche le righe con lo stesso valore dell'ultima modifica gi&agrave; letta, in maniera da
+	 * includere quelle salvate nello stesso istante da transazioni concluse dopo la lettura precedente.
+	 *
+	 * @return
+	 * 	Il numero di righe lette
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la lettura fallisce
+	 */
+	public int refresh(DbConnector connector)
+	throws SqlQueryException {
+		String updated = this.updatedColumn;
+		Object from;
+
+		this.lock.readLock().lock();
+		try {
+			from = this.segment != null ? this.lastUpdated : null;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+
+		if(updated == null || from == null){
+			this.build(connector);
+			return this.size();
+		}
+
+		Segment changes = new Segment(this.columns.length);
+		Object last = this.read(connector, this.select(updated + " >= ?"), changes, from);
+
+		this.lock.writeLock().lock();
+		try {
+			for(int o = 0; o < changes.count; o++){
+				this.segment.put(changes.keys[o], changes.values[o]);
+			}
+
+			if(last != null && compare(last, this.lastUpdated) > 0){
+				this.lastUpdated = last;
+			}
+
+			this.compact();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+
+		return changes.count;
+	}
+
+	/**
+	 * Rilegge le righe con le chiavi indicate, rimuovendo dall'indice quelle non pi&ugrave; presenti sul database.
+	 * Da utilizzare dopo le scritture sulla tabella, quando non &egrave; disponibile una colonna di ultima modifica
+	 * o le righe possono essere eliminate.
+	 *
+	 * @throws SqlQueryException
+	 * 	Quando la lettura fallisce
+	 *
+	 * @throws IllegalOperationException
+	 * 	Se l'indice non &egrave; ancora stato costruito
+	 */
+	public void refresh(DbConnector connector, Object ... keys)
+	throws SqlQueryException {
+		this.check();
+
+		Segment changes = new Segment(this.columns.length);
+		int size = this.chunkSize;
+
+		for(int from = 0; from < keys.length; from += size){
+			Object[] chunk = chunk(keys, from, size);
+			this.read(connector, this.select(this.keyColumn + " IN (" + placeholders(chunk.length) + ")"), changes, chunk);
+		}
+
+		this.lock.writeLock().lock();
+		try {
+			for(Object key : keys){
+				Object normalized = normalize(key);
+
+				if(!changes.ordinals.containsKey(normalized)){
+					this.segment.remove(normalized);
+				}
+			}
+
+			for(int o = 0; o < changes.count; o++){
+				this.segment.put(changes.keys[o], changes.values[o]);
+			}
+
+			this.compact();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Rimuove dall'indice le righe con le chiavi indicate.
+	 *
+	 * @throws IllegalOperationException
+	 * 	Se l'indice non &egrave; ancora stato costruito
+	 */
+	public void remove(Object ... keys){
+		this.check();
+
+		this.lock.writeLock().lock();
+		try {
+			for(Object key : keys){
+				this.segment.remove(normalize(key));
+			}
+
+			this.compact();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return
+	 * 	Il numero di righe indicizzate
+	 */
+	public int size(){
+		this.lock.readLock().lock();
+		try {
+			return this.segment != null ? this.segment.live : 0;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return
+	 * 	Il numero di trigrammi distinti nell'indice
+	 */
+	public int getTrigramCount(){
+		this.lock.readLock().lock();
+		try {
+			return this.segment != null ? this.segment.postings.size() : 0;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/* ==================================== */
+	/* ============ RICERCA =============== */
+	/* ==================================== */
+
+	/**
+	 * Restituisce le chiavi delle righe che soddisfano la ricerca in ingresso, con la stessa semantica della
+	 * condizione generata da {@link SearchCompiler}: ogni termine deve essere presente in almeno una delle colonne.
+	 * Se la ricerca non ha colonne viene effettuata su tutte quelle indicizzate, mentre se non ha termini
+	 * vengono restituite tutte le chiavi, come avviene per le query sul database.
+	 *
+	 * @throws IllegalArgumentException
+	 * 	Se la ricerca riguarda una colonna non indicizzata
+	 *
+	 * @throws IllegalOperationException
+	 * 	Se l'indice non &egrave; ancora stato costruito
+	 */
+	public List<Object> search(Search search){
+		this.check();
+
+		int[] columns = this.columnIndexes(search.getColumns());
+		List<String> terms = new ArrayList<String>();
+
+		for(String term : SearchCompiler.tokenize(search.getText())){
+			terms.add(term.toLowerCase(Locale.ROOT));
+		}
+
+		// I termini piu' lunghi sono i piu' selettivi
+		Collections.sort(terms, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return b.length() - a.length();
+			}
+		});
+
+		SearchType type = search.getSearchType() != null ? search.getSearchType() : SearchType.CONTAINS;
+
+		this.lock.readLock().lock();
+		try {
+			Segment segment = this.segment;
+			int[] result = null;
+
+			for(String term : terms){
+				result = segment.match(intersect(result, segment.candidates(term)), term, columns, type);
+
+				if(result.length == 0){
+					break;
+				}
+			}
+
+			return segment.keys(result);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Legge dal database le righe che soddisfano la ricerca, per chiave.
+	 *
+	 * @see #search(Search)
+	 */
+	public List<Map<String, Object>> find(DbConnector connector, Search search)
+	throws SqlQueryException {
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
+		List<Object> keys = this.search(search);
+
+		for(int from = 0; from < keys.size(); from += this.chunkSize){
+			result.addAll(RsToMapConverter.getList(this.fetch(connector, keys, from)));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Legge dal database le righe che soddisfano la ricerca, per chiave, e le converte nella classe in ingresso.
+	 *
+	 * @see #search(Search)
+	 */
+	public <T> List<T> find(DbConnector connector, Search search, Class<T> beanClass)
+	throws SqlQueryException, ConverterException {
+		List<T> result = new ArrayList<T>();
+		List<Object> keys = this.search(search);
+
+		for(int from = 0; from < keys.size(); from += this.chunkSize){
+			result.addAll(RsToBeanConverter.getList(this.fetch(connector, keys, from), beanClass));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Legge un blocco di righe per chiave. L'ultimo blocco viene completato ripetendo l'ultima chiave,
+	 * in maniera che tutte le query abbiano lo stesso testo e riutilizzino lo stesso statement.
+	 */
+	private ResultSet fetch(DbConnector connector, List<Object> keys, int from)
+	throws SqlQueryException {
+		int size = this.chunkSize;
+		Object[] parameters = new Object[Math.min(size, Math.max(keys.size(), 1))];
+
+		for(int i = 0; i < parameters.length; i++){
+			parameters[i] = keys.get(Math.min(from + i, keys.size() - 1));
+		}
+
+		return connector.preparedQuery(
+			"SELECT * FROM " + this.table + " WHERE " + this.keyColumn + " IN (" + placeholders(parameters.length) + ")",
+			parameters
+		);
+	}
+
+	/* ==================================== */
+	/* ========= METODI DI SUPPORTO ======= */
+	/* ==================================== */
+
+	/**
+	 * Restituisce la query di lettura delle righe, con la condizione indicata.
+	 */
+	private String select(String where){
+		StringBuilder sql = new StringBuilder("SELECT ").append(this.keyColumn);
+
+		for(String column : this.columns){
+			sql.append(", ").append(column);
+		}
+
+		if(this.updatedColumn != null){
+			sql.append(", ").append(this.updatedColumn);
+		}
+
+		sql.append(" FROM ").append(this.table);
+
+		if(where != null){
+			sql.append(" WHERE ").append(where);
+		}
+
+		return sql.toString();
+	}
+
+	/**
+	 * Legge le righe della query nel segmento in ingresso.
+	 *
+	 * @return
+	 * 	Il valore massimo della colonna di ultima modifica, oppure <code>null</code>
+	 */
+	private Object read(DbConnector connector, String sql, Segment target, Object ... parameters)
+	throws SqlQueryException {
+		boolean updated = this.updatedColumn != null;
+		Object last = null;
+
+		ResultSet rs = connector.openCursor(sql, parameters);
+		try {
+			while(rs.next()){
+				String[] row = new String[this.columns.length];
+
+				for(int c = 0; c < row.length; c++){
+					String value = rs.getString(c + 2);
+					row[c] = value != null ? value.toLowerCase(Locale.ROOT) : null;
+				}
+
+				target.put(normalize(rs.getObject(1)), row);
+
+				if(updated){
+					Object value = rs.getObject(this.columns.length + 2);
+
+					if(value != null && (last == null || compare(value, last) > 0)){
+						last = value;
+					}
+				}
+			}
+		} catch (SQLException e) {
+			throw new SqlQueryException(sql, "Errore durante la lettura delle righe da indicizzare", e);
+		} finally {
+			ResultSetHelper.closeWithStatement(rs);
+		}
+
+		return last;
+	}
+
+	/**
+	 * Ricostruisce il segmento quando contiene troppe righe obsolete.
+	 * Va invocato con il lock in scrittura.
+	 */
+	private void compact(){
+		Segment current = this.segment;
+		int stale = current.count - current.live;
+
+		if(stale < MIN_COMPACT || stale < current.live){
+			return;
+		}
+
+		Segment compacted = new Segment(this.columns.length);
+		for(int o = 0; o < current.count; o++){
+			if(current.values[o] != null){
+				compacted.put(current.keys[o], current.values[o]);
+			}
+		}
+
+		this.segment = compacted;
+		log.debug("Indice " + this.table + " compattato: " + stale + " righe obsolete rimosse");
+	}
+
+	private void check(){
+		this.lock.readLock().lock();
+		try {
+			if(this.segment == null){
+				throw new IllegalOperationException("L'indice sulla tabella " + this.table + " non e' stato costruito");
+			}
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Restituisce le posizioni delle colonne della ricerca tra quelle indicizzate.
+	 */
+	private int[] columnIndexes(List<String> names){
+		if(names == null || names.isEmpty()){
+			int[] all = new int[this.columns.length];
+			for(int c = 0; c < all.length; c++){
+				all[c] = c;
+			}
+			return all;
+		}
+
+		int[] result = new int[names.size()];
+
+		for(int i = 0; i < result.length; i++){
+			result[i] = -1;
+
+			for(int c = 0; c < this.columns.length; c++){
+				if(this.columns[c].equalsIgnoreCase(names.get(i))){
+					result[i] = c;
+					break;
+				}
+			}
+
+			if(result[i] < 0){
+				throw new IllegalArgumentException("La colonna " + names.get(i) + " non e' indicizzata su " + this.table);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Normalizza le chiavi numeriche intere in {@link Long}.
+	 */
+	static Object normalize(Object key){
+		if(key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte){
+			return Long.valueOf(((Number) key).longValue());
+		}
+
+		if(key instanceof BigInteger && ((BigInteger) key).bitLength() < 64){
+			return Long.valueOf(((BigInteger) key).longValue());
+		}
+
+		if(key instanceof BigDecimal){
+			try {
+				return Long.valueOf(((BigDecimal) key).longValueExact());
+			} catch (ArithmeticException e) {
+				return key;
+			}
+		}
+
+		return key;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static int compare(Object a, Object b){
+		return ((Comparable) a).compareTo(b);
+	}
+
+	private static Object[] chunk(Object[] values, int from, int size){
+		return Arrays.copyOfRange(values, from, Math.min(values.length, from + size));
+	}
+
+	private static String placeholders(int count){
+		StringBuilder result = new StringBuilder(count * 2);
+
+		for(int i = 0; i < count; i++){
+			result.append(i > 0 ? ",?" : "?");
+		}
+
+		return result.toString();
+	}
+
+	/**
+	 * Interseca due liste ordinate di posizioni, dove <code>null</code> rappresenta tutte le righe.
+	 */
+	private static int[] intersect(int[] a, int[] b){
+		if(a == null){
+			return b;
+		}
+
+		if(b == null){
+			return a;
+		}
+
+		return intersect(a, b, b.length);
+	}
+
+	/**
+	 * Interseca una lista ordinata di posizioni con i primi <code>length</code> elementi di un'altra.
+	 */
+	private static int[] intersect(int[] a, int[] b, int length){
+		int[] result = new int[Math.min(a.length, length)];
+		int i = 0, j = 0, n = 0;
+
+		while(i < a.length && j < length){
+			if(a[i] < b[j]){
+				i++;
+			} else if(a[i] > b[j]){
+				j++;
+			} else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Codifica i tre caratteri a partire dalla posizione indicata.
+	 */
+	private static long trigram(String value, int i){
+		return ((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2);
+	}
+
+	/* ==================================== */
+	/* ============ SEGMENTO ============== */
+	/* ==================================== */
+
+	/**
+	 * Il contenuto dell'indice: le righe, in ordine di inserimento, e per ogni trigramma
+	 * la lista ordinata delle posizioni delle righe che lo contengono.
+	 * Una riga aggiornata viene aggiunta in fondo e la sua posizione precedente viene svuotata.
+	 */
+	private static final class Segment {
+		private final int width;
+		private final Map<Object, Integer> ordinals = new HashMap<Object, Integer>();
+		private final Map<Long, Postings> postings = new HashMap<Long, Postings>();
+
+		private Object[] keys = new Object[1024];
+		private String[][] values = new String[1024][];
+
+		/**
+		 * Il numero di posizioni utilizzate
+		 */
+		private int count = 0;
+
+		/**
+		 * Il numero di righe presenti
+		 */
+		private int live = 0;
+
+		Segment(int width){
+			this.width = width;
+		}
+
+		void put(Object key, String[] row){
+			this.remove(key);
+
+			if(this.count == this.keys.length){
+				this.keys = Arrays.copyOf(this.keys, this.count * 2);
+				this.values = Arrays.copyOf(this.values, this.count * 2);
+			}
+
+			int ordinal = this.count++;
+			this.keys[ordinal] = key;
+			this.values[ordinal] = row;
+			this.ordinals.put(key, Integer.valueOf(ordinal));
+			this.live++;
+
+			for(int c = 0; c < this.width; c++){
+				String value = row[c];
+
+				if(value != null){
+					for(int i = 0, l = value.length() - 2; i < l; i++){
+						Long trigram = Long.valueOf(trigram(value, i));
+						Postings list = this.postings.get(trigram);
+
+						if(list == null){
+							list = new Postings();
+							this.postings.put(trigram, list);
+						}
+
+						list.add(ordinal);
+					}
+				}
+			}
+		}
+
+		void remove(Object key){
+			Integer ordinal = this.ordinals.remove(key);
+
+			if(ordinal != null){
+				this.values[ordinal.intValue()] = null;
+				this.live--;
+			}
+		}
+
+		/**
+		 * Restituisce le posizioni delle righe che contengono tutti i trigrammi del termine,
+		 * oppure <code>null</code> se il termine &egrave; troppo corto per avere trigrammi.
+		 */
+		int[] candidates(String term){
+			if(term.length() < 3){
+				return null;
+			}
+
+			List<Postings> lists = new ArrayList<Postings>();
+
+			for(int i = 0, l = term.length() - 2; i < l; i++){
+				Postings list = this.postings.get(Long.valueOf(trigram(term, i)));
+
+				if(list == null){
+					return new int[0];
+				}
+
+				lists.add(list);
+			}
+
+			Collections.sort(lists);
+
+			int[] result = lists.get(0).toArray();
+			for(int i = 1; i < lists.size() && result.length > 0; i++){
+				Postings list = lists.get(i);
+				result = intersect(result, list.ordinals, list.size);
+			}
+
+			return result;
+		}
+
+		/**
+		 * Verifica il termine sulle righe candidate (<code>null</code> per tutte le righe).
+		 */
+		int[] match(int[] candidates, String term, int[] columns, SearchType type){
+			int total = candidates != null ? candidates.length : this.count;
+			int[] result = new int[total];
+			int n = 0;
+
+			for(int i = 0; i < total; i++){
+				int ordinal = candidates != null ? candidates[i] : i;
+				String[] row = this.values[ordinal];
+
+				if(row == null){
+					continue;
+				}
+
+				for(int c : columns){
+					String value = row[c];
+
+					if(value != null && matches(value, term, type)){
+						result[n++] = ordinal;
+						break;
+					}
+				}
+			}
+
+			return Arrays.copyOf(result, n);
+		}
+
+		/**
+		 * Restituisce le chiavi delle posizioni indicate (<code>null</code> per tutte le righe).
+		 */
+		List<Object> keys(int[] ordinals){
+			List<Object> result = new ArrayList<Object>(ordinals != null ? ordinals.length : this.live);
+
+			if(ordinals == null){
+				for(int o = 0; o < this.count; o++){
+					if(this.values[o] != null){
+						result.add(this.keys[o]);
+					}
+				}
+			}
+
+			else {
+				for(int o : ordinals){
+					result.add(this.keys[o]);
+				}
+			}
+
+			return result;
+		}
+
+		private static boolean matches(String value, String term, SearchType type){
+			switch (type) {
+				case STARTS:
+					return value.startsWith(term);
+				case ENDS:
+					return value.endsWith(term);
+				default:
+					return value.contains(term);
+			}
+		}
+	}
+
+	/**
+	 * Lista ordinata delle posizioni delle righe che contengono un trigramma.
+	 */
+	private static final class Postings implements Comparable<Postings> {
+		private int[] ordinals = new int[4];
+		private int size = 0;
+
+		void add(int ordinal){
+
+			// Le posizioni vengono aggiunte in ordine, un trigramma ripetuto nella stessa riga va ignorato
+			if(this.size > 0 && this.ordinals[this.size - 1] == ordinal){
+				return;
+			}
+
+			if(this.size == this.ordinals.length){
+				this.ordinals = Arrays.copyOf(this.ordinals, this.size * 2);
+			}
+
+			this.ordinals[this.size++] = ordinal;
+		}
+
+		int[] toArray(){
+			return Arrays.copyOf(this.ordinals, this.size);
+		}
+
+		@Override
+		public int compareTo(Postings o) {
+			return this.size - o.size;
+		}
+	}
+}
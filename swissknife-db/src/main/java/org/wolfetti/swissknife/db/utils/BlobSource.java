@@ -0,0 +1,254 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Il contenuto di un BLOB da scrivere in streaming, senza caricarlo in memoria.
+ * <br><br>
+ * Pu&ograve; essere passato come valore di un parametro a tutte le query parametrizzate del connettore
+ * (vedi {@link ParameterBinder}): il contenuto viene letto dal driver durante l'esecuzione della query
+ * e al termine il connettore chiude lo stream aperto dalla sorgente.
+ * Gli stream passati dal chiamante con {@link #of(InputStream)} <b>non</b> vengono chiusi.
+ *
+ * @author Fabio Frijo
+ */
+public final class BlobSource implements Closeable {
+
+	/**
+	 * Il file da leggere
+	 */
+	private final Path path;
+
+	/**
+	 * Lo stream del chiamante
+	 */
+	private final InputStream input;
+
+	/**
+	 * Il buffer da leggere
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * La lunghezza del contenuto, <code>-1</code> se non nota
+	 */
+	private long length;
+
+	/**
+	 * Lo stream aperto dalla sorgente
+	 */
+	private InputStream opened;
+
+	private BlobSource(Path path, InputStream input, ByteBuffer buffer, long length){
+		this.path = path;
+		this.input = input;
+		this.buffer = buffer;
+		this.length = length;
+	}
+
+	/**
+	 * Sorgente che legge il file indicato, aperto durante l'esecuzione della query e chiuso al termine.
+	 */
+	public static BlobSource of(Path path){
+		return new BlobSource(path, null, null, -1L);
+	}
+
+	/**
+	 * Sorgente che legge il file indicato, aperto durante l'esecuzione della query e chiuso al termine.
+	 */
+	public static BlobSource of(File file){
+		return of(file.toPath());
+	}
+
+	/**
+	 * Sorgente che legge lo stream del chiamante, fino alla fine, senza chiuderlo.
+	 */
+	public static BlobSource of(InputStream input){
+		return new BlobSource(null, input, null, -1L);
+	}
+
+	/**
+	 * Sorgente che legge il numero di bytes indicato dallo stream del chiamante, senza chiuderlo.
+	 */
+	public static BlobSource of(InputStream input, long length){
+		return new BlobSource(null, input, null, length);
+	}
+
+	/**
+	 * Sorgente che legge i bytes rimanenti del buffer, senza copiarli e senza modificarne la posizione.
+	 */
+	public static BlobSource of(ByteBuffer buffer){
+		return new BlobSource(null, null, buffer, buffer.remaining());
+	}
+
+	/**
+	 * Sorgente che legge l'array di bytes, senza copiarlo.
+	 */
+	public static BlobSource of(byte[] bytes){
+		return of(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Apre lo stream del contenuto. Le chiamate successive restituiscono lo stesso stream fino a {@link #close()}.
+	 *
+	 * @throws IOException
+	 * 	Quando il file non pu&ograve; essere letto
+	 */
+	public InputStream open()
+	throws IOException {
+		if(this.opened == null){
+			if(this.path != null){
+				this.length = Files.size(this.path);
+				this.opened = Files.newInputStream(this.path);
+			}
+
+			else if(this.buffer != null){
+				this.opened = openBuffer(this.buffer);
+			}
+
+			else {
+				this.opened = this.input;
+			}
+		}
+
+		return this.opened;
+	}
+
+	/**
+	 * @return la lunghezza del contenuto in bytes, <code>-1</code> se non nota (per i file &egrave; nota dopo {@link #open()})
+	 */
+	public long getLength() {
+		return this.length;
+	}
+
+	/**
+	 * Imposta il contenuto come parametro dello statement, in streaming.
+	 *
+	 * @throws SQLException
+	 * 	Quando il driver rifiuta lo stream o il contenuto non pu&ograve; essere letto
+	 */
+	public void bind(PreparedStatement ps, int index)
+	throws SQLException {
+		InputStream in;
+
+		try {
+			in = this.open();
+		} catch (IOException e) {
+			throw new SQLException("Impossibile leggere il contenuto del parametro " + index, e);
+		}
+
+		if(this.length >= 0){
+			ps.setBinaryStream(index, in, this.length);
+		} else {
+			ps.setBinaryStream(index, in);
+		}
+	}
+
+	/**
+	 * Chiude lo stream aperto dalla sorgente. Lo stream del chiamante non viene chiuso.
+	 */
+	@Override
+	public void close() {
+		InputStream in = this.opened;
+		this.opened = null;
+
+		if(in != null && in != this.input){
+			try {
+				in.close();
+			}
+
+			// Ignored closing exceptions
+			catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Chiude tutte le sorgenti presenti tra i valori in ingresso.
+	 */
+	public static void closeAll(Object ... values){
+		if(values == null){
+			return;
+		}
+
+		for(Object value : values){
+			if(value instanceof BlobSource){
+				((BlobSource) value).close();
+			}
+		}
+	}
+
+	/**
+	 * Apre uno stream sui bytes rimanenti del buffer, senza copiarli.
+	 */
+	static InputStream openBuffer(ByteBuffer buffer){
+		if(buffer.hasArray()){
+			return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+
+		return new BufferInputStream(buffer.duplicate());
+	}
+
+	/**
+	 * Stream in lettura su un buffer diretto.
+	 */
+	private static final class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private BufferInputStream(ByteBuffer buffer){
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if(len == 0){
+				return 0;
+			}
+
+			if(!this.buffer.hasRemaining()){
+				return -1;
+			}
+
+			int n = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,500 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.common.logger.Log;
+import org.wolfetti.swissknife.common.logger.LogFactory;
+import org.wolfetti.swissknife.db.entities.ConnectorHolder;
+
+/**
+ * Tracciamento dei connettori aperti, per individuare quelli che non vengono chiusi e trattengono
+ * le connessioni del pool.
+ * <br><br>
+ * Per ogni connettore vengono registrati il datasource, il thread e lo stack di apertura (a partire dal
+ * chiamante della libreria). Un thread di controllo segnala a livello WARN i connettori aperti da oltre
+ * <code>sk.db.leakThresholdMillis</code>, una sola volta per connettore, e a livello ERROR quelli raccolti
+ * dal garbage collector senza essere stati chiusi. Alla chiusura il tempo di utilizzo viene registrato in un
+ * istogramma. Lo stato &egrave; esposto tramite JMX (vedi {@link ConnectorTrackerMBean}).
+ * <br><br>
+ * Il tracciamento viene attivato per i connettori configurati con <code>sk.db.leakDetection = true</code>;
+ * l'istanza &egrave; unica per tutti i datasource. Il costo principale &egrave; la lettura dello stack
+ * all'apertura di ogni connettore.
+ *
+ * @author Fabio Frijo
+ */
+public final class ConnectorTracker implements ConnectorTrackerMBean {
+
+	/**
+	 * Il nome JMX del tracker
+	 */
+	public static final String OBJECT_NAME = "org.wolfetti.swissknife.db:type=ConnectorTracker";
+
+	/**
+	 * Il tempo oltre il quale un connettore aperto &egrave; un possibile leak, se non configurato diversamente
+	 */
+	public static final long DEFAULT_LEAK_THRESHOLD_MILLIS = 30000;
+
+	/**
+	 * L'intervallo tra due controlli dei connettori aperti
+	 */
+	private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * I frames iniziali esclusi dallo stack di apertura: la libreria e la reflection
+	 */
+	private static final String[] INTERNAL_FRAMES = {
+		"org.wolfetti.swissknife.db.", "java.lang.reflect.", "sun.reflect.", "jdk.internal.reflect.", "java.lang.Thread"
+	};
+
+	/**
+	 * Logger
+	 */
+	private static final Log log = LogFactory.getLog(ConnectorTracker.class);
+
+	/**
+	 * L'unica istanza, creata dal primo connettore che attiva il tracciamento
+	 */
+	private static volatile ConnectorTracker instance = null;
+
+	/**
+	 * I connettori aperti per progressivo
+	 */
+	private final ConcurrentMap<Long, Lease> open = new ConcurrentHashMap<Long, Lease>();
+
+	/**
+	 * La coda dei connettori raccolti dal garbage collector
+	 */
+	private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+
+	/**
+	 * I tempi di utilizzo dei connettori chiusi
+	 */
+	private final LatencyHistogram holdTimes = new LatencyHistogram();
+
+	private final AtomicLong sequence = new AtomicLong();
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong released = new AtomicLong();
+	private final AtomicLong leakWarnings = new AtomicLong();
+	private final AtomicLong collectedUnclosed = new AtomicLong();
+	private final AtomicLong maxHoldNanos = new AtomicLong();
+
+	private volatile long leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_LEAK_THRESHOLD_MILLIS);
+
+	private ConnectorTracker(){}
+
+	/* ===================================================================================== */
+	/* ===================================== ISTANZA ======================================= */
+	/* ===================================================================================== */
+
+	/**
+	 * Restituisce il tracker, creandolo, registrandolo su JMX e avviando il thread di controllo alla prima chiamata.
+	 */
+	public static ConnectorTracker get(){
+		ConnectorTracker tracker = instance;
+
+		if(tracker == null){
+			synchronized (ConnectorTracker.class) {
+				tracker = instance;
+
+				if(tracker == null){
+					tracker = new ConnectorTracker();
+					register(tracker);
+					tracker.startWatchdog();
+					instance = tracker;
+				}
+			}
+		}
+
+		return tracker;
+	}
+
+	/**
+	 * Restituisce il tracker se la configurazione del connettore attiva il tracciamento
+	 * (<code>sk.db.leakDetection</code>), altrimenti <code>null</code>.
+	 * Se presente, viene applicata la soglia di segnalazione (<code>sk.db.leakThresholdMillis</code>).
+	 */
+	public static ConnectorTracker configure(Configuration conf){
+		if(!conf.getBoolean(DB.KEY_LEAK_DETECTION, false)){
+			return null;
+		}
+
+		ConnectorTracker tracker = get();
+
+		if(conf.containsKey(DB.KEY_LEAK_THRESHOLD_MILLIS)){
+			tracker.setLeakThresholdMillis(conf.getLong(DB.KEY_LEAK_THRESHOLD_MILLIS));
+		}
+
+		return tracker;
+	}
+
+	private static void register(ConnectorTracker tracker){
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+
+			// Es. un'altra applicazione dello stesso server con la propria copia della libreria
+			if(server.isRegistered(name)){
+				log.warn("MBean " + OBJECT_NAME + " gia' registrato: i connettori di questa istanza non saranno visibili via JMX.");
+				return;
+			}
+
+			server.registerMBean(tracker, name);
+		} catch (JMException | SecurityException e) {
+			log.warn("Impossibile registrare l'MBean " + OBJECT_NAME, e);
+		}
+	}
+
+	/* ===================================================================================== */
+	/* =================================== TRACCIAMENTO ==================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * Registra l'apertura di un connettore: va chiusa con {@link Lease#release()} alla chiusura del connettore.
+	 *
+	 * @param connector
+	 * 	Il connettore, referenziato in maniera debole per riconoscere quelli abbandonati
+	 *
+	 * @param datasource
+	 * 	Il nome del datasource
+	 *
+	 * @param transaction
+	 * 	<code>true</code> se il connettore &egrave; in transazione
+	 */
+	public Lease track(Object connector, String datasource, boolean transaction){
+		Lease lease = new Lease(this, connector, datasource, transaction);
+
+		this.open.put(lease.id, lease);
+		this.acquired.incrementAndGet();
+
+		return lease;
+	}
+
+	/**
+	 * L'apertura di un connettore registrata dal tracker.
+	 */
+	public static final class Lease extends WeakReference<Object> {
+		private final ConnectorTracker tracker;
+		private final long id;
+		private final String datasource;
+		private final boolean transaction;
+		private final String thread;
+		private final long acquiredAt;
+		private final long start;
+
+		/**
+		 * Lo stack di apertura, come eccezione da allegare alle segnalazioni
+		 */
+		private final Throwable origin;
+
+		private volatile boolean warned = false;
+
+		private Lease(ConnectorTracker tracker, Object connector, String datasource, boolean transaction){
+			super(connector, tracker.collected);
+			this.tracker = tracker;
+			this.id = tracker.sequence.incrementAndGet();
+			this.datasource = datasource;
+			this.transaction = transaction;
+			this.thread = Thread.currentThread().getName();
+			this.acquiredAt = System.currentTimeMillis();
+			this.start = System.nanoTime();
+
+			this.origin = new Throwable("Connettore #" + this.id + " aperto dal thread " + this.thread);
+			this.origin.setStackTrace(callerFrames(this.origin.getStackTrace()));
+		}
+
+		/**
+		 * Registra la chiusura del connettore; le chiamate successive alla prima vengono ignorate.
+		 */
+		public void release(){
+			this.clear();
+
+			if(this.tracker.open.remove(this.id, this)){
+				long held = System.nanoTime() - this.start;
+				this.tracker.released(held);
+
+				if(this.warned){
+					log.info(String.format("Connettore #%d (%s) chiuso dopo %.1fs", this.id, this.datasource, held / 1e9));
+				}
+			}
+		}
+
+		private long heldNanos(long now){
+			return now - this.start;
+		}
+
+		private ConnectorHolder toHolder(long now){
+			return new ConnectorHolder(
+				this.id, this.datasource, this.transaction, this.thread, this.acquiredAt,
+				TimeUnit.NANOSECONDS.toMillis(this.heldNanos(now)), this.origin.getStackTrace()
+			);
+		}
+	}
+
+	/**
+	 * Registra il tempo di utilizzo di un connettore chiuso.
+	 */
+	private void released(long nanos){
+		this.released.incrementAndGet();
+		this.holdTimes.record(nanos);
+
+		long max = this.maxHoldNanos.get();
+		while(nanos > max && !this.maxHoldNanos.compareAndSet(max, nanos)){
+			max = this.maxHoldNanos.get();
+		}
+	}
+
+	/**
+	 * Restituisce lo stack a partire dal primo frame esterno alla libreria, oppure quello completo
+	 * se l'apertura avviene all'interno della libreria stessa.
+	 */
+	private static StackTraceElement[] callerFrames(StackTraceElement[] stack){
+		int first = 0;
+		while(first < stack.length && isInternal(stack[first].getClassName())){
+			first++;
+		}
+
+		return first < stack.length ? Arrays.copyOfRange(stack, first, stack.length) : stack;
+	}
+
+	private static boolean isInternal(String className){
+		for(String prefix : INTERNAL_FRAMES){
+			if(className.startsWith(prefix)){
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/* ===================================================================================== */
+	/* ===================================== CONTROLLO ===================================== */
+	/* ===================================================================================== */
+
+	private void startWatchdog(){
+		Thread watchdog = new Thread("ConnectorTracker-watchdog") {
+			@Override
+			public void run() {
+				while(true){
+					try {
+						Reference<?> ref = collected.remove(CHECK_INTERVAL_MILLIS);
+
+						while(ref != null){
+							abandoned((Lease) ref);
+							ref = collected.poll();
+						}
+
+						checkOverdue();
+					} catch (InterruptedException e) {
+						return;
+					} catch (RuntimeException e) {
+						log.error("Errore durante il controllo dei connettori aperti", e);
+					}
+				}
+			}
+		};
+
+		watchdog.setDaemon(true);
+		watchdog.start();
+	}
+
+	/**
+	 * Segnala un connettore raccolto dal garbage collector senza essere stato chiuso.
+	 */
+	private void abandoned(Lease lease){
+		if(this.open.remove(lease.id, lease)){
+			this.collectedUnclosed.incrementAndGet();
+
+			log.error(String.format(
+				"Connettore #%d (%s) mai chiuso e raccolto dal garbage collector dopo %.1fs: la connessione non e' stata restituita",
+				lease.id, lease.datasource, lease.heldNanos(System.nanoTime()) / 1e9
+			), lease.origin);
+		}
+	}
+
+	/**
+	 * Segnala i connettori aperti da oltre la soglia e non ancora segnalati.
+	 */
+	private void checkOverdue(){
+		long now = System.nanoTime();
+		long threshold = this.leakThresholdNanos;
+
+		for(Lease lease : this.open.values()){
+			if(!lease.warned && lease.heldNanos(now) > threshold){
+				lease.warned = true;
+				this.leakWarnings.incrementAndGet();
+
+				log.warn(String.format(
+					"Possibile leak: connettore #%d (%s%s) aperto da %.1fs e non ancora chiuso",
+					lease.id, lease.datasource, lease.transaction ? ", transazione" : "", lease.heldNanos(now) / 1e9
+				), lease.origin);
+			}
+		}
+	}
+
+	/* ===================================================================================== */
+	/* ==================================== STATISTICHE ==================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * @return i connettori aperti, dal pi&ugrave; vecchio
+	 */
+	public List<ConnectorHolder> getHolders(){
+		long now = System.nanoTime();
+		List<ConnectorHolder> result = new ArrayList<ConnectorHolder>(this.open.size());
+
+		for(Lease lease : this.open.values()){
+			result.add(lease.toHolder(now));
+		}
+
+		Collections.sort(result, new Comparator<ConnectorHolder>() {
+			@Override
+			public int compare(ConnectorHolder a, ConnectorHolder b) {
+				return Long.compare(b.getHeldMillis(), a.getHeldMillis());
+			}
+		});
+
+		return result;
+	}
+
+	@Override
+	public String[] oldestHolders(int limit) {
+		List<ConnectorHolder> holders = this.getHolders();
+		int size = Math.max(0, Math.min(limit, holders.size()));
+		String[] result = new String[size];
+
+		for(int i = 0; i < size; i++){
+			result[i] = holders.get(i).toString();
+		}
+
+		return result;
+	}
+
+	@Override
+	public int getOpenConnectors() {
+		return this.open.size();
+	}
+
+	@Override
+	public String[] getOpenConnectorsByDatasource() {
+		Map<String, Integer> counts = new TreeMap<String, Integer>();
+
+		for(Lease lease : this.open.values()){
+			Integer count = counts.get(lease.datasource);
+			counts.put(lease.datasource, count == null ? 1 : count + 1);
+		}
+
+		List<String> result = new ArrayList<String>(counts.size());
+		for(Map.Entry<String, Integer> e : counts.entrySet()){
+			result.add(e.getKey() + "=" + e.getValue());
+		}
+
+		return result.toArray(new String[result.size()]);
+	}
+
+	@Override
+	public int getOverdueConnectors() {
+		long now = System.nanoTime();
+		long threshold = this.leakThresholdNanos;
+		int result = 0;
+
+		for(Lease lease : this.open.values()){
+			if(lease.heldNanos(now) > threshold){
+				result++;
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public long getAcquired() {
+		return this.acquired.get();
+	}
+
+	@Override
+	public long getReleased() {
+		return this.released.get();
+	}
+
+	@Override
+	public long getLeakWarnings() {
+		return this.leakWarnings.get();
+	}
+
+	@Override
+	public long getCollectedUnclosed() {
+		return this.collectedUnclosed.get();
+	}
+
+	@Override
+	public double getHoldTimeP99Millis() {
+		long max = this.maxHoldNanos.get();
+		long p99 = LatencyHistogram.percentile(this.holdTimes.snapshot(), 99) * 1000;
+
+		// Il percentile e' il limite superiore del bucket: non puo' superare il massimo misurato
+		return Math.min(max, p99) / 1000000d;
+	}
+
+	@Override
+	public long getMaxHoldMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.maxHoldNanos.get());
+	}
+
+	@Override
+	public long getLeakThresholdMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.leakThresholdNanos);
+	}
+
+	@Override
+	public void setLeakThresholdMillis(long millis) {
+		this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+	}
+
+	@Override
+	public void reset() {
+		this.acquired.set(this.open.size());
+		this.released.set(0);
+		this.leakWarnings.set(0);
+		this.collectedUnclosed.set(0);
+		this.maxHoldNanos.set(0);
+		this.holdTimes.clear();
+	}
+}
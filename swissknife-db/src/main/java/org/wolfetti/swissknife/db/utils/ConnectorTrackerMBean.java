@@ -0,0 +1,92 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+/**
+ * Interfaccia JMX di {@link ConnectorTracker}, registrata come <code>org.wolfetti.swissknife.db:type=ConnectorTracker</code>.
+ *
+ * @author Fabio Frijo
+ */
+public interface ConnectorTrackerMBean {
+
+	/**
+	 * @return il tempo in millisecondi oltre il quale un connettore aperto viene segnalato come possibile leak
+	 */
+	public long getLeakThresholdMillis();
+
+	/**
+	 * Imposta il tempo in millisecondi oltre il quale un connettore aperto viene segnalato come possibile leak.
+	 */
+	public void setLeakThresholdMillis(long millis);
+
+	/**
+	 * @return il numero di connettori aperti e non ancora chiusi
+	 */
+	public int getOpenConnectors();
+
+	/**
+	 * @return il numero di connettori aperti per datasource, nel formato <code>nome=numero</code>
+	 */
+	public String[] getOpenConnectorsByDatasource();
+
+	/**
+	 * @return il numero di connettori aperti da oltre la soglia di leak
+	 */
+	public int getOverdueConnectors();
+
+	/**
+	 * @return il numero di connettori aperti dall'avvio (o dall'ultimo azzeramento)
+	 */
+	public long getAcquired();
+
+	/**
+	 * @return il numero di connettori chiusi dall'avvio (o dall'ultimo azzeramento)
+	 */
+	public long getReleased();
+
+	/**
+	 * @return il numero di connettori segnalati come possibili leak
+	 */
+	public long getLeakWarnings();
+
+	/**
+	 * @return il numero di connettori mai chiusi e raccolti dal garbage collector
+	 */
+	public long getCollectedUnclosed();
+
+	/**
+	 * @return il 99&deg; percentile del tempo di utilizzo dei connettori chiusi, in millisecondi
+	 */
+	public double getHoldTimeP99Millis();
+
+	/**
+	 * @return il tempo massimo di utilizzo dei connettori chiusi, in millisecondi
+	 */
+	public long getMaxHoldMillis();
+
+	/**
+	 * @return i connettori aperti da pi&ugrave; tempo, con il punto di apertura
+	 */
+	public String[] oldestHolders(int limit);
+
+	/**
+	 * Azzera i contatori e i tempi di utilizzo; i connettori aperti restano tracciati.
+	 */
+	public void reset();
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+
+/**
+ * L'executor condiviso per le query eseguite in parallelo a quella principale.
+ * <br><br>
+ * L'executor &egrave; limitato sia nel numero di thread (<code>sk.db.executorThreads</code>) sia nella coda
+ * (<code>sk.db.executorQueueSize</code>): quando entrambi sono saturi la query viene eseguita dal thread chiamante,
+ * in maniera che il carico sul database non possa crescere senza limiti.
+ * I thread sono demoni e vengono terminati dopo un minuto di inattivit&agrave;.
+ *
+ * @author Fabio Frijo
+ */
+public final class DbExecutor {
+	private DbExecutor(){}
+
+	/**
+	 * Il numero di query in attesa per ogni thread, se non configurato diversamente.
+	 */
+	public static final int DEFAULT_QUEUE_SIZE_PER_THREAD = 64;
+
+	/**
+	 * L'unica istanza dell'executor, creata al primo utilizzo.
+	 */
+	private static volatile ThreadPoolExecutor executor = null;
+
+	/**
+	 * Restituisce l'executor condiviso, creandolo alla prima chiamata in base alla configurazione in ingresso.
+	 *
+	 * @param conf
+	 * 	La configurazione del connettore
+	 */
+	public static ExecutorService get(Configuration conf){
+		ThreadPoolExecutor result = executor;
+
+		if(result == null){
+			synchronized (DbExecutor.class) {
+				result = executor;
+
+				if(result == null){
+					int threads = Math.max(1, conf.getInt(DB.KEY_EXECUTOR_THREADS, Math.max(2, Runtime.getRuntime().availableProcessors())));
+					int queue = Math.max(1, conf.getInt(DB.KEY_EXECUTOR_QUEUE_SIZE, threads * DEFAULT_QUEUE_SIZE_PER_THREAD));
+
+					result = new ThreadPoolExecutor(
+						threads, threads, 60L, TimeUnit.SECONDS,
+						new ArrayBlockingQueue<Runnable>(queue),
+						new DaemonThreadFactory(),
+						new ThreadPoolExecutor.CallerRunsPolicy()
+					);
+
+					result.allowCoreThreadTimeOut(true);
+					executor = result;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Termina l'executor, attendendo le query in corso.
+	 * Una chiamata successiva a {@link #get(Configuration)} crea un nuovo executor.
+	 */
+	public static void shutdown(){
+		ThreadPoolExecutor released;
+
+		synchronized (DbExecutor.class) {
+			released = executor;
+			executor = null;
+		}
+
+		if(released != null){
+			released.shutdown();
+		}
+	}
+
+	/**
+	 * Restituisce <code>true</code> se il thread corrente &egrave; un thread dell'executor condiviso.<br>
+	 * Un'operazione in esecuzione sull'executor non deve attendere un'altra operazione accodata allo stesso
+	 * executor: con tutti i thread occupati in attesa, le operazioni in coda non verrebbero mai eseguite.
+	 */
+	public static boolean isWorkerThread(){
+		return Thread.currentThread() instanceof WorkerThread;
+	}
+
+	/**
+	 * Crea i thread demoni dell'executor, con il nome <code>sk-db-executor-N</code>.
+	 */
+	private static final class DaemonThreadFactory implements ThreadFactory {
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new WorkerThread(r, "sk-db-executor-" + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Thread dell'executor, riconosciuto da {@link DbExecutor#isWorkerThread()}.
+	 */
+	private static final class WorkerThread extends Thread {
+		WorkerThread(Runnable r, String name) {
+			super(r, name);
+		}
+	}
+}
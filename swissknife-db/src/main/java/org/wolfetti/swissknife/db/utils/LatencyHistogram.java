@@ -0,0 +1,136 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Istogramma dei tempi di esecuzione, thread-safe e senza lock.
+ * <br><br>
+ * I tempi vengono registrati in microsecondi in intervalli di ampiezza crescente: ogni potenza di due
+ * &egrave; divisa in quattro intervalli, per cui un percentile viene restituito con un errore massimo del 25%
+ * indipendentemente dall'ordine di grandezza (da 1 &micro;s a oltre 19 ore) e con una dimensione fissa.
+ *
+ * @author Fabio Frijo
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Il numero di intervalli
+	 */
+	static final int BUCKETS = 144;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Registra un tempo di esecuzione.
+	 *
+	 * @param nanos
+	 * 	Il tempo in nanosecondi
+	 */
+	public void record(long nanos){
+		this.counts.incrementAndGet(index(nanos / 1000));
+	}
+
+	/**
+	 * @return una copia del numero di tempi registrati per ogni intervallo
+	 */
+	public long[] snapshot(){
+		long[] result = new long[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++){
+			result[i] = this.counts.get(i);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Azzera l'istogramma.
+	 */
+	public void clear(){
+		for(int i = 0; i < BUCKETS; i++){
+			this.counts.set(i, 0);
+		}
+	}
+
+	/**
+	 * Restituisce il percentile indicato di una copia dell'istogramma.
+	 *
+	 * @param snapshot
+	 * 	Il risultato di {@link #snapshot()}
+	 *
+	 * @param percentile
+	 * 	Il percentile, tra 0 e 100 (es. <code>99</code>)
+	 *
+	 * @return
+	 * 	Il limite superiore, in microsecondi, dell'intervallo che contiene il percentile
+	 */
+	public static long percentile(long[] snapshot, double percentile){
+		long total = 0;
+		for(long c : snapshot){
+			total += c;
+		}
+
+		if(total == 0){
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(total * Math.min(100d, Math.max(0d, percentile)) / 100d);
+		long seen = 0;
+
+		for(int i = 0; i < snapshot.length; i++){
+			seen += snapshot[i];
+
+			if(seen >= rank && snapshot[i] > 0){
+				return upperBound(i);
+			}
+		}
+
+		return upperBound(snapshot.length - 1);
+	}
+
+	/**
+	 * Restituisce l'intervallo di un tempo in microsecondi: i primi otto coincidono con il valore,
+	 * poi ogni potenza di due viene divisa in quattro.
+	 */
+	static int index(long micros){
+		if(micros < 8){
+			return (int) Math.max(0, micros);
+		}
+
+		int msb = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) ((micros >>> (msb - 2)) & 3);
+
+		return Math.min(BUCKETS - 1, (msb - 1) * 4 + sub);
+	}
+
+	/**
+	 * @return il tempo massimo in microsecondi dell'intervallo
+	 */
+	static long upperBound(int index){
+		if(index < 8){
+			return index;
+		}
+
+		int msb = index / 4 + 1;
+		int sub = index % 4;
+
+		return ((4L + sub) << (msb - 2)) + (1L << (msb - 2)) - 1;
+	}
+}
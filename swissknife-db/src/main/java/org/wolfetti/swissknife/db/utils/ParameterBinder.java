@@ -0,0 +1,188 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Classe che imposta i valori dei parametri di un {@link PreparedStatement}
+ * utilizzando il metodo <code>setXxx</code> appropriato per il tipo di ogni valore.
+ * <br><br>
+ * I valori di tipo {@link BlobSource}, {@link InputStream} e {@link ByteBuffer} vengono passati al driver in streaming.
+ * I valori <code>null</code> vengono impostati con il tipo SQL del parametro letto da {@link ParameterMetaData}
+ * o, se il driver non lo fornisce, come <code>VARCHAR</code>.
+ *
+ * @author Fabio Frijo
+ */
+public final class ParameterBinder {
+	private ParameterBinder(){}
+
+	/**
+	 * Imposta tutti i parametri dello statement, nell'ordine in cui sono passati.
+	 *
+	 * @param ps
+	 * 	Lo statement da valorizzare
+	 *
+	 * @param values
+	 * 	I valori dei parametri <code>?</code>
+	 *
+	 * @throws SQLException
+	 * 	Quando il driver rifiuta uno dei valori
+	 */
+	public static void bind(PreparedStatement ps, Object ... values)
+	throws SQLException {
+		if(values == null){
+			return;
+		}
+
+		for(int i = 0; i < values.length; i++){
+			bind(ps, i + 1, values[i]);
+		}
+	}
+
+	/**
+	 * Imposta il singolo parametro dello statement.
+	 *
+	 * @param ps
+	 * 	Lo statement da valorizzare
+	 *
+	 * @param index
+	 * 	L'indice del parametro, a partire da 1
+	 *
+	 * @param value
+	 * 	Il valore da impostare
+	 *
+	 * @throws SQLException
+	 * 	Quando il driver rifiuta il valore
+	 */
+	public static void bind(PreparedStatement ps, int index, Object value)
+	throws SQLException {
+		if(value == null){
+			ps.setNull(index, nullType(ps, index));
+		}
+
+		else if(value instanceof String){
+			ps.setString(index, (String) value);
+		}
+
+		else if(value instanceof Integer){
+			ps.setInt(index, ((Integer) value).intValue());
+		}
+
+		else if(value instanceof Long){
+			ps.setLong(index, ((Long) value).longValue());
+		}
+
+		else if(value instanceof Boolean){
+			ps.setBoolean(index, ((Boolean) value).booleanValue());
+		}
+
+		else if(value instanceof Double){
+			ps.setDouble(index, ((Double) value).doubleValue());
+		}
+
+		else if(value instanceof Float){
+			ps.setFloat(index, ((Float) value).floatValue());
+		}
+
+		else if(value instanceof Short){
+			ps.setShort(index, ((Short) value).shortValue());
+		}
+
+		else if(value instanceof Byte){
+			ps.setByte(index, ((Byte) value).byteValue());
+		}
+
+		else if(value instanceof BigDecimal){
+			ps.setBigDecimal(index, (BigDecimal) value);
+		}
+
+		else if(value instanceof java.sql.Date){
+			ps.setDate(index, (java.sql.Date) value);
+		}
+
+		else if(value instanceof java.sql.Time){
+			ps.setTime(index, (java.sql.Time) value);
+		}
+
+		else if(value instanceof Timestamp){
+			ps.setTimestamp(index, (Timestamp) value);
+		}
+
+		else if(value instanceof java.util.Date){
+			ps.setTimestamp(index, new Timestamp(((java.util.Date) value).getTime()));
+		}
+
+		else if(value instanceof byte[]){
+			ps.setBytes(index, (byte[]) value);
+		}
+
+		else if(value instanceof BlobSource){
+			((BlobSource) value).bind(ps, index);
+		}
+
+		else if(value instanceof InputStream){
+			ps.setBinaryStream(index, (InputStream) value);
+		}
+
+		else if(value instanceof ByteBuffer){
+			ByteBuffer buffer = (ByteBuffer) value;
+			ps.setBinaryStream(index, BlobSource.openBuffer(buffer), (long) buffer.remaining());
+		}
+
+		else if(value instanceof Character || value instanceof Enum){
+			ps.setString(index, value.toString());
+		}
+
+		else {
+			ps.setObject(index, value);
+		}
+	}
+
+	/**
+	 * Restituisce il tipo SQL del parametro secondo il driver, oppure <code>VARCHAR</code>
+	 * se il driver non lo fornisce (es. MySQL senza prepared statements lato server).
+	 */
+	private static int nullType(PreparedStatement ps, int index){
+		try {
+			ParameterMetaData metaData = ps.getParameterMetaData();
+
+			if(metaData != null){
+				int type = metaData.getParameterType(index);
+
+				if(type != Types.NULL){
+					return type;
+				}
+			}
+		}
+
+		// Metadati non supportati dal driver
+		catch (SQLException | RuntimeException | AbstractMethodError e) {
+		}
+
+		return Types.VARCHAR;
+	}
+}
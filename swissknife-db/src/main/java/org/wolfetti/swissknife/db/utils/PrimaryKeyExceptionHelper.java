@@ -23,7 +23,11 @@ package org.wolfetti.swissknife.db.utils;
  * Enum che data un eccezione in ingresso, controlla che sia un'eccezione da chiave primaria o meno.
  *
  * @author Fabio Frijo
+ * @deprecated
+ * 	Il confronto per nome di classe riconosce solo le eccezioni di MySQL:
+ * 	utilizzare {@link SqlErrors#isDuplicateKey(Throwable)}, che classifica gli errori per SQLState e codice del produttore.
  */
+@Deprecated
 public enum PrimaryKeyExceptionHelper {
 	MYSQL(
 		"com.mysql.jdbc.exceptions.jdbc4.MySQLIntegrityConstraintViolationException",
@@ -52,16 +56,11 @@ public enum PrimaryKeyExceptionHelper {
 	 * 	L'istanza dell'eccezione da controllare
 	 *
 	 * @return
-	 * 	<code>true</code> Se la classe dell'eccezione &egrave; mappata come classe di PK exception.
+	 * 	<code>true</code> Se l'eccezione &egrave; la violazione di una chiave primaria o di un vincolo di unicit&agrave;
+	 * 	(vedi {@link SqlErrors#isDuplicateKey(Throwable)}).
 	 */
 	public static boolean check(Throwable t){
-		for(PrimaryKeyExceptionHelper pkeh : values()){
-			if(check(pkeh, t)){
-				return true;
-			}
-		}
-
-		return false;
+		return SqlErrors.isDuplicateKey(t);
 	}
 
 	/**
@@ -20,6 +20,7 @@ package org.wolfetti.swissknife.db.utils;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import org.wolfetti.swissknife.common.SKConstants;
 
@@ -62,4 +63,24 @@ public class ResultSetHelper {
 			rs = null;
 		}
 	}
-}
+
+	/**
+	 * Chiude il ResultSet in ingresso insieme allo statement dedicato che lo ha generato.
+	 */
+	public static void closeWithStatement(ResultSet rs){
+		if(rs == null){
+			return;
+		}
+
+		try {
+			Statement st = rs.getStatement();
+			rs.close();
+
+			if(st != null){
+				st.close();
+			}
+		} catch (SQLException e) {
+			rs = null;
+		}
+	}
+}
\ No newline at end of file
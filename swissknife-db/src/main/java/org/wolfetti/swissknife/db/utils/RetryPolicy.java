@@ -0,0 +1,292 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.common.logger.Log;
+import org.wolfetti.swissknife.common.logger.LogFactory;
+import org.wolfetti.swissknife.db.entities.SqlErrorType;
+
+/**
+ * Politica dei nuovi tentativi delle operazioni fallite per errori transitori (vedi {@link SqlErrors}),
+ * con attesa esponenziale e casuale tra un tentativo e il successivo.
+ * <br><br>
+ * L'attesa prima del tentativo <code>n + 1</code> &egrave; compresa tra la met&agrave; e il valore intero di
+ * <code>min(sk.db.retryMaxDelay, sk.db.retryDelay * 2^(n - 1))</code>: la parte casuale evita che i thread
+ * coinvolti in un deadlock si scontrino di nuovo allo stesso istante.
+ * <br><br>
+ * Le operazioni non idempotenti vengono ripetute solo dopo un deadlock o un timeout di lock, poich&eacute;
+ * in quel caso il database ha annullato l'istruzione; dopo la perdita della connessione l'esito di una
+ * scrittura non &egrave; noto e l'errore viene restituito al chiamante.
+ * <br><br>
+ * Esiste una politica per ogni datasource, configurata dal primo connettore ed esposta tramite JMX
+ * (vedi {@link RetryPolicyMBean}).
+ *
+ * @author Fabio Frijo
+ */
+public final class RetryPolicy implements RetryPolicyMBean {
+
+	/**
+	 * Il prefisso del nome JMX delle politiche, seguito dal nome del datasource
+	 */
+	public static final String OBJECT_NAME_PREFIX = "org.wolfetti.swissknife.db:type=RetryPolicy,datasource=";
+
+	/**
+	 * Il numero massimo di tentativi, se non configurato diversamente
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/**
+	 * L'attesa prima del secondo tentativo (in millisecondi), se non configurata diversamente
+	 */
+	public static final long DEFAULT_BASE_DELAY = 20;
+
+	/**
+	 * L'attesa massima tra due tentativi (in millisecondi), se non configurata diversamente
+	 */
+	public static final long DEFAULT_MAX_DELAY = 1000;
+
+	/**
+	 * Logger
+	 */
+	private static final Log log = LogFactory.getLog(RetryPolicy.class);
+
+	/**
+	 * Le politiche per nome del datasource
+	 */
+	private static final ConcurrentMap<String, RetryPolicy> policies = new ConcurrentHashMap<String, RetryPolicy>();
+
+	private final String datasource;
+	private final long baseDelay;
+	private final long maxDelay;
+	private volatile int maxAttempts;
+
+	private final AtomicLong deadlockRetries = new AtomicLong();
+	private final AtomicLong lockTimeoutRetries = new AtomicLong();
+	private final AtomicLong connectionRetries = new AtomicLong();
+	private final AtomicLong recovered = new AtomicLong();
+	private final AtomicLong exhausted = new AtomicLong();
+
+	private RetryPolicy(String datasource, Configuration conf){
+		this.datasource = datasource;
+		this.maxAttempts = Math.max(1, conf.getInt(DB.KEY_RETRY_ATTEMPTS, DEFAULT_MAX_ATTEMPTS));
+		this.baseDelay = Math.max(0, conf.getLong(DB.KEY_RETRY_DELAY, DEFAULT_BASE_DELAY));
+		this.maxDelay = Math.max(this.baseDelay, conf.getLong(DB.KEY_RETRY_MAX_DELAY, DEFAULT_MAX_DELAY));
+	}
+
+	/**
+	 * Restituisce la politica del datasource configurato, creandola e registrandola su JMX alla prima chiamata.
+	 */
+	public static RetryPolicy get(Configuration conf){
+		String name = conf.getString(DB.KEY_NAME, DB.DEFAULT_NAME);
+		RetryPolicy result = policies.get(name);
+
+		if(result == null){
+			RetryPolicy created = new RetryPolicy(name, conf);
+			result = policies.putIfAbsent(name, created);
+
+			if(result == null){
+				result = created;
+				register(created);
+			}
+		}
+
+		return result;
+	}
+
+	private static void register(RetryPolicy policy){
+		String objectName = OBJECT_NAME_PREFIX + ObjectName.quote(policy.datasource);
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(objectName);
+
+			// Es. un'altra applicazione dello stesso server con la propria copia della libreria
+			if(server.isRegistered(name)){
+				log.warn("MBean " + objectName + " gia' registrato: i contatori di questa istanza non saranno visibili via JMX.");
+				return;
+			}
+
+			server.registerMBean(policy, name);
+		} catch (JMException | SecurityException e) {
+			log.warn("Impossibile registrare l'MBean " + objectName, e);
+		}
+	}
+
+	/* ===================================================================================== */
+	/* ===================================== TENTATIVI ===================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * Decide se ripetere l'operazione fallita e, in caso affermativo, attende prima del tentativo successivo.
+	 *
+	 * @param error
+	 * 	L'errore dell'operazione
+	 *
+	 * @param attempt
+	 * 	Il numero del tentativo fallito, a partire da <code>1</code>
+	 *
+	 * @param idempotent
+	 * 	<code>true</code> se l'operazione pu&ograve; essere ripetuta anche quando il suo esito non &egrave; noto
+	 * 	(letture, transazioni non ancora confermate)
+	 *
+	 * @return
+	 * 	<code>true</code> se l'operazione va ripetuta, <code>false</code> se l'errore va restituito al chiamante
+	 */
+	public boolean retry(Throwable error, int attempt, boolean idempotent){
+		SqlErrorType type = SqlErrors.classify(error);
+
+		if(!type.isTransient() || (type == SqlErrorType.CONNECTION && !idempotent)){
+			return false;
+		}
+
+		if(attempt >= this.maxAttempts){
+			if(this.maxAttempts > 1){
+				this.exhausted.incrementAndGet();
+				log.warn("Errore transitorio (" + type + ") dopo " + attempt + " tentativi su " + this.datasource + ": " + error.getMessage());
+			}
+
+			return false;
+		}
+
+		switch (type) {
+			case DEADLOCK:
+				this.deadlockRetries.incrementAndGet();
+				break;
+			case LOCK_TIMEOUT:
+				this.lockTimeoutRetries.incrementAndGet();
+				break;
+			default:
+				this.connectionRetries.incrementAndGet();
+		}
+
+		long delay = this.delay(attempt);
+		log.debug("Errore transitorio (" + type + ") su " + this.datasource + ", nuovo tentativo tra " + delay + "ms: " + error.getMessage());
+
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Registra un'operazione riuscita dopo uno o pi&ugrave; nuovi tentativi.
+	 */
+	public void recovered(){
+		this.recovered.incrementAndGet();
+	}
+
+	/**
+	 * Restituisce l'attesa in millisecondi dopo il tentativo fallito indicato.
+	 */
+	long delay(int attempt){
+		long cap = this.maxDelay;
+
+		if(attempt < 31){
+			cap = Math.min(cap, this.baseDelay << (attempt - 1));
+		}
+
+		return cap <= 1 ? cap : cap / 2 + ThreadLocalRandom.current().nextLong(cap - cap / 2 + 1);
+	}
+
+	/**
+	 * @return il nome del datasource
+	 */
+	public String getDatasource() {
+		return this.datasource;
+	}
+
+	/* ===================================================================================== */
+	/* ======================================= JMX ========================================= */
+	/* ===================================================================================== */
+
+	@Override
+	public int getMaxAttempts() {
+		return this.maxAttempts;
+	}
+
+	@Override
+	public void setMaxAttempts(int attempts) {
+		this.maxAttempts = Math.max(1, attempts);
+	}
+
+	@Override
+	public long getBaseDelayMillis() {
+		return this.baseDelay;
+	}
+
+	@Override
+	public long getMaxDelayMillis() {
+		return this.maxDelay;
+	}
+
+	@Override
+	public long getRetries() {
+		return this.deadlockRetries.get() + this.lockTimeoutRetries.get() + this.connectionRetries.get();
+	}
+
+	@Override
+	public long getDeadlockRetries() {
+		return this.deadlockRetries.get();
+	}
+
+	@Override
+	public long getLockTimeoutRetries() {
+		return this.lockTimeoutRetries.get();
+	}
+
+	@Override
+	public long getConnectionRetries() {
+		return this.connectionRetries.get();
+	}
+
+	@Override
+	public long getRecovered() {
+		return this.recovered.get();
+	}
+
+	@Override
+	public long getExhausted() {
+		return this.exhausted.get();
+	}
+
+	@Override
+	public void reset() {
+		this.deadlockRetries.set(0);
+		this.lockTimeoutRetries.set(0);
+		this.connectionRetries.set(0);
+		this.recovered.set(0);
+		this.exhausted.set(0);
+	}
+}
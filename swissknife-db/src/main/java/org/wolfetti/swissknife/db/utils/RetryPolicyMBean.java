@@ -0,0 +1,83 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+/**
+ * Interfaccia JMX di {@link RetryPolicy}, registrata come
+ * <code>org.wolfetti.swissknife.db:type=RetryPolicy,datasource=&lt;nome&gt;</code>.
+ *
+ * @author Fabio Frijo
+ */
+public interface RetryPolicyMBean {
+
+	/**
+	 * @return il numero massimo di tentativi di un'operazione
+	 */
+	public int getMaxAttempts();
+
+	/**
+	 * Imposta il numero massimo di tentativi di un'operazione; <code>1</code> disattiva i nuovi tentativi.
+	 */
+	public void setMaxAttempts(int attempts);
+
+	/**
+	 * @return l'attesa in millisecondi prima del secondo tentativo
+	 */
+	public long getBaseDelayMillis();
+
+	/**
+	 * @return l'attesa massima in millisecondi tra due tentativi
+	 */
+	public long getMaxDelayMillis();
+
+	/**
+	 * @return il numero di nuovi tentativi effettuati
+	 */
+	public long getRetries();
+
+	/**
+	 * @return il numero di nuovi tentativi dopo un deadlock
+	 */
+	public long getDeadlockRetries();
+
+	/**
+	 * @return il numero di nuovi tentativi dopo un timeout di lock
+	 */
+	public long getLockTimeoutRetries();
+
+	/**
+	 * @return il numero di nuovi tentativi dopo la perdita della connessione
+	 */
+	public long getConnectionRetries();
+
+	/**
+	 * @return il numero di operazioni riuscite dopo uno o pi&ugrave; nuovi tentativi
+	 */
+	public long getRecovered();
+
+	/**
+	 * @return il numero di operazioni fallite per errori transitori dopo aver esaurito i tentativi
+	 */
+	public long getExhausted();
+
+	/**
+	 * Azzera i contatori.
+	 */
+	public void reset();
+}
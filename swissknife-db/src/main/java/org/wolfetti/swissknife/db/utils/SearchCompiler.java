@@ -0,0 +1,243 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.wolfetti.swissknife.db.entities.SearchType;
+
+/**
+ * Compilatore delle condizioni di ricerca di {@link org.wolfetti.swissknife.db.entities.Search Search}.<br>
+ * La stringa cercata viene divisa in termini separati da spazi (le frasi tra doppi apici restano un unico termine)
+ * e ogni termine deve essere presente in almeno una delle colonne:
+ * <pre>
+ * AND ((col1 LIKE ? ESCAPE '!' OR col2 LIKE ? ESCAPE '!') AND (col1 LIKE ? ESCAPE '!' OR col2 LIKE ? ESCAPE '!'))
+ * </pre>
+ * I termini, con i caratteri jolly del tipo di ricerca, vengono passati come parametri in binding, quindi il testo SQL
+ * dipende solo da colonne, operatore e numero di termini: viene compilato una sola volta e riutilizzato, in maniera che
+ * il database (e la cache degli statement del driver) riconosca sempre la stessa query.
+ * <br><br>
+ * Il carattere di escape &egrave; <code>!</code> e non il backslash, che in MySQL andrebbe a sua volta
+ * raddoppiato all'interno della stringa SQL. Le ricerche di tipo {@link SearchType#STARTS STARTS} non hanno
+ * caratteri jolly iniziali e possono quindi utilizzare gli indici delle colonne.
+ *
+ * @author Fabio Frijo
+ */
+public final class SearchCompiler {
+	private SearchCompiler(){}
+
+	/**
+	 * Il carattere di escape utilizzato nelle espressioni LIKE
+	 */
+	public static final char ESCAPE = '!';
+
+	/**
+	 * Il numero massimo di query compilate mantenute in cache
+	 */
+	private static final int MAX_CACHED = 1024;
+
+	/**
+	 * Cache delle query compilate, indicizzata per colonne, operatore e numero di termini.
+	 */
+	private static final ConcurrentMap<String, String> queries = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Restituisce la condizione SQL con i parametri <code>?</code> per la ricerca indicata.
+	 *
+	 * @param columns
+	 * 	Le colonne sulle quali effettuare la ricerca
+	 *
+	 * @param operator
+	 * 	L'operatore da anteporre alla condizione (es. <code>AND</code>), oppure <code>null</code>
+	 *
+	 * @param terms
+	 * 	Il numero di termini da cercare
+	 *
+	 * @return
+	 * 	La condizione, preceduta da uno spazio, oppure una stringa vuota se non ci sono termini o colonne
+	 */
+	public static String compile(List<String> columns, String operator, int terms){
+		if(terms <= 0 || columns == null || columns.isEmpty()){
+			return "";
+		}
+
+		StringBuilder key = new StringBuilder();
+		key.append(operator).append('\u0000').append(terms);
+		for(String column : columns){
+			key.append('\u0000').append(column);
+		}
+
+		String query = queries.get(key.toString());
+
+		if(query == null){
+			query = build(columns, operator, terms);
+
+			if(queries.size() < MAX_CACHED){
+				queries.putIfAbsent(key.toString(), query);
+			}
+		}
+
+		return query;
+	}
+
+	/**
+	 * Restituisce i valori da associare ai parametri della condizione compilata con {@link #compile(List, String, int)}:
+	 * per ogni termine, un valore per ciascuna colonna.
+	 *
+	 * @param terms
+	 * 	I termini da cercare, ottenuti con {@link #tokenize(String)}
+	 *
+	 * @param columns
+	 * 	Il numero di colonne
+	 *
+	 * @param type
+	 * 	Il tipo di ricerca
+	 */
+	public static Object[] parameters(List<String> terms, int columns, SearchType type){
+		Object[] parameters = new Object[terms.size() * columns];
+
+		int p = 0;
+		for(String term : terms){
+			String pattern = type.compile(escape(term));
+
+			for(int c = 0; c < columns; c++){
+				parameters[p++] = pattern;
+			}
+		}
+
+		return parameters;
+	}
+
+	/**
+	 * Divide la stringa cercata in termini separati da spazi.
+	 * Il testo racchiuso tra doppi apici viene considerato come un unico termine.
+	 *
+	 * @return
+	 * 	L'elenco dei termini, vuoto se la stringa &egrave; <code>null</code> o contiene solo spazi
+	 */
+	public static List<String> tokenize(String query){
+		if(query == null){
+			return Collections.emptyList();
+		}
+
+		List<String> terms = new ArrayList<String>();
+		int length = query.length();
+		int i = 0;
+
+		while(i < length){
+			char c = query.charAt(i);
+
+			if(Character.isWhitespace(c)){
+				i++;
+				continue;
+			}
+
+			int end;
+			int next;
+
+			if(c == '"'){
+				int close = query.indexOf('"', i + 1);
+				end = close < 0 ? length : close;
+				next = end + 1;
+				i++;
+			}
+
+			else {
+				end = i;
+				while(end < length && !Character.isWhitespace(query.charAt(end))){
+					end++;
+				}
+				next = end;
+			}
+
+			String term = query.substring(i, end).trim();
+			if(term.length() > 0){
+				terms.add(term);
+			}
+
+			i = next;
+		}
+
+		return terms;
+	}
+
+	/**
+	 * Aggiunge il carattere di escape davanti ai caratteri jolly della LIKE (<code>%</code> e <code>_</code>)
+	 * e allo stesso carattere di escape.
+	 */
+	public static String escape(String term){
+		StringBuilder result = null;
+
+		for(int i = 0, l = term.length(); i < l; i++){
+			char c = term.charAt(i);
+
+			if(c == '%' || c == '_' || c == ESCAPE){
+				if(result == null){
+					result = new StringBuilder(term.length() + 8);
+					result.append(term, 0, i);
+				}
+
+				result.append(ESCAPE);
+			}
+
+			if(result != null){
+				result.append(c);
+			}
+		}
+
+		return result != null ? result.toString() : term;
+	}
+
+	/**
+	 * Compone la condizione di ricerca.
+	 */
+	private static String build(List<String> columns, String operator, int terms){
+		StringBuilder query = new StringBuilder(terms * columns.size() * 32);
+
+		if(operator != null && operator.trim().length() > 0){
+			query.append(' ').append(operator.trim());
+		}
+
+		query.append(" (");
+
+		for(int t = 0; t < terms; t++){
+			if(t > 0){
+				query.append(" AND ");
+			}
+
+			query.append('(');
+
+			for(int c = 0, l = columns.size(); c < l; c++){
+				if(c > 0){
+					query.append(" OR ");
+				}
+
+				query.append(columns.get(c)).append(" LIKE ? ESCAPE '").append(ESCAPE).append('\'');
+			}
+
+			query.append(')');
+		}
+
+		return query.append(')').toString();
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Classe che individua le clausole di primo livello di una query SQL,
+ * ignorando sottoquery tra parentesi, stringhe, identificatori quotati e commenti.
+ * <br><br>
+ * Le parole chiave vengono confrontate senza distinzione tra maiuscole e minuscole
+ * e con qualsiasi spaziatura tra le parole (es. <code>"ORDER BY"</code> trova anche <code>order\n  by</code>).
+ *
+ * @author Fabio Frijo
+ */
+public final class SqlClauses {
+	private SqlClauses(){}
+
+	/**
+	 * Le clausole che possono seguire una ORDER BY
+	 */
+	private static final String[] AFTER_ORDER_BY = {"LIMIT", "OFFSET", "FETCH", "FOR UPDATE"};
+
+	/**
+	 * Restituisce la posizione della prima occorrenza di primo livello della parola chiave,
+	 * oppure <code>-1</code> se non presente.
+	 *
+	 * @param sql
+	 * 	La query
+	 *
+	 * @param keyword
+	 * 	La parola chiave, anche composta (es. <code>"GROUP BY"</code>)
+	 */
+	public static int indexOf(String sql, String keyword){
+		return find(sql, keyword, 0, false);
+	}
+
+	/**
+	 * Restituisce la posizione dell'ultima occorrenza di primo livello della parola chiave,
+	 * oppure <code>-1</code> se non presente.
+	 *
+	 * @param sql
+	 * 	La query
+	 *
+	 * @param keyword
+	 * 	La parola chiave, anche composta (es. <code>"ORDER BY"</code>)
+	 */
+	public static int lastIndexOf(String sql, String keyword){
+		return find(sql, keyword, 0, true);
+	}
+
+	/**
+	 * @return <code>true</code> se la query contiene la parola chiave al primo livello
+	 */
+	public static boolean contains(String sql, String keyword){
+		return indexOf(sql, keyword) >= 0;
+	}
+
+	/**
+	 * Restituisce la prima parola chiave della query in maiuscolo (es. <code>"INSERT"</code>), ignorando
+	 * spazi, commenti e parentesi iniziali, oppure una stringa vuota se la query non inizia con una parola.
+	 */
+	public static String firstKeyword(String sql){
+		int length = sql.length();
+		int i = 0;
+
+		while(i < length){
+			char c = sql.charAt(i);
+
+			if(Character.isWhitespace(c) || c == '('){
+				i++;
+			}
+
+			else if(c == '-' && i + 1 < length && sql.charAt(i + 1) == '-'){
+				int eol = sql.indexOf('\n', i);
+				i = eol < 0 ? length : eol + 1;
+			}
+
+			else if(c == '/' && i + 1 < length && sql.charAt(i + 1) == '*'){
+				int close = sql.indexOf("*/", i + 2);
+				i = close < 0 ? length : close + 2;
+			}
+
+			else {
+				break;
+			}
+		}
+
+		int start = i;
+		while(i < length && Character.isLetter(sql.charAt(i))){
+			i++;
+		}
+
+		return sql.substring(start, i).toUpperCase(Locale.ROOT);
+	}
+
+	/**
+	 * Rimuove la clausola ORDER BY di primo livello, mantenendo le eventuali clausole successive
+	 * (<code>LIMIT</code>, <code>OFFSET</code>, <code>FETCH</code>, <code>FOR UPDATE</code>).
+	 *
+	 * @param sql
+	 * 	La query
+	 *
+	 * @return
+	 * 	La query senza ordinamento, oppure quella in ingresso se non ordinata
+	 */
+	public static String removeOrderBy(String sql){
+		int start = lastIndexOf(sql, "ORDER BY");
+
+		if(start < 0){
+			return sql;
+		}
+
+		int end = sql.length();
+		for(String keyword : AFTER_ORDER_BY){
+			int index = find(sql, keyword, start, false);
+
+			if(index >= 0 && index < end){
+				end = index;
+			}
+		}
+
+		String head = sql.substring(0, start).trim();
+		return end < sql.length() ? head + " " + sql.substring(end).trim() : head;
+	}
+
+	/**
+	 * Divide un elenco di espressioni separate da virgole (es. la clausola <code>VALUES</code> di una INSERT),
+	 * ignorando le virgole all'interno di parentesi, stringhe e identificatori quotati.
+	 *
+	 * @return
+	 * 	Le espressioni, senza spazi iniziali e finali
+	 */
+	public static List<String> split(String list){
+		List<String> result = new ArrayList<String>();
+		int length = list.length();
+		int depth = 0;
+		int start = 0;
+		int i = 0;
+
+		while(i < length){
+			char c = list.charAt(i);
+
+			if(c == '\'' || c == '"' || c == '`' || c == '['){
+				i = literalEnd(list, i, c == '[' ? ']' : c);
+				continue;
+			}
+
+			if(c == '('){
+				depth++;
+			}
+
+			else if(c == ')'){
+				depth--;
+			}
+
+			else if(c == ',' && depth == 0){
+				result.add(list.substring(start, i).trim());
+				start = i + 1;
+			}
+
+			i++;
+		}
+
+		result.add(list.substring(start).trim());
+		return result;
+	}
+
+	/**
+	 * Cerca la parola chiave al primo livello a partire dalla posizione indicata.
+	 */
+	private static int find(String sql, String keyword, int from, boolean last){
+		String[] words = keyword.trim().split("\\s+");
+		int length = sql.length();
+		int depth = 0;
+		int found = -1;
+		int i = 0;
+
+		while(i < length){
+			char c = sql.charAt(i);
+
+			// Stringhe e identificatori quotati
+			if(c == '\'' || c == '"' || c == '`' || c == '['){
+				i = literalEnd(sql, i, c == '[' ? ']' : c);
+				continue;
+			}
+
+			// Commenti di riga
+			if(c == '-' && i + 1 < length && sql.charAt(i + 1) == '-'){
+				int eol = sql.indexOf('\n', i);
+				i = eol < 0 ? length : eol + 1;
+				continue;
+			}
+
+			// Commenti di blocco
+			if(c == '/' && i + 1 < length && sql.charAt(i + 1) == '*'){
+				int close = sql.indexOf("*/", i + 2);
+				i = close < 0 ? length : close + 2;
+				continue;
+			}
+
+			if(c == '('){
+				depth++;
+			}
+
+			else if(c == ')'){
+				depth--;
+			}
+
+			else if(depth == 0 && i >= from && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))){
+				int end = matchWords(sql, i, words);
+
+				if(end > 0){
+					if(!last){
+						return i;
+					}
+
+					found = i;
+					i = end;
+					continue;
+				}
+			}
+
+			i++;
+		}
+
+		return found;
+	}
+
+	/**
+	 * Controlla se in posizione <code>start</code> iniziano le parole indicate
+	 * e restituisce la posizione successiva all'ultima, oppure <code>-1</code>.
+	 */
+	private static int matchWords(String sql, int start, String[] words){
+		int i = start;
+
+		for(int w = 0; w < words.length; w++){
+			if(w > 0){
+				int spaces = i;
+				while(i < sql.length() && Character.isWhitespace(sql.charAt(i))){
+					i++;
+				}
+
+				if(i == spaces){
+					return -1;
+				}
+			}
+
+			String word = words[w];
+			if(!sql.regionMatches(true, i, word, 0, word.length())){
+				return -1;
+			}
+
+			i += word.length();
+
+			if(i < sql.length() && isIdentifierPart(sql.charAt(i))){
+				return -1;
+			}
+		}
+
+		return i;
+	}
+
+	private static boolean isIdentifierPart(char c){
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+	}
+
+	/**
+	 * Restituisce la posizione successiva alla chiusura della stringa che inizia in <code>start</code>.
+	 * I caratteri di chiusura raddoppiati vengono considerati come parte della stringa.
+	 */
+	private static int literalEnd(String sql, int start, char close){
+		int i = start + 1;
+
+		while(i < sql.length()){
+			if(sql.charAt(i) == close){
+				if(i + 1 < sql.length() && sql.charAt(i + 1) == close){
+					i += 2;
+					continue;
+				}
+
+				return i + 1;
+			}
+
+			i++;
+		}
+
+		return sql.length();
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.wolfetti.swissknife.db.entities.SqlErrorType;
+
+/**
+ * Classificazione degli errori SQL, indipendente dal driver, in base a SQLState, codice di errore del produttore
+ * e classe dell'eccezione. Vengono esaminate anche le cause e le eccezioni concatenate (<code>getNextException</code>).
+ * <br><br>
+ * Oltre agli errori transitori vengono riconosciute le violazioni dei vincoli di integrit&agrave; (chiave duplicata,
+ * chiave esterna, valore obbligatorio): MySQL restituisce lo stesso SQLState <code>23000</code> per tutte e vanno quindi
+ * distinte dal codice di errore, mentre PostgreSQL e H2 utilizzano le sottoclassi standard (<code>23505</code>, ...).
+ * <br><br>
+ * I codici di errore dei produttori vengono considerati solo per le eccezioni del driver corrispondente,
+ * poich&eacute; lo stesso codice ha significati diversi su database diversi (es. 1205 &egrave; un timeout di lock
+ * su MySQL e un deadlock su SQL Server).
+ *
+ * @author Fabio Frijo
+ */
+public final class SqlErrors {
+	private SqlErrors(){}
+
+	/**
+	 * I codici di errore dei produttori, per prefisso del package delle eccezioni del driver
+	 */
+	private enum Vendor {
+		MYSQL("com.mysql.", "org.mariadb."),
+		SQLSERVER("com.microsoft.sqlserver.", "net.sourceforge.jtds."),
+		ORACLE("oracle."),
+		H2("org.h2."),
+
+		/**
+		 * Eccezioni di altri driver o della JDK: vengono classificate solo per SQLState e classe
+		 */
+		GENERIC;
+
+		static {
+			MYSQL
+				.map(SqlErrorType.DEADLOCK, 1213)
+				.map(SqlErrorType.LOCK_TIMEOUT, 1205)
+				.map(SqlErrorType.CONNECTION, 2002, 2003, 2006, 2013)
+				.map(SqlErrorType.DUPLICATE_KEY, 1022, 1062, 1586)
+				.map(SqlErrorType.FOREIGN_KEY, 1216, 1217, 1451, 1452)
+				.map(SqlErrorType.NOT_NULL, 1048)
+				.map(SqlErrorType.CONSTRAINT, 3819);
+
+			SQLSERVER
+				.map(SqlErrorType.DEADLOCK, 1205)
+				.map(SqlErrorType.LOCK_TIMEOUT, 1222)
+				.map(SqlErrorType.DUPLICATE_KEY, 2601, 2627)
+				.map(SqlErrorType.NOT_NULL, 515)
+				.map(SqlErrorType.CONSTRAINT, 547);
+
+			ORACLE
+				.map(SqlErrorType.DEADLOCK, 60, 8177)
+				.map(SqlErrorType.LOCK_TIMEOUT, 54, 30006)
+				.map(SqlErrorType.CONNECTION, 17002, 17008, 17410)
+				.map(SqlErrorType.DUPLICATE_KEY, 1)
+				.map(SqlErrorType.FOREIGN_KEY, 2291, 2292)
+				.map(SqlErrorType.NOT_NULL, 1400)
+				.map(SqlErrorType.CONSTRAINT, 2290);
+
+			H2
+				.map(SqlErrorType.DEADLOCK, 40001)
+				.map(SqlErrorType.LOCK_TIMEOUT, 50200)
+				.map(SqlErrorType.CONNECTION, 90067);
+		}
+
+		private final String[] packages;
+		private final Map<Integer, SqlErrorType> codes = new HashMap<Integer, SqlErrorType>();
+
+		private Vendor(String ... packages){
+			this.packages = packages;
+		}
+
+		private Vendor map(SqlErrorType type, int ... codes){
+			for(int code : codes){
+				this.codes.put(Integer.valueOf(code), type);
+			}
+
+			return this;
+		}
+
+		/**
+		 * @return la categoria del codice di errore, oppure <code>null</code> se il codice non &egrave; mappato
+		 */
+		private SqlErrorType classify(SQLException e){
+			return this.codes.get(Integer.valueOf(e.getErrorCode()));
+		}
+
+		private boolean owns(String className){
+			for(String p : this.packages){
+				if(className.startsWith(p)){
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * Il produttore di ogni classe di eccezione gi&agrave; incontrata
+	 */
+	private static final ConcurrentMap<Class<?>, Vendor> vendors = new ConcurrentHashMap<Class<?>, Vendor>();
+
+	/**
+	 * Restituisce la categoria dell'errore in ingresso, esaminando l'eccezione, le sue cause e le eccezioni SQL concatenate.
+	 *
+	 * @param t
+	 * 	L'eccezione da classificare
+	 *
+	 * @return
+	 * 	La prima categoria diversa da {@link SqlErrorType#OTHER}, oppure {@link SqlErrorType#OTHER}
+	 */
+	public static SqlErrorType classify(Throwable t){
+		Map<Throwable, Boolean> visited = new IdentityHashMap<Throwable, Boolean>();
+
+		for(Throwable current = t; current != null && visited.put(current, Boolean.TRUE) == null; current = current.getCause()){
+			if(!(current instanceof SQLException)){
+				continue;
+			}
+
+			SqlErrorType type = classify((SQLException) current);
+			if(type != SqlErrorType.OTHER){
+				return type;
+			}
+
+			SQLException next = ((SQLException) current).getNextException();
+			while(next != null && visited.put(next, Boolean.TRUE) == null){
+				type = classify(next);
+				if(type != SqlErrorType.OTHER){
+					return type;
+				}
+
+				next = next.getNextException();
+			}
+		}
+
+		return SqlErrorType.OTHER;
+	}
+
+	/**
+	 * @return <code>true</code> se l'errore in ingresso pu&ograve; non ripetersi eseguendo di nuovo l'operazione
+	 */
+	public static boolean isTransient(Throwable t){
+		return classify(t).isTransient();
+	}
+
+	/**
+	 * @return <code>true</code> se l'errore in ingresso &egrave; la violazione di una chiave primaria o di un vincolo di unicit&agrave;
+	 */
+	public static boolean isDuplicateKey(Throwable t){
+		return classify(t) == SqlErrorType.DUPLICATE_KEY;
+	}
+
+	/**
+	 * Restituisce il produttore del driver che ha generato l'eccezione, riconosciuto una sola volta per classe.
+	 */
+	private static Vendor vendorOf(Class<?> exceptionClass){
+		Vendor vendor = vendors.get(exceptionClass);
+
+		if(vendor == null){
+			vendor = Vendor.GENERIC;
+
+			for(Vendor v : Vendor.values()){
+				if(v.owns(exceptionClass.getName())){
+					vendor = v;
+					break;
+				}
+			}
+
+			vendors.putIfAbsent(exceptionClass, vendor);
+		}
+
+		return vendor;
+	}
+
+	/**
+	 * Classifica una singola eccezione SQL.
+	 */
+	private static SqlErrorType classify(SQLException e){
+		SqlErrorType type = vendorOf(e.getClass()).classify(e);
+
+		if(type != null){
+			return type;
+		}
+
+		// I timeout delle query sono voluti: non vanno considerati transitori
+		if(e instanceof SQLTimeoutException){
+			return SqlErrorType.OTHER;
+		}
+
+		String state = e.getSQLState();
+
+		if(state != null){
+			// 40001: serialization failure, 40P01: deadlock (PostgreSQL)
+			if("40001".equals(state) || "40P01".equals(state)){
+				return SqlErrorType.DEADLOCK;
+			}
+
+			// 55P03: lock not available (PostgreSQL)
+			if("55P03".equals(state)){
+				return SqlErrorType.LOCK_TIMEOUT;
+			}
+
+			// 08: connection exception, 57P01: admin shutdown (PostgreSQL)
+			if(state.startsWith("08") || "57P01".equals(state)){
+				return SqlErrorType.CONNECTION;
+			}
+
+			// 23: integrity constraint violation, con le sottoclassi di PostgreSQL e H2
+			if(state.startsWith("23")){
+				switch (state) {
+					case "23505": return SqlErrorType.DUPLICATE_KEY;
+					case "23503": case "23506": return SqlErrorType.FOREIGN_KEY;
+					case "23502": return SqlErrorType.NOT_NULL;
+					default: return SqlErrorType.CONSTRAINT;
+				}
+			}
+		}
+
+		if(e instanceof SQLTransactionRollbackException){
+			return SqlErrorType.DEADLOCK;
+		}
+
+		if(e instanceof SQLTransientConnectionException || e instanceof SQLRecoverableException){
+			return SqlErrorType.CONNECTION;
+		}
+
+		if(e instanceof SQLIntegrityConstraintViolationException){
+			return SqlErrorType.CONSTRAINT;
+		}
+
+		return SqlErrorType.OTHER;
+	}
+}
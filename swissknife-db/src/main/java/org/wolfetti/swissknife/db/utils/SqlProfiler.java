@@ -0,0 +1,661 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.common.logger.Log;
+import org.wolfetti.swissknife.common.logger.LogFactory;
+import org.wolfetti.swissknife.db.entities.SlowQuery;
+import org.wolfetti.swissknife.db.entities.SqlStats;
+
+/**
+ * Profilazione delle query eseguite dai connettori: numero di esecuzioni, errori, righe e istogramma dei tempi
+ * per ogni chiave del file SQL oppure, per le query eseguite direttamente sul connettore, per query normalizzata
+ * (valori letterali sostituiti da <code>?</code>).
+ * <br><br>
+ * Le query che superano <code>sk.db.slowQueryMillis</code> vengono registrate nel log applicativo a livello WARN
+ * e mantenute in memoria (le ultime {@value #SLOW_QUERY_LOG_SIZE}), con un riepilogo limitato dei parametri.
+ * Le statistiche sono esposte tramite JMX (vedi {@link SqlProfilerMBean}).
+ * <br><br>
+ * La profilazione viene attivata per i connettori configurati con <code>sk.db.profiling = true</code>; l'istanza
+ * &egrave; unica e raccoglie le statistiche di tutti i datasource. Il costo per query &egrave; di due letture
+ * del clock, una ricerca in una mappa concorrente e qualche incremento atomico.
+ *
+ * @author Fabio Frijo
+ */
+public final class SqlProfiler implements SqlProfilerMBean {
+
+	/**
+	 * Il nome JMX del profiler
+	 */
+	public static final String OBJECT_NAME = "org.wolfetti.swissknife.db:type=SqlProfiler";
+
+	/**
+	 * Il tempo oltre il quale una query &egrave; lenta, se non configurato diversamente
+	 */
+	public static final long DEFAULT_SLOW_QUERY_MILLIS = 1000;
+
+	/**
+	 * Il numero di query lente mantenute in memoria
+	 */
+	public static final int SLOW_QUERY_LOG_SIZE = 100;
+
+	/**
+	 * Il numero massimo di query distinte: le successive vengono raggruppate in {@link #OTHER_LABEL}
+	 */
+	public static final int MAX_LABELS = 2000;
+
+	/**
+	 * L'etichetta delle query oltre {@link #MAX_LABELS}
+	 */
+	public static final String OTHER_LABEL = "(altre query)";
+
+	private static final int MAX_LABEL_LENGTH = 300;
+	private static final int MAX_SQL_LENGTH = 2000;
+	private static final int MAX_PARAMETERS = 10;
+	private static final int MAX_PARAMETER_LENGTH = 64;
+
+	/**
+	 * Logger
+	 */
+	private static final Log log = LogFactory.getLog(SqlProfiler.class);
+
+	/**
+	 * L'unica istanza, creata dal primo connettore che attiva la profilazione
+	 */
+	private static volatile SqlProfiler instance = null;
+
+	/**
+	 * L'etichetta della prossima query del thread: la chiave del file SQL e la query a cui si riferisce
+	 */
+	private static final ThreadLocal<String[]> pending = new ThreadLocal<String[]>() {
+		@Override
+		protected String[] initialValue() {
+			return new String[2];
+		}
+	};
+
+	/**
+	 * Le statistiche per etichetta
+	 */
+	private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<String, Stats>();
+
+	/**
+	 * Le ultime query lente, dalla pi&ugrave; vecchia
+	 */
+	private final ArrayDeque<SlowQuery> slowQueries = new ArrayDeque<SlowQuery>(SLOW_QUERY_LOG_SIZE);
+
+	private final AtomicLong executions = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong slowCount = new AtomicLong();
+
+	private volatile long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_QUERY_MILLIS);
+
+	private SqlProfiler(){}
+
+	/* ===================================================================================== */
+	/* ===================================== ISTANZA ======================================= */
+	/* ===================================================================================== */
+
+	/**
+	 * Restituisce il profiler, creandolo e registrandolo su JMX alla prima chiamata.
+	 */
+	public static SqlProfiler get(){
+		SqlProfiler profiler = instance;
+
+		if(profiler == null){
+			synchronized (SqlProfiler.class) {
+				profiler = instance;
+
+				if(profiler == null){
+					profiler = new SqlProfiler();
+					register(profiler);
+					instance = profiler;
+				}
+			}
+		}
+
+		return profiler;
+	}
+
+	/**
+	 * Restituisce il profiler se la configurazione del connettore attiva la profilazione
+	 * (<code>sk.db.profiling</code>), altrimenti <code>null</code>.
+	 * Se presente, viene applicato il tempo delle query lente (<code>sk.db.slowQueryMillis</code>).
+	 */
+	public static SqlProfiler configure(Configuration conf){
+		if(!conf.getBoolean(DB.KEY_PROFILING, false)){
+			return null;
+		}
+
+		SqlProfiler profiler = get();
+
+		if(conf.containsKey(DB.KEY_SLOW_QUERY_MILLIS)){
+			profiler.setSlowQueryMillis(conf.getLong(DB.KEY_SLOW_QUERY_MILLIS));
+		}
+
+		return profiler;
+	}
+
+	private static void register(SqlProfiler profiler){
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+
+			// Es. un'altra applicazione dello stesso server con la propria copia della libreria
+			if(server.isRegistered(name)){
+				log.warn("MBean " + OBJECT_NAME + " gia' registrato: le statistiche di questa istanza non saranno visibili via JMX.");
+				return;
+			}
+
+			server.registerMBean(profiler, name);
+		} catch (JMException | SecurityException e) {
+			log.warn("Impossibile registrare l'MBean " + OBJECT_NAME, e);
+		}
+	}
+
+	/**
+	 * Indica se la profilazione &egrave; attiva in almeno un connettore: se non lo &egrave;,
+	 * {@link #label(String, String)} e {@link #addRows(String, long)} non hanno effetto.
+	 */
+	public static boolean isActive(){
+		return instance != null;
+	}
+
+	/**
+	 * Associa una chiave del file SQL alla prossima esecuzione della query in ingresso nel thread corrente.
+	 * L'associazione vale solo per la stessa istanza della query: se il thread esegue una query diversa
+	 * viene utilizzata la query normalizzata.
+	 *
+	 * @param label
+	 * 	L'etichetta della query, es. il file e la chiave
+	 *
+	 * @param sql
+	 * 	La query che verr&agrave; eseguita
+	 *
+	 * @return
+	 * 	La query in ingresso
+	 */
+	public static String label(String label, String sql){
+		if(instance != null){
+			String[] next = pending.get();
+			next[0] = label;
+			next[1] = sql;
+		}
+
+		return sql;
+	}
+
+	/**
+	 * Aggiunge le righe lette alle statistiche della query, se presenti.
+	 */
+	public static void addRows(String label, long rows){
+		SqlProfiler profiler = instance;
+
+		if(profiler != null && rows > 0){
+			Stats s = profiler.stats.get(label);
+
+			if(s != null){
+				s.rows.addAndGet(rows);
+			}
+		}
+	}
+
+	/* ===================================================================================== */
+	/* =================================== MISURAZIONE ===================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * Inizia la misurazione di un'esecuzione: va conclusa con {@link Probe#finish()}.
+	 *
+	 * @param sql
+	 * 	La query
+	 *
+	 * @param parameters
+	 * 	I parametri della query, o <code>null</code>
+	 */
+	public Probe start(String sql, Object[] parameters){
+		String[] next = pending.get();
+		String label = null;
+
+		if(next[1] != null){
+			if(next[1] == sql){
+				label = next[0];
+			}
+
+			next[0] = null;
+			next[1] = null;
+		}
+
+		return new Probe(this, label, sql, parameters);
+	}
+
+	/**
+	 * Una misurazione in corso.
+	 */
+	public static final class Probe {
+		private final SqlProfiler profiler;
+		private final String label;
+		private final String sql;
+		private final Object[] parameters;
+		private final long start;
+
+		private long rows = 0;
+		private boolean failed = true;
+
+		private Probe(SqlProfiler profiler, String label, String sql, Object[] parameters){
+			this.profiler = profiler;
+			this.label = label;
+			this.sql = sql;
+			this.parameters = parameters;
+			this.start = System.nanoTime();
+		}
+
+		/**
+		 * Segnala che l'esecuzione &egrave; terminata correttamente.
+		 *
+		 * @param rows
+		 * 	Le righe interessate, se note
+		 */
+		public void succeeded(long rows){
+			this.failed = false;
+			this.rows = rows;
+		}
+
+		/**
+		 * Conclude la misurazione: se non &egrave; stato invocato {@link #succeeded(long)} l'esecuzione &egrave; fallita.
+		 */
+		public void finish(){
+			this.profiler.record(this, System.nanoTime() - this.start);
+		}
+	}
+
+	private void record(Probe probe, long nanos){
+		String label = probe.label != null ? probe.label : normalize(probe.sql);
+		Stats s = this.stats.get(label);
+
+		if(s == null){
+			if(this.stats.size() >= MAX_LABELS){
+				label = OTHER_LABEL;
+			}
+
+			Stats created = new Stats();
+			s = this.stats.putIfAbsent(label, created);
+
+			if(s == null){
+				s = created;
+			}
+		}
+
+		s.record(nanos, probe.rows, probe.failed);
+
+		this.executions.incrementAndGet();
+		if(probe.failed){
+			this.errors.incrementAndGet();
+		}
+
+		if(nanos >= this.slowQueryNanos){
+			this.slowQuery(label, probe, nanos);
+		}
+	}
+
+	private void slowQuery(String label, Probe probe, long nanos){
+		SlowQuery entry = new SlowQuery(
+			System.currentTimeMillis(), label, truncate(probe.sql, MAX_SQL_LENGTH), summarize(probe.parameters),
+			nanos / 1000000d, probe.failed, Thread.currentThread().getName()
+		);
+
+		this.slowCount.incrementAndGet();
+
+		synchronized (this.slowQueries) {
+			if(this.slowQueries.size() >= SLOW_QUERY_LOG_SIZE){
+				this.slowQueries.removeFirst();
+			}
+
+			this.slowQueries.addLast(entry);
+		}
+
+		log.warn("Query lenta: " + entry);
+	}
+
+	/**
+	 * Le statistiche di una query.
+	 */
+	private static final class Stats {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong errors = new AtomicLong();
+		private final AtomicLong rows = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final LatencyHistogram histogram = new LatencyHistogram();
+
+		private void record(long nanos, long affected, boolean failed){
+			this.count.incrementAndGet();
+			this.totalNanos.addAndGet(nanos);
+			this.histogram.record(nanos);
+
+			if(failed){
+				this.errors.incrementAndGet();
+			}
+
+			if(affected > 0){
+				this.rows.addAndGet(affected);
+			}
+
+			long max = this.maxNanos.get();
+			while(nanos > max && !this.maxNanos.compareAndSet(max, nanos)){
+				max = this.maxNanos.get();
+			}
+		}
+
+		private SqlStats snapshot(String label){
+			long[] buckets = this.histogram.snapshot();
+			double max = this.maxNanos.get() / 1000000d;
+
+			// I percentili sono il limite superiore del bucket: non possono superare il massimo misurato
+			return new SqlStats(
+				label, this.count.get(), this.errors.get(), this.rows.get(),
+				this.totalNanos.get() / 1000000d, max,
+				Math.min(max, LatencyHistogram.percentile(buckets, 50) / 1000d),
+				Math.min(max, LatencyHistogram.percentile(buckets, 95) / 1000d),
+				Math.min(max, LatencyHistogram.percentile(buckets, 99) / 1000d)
+			);
+		}
+	}
+
+	/* ===================================================================================== */
+	/* ==================================== STATISTICHE ==================================== */
+	/* ===================================================================================== */
+
+	/**
+	 * @return le statistiche di tutte le query
+	 */
+	public List<SqlStats> getStats(){
+		List<SqlStats> result = new ArrayList<SqlStats>(this.stats.size());
+		for(ConcurrentMap.Entry<String, Stats> e : this.stats.entrySet()){
+			result.add(e.getValue().snapshot(e.getKey()));
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return le statistiche della query indicata, oppure <code>null</code> se non presenti
+	 */
+	public SqlStats getStats(String label){
+		Stats s = this.stats.get(label);
+		return s == null ? null : s.snapshot(label);
+	}
+
+	/**
+	 * @return le ultime query lente, dalla pi&ugrave; recente
+	 */
+	public List<SlowQuery> getSlowQueryList(){
+		List<SlowQuery> result;
+
+		synchronized (this.slowQueries) {
+			result = new ArrayList<SlowQuery>(this.slowQueries);
+		}
+
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * Restituisce le prime statistiche secondo l'ordinamento in ingresso.
+	 */
+	private String[] top(int limit, Comparator<SqlStats> order){
+		List<SqlStats> all = this.getStats();
+		Collections.sort(all, order);
+
+		int size = Math.max(0, Math.min(limit, all.size()));
+		String[] result = new String[size];
+
+		for(int i = 0; i < size; i++){
+			result[i] = all.get(i).toString();
+		}
+
+		return result;
+	}
+
+	@Override
+	public String[] topByP99(int limit) {
+		return this.top(limit, new Comparator<SqlStats>() {
+			@Override
+			public int compare(SqlStats a, SqlStats b) {
+				return Double.compare(b.getP99Millis(), a.getP99Millis());
+			}
+		});
+	}
+
+	@Override
+	public String[] topByTotalTime(int limit) {
+		return this.top(limit, new Comparator<SqlStats>() {
+			@Override
+			public int compare(SqlStats a, SqlStats b) {
+				return Double.compare(b.getTotalMillis(), a.getTotalMillis());
+			}
+		});
+	}
+
+	@Override
+	public String[] topByErrors(int limit) {
+		return this.top(limit, new Comparator<SqlStats>() {
+			@Override
+			public int compare(SqlStats a, SqlStats b) {
+				return Long.compare(b.getErrors(), a.getErrors());
+			}
+		});
+	}
+
+	@Override
+	public String describe(String label) {
+		SqlStats s = this.getStats(label);
+		return s == null ? null : s.toString();
+	}
+
+	@Override
+	public String[] getSlowQueryLog() {
+		List<SlowQuery> list = this.getSlowQueryList();
+		String[] result = new String[list.size()];
+
+		for(int i = 0; i < result.length; i++){
+			result[i] = list.get(i).toString();
+		}
+
+		return result;
+	}
+
+	@Override
+	public String[] getLabels() {
+		List<String> labels = new ArrayList<String>(this.stats.keySet());
+		Collections.sort(labels);
+		return labels.toArray(new String[labels.size()]);
+	}
+
+	@Override
+	public long getExecutions() {
+		return this.executions.get();
+	}
+
+	@Override
+	public long getErrors() {
+		return this.errors.get();
+	}
+
+	@Override
+	public long getSlowQueries() {
+		return this.slowCount.get();
+	}
+
+	@Override
+	public long getSlowQueryMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.slowQueryNanos);
+	}
+
+	@Override
+	public void setSlowQueryMillis(long millis) {
+		this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+	}
+
+	@Override
+	public void reset() {
+		this.stats.clear();
+		this.executions.set(0);
+		this.errors.set(0);
+		this.slowCount.set(0);
+
+		synchronized (this.slowQueries) {
+			this.slowQueries.clear();
+		}
+	}
+
+	/* ===================================================================================== */
+	/* ===================================== UTILITY ======================================= */
+	/* ===================================================================================== */
+
+	/**
+	 * Normalizza la query per raggruppare le esecuzioni con valori diversi: stringhe e numeri
+	 * diventano <code>?</code> e gli spazi vengono compattati.
+	 */
+	static String normalize(String sql){
+		if(sql == null){
+			return OTHER_LABEL;
+		}
+
+		int length = sql.length();
+		StringBuilder result = new StringBuilder(Math.min(length, MAX_LABEL_LENGTH) + 4);
+		boolean space = false;
+		int i = 0;
+
+		while(i < length && result.length() < MAX_LABEL_LENGTH){
+			char c = sql.charAt(i);
+
+			if(Character.isWhitespace(c)){
+				space = true;
+				i++;
+				continue;
+			}
+
+			if(space && result.length() > 0){
+				result.append(' ');
+			}
+
+			space = false;
+
+			if(c == '\''){
+				i++;
+				while(i < length){
+					if(sql.charAt(i) == '\''){
+						if(i + 1 < length && sql.charAt(i + 1) == '\''){
+							i += 2;
+							continue;
+						}
+
+						break;
+					}
+
+					i++;
+				}
+
+				result.append('?');
+				i++;
+			}
+
+			else if(Character.isDigit(c) && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))){
+				while(i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')){
+					i++;
+				}
+
+				result.append('?');
+			}
+
+			else {
+				result.append(c);
+				i++;
+			}
+		}
+
+		if(i < length){
+			result.append("...");
+		}
+
+		return result.toString();
+	}
+
+	private static boolean isIdentifierPart(char c){
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+
+	/**
+	 * Riepilogo dei parametri, limitato nel numero e nella lunghezza dei valori.
+	 */
+	private static String summarize(Object[] parameters){
+		if(parameters == null){
+			return null;
+		}
+
+		StringBuilder result = new StringBuilder("[");
+		int size = Math.min(parameters.length, MAX_PARAMETERS);
+
+		for(int i = 0; i < size; i++){
+			Object p = parameters[i];
+
+			if(i > 0){
+				result.append(", ");
+			}
+
+			if(p == null){
+				result.append("null");
+			} else if(p instanceof byte[]){
+				result.append("byte[").append(((byte[]) p).length).append(']');
+			} else if(p instanceof Number || p instanceof Boolean || p instanceof CharSequence || p instanceof java.util.Date){
+				result.append(truncate(p.toString(), MAX_PARAMETER_LENGTH));
+			} else {
+				result.append(p.getClass().getSimpleName());
+			}
+		}
+
+		if(parameters.length > size){
+			result.append(", ... (").append(parameters.length).append(" parametri)");
+		}
+
+		return result.append(']').toString();
+	}
+
+	private static String truncate(String s, int max){
+		return s == null || s.length() <= max ? s : s.substring(0, max) + "...";
+	}
+}
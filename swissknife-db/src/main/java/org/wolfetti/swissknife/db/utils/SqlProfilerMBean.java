@@ -0,0 +1,88 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+/**
+ * Interfaccia JMX di {@link SqlProfiler}, registrata come <code>org.wolfetti.swissknife.db:type=SqlProfiler</code>.
+ * Le statistiche vengono restituite come testo, in maniera che siano leggibili da qualsiasi console JMX.
+ *
+ * @author Fabio Frijo
+ */
+public interface SqlProfilerMBean {
+
+	/**
+	 * @return il tempo in millisecondi oltre il quale una query viene registrata nel log delle query lente
+	 */
+	public long getSlowQueryMillis();
+
+	/**
+	 * Imposta il tempo in millisecondi oltre il quale una query viene registrata nel log delle query lente.
+	 */
+	public void setSlowQueryMillis(long millis);
+
+	/**
+	 * @return il numero di query eseguite
+	 */
+	public long getExecutions();
+
+	/**
+	 * @return il numero di query fallite
+	 */
+	public long getErrors();
+
+	/**
+	 * @return il numero di query lente
+	 */
+	public long getSlowQueries();
+
+	/**
+	 * @return le chiavi (o le query normalizzate) per le quali sono presenti statistiche
+	 */
+	public String[] getLabels();
+
+	/**
+	 * @return le statistiche delle query con il 99&deg; percentile pi&ugrave; alto
+	 */
+	public String[] topByP99(int limit);
+
+	/**
+	 * @return le statistiche delle query con il tempo totale di esecuzione pi&ugrave; alto
+	 */
+	public String[] topByTotalTime(int limit);
+
+	/**
+	 * @return le statistiche delle query con pi&ugrave; errori
+	 */
+	public String[] topByErrors(int limit);
+
+	/**
+	 * @return le statistiche della query indicata
+	 */
+	public String describe(String label);
+
+	/**
+	 * @return le ultime query lente, dalla pi&ugrave; recente
+	 */
+	public String[] getSlowQueryLog();
+
+	/**
+	 * Azzera le statistiche e il log delle query lente.
+	 */
+	public void reset();
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.wolfetti.swissknife.common.utils.exceptions.StringFormatException;
+
+/**
+ * Rappresentazione compilata di una query del file SQL.<br>
+ * I placeholders <code>{n}</code> vengono sostituiti una sola volta con dei parametri <code>?</code>,
+ * in maniera che la query possa essere eseguita tramite un {@link java.sql.PreparedStatement}.
+ * <br><br>
+ * Un placeholder racchiuso tra apici singoli (es. <code>'{1}'</code>) viene trattato come un
+ * parametro stringa: gli apici vengono rimossi. Se invece il placeholder si trova all'interno
+ * di una stringa pi&ugrave; lunga (es. <code>'%{1}%'</code>) o rappresenta un riferimento
+ * <code>${...}</code>, la query non &egrave; parametrizzabile e va formattata con {@link #format(Object...)}.
+ * <br><br>
+ * Anche la formattazione viene preparata in fase di compilazione: la query viene divisa una sola volta
+ * nei tratti di testo compresi tra i placeholders, che al momento della formattazione vengono solo concatenati
+ * ai valori, con lo stesso risultato di {@link SqlFormatter#format(String, Object...)}.
+ *
+ * @author Fabio Frijo
+ */
+public final class SqlTemplate {
+
+	/**
+	 * La query originale, con i placeholders
+	 */
+	private final String source;
+
+	/**
+	 * La query parametrizzata con <code>?</code>
+	 */
+	private final String sql;
+
+	/**
+	 * Per ogni parametro <code>?</code> l'indice del valore da utilizzare.
+	 */
+	private final int[] parameters;
+
+	/**
+	 * Il numero minimo di valori necessari per valorizzare tutti i parametri.
+	 */
+	private final int requiredValues;
+
+	/**
+	 * Flag che indica se la query pu&ograve; essere eseguita con i parametri in binding.
+	 */
+	private final boolean bindable;
+
+	/**
+	 * I tratti di testo tra i placeholders da formattare, oppure <code>null</code> se la query
+	 * non ha una forma riconosciuta e va formattata con {@link SqlFormatter}.
+	 */
+	private final String[] segments;
+
+	/**
+	 * Per ogni placeholder da formattare l'indice del valore da utilizzare.
+	 */
+	private final int[] slots;
+
+	/**
+	 * Per ogni placeholder da formattare, <code>true</code> se racchiuso tra apici singoli:
+	 * un valore <code>null</code> viene scritto senza apici.
+	 */
+	private final boolean[] quoted;
+
+	private SqlTemplate(String source, String sql, int[] parameters, boolean bindable){
+		this.source = source;
+		this.sql = sql;
+		this.parameters = parameters;
+		this.bindable = bindable;
+
+		List<String> texts = new ArrayList<String>();
+		List<Integer> indexes = new ArrayList<Integer>();
+
+		if(split(source, texts, indexes)){
+			this.segments = texts.toArray(new String[texts.size()]);
+			this.slots = new int[indexes.size()];
+			this.quoted = new boolean[indexes.size()];
+
+			for(int i = 0; i < this.slots.length; i++){
+				this.slots[i] = indexes.get(i).intValue();
+
+				// L'apice di chiusura del placeholder precedente non puo' aprire anche questo
+				String before = this.segments[i];
+				int minLength = i > 0 && this.quoted[i - 1] ? 2 : 1;
+
+				this.quoted[i] =
+					before.length() >= minLength && before.charAt(before.length() - 1) == '\'' &&
+					this.segments[i + 1].length() > 0 && this.segments[i + 1].charAt(0) == '\''
+				;
+			}
+		} else {
+			this.segments = null;
+			this.slots = null;
+			this.quoted = null;
+		}
+
+		int max = 0;
+		for(int p : parameters){
+			max = Math.max(max, p + 1);
+		}
+
+		this.requiredValues = max;
+	}
+
+	/**
+	 * Restituisce il template compilato per la query in ingresso.
+	 * Ogni chiamata analizza la query: i template delle query dei file vengono compilati e mantenuti
+	 * da {@link org.wolfetti.swissknife.db.dao.SqlCatalog SqlCatalog}.
+	 *
+	 * @param source
+	 * 	La query con i placeholders <code>{n}</code>
+	 *
+	 * @return
+	 * 	Il template compilato
+	 */
+	public static SqlTemplate compile(String source){
+		if(source == null || source.length() == 0){
+			throw new StringFormatException("Null or empty SQL is not allowed.");
+		}
+
+		return parse(source);
+	}
+
+	/**
+	 * Analizza la query e sostituisce i placeholders con i parametri <code>?</code>.
+	 */
+	private static SqlTemplate parse(String source){
+		StringBuilder sql = new StringBuilder(source.length());
+		List<Integer> params = new ArrayList<Integer>();
+		boolean bindable = true;
+
+		int i = 0;
+		int length = source.length();
+
+		while(i < length){
+			char c = source.charAt(i);
+
+			// Riferimento ad un'altra query: non gestibile in binding
+			if(c == '$' && i + 1 < length && source.charAt(i + 1) == '{'){
+				bindable = false;
+				sql.append(c);
+				i++;
+			}
+
+			// Placeholder fuori da una stringa
+			else if(c == '{'){
+				int end = placeholderEnd(source, i);
+
+				if(end < 0){
+					sql.append(c);
+					i++;
+				} else {
+					params.add(Integer.valueOf(source.substring(i + 1, end)));
+					sql.append('?');
+					i = end + 1;
+				}
+			}
+
+			// Stringa SQL: o e' esattamente '{n}' o viene copiata cosi' com'e'
+			else if(c == '\'' || c == '"' || c == '`'){
+				int close = literalEnd(source, i, c);
+				String literal = source.substring(i, close);
+
+				int end = c == '\'' ? placeholderEnd(source, i + 1) : -1;
+
+				if(end > 0 && end + 2 == close){
+					params.add(Integer.valueOf(source.substring(i + 2, end)));
+					sql.append('?');
+				} else {
+					if(literal.indexOf('{') >= 0){
+						bindable = false;
+					}
+
+					sql.append(literal);
+				}
+
+				i = close;
+			}
+
+			else {
+				sql.append(c);
+				i++;
+			}
+		}
+
+		int[] parameters = new int[params.size()];
+		for(int p = 0; p < parameters.length; p++){
+			parameters[p] = params.get(p).intValue();
+		}
+
+		return new SqlTemplate(source, sql.toString(), parameters, bindable);
+	}
+
+	/**
+	 * Divide la query nei tratti di testo compresi tra i placeholders <code>{n}</code>, riconosciuti
+	 * come in {@link org.wolfetti.swissknife.common.utils.StringUtils#format(String, Object...)} anche
+	 * all'interno delle stringhe SQL. Le stringhe <code>'null'</code> del testo vengono gi&agrave;
+	 * convertite in <code>null</code>, come fa {@link SqlFormatter#format()} sulla query formattata.
+	 *
+	 * @return
+	 * 	<code>false</code> se la query contiene parentesi graffe che non formano un placeholder
+	 */
+	private static boolean split(String source, List<String> texts, List<Integer> indexes){
+		int length = source.length();
+		int from = 0;
+		int i = 0;
+
+		while(i < length){
+			char c = source.charAt(i);
+
+			if(c == '}'){
+				return false;
+			}
+
+			if(c != '{'){
+				i++;
+				continue;
+			}
+
+			StringBuilder digits = new StringBuilder(4);
+			int close = i + 1;
+
+			while(close < length && source.charAt(close) != '}'){
+				char d = source.charAt(close);
+
+				if(d == '{'){
+					return false;
+				}
+
+				if(Character.isDigit(d)){
+					digits.append(d);
+				}
+
+				close++;
+			}
+
+			if(close >= length || digits.length() == 0){
+				return false;
+			}
+
+			texts.add(source.substring(from, i).replace("'null'", "null"));
+			indexes.add(Integer.valueOf(digits.toString()));
+
+			i = close + 1;
+			from = i;
+		}
+
+		texts.add(source.substring(from).replace("'null'", "null"));
+		return true;
+	}
+
+	/**
+	 * Restituisce l'indice della parentesi di chiusura del placeholder che inizia in <code>start</code>,
+	 * oppure <code>-1</code> se in quella posizione non c'&egrave; un placeholder numerico.
+	 */
+	private static int placeholderEnd(String source, int start){
+		if(start >= source.length() || source.charAt(start) != '{'){
+			return -1;
+		}
+
+		int i = start + 1;
+		while(i < source.length() && Character.isDigit(source.charAt(i))){
+			i++;
+		}
+
+		if(i == start + 1 || i >= source.length() || source.charAt(i) != '}'){
+			return -1;
+		}
+
+		return i;
+	}
+
+	/**
+	 * Restituisce l'indice successivo alla chiusura della stringa SQL che inizia in <code>start</code>.
+	 * Gli apici raddoppiati vengono considerati come parte della stringa.
+	 */
+	private static int literalEnd(String source, int start, char quote){
+		int i = start + 1;
+
+		while(i < source.length()){
+			if(source.charAt(i) == quote){
+				if(i + 1 < source.length() && source.charAt(i + 1) == quote){
+					i += 2;
+					continue;
+				}
+
+				return i + 1;
+			}
+
+			i++;
+		}
+
+		return source.length();
+	}
+
+	/**
+	 * Restituisce i valori nell'ordine dei parametri <code>?</code> della query compilata.
+	 *
+	 * @param values
+	 * 	I valori dei placeholders <code>{n}</code>
+	 *
+	 * @throws StringFormatException
+	 * 	Quando un placeholder non ha un valore associato.
+	 */
+	public Object[] getParameters(Object ... values){
+		int available = values == null ? 0 : values.length;
+
+		if(available < this.requiredValues){
+			throw new StringFormatException(
+				"Il placeholder {" + (this.requiredValues - 1) + "} non ha un valore associato."
+			);
+		}
+
+		Object[] result = new Object[this.parameters.length];
+		for(int i = 0; i < this.parameters.length; i++){
+			result[i] = values[this.parameters[i]];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sostituisce i placeholders della query con i valori in ingresso, preparati con
+	 * {@link SqlFormatter#prepareValues(Object...)}, senza analizzare di nuovo la query.
+	 *
+	 * @param values
+	 * 	I valori dei placeholders <code>{n}</code>
+	 *
+	 * @return
+	 * 	La query formattata, oppure quella originale se non sono presenti valori
+	 *
+	 * @throws StringFormatException
+	 * 	Quando un placeholder non ha un valore associato.
+	 */
+	public String format(Object ... values){
+		if(values == null || values.length == 0){
+			return this.source;
+		}
+
+		if(this.segments == null){
+			return SqlFormatter.format(this.source, values);
+		}
+
+		SqlFormatter.prepareValues(values);
+
+		StringBuilder result = new StringBuilder(this.source.length() + this.slots.length * 16);
+		boolean skipQuote = false;
+
+		for(int i = 0; i < this.slots.length; i++){
+			if(this.slots[i] >= values.length){
+				throw new StringFormatException("Il placeholder {" + this.slots[i] + "} non ha un valore associato.");
+			}
+
+			Object value = values[this.slots[i]];
+			String segment = this.segments[i];
+			int start = skipQuote ? 1 : 0;
+
+			if(value == null && this.quoted[i]){
+				result.append(segment, start, segment.length() - 1).append("null");
+				skipQuote = true;
+			} else {
+				result.append(segment, start, segment.length()).append(value);
+				skipQuote = false;
+			}
+		}
+
+		String last = this.segments[this.slots.length];
+		result.append(last, skipQuote ? 1 : 0, last.length());
+
+		return result.toString();
+	}
+
+	/**
+	 * @return la query originale, con i placeholders
+	 */
+	public String getSource() {
+		return this.source;
+	}
+
+	/**
+	 * @return la query parametrizzata con <code>?</code>
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * @return il numero di parametri <code>?</code> della query compilata
+	 */
+	public int getParameterCount() {
+		return this.parameters.length;
+	}
+
+	/**
+	 * @return <code>true</code> se la query pu&ograve; essere eseguita con i parametri in binding
+	 */
+	public boolean isBindable() {
+		return this.bindable;
+	}
+
+	@Override
+	public String toString() {
+		return this.sql;
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.wolfetti.swissknife.db.dialect.Dialect;
+import org.wolfetti.swissknife.db.exceptions.IllegalOperationException;
+
+/**
+ * Costruzione dei comandi di <i>upsert</i> (inserimento o aggiornamento per chiave) con la sintassi nativa del
+ * {@link Dialect}, a partire dalle colonne di una tabella o da una INSERT esistente.
+ *
+ * @author Fabio Frijo
+ */
+public final class Upserts {
+	private Upserts(){}
+
+	/**
+	 * Riconosce una INSERT con elenco di colonne e una sola riga di valori
+	 */
+	private static final Pattern INSERT = Pattern.compile(
+		"^\\s*INSERT\\s+INTO\\s+([\\w.`\"\\[\\]]+)\\s*\\((.*?)\\)\\s*VALUES\\s*\\((.*)\\)\\s*;?\\s*$",
+		Pattern.CASE_INSENSITIVE | Pattern.DOTALL
+	);
+
+	/**
+	 * Cache delle INSERT gi&agrave; trasformate, indicizzata per dialetto, chiave e testo della INSERT.
+	 */
+	private static final ConcurrentMap<String, String> statements = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Restituisce l'upsert parametrizzato della tabella, con un parametro <code>?</code> per ogni colonna.
+	 * Vengono aggiornate tutte le colonne che non fanno parte della chiave.
+	 *
+	 * @param dialect
+	 * 	Il dialetto del database
+	 *
+	 * @param table
+	 * 	La tabella
+	 *
+	 * @param columns
+	 * 	Le colonne da inserire, chiave compresa
+	 *
+	 * @param keyColumns
+	 * 	Le colonne della chiave
+	 *
+	 * @throws IllegalOperationException
+	 * 	Se la chiave non &egrave; compresa tra le colonne
+	 */
+	public static String forColumns(Dialect dialect, String table, String[] columns, String[] keyColumns){
+		String[] values = new String[columns.length];
+		for(int i = 0; i < values.length; i++){
+			values[i] = "?";
+		}
+
+		return dialect.upsert(table, columns, values, keyColumns, updateColumns(columns, keyColumns));
+	}
+
+	/**
+	 * Trasforma una INSERT di una sola riga (<code>INSERT INTO t (a, b) VALUES (x, y)</code>) nell'upsert corrispondente.
+	 * Le espressioni dei valori, compresi eventuali placeholders <code>{n}</code> o parametri <code>?</code>,
+	 * vengono mantenute e compaiono nello stesso ordine. Il risultato viene memorizzato in cache.
+	 *
+	 * @param dialect
+	 * 	Il dialetto del database
+	 *
+	 * @param insert
+	 * 	La INSERT
+	 *
+	 * @param keyColumns
+	 * 	Le colonne della chiave
+	 *
+	 * @throws IllegalOperationException
+	 * 	Se la query non &egrave; una INSERT di una sola riga o la chiave non &egrave; compresa tra le colonne
+	 */
+	public static String fromInsert(Dialect dialect, String insert, String[] keyColumns){
+		StringBuilder key = new StringBuilder(dialect.getName());
+		for(String column : keyColumns){
+			key.append(',').append(column);
+		}
+		key.append('\u0000').append(insert);
+
+		String result = statements.get(key.toString());
+
+		if(result == null){
+			Matcher m = INSERT.matcher(insert);
+			if(!m.matches()){
+				throw new IllegalOperationException("La query non e' una INSERT di una sola riga con elenco di colonne: " + insert);
+			}
+
+			List<String> columns = SqlClauses.split(m.group(2));
+			List<String> values = SqlClauses.split(m.group(3));
+
+			if(columns.size() != values.size()){
+				throw new IllegalOperationException("Il numero di colonne e di valori della INSERT non corrisponde: " + insert);
+			}
+
+			String[] columnArray = columns.toArray(new String[columns.size()]);
+			result = dialect.upsert(
+				m.group(1), columnArray, values.toArray(new String[values.size()]),
+				keyColumns, updateColumns(columnArray, keyColumns)
+			);
+
+			statements.putIfAbsent(key.toString(), result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Restituisce le colonne che non fanno parte della chiave.
+	 *
+	 * @throws IllegalOperationException
+	 * 	Se la chiave &egrave; vuota o non &egrave; compresa tra le colonne
+	 */
+	public static String[] updateColumns(String[] columns, String[] keyColumns){
+		if(keyColumns == null || keyColumns.length == 0){
+			throw new IllegalOperationException("Nessuna colonna chiave per l'upsert");
+		}
+
+		List<String> result = new ArrayList<String>(columns.length);
+		int keys = 0;
+
+		for(String column : columns){
+			if(indexOf(keyColumns, column) >= 0){
+				keys++;
+			} else {
+				result.add(column);
+			}
+		}
+
+		if(keys != keyColumns.length){
+			throw new IllegalOperationException("Le colonne chiave dell'upsert devono essere tutte tra quelle inserite");
+		}
+
+		return result.toArray(new String[result.size()]);
+	}
+
+	private static int indexOf(String[] columns, String column){
+		for(int i = 0; i < columns.length; i++){
+			if(columns[i].equalsIgnoreCase(column)){
+				return i;
+			}
+		}
+
+		return -1;
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.db.dao.PropertyFileDAO;
+import org.wolfetti.swissknife.db.entities.BatchResult;
+import org.wolfetti.swissknife.db.exceptions.DuplicatedKeyException;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+
+/**
+ * Test delle scritture in batch di {@link DbConnector} e {@link PropertyFileDAO}.
+ *
+ * @author Fabio Frijo
+ */
+public class BatchWriteTest {
+	private static int databases = 0;
+
+	private DbConnector connector;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.connector = TestDatabase.open("batch" + (++databases), false);
+		this.connector.write("CREATE TABLE persone (id INT AUTO_INCREMENT PRIMARY KEY, nome VARCHAR(50), eta INT)");
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+	}
+
+	@Test
+	public void rowsAreSentInChunks()
+	throws Exception {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for(int i = 0; i < 10; i++){
+			rows.add(new Object[]{"persona" + i, Integer.valueOf(i)});
+		}
+
+		BatchResult result = this.connector.writeBatch("INSERT INTO persone (nome, eta) VALUES (?, ?)", rows, 3);
+
+		assertEquals(4, result.getChunks());
+		assertEquals(10L, result.getTotalUpdatedRows());
+		assertEquals(10, result.getUpdateCounts().length);
+		assertEquals(10, result.getGeneratedKeys().size());
+		assertEquals(Long.valueOf(1L), result.getGeneratedKeys().get(0));
+		assertEquals(Long.valueOf(10L), result.getGeneratedKeys().get(9));
+		assertEquals(10, this.count());
+	}
+
+	@Test
+	public void literalStatements()
+	throws Exception {
+		BatchResult result = this.connector.writeBatch(Arrays.asList(
+			"INSERT INTO persone (nome, eta) VALUES ('a', 1)",
+			"INSERT INTO persone (nome, eta) VALUES ('b', 2)",
+			"UPDATE persone SET eta = eta + 1"
+		), 2);
+
+		assertArrayEquals(new int[]{1, 1, 2}, result.getUpdateCounts());
+		assertEquals(2, result.getChunks());
+	}
+
+	@Test
+	public void emptyBatch()
+	throws Exception {
+		BatchResult result = this.connector.writeBatch("INSERT INTO persone (nome, eta) VALUES (?, ?)", new ArrayList<Object[]>());
+
+		assertEquals(0L, result.getTotalUpdatedRows());
+		assertEquals(0, this.count());
+	}
+
+	@Test
+	public void duplicateKeyIsReported()
+	throws Exception {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[]{1, "a", 1});
+		rows.add(new Object[]{1, "b", 2});
+
+		try {
+			this.connector.writeBatch("INSERT INTO persone (id, nome, eta) VALUES (?, ?, ?)", rows);
+			fail("La chiave duplicata deve generare un errore");
+		} catch (DuplicatedKeyException e) {
+			// Atteso
+		}
+	}
+
+	@Test
+	public void failedChunkReportsCommittedRows()
+	throws Exception {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for(int i = 1; i <= 10; i++){
+			rows.add(new Object[]{i == 8 ? 1 : i, "persona" + i, i});
+		}
+
+		try {
+			this.connector.writeBatch("INSERT INTO persone (id, nome, eta) VALUES (?, ?, ?)", rows, 3);
+			fail("La chiave duplicata deve generare un errore");
+		} catch (DuplicatedKeyException e) {
+			assertEquals(2, e.getCommittedChunks());
+			assertEquals(6L, e.getCommittedRows());
+		}
+
+		try {
+			this.connector.writeBatch(Arrays.asList(
+				"INSERT INTO persone (nome, eta) VALUES ('a', 1)",
+				"INSERT INTO persone (nome, eta) VALUES ('b', 2)",
+				"INSERT INTO tabella_inesistente VALUES (1)"
+			), 2);
+			fail("La tabella inesistente deve generare un errore");
+		} catch (SqlQueryException e) {
+			assertEquals(1, e.getCommittedChunks());
+			assertEquals(2L, e.getCommittedRows());
+		}
+	}
+
+	/**
+	 * In transazione la commit di ogni blocco conferma anche le scritture precedenti del chiamante.
+	 */
+	@Test
+	public void chunkCommitIncludesPendingWork()
+	throws Exception {
+		DbConnector tx = TestDatabase.open("batch" + (++databases), true);
+
+		try {
+			tx.write("CREATE TABLE persone (id INT PRIMARY KEY, nome VARCHAR(50), eta INT)");
+			tx.commit();
+			tx.write("INSERT INTO persone (id, nome, eta) VALUES (100, 'in sospeso', 1)");
+
+			List<Object[]> rows = new ArrayList<Object[]>();
+			for(int i = 1; i <= 10; i++){
+				rows.add(new Object[]{i == 8 ? 1 : i, "persona" + i, i});
+			}
+
+			try {
+				tx.writeBatch("INSERT INTO persone (id, nome, eta) VALUES (?, ?, ?)", rows, 3);
+				fail("La chiave duplicata deve generare un errore");
+			} catch (DuplicatedKeyException e) {
+				assertEquals(6L, e.getCommittedRows());
+			}
+
+			tx.rollback();
+
+			ResultSet rs = tx.query("SELECT COUNT(*) FROM persone");
+			assertTrue(rs.next());
+			assertEquals(7, rs.getInt(1));
+		} finally {
+			tx.close();
+		}
+	}
+
+	@Test
+	public void daoBatchWithAndWithoutBinding()
+	throws Exception {
+		for(boolean bind : new boolean[]{false, true}){
+			PropertyFileDAO dao = new PropertyFileDAO("batch.properties", this.connector);
+			dao.setBindParameters(bind);
+
+			List<Object[]> rows = new ArrayList<Object[]>();
+			rows.add(new Object[]{"D'Angelo", 10});
+			rows.add(new Object[]{null, 20});
+
+			assertEquals(2L, dao.writeBatch("nuova", rows).getTotalUpdatedRows());
+			assertEquals(2L, dao.writeBatch("contiene", rows, 1).getTotalUpdatedRows());
+		}
+
+		assertEquals(8, this.count());
+		ResultSet rs = this.connector.query("SELECT COUNT(*) FROM persone WHERE nome = 'D''Angelo'");
+		assertTrue(rs.next());
+		assertEquals(2, rs.getInt(1));
+	}
+
+	private int count()
+	throws Exception {
+		ResultSet rs = this.connector.query("SELECT COUNT(*) FROM persone");
+		rs.next();
+		return rs.getInt(1);
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wolfetti.swissknife.db.dao.PropertyFileDAO;
+import org.wolfetti.swissknife.db.utils.BlobSource;
+
+/**
+ * Test della scrittura e della lettura in streaming dei BLOB.
+ *
+ * @author Fabio Frijo
+ */
+public class BlobTest {
+	private static final String INSERT = "INSERT INTO allegati (id, nome, dati) VALUES (?, ?, ?)";
+
+	private static final String SELECT = "SELECT dati FROM allegati WHERE id = ?";
+
+	private static int counter;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DbConnector connector;
+
+	private byte[] content;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.connector = TestDatabase.open("blob" + (counter++), false);
+		this.connector.write("CREATE TABLE allegati (id INT PRIMARY KEY, nome VARCHAR(50), dati BLOB)");
+
+		this.content = new byte[100000];
+		new Random(7).nextBytes(this.content);
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+	}
+
+	@Test
+	public void everySourceIsStreamed()
+	throws Exception {
+		Path path = this.folder.newFile("dati.bin").toPath();
+		Files.write(path, this.content);
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(this.content.length);
+		direct.put(this.content).flip();
+
+		BlobSource[] sources = {
+			BlobSource.of(path),
+			BlobSource.of(path.toFile()),
+			BlobSource.of(new ByteArrayInputStream(this.content)),
+			BlobSource.of(new ByteArrayInputStream(this.content), this.content.length),
+			BlobSource.of(ByteBuffer.wrap(this.content)),
+			BlobSource.of(direct),
+			BlobSource.of(this.content)
+		};
+
+		for(int i = 0; i < sources.length; i++){
+			this.connector.executeUpdate(INSERT, i, "sorgente" + i, sources[i]);
+			assertArrayEquals("sorgente " + i, this.content, this.read(i));
+		}
+	}
+
+	@Test
+	public void callerStreamsAreLeftOpen()
+	throws Exception {
+		TrackingStream in = new TrackingStream(this.content);
+		this.connector.executeUpdate(INSERT, 1, "stream", in);
+
+		assertFalse(in.closed);
+		assertArrayEquals(this.content, this.read(1));
+	}
+
+	@Test
+	public void legacyFileAndBytesWrites()
+	throws Exception {
+		File first = this.folder.newFile("primo.bin");
+		File second = this.folder.newFile("secondo.bin");
+		Files.write(first.toPath(), this.content);
+		Files.write(second.toPath(), new byte[]{1, 2, 3});
+
+		this.connector.write("INSERT INTO allegati (id, nome, dati) VALUES (1, 'primo', ?), (2, 'secondo', ?)", first, second);
+		assertArrayEquals(this.content, this.read(1));
+		assertArrayEquals(new byte[]{1, 2, 3}, this.read(2));
+
+		this.connector.write("INSERT INTO allegati (id, nome, dati) VALUES (3, 'bytes', ?)", new byte[][]{{4, 5}});
+		assertArrayEquals(new byte[]{4, 5}, this.read(3));
+	}
+
+	@Test
+	public void batchWithBlobs()
+	throws Exception {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for(int i = 0; i < 5; i++){
+			rows.add(new Object[]{i, "riga" + i, BlobSource.of(new byte[]{(byte) i})});
+		}
+
+		this.connector.writeBatch(INSERT, rows, 2);
+
+		for(int i = 0; i < 5; i++){
+			assertArrayEquals(new byte[]{(byte) i}, this.read(i));
+		}
+	}
+
+	@Test
+	public void readIntoFiles()
+	throws Exception {
+		this.connector.executeUpdate(INSERT, 1, "file", BlobSource.of(this.content));
+
+		Path target = this.folder.getRoot().toPath().resolve("letto.bin");
+		assertEquals(this.content.length, this.connector.readBlob(SELECT, target, 1));
+		assertArrayEquals(this.content, Files.readAllBytes(target));
+
+		Path appended = this.folder.newFile("accodato.bin").toPath();
+		Files.write(appended, new byte[]{9});
+
+		FileChannel channel = FileChannel.open(appended, StandardOpenOption.WRITE);
+		try {
+			channel.position(1);
+			assertEquals(this.content.length, this.connector.readBlob(SELECT, channel, 1));
+		} finally {
+			channel.close();
+		}
+
+		assertEquals(this.content.length + 1, Files.size(appended));
+	}
+
+	@Test
+	public void missingBlob()
+	throws Exception {
+		this.connector.executeUpdate(INSERT, 1, "vuoto", null);
+
+		Path target = this.folder.getRoot().toPath().resolve("mancante.bin");
+		assertEquals(-1L, this.connector.readBlob(SELECT, target, 1));
+		assertEquals(-1L, this.connector.readBlob(SELECT, target, 2));
+		assertFalse(Files.exists(target));
+	}
+
+	@Test
+	public void daoStreams()
+	throws Exception {
+		PropertyFileDAO dao = new PropertyFileDAO("blob.properties", this.connector);
+		this.connector.write("DROP TABLE allegati");
+		dao.write("create");
+
+		for(boolean bind : new boolean[]{false, true}){
+			dao.setBindParameters(bind);
+			int id = bind ? 2 : 1;
+
+			dao.writeWithStreams("salva", new BlobSource[]{BlobSource.of(this.content)}, id, "dao");
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(this.content.length, dao.readBlob("leggi", out, id));
+			assertArrayEquals(this.content, out.toByteArray());
+		}
+	}
+
+	private byte[] read(int id)
+	throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.connector.readBlob(SELECT, out, id);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Stream che registra la propria chiusura.
+	 */
+	private static final class TrackingStream extends ByteArrayInputStream {
+		private boolean closed;
+
+		private TrackingStream(byte[] content) {
+			super(content);
+		}
+
+		@Override
+		public void close() {
+			this.closed = true;
+		}
+	}
+}
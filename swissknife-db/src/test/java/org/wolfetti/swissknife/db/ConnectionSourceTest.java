@@ -0,0 +1,259 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+
+/**
+ * Test della cache dei driver JDBC e dei datasource JNDI e della validazione delle connessioni inattive.
+ *
+ * @author Fabio Frijo
+ */
+public class ConnectionSourceTest {
+	private static final String CONTEXT = "java:comp/env/jdbc/test";
+
+	/**
+	 * Le ricerche effettuate sul contesto JNDI di test
+	 */
+	static final AtomicInteger lookups = new AtomicInteger();
+
+	/**
+	 * Il datasource restituito dal contesto JNDI di test
+	 */
+	static volatile DataSource dataSource;
+
+	private String previousFactory;
+
+	@Before
+	public void setUp() {
+		this.previousFactory = System.setProperty(Context.INITIAL_CONTEXT_FACTORY, TestContextFactory.class.getName());
+		JdbcConnector.releaseResources();
+		JndiConnector.releaseResources();
+		lookups.set(0);
+	}
+
+	@After
+	public void tearDown() {
+		if(this.previousFactory == null){
+			System.clearProperty(Context.INITIAL_CONTEXT_FACTORY);
+		} else {
+			System.setProperty(Context.INITIAL_CONTEXT_FACTORY, this.previousFactory);
+		}
+
+		JndiConnector.releaseResources();
+	}
+
+	@Test
+	public void invalidDriverIsReported() {
+		BaseConfiguration conf = TestDatabase.configuration("sources");
+		conf.setProperty(DB.KEY_DRIVER, "java.lang.String");
+
+		try {
+			TestDatabase.open(conf, false);
+			fail();
+		} catch (DbInitializationException e) {
+			// Atteso
+		}
+	}
+
+	@Test
+	public void jndiDataSourceIsLookedUpOnce()
+	throws Exception {
+		dataSource = new BreakableDataSource("sources_jndi");
+
+		for(int i = 0; i < 3; i++){
+			DbConnector connector = new JndiConnector(jndi(), false);
+			assertEquals(1, count(connector));
+			connector.close();
+		}
+
+		assertEquals(1, lookups.get());
+	}
+
+	@Test
+	public void brokenJndiDataSourceIsLookedUpAgain()
+	throws Exception {
+		BreakableDataSource first = new BreakableDataSource("sources_jndi");
+		dataSource = first;
+		new JndiConnector(jndi(), false).close();
+
+		// Es. redeploy: il datasource in cache non funziona piu'
+		first.broken = true;
+		dataSource = new BreakableDataSource("sources_jndi");
+
+		DbConnector connector = new JndiConnector(jndi(), false);
+		assertEquals(1, count(connector));
+		connector.close();
+
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	public void idleConnectionIsValidated()
+	throws Exception {
+		BaseConfiguration conf = TestDatabase.configuration("sources_idle");
+		conf.setProperty(DB.KEY_VALIDATION_INTERVAL, "0");
+		DbConnector connector = TestDatabase.open(conf, false);
+
+		try {
+			Connection connection = connector.getConnection();
+			assertEquals(1, count(connector));
+
+			// La connessione cade mentre il connettore e' inattivo
+			connection.close();
+			Thread.sleep(5);
+
+			assertEquals(1, count(connector));
+			assertTrue(connection != connector.getConnection());
+		} finally {
+			connector.close();
+		}
+	}
+
+	@Test
+	public void activeConnectionIsNotValidated()
+	throws Exception {
+		BaseConfiguration conf = TestDatabase.configuration("sources_active");
+		conf.setProperty(DB.KEY_VALIDATION_INTERVAL, "600000");
+		DbConnector connector = TestDatabase.open(conf, false);
+
+		try {
+			Connection connection = connector.getConnection();
+			assertEquals(1, count(connector));
+
+			// Entro l'intervallo la connessione caduta viene rilevata dallo statement che fallisce
+			connection.close();
+
+			try {
+				count(connector);
+				fail();
+			} catch (SqlQueryException e) {
+				// Atteso
+			}
+		} finally {
+			connector.close();
+		}
+	}
+
+	@Test
+	public void connectionClosedByTheCallerIsReopened()
+	throws Exception {
+		DbConnector connector = TestDatabase.open("sources_caller", false);
+
+		try {
+			connector.getConnection().close();
+			assertEquals(1, count(connector));
+		} finally {
+			connector.close();
+		}
+	}
+
+	private static BaseConfiguration jndi() {
+		BaseConfiguration conf = new BaseConfiguration();
+		conf.setProperty(DB.KEY_TYPE, "JNDI");
+		conf.setProperty(DB.KEY_CONTEXT, CONTEXT);
+		return conf;
+	}
+
+	private static int count(DbConnector connector)
+	throws Exception {
+		ResultSet rs = connector.query("SELECT 1 FROM DUAL");
+		try {
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			rs.close();
+		}
+	}
+
+	/**
+	 * Datasource H2 che smette di fornire connessioni quando viene segnato come non funzionante.
+	 */
+	private static final class BreakableDataSource extends JdbcDataSource {
+		private static final long serialVersionUID = 1L;
+
+		private volatile boolean broken;
+
+		private BreakableDataSource(String name) {
+			this.setURL(TestDatabase.url(name));
+			this.setUser("sa");
+			this.setPassword("");
+		}
+
+		@Override
+		public Connection getConnection()
+		throws SQLException {
+			if(this.broken){
+				throw new SQLException("Datasource non disponibile");
+			}
+
+			return super.getConnection();
+		}
+	}
+
+	/**
+	 * Contesto JNDI di test: ogni ricerca restituisce {@link ConnectionSourceTest#dataSource}.
+	 */
+	public static final class TestContextFactory implements InitialContextFactory {
+
+		@Override
+		public Context getInitialContext(Hashtable<?, ?> environment) {
+			return (Context) Proxy.newProxyInstance(Context.class.getClassLoader(), new Class<?>[]{Context.class}, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+					if(method.getName().equals("lookup") && CONTEXT.equals(String.valueOf(args[0]))){
+						lookups.incrementAndGet();
+						return dataSource;
+					}
+
+					if(method.getName().equals("close")){
+						return null;
+					}
+
+					throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+	}
+}
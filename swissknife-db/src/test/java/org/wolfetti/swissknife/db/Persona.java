@@ -0,0 +1,67 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import org.wolfetti.swissknife.common.business.ApplicationEntity;
+
+/**
+ * Entit&agrave; di test corrispondente alla tabella <code>persone (id, nome, eta)</code>.
+ *
+ * @author Fabio Frijo
+ */
+public class Persona extends ApplicationEntity {
+	private static final long serialVersionUID = 1L;
+
+	private Integer id;
+	private String nome;
+	private Integer eta;
+
+	public Persona() {
+	}
+
+	public Persona(Integer id, String nome, Integer eta) {
+		this.id = id;
+		this.nome = nome;
+		this.eta = eta;
+	}
+
+	public Integer getId() {
+		return this.id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getNome() {
+		return this.nome;
+	}
+
+	public void setNome(String nome) {
+		this.nome = nome;
+	}
+
+	public Integer getEta() {
+		return this.eta;
+	}
+
+	public void setEta(Integer eta) {
+		this.eta = eta;
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.ResultSet;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.exceptions.DuplicatedKeyException;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+import org.wolfetti.swissknife.db.utils.RetryPolicy;
+
+/**
+ * Test della ripetizione delle operazioni fallite per deadlock o timeout di lock su H2.
+ *
+ * @author Fabio Frijo
+ */
+public class RetryTest {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	/**
+	 * Due transazioni aggiornano le stesse righe in ordine inverso: una delle due fallisce
+	 * e viene ripetuta per intero.
+	 */
+	@Test(timeout = 30000)
+	public void crossedTransactionsAreRepeated() throws Exception {
+		BaseConfiguration conf = configuration(5);
+		prepare(conf);
+
+		Worker first = new Worker(conf, 1, 2);
+		Worker second = new Worker(conf, 2, 1);
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		first.barrier = barrier;
+		second.barrier = barrier;
+
+		first.start();
+		second.start();
+		first.join();
+		second.join();
+
+		assertNull(first.error);
+		assertNull(second.error);
+		assertTrue(first.attempts.get() + second.attempts.get() > 2);
+
+		RetryPolicy policy = RetryPolicy.get(conf);
+		assertTrue(policy.getDeadlockRetries() + policy.getLockTimeoutRetries() > 0);
+		assertTrue(policy.getRecovered() > 0);
+
+		try (DbConnector connector = TestDatabase.open(conf, false)) {
+			assertEquals("3", value(connector, "SELECT versione FROM conti WHERE id = 1"));
+			assertEquals("3", value(connector, "SELECT versione FROM conti WHERE id = 2"));
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void crossedTransactionsFailWithoutRetries() throws Exception {
+		BaseConfiguration conf = configuration(1);
+		prepare(conf);
+
+		Worker first = new Worker(conf, 1, 2);
+		Worker second = new Worker(conf, 2, 1);
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		first.barrier = barrier;
+		second.barrier = barrier;
+
+		first.start();
+		second.start();
+		first.join();
+		second.join();
+
+		assertTrue(first.error instanceof SqlQueryException || second.error instanceof SqlQueryException);
+		assertEquals(2, first.attempts.get() + second.attempts.get());
+	}
+
+	/**
+	 * Una scrittura fuori transazione che attende un lock viene ripetuta fino al rilascio del lock.
+	 */
+	@Test(timeout = 30000)
+	public void autocommitWriteWaitsForLock() throws Exception {
+		BaseConfiguration conf = configuration(20);
+		conf.setProperty(DB.KEY_RETRY_DELAY, "50");
+		conf.setProperty(DB.KEY_RETRY_MAX_DELAY, "50");
+		prepare(conf);
+
+		final DbConnector holder = TestDatabase.open(conf, true);
+		holder.executeUpdate("UPDATE conti SET versione = versione + 1 WHERE id = 1");
+
+		Thread release = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(1500);
+					holder.commit();
+				} catch (Exception e) {
+					holder.rollback();
+				} finally {
+					holder.close();
+				}
+			}
+		};
+		release.start();
+
+		try (DbConnector connector = TestDatabase.open(conf, false)) {
+			assertEquals(1, connector.executeUpdate("UPDATE conti SET versione = versione + 1 WHERE id = 1").getUpdatedRows());
+			release.join();
+			assertEquals("3", value(connector, "SELECT versione FROM conti WHERE id = 1"));
+		}
+
+		RetryPolicy policy = RetryPolicy.get(conf);
+		assertTrue(policy.getLockTimeoutRetries() + policy.getDeadlockRetries() > 0);
+		assertEquals(1, policy.getRecovered());
+	}
+
+	/**
+	 * Gli errori non transitori non vengono ripetuti.
+	 */
+	@Test
+	public void permanentErrorsAreNotRepeated() throws Exception {
+		BaseConfiguration conf = configuration(5);
+		prepare(conf);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		try (DbConnector connector = TestDatabase.open(conf, false)) {
+			connector.runInTransaction(new TransactionCallback<Void>() {
+				@Override
+				public Void execute(DbConnector transaction)
+				throws DuplicatedKeyException, SqlQueryException {
+					attempts.incrementAndGet();
+					transaction.executeUpdate("UPDATE tabella_inesistente SET x = 1");
+					return null;
+				}
+			});
+		} catch (SqlQueryException e) {
+			assertNotNull(e.getMessage());
+		}
+
+		assertEquals(1, attempts.get());
+		assertEquals(0, RetryPolicy.get(conf).getExhausted());
+	}
+
+	private static BaseConfiguration configuration(int attempts) {
+		String name = "retry" + DATABASES.incrementAndGet();
+		BaseConfiguration conf = TestDatabase.configuration(name);
+		conf.setProperty(DB.KEY_NAME, name);
+		conf.setProperty(DB.KEY_URL, TestDatabase.url(name) + ";LOCK_TIMEOUT=200");
+		conf.setProperty(DB.KEY_RETRY_ATTEMPTS, String.valueOf(attempts));
+		conf.setProperty(DB.KEY_RETRY_DELAY, "10");
+		return conf;
+	}
+
+	private static String value(DbConnector connector, String sql) throws Exception {
+		ResultSet rs = connector.query(sql);
+		assertTrue(rs.next());
+		return rs.getString(1);
+	}
+
+	private static void prepare(BaseConfiguration conf) throws Exception {
+		try (DbConnector connector = TestDatabase.open(conf, false)) {
+			connector.executeUpdate("CREATE TABLE conti (id INT PRIMARY KEY, versione INT)");
+			connector.executeUpdate("INSERT INTO conti VALUES (1, 1), (2, 1)");
+		}
+	}
+
+	/**
+	 * Aggiorna due righe in transazione; al primo tentativo attende l'altra transazione tra i due aggiornamenti.
+	 */
+	private static class Worker extends Thread {
+		private final BaseConfiguration conf;
+		private final int firstId;
+		private final int secondId;
+		private final AtomicInteger attempts = new AtomicInteger();
+		private CyclicBarrier barrier;
+		private volatile Exception error;
+
+		private Worker(BaseConfiguration conf, int firstId, int secondId) {
+			this.conf = conf;
+			this.firstId = firstId;
+			this.secondId = secondId;
+		}
+
+		@Override
+		public void run() {
+			try (DbConnector connector = TestDatabase.open(conf, false)) {
+				connector.runInTransaction(new TransactionCallback<Void>() {
+					@Override
+					public Void execute(DbConnector transaction)
+					throws DuplicatedKeyException, SqlQueryException {
+						transaction.executeUpdate("UPDATE conti SET versione = versione + 1 WHERE id = " + firstId);
+
+						if(attempts.incrementAndGet() == 1){
+							try {
+								barrier.await(5, TimeUnit.SECONDS);
+							} catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+								throw new IllegalStateException(e);
+							}
+						}
+
+						transaction.executeUpdate("UPDATE conti SET versione = versione + 1 WHERE id = " + secondId);
+						return null;
+					}
+				});
+			} catch (Exception e) {
+				error = e;
+			}
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.beanutils.RsToMapConverter;
+import org.wolfetti.swissknife.db.dialect.Dialects;
+import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+
+/**
+ * Test dei datasource con nome e dello smistamento delle query di {@link RoutingConnector}.
+ *
+ * @author Fabio Frijo
+ */
+public class RoutingConnectorTest {
+
+	@BeforeClass
+	public static void setUpClass()
+	throws Exception {
+		for(String name : new String[]{"main", "replica1", "replica2"}){
+			DbConnector connector = TestDatabase.open("routing_" + name, false);
+			connector.write("CREATE TABLE origine (nome VARCHAR(20))");
+			connector.write("INSERT INTO origine VALUES ('" + name + "')");
+			connector.close();
+		}
+
+		Properties props = new Properties();
+		props.setProperty(DB.KEY_DATASOURCES, "main, replica1, replica2, spenta, app, bilanciata, degradata, sololettura");
+		jdbc(props, "main");
+		jdbc(props, "replica1");
+		jdbc(props, "replica2");
+
+		// Datasource non raggiungibile: il database su file non esiste
+		props.setProperty("sk.db.spenta.type", "JDBC");
+		props.setProperty("sk.db.spenta.driver", "org.h2.Driver");
+		props.setProperty("sk.db.spenta.url", "jdbc:h2:file:./target/routing/inesistente;IFEXISTS=TRUE");
+		props.setProperty("sk.db.spenta.user", "sa");
+		props.setProperty("sk.db.spenta.password", "");
+
+		props.setProperty("sk.db.app.type", "routing");
+		props.setProperty("sk.db.app.primary", "main");
+		props.setProperty("sk.db.app.replicas", "replica1, replica2");
+
+		props.setProperty("sk.db.bilanciata.type", "ROUTING");
+		props.setProperty("sk.db.bilanciata.primary", "main");
+		props.setProperty("sk.db.bilanciata.replicas", "replica1, replica2");
+		props.setProperty("sk.db.bilanciata.readStrategy", "least_busy");
+
+		props.setProperty("sk.db.degradata.type", "ROUTING");
+		props.setProperty("sk.db.degradata.primary", "main");
+		props.setProperty("sk.db.degradata.replicas", "spenta");
+
+		props.setProperty("sk.db.sololettura.type", "ROUTING");
+		props.setProperty("sk.db.sololettura.primary", "spenta");
+		props.setProperty("sk.db.sololettura.replicas", "replica1");
+
+		DbConnectorFactory.loadConfigurationProperties(props);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		DbConnectorFactory.loadConfigurationProperties(new Properties());
+	}
+
+	@Test
+	public void namedDatasources()
+	throws Exception {
+		DbConnector main = DbConnectorFactory.getDbConnector("main");
+		DbConnector replica = DbConnectorFactory.getDbConnector("replica2");
+
+		try {
+			assertEquals("main", origin(main));
+			assertEquals("replica2", origin(replica));
+		} finally {
+			main.close();
+			replica.close();
+		}
+	}
+
+	@Test
+	public void readsAreRoundRobinAcrossReplicas()
+	throws Exception {
+		RoutingConnector first = routing("app", false);
+		RoutingConnector second = routing("app", false);
+
+		try {
+			String a = origin(first);
+			String b = origin(second);
+
+			assertEquals(first.getReplicaName(), a);
+			assertEquals(second.getReplicaName(), b);
+			assertEquals("replica1replica2", a.compareTo(b) < 0 ? a + b : b + a);
+
+			// La replica resta la stessa per tutta la vita del connettore
+			assertEquals(a, origin(first));
+		} finally {
+			first.close();
+			second.close();
+		}
+	}
+
+	/**
+	 * Il primario non e' raggiungibile: un connettore che esegue solo letture non lo apre mai.
+	 */
+	@Test
+	public void readOnlyConnectorNeverOpensThePrimary()
+	throws Exception {
+		RoutingConnector connector = routing("sololettura", false);
+
+		try {
+			assertFalse(connector.isClosed());
+			assertEquals("replica1", origin(connector));
+			assertEquals(Dialects.H2, connector.getDialect().getName());
+
+			try {
+				connector.write("INSERT INTO origine VALUES ('x')");
+				fail();
+			} catch (DbInitializationException e) {
+				// La prima scrittura apre il primario
+			}
+		} finally {
+			connector.close();
+		}
+	}
+
+	@Test
+	public void readsAfterWriteGoToPrimary()
+	throws Exception {
+		RoutingConnector connector = routing("app", false);
+
+		try {
+			String replica = origin(connector);
+			assertEquals(connector.getReplicaName(), replica);
+
+			connector.write("CREATE TABLE IF NOT EXISTS scritture (id INT)");
+			assertEquals("main", origin(connector));
+		} finally {
+			connector.close();
+		}
+	}
+
+	@Test
+	public void transactionsStayOnPrimary()
+	throws Exception {
+		RoutingConnector connector = routing("app", true);
+
+		try {
+			assertEquals("main", origin(connector));
+			assertNull(connector.getReplicaName());
+		} finally {
+			connector.close();
+		}
+	}
+
+	@Test
+	public void leastBusyReplicaIsChosen()
+	throws Exception {
+		RoutingConnector first = routing("bilanciata", false);
+		RoutingConnector second = routing("bilanciata", false);
+
+		try {
+			String a = origin(first);
+			String b = origin(second);
+			assertFalse(a.equals(b));
+
+			// Chiuso il primo, la sua replica e' la meno occupata
+			first.close();
+
+			RoutingConnector third = routing("bilanciata", false);
+			try {
+				assertEquals(a, origin(third));
+			} finally {
+				third.close();
+			}
+		} finally {
+			second.close();
+		}
+	}
+
+	@Test
+	public void unreachableReplicaFallsBackToPrimary()
+	throws Exception {
+		RoutingConnector connector = routing("degradata", false);
+
+		try {
+			assertEquals("main", origin(connector));
+			assertNull(connector.getReplicaName());
+		} finally {
+			connector.close();
+		}
+	}
+
+	private static void jdbc(Properties props, String name) {
+		props.setProperty("sk.db." + name + ".type", "JDBC");
+		props.setProperty("sk.db." + name + ".driver", "org.h2.Driver");
+		props.setProperty("sk.db." + name + ".url", TestDatabase.url("routing_" + name));
+		props.setProperty("sk.db." + name + ".user", "sa");
+		props.setProperty("sk.db." + name + ".password", "");
+	}
+
+	private static RoutingConnector routing(String name, boolean isTransaction) {
+		return (RoutingConnector) DbConnectorFactory.getDbConnector(name, isTransaction);
+	}
+
+	private static String origin(DbConnector connector)
+	throws Exception {
+		return (String) RsToMapConverter.getSingle(connector.query("SELECT nome FROM origine")).get("NOME");
+	}
+}
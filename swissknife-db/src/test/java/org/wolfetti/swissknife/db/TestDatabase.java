@@ -0,0 +1,70 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+
+/**
+ * Database H2 in memoria per i test dei connettori.
+ *
+ * @author Fabio Frijo
+ */
+public final class TestDatabase {
+	private TestDatabase(){}
+
+	/**
+	 * Restituisce la configurazione JDBC di un database H2 in memoria, che rimane aperto
+	 * fino al termine della JVM anche dopo la chiusura dell'ultima connessione.
+	 *
+	 * @param name
+	 * 	Il nome del database: test diversi devono utilizzare nomi diversi
+	 */
+	public static BaseConfiguration configuration(String name) {
+		BaseConfiguration conf = new BaseConfiguration();
+		conf.setProperty(DB.KEY_TYPE, "JDBC");
+		conf.setProperty(DB.KEY_DRIVER, "org.h2.Driver");
+		conf.setProperty(DB.KEY_URL, url(name));
+		conf.setProperty(DB.KEY_USER, "sa");
+		conf.setProperty(DB.KEY_PASSWORD, "");
+		return conf;
+	}
+
+	/**
+	 * @return l'URL JDBC del database H2 in memoria con il nome in ingresso
+	 */
+	public static String url(String name) {
+		return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+	}
+
+	/**
+	 * Apre un connettore JDBC con la configurazione in ingresso.
+	 */
+	public static DbConnector open(Configuration conf, boolean isTransaction) {
+		return new JdbcConnector(conf, isTransaction);
+	}
+
+	/**
+	 * Apre un connettore JDBC sul database H2 in memoria con il nome in ingresso.
+	 */
+	public static DbConnector open(String name, boolean isTransaction) {
+		return open(configuration(name), isTransaction);
+	}
+}
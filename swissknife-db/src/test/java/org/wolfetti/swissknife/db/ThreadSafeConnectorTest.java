@@ -0,0 +1,264 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.entities.WriteResult;
+import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+
+/**
+ * Test della modalit&agrave; thread-safe dei connettori.
+ *
+ * @author Fabio Frijo
+ */
+public class ThreadSafeConnectorTest {
+	private static final int THREADS = 8;
+
+	private static final int ITERATIONS = 50;
+
+	private static int counter;
+
+	private String name;
+
+	private DbConnector connector;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.name = "threadsafe" + (counter++);
+		this.connector = open(this.name, true);
+		this.connector.write("CREATE TABLE persone (id INT AUTO_INCREMENT PRIMARY KEY, nome VARCHAR(50), eta INT)");
+		this.connector.write("INSERT INTO persone (nome, eta) VALUES ('Mario', 30), ('Luigi', 12), ('Anna', 40)");
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+	}
+
+	@Test
+	public void resultSetsAreIndependent()
+	throws Exception {
+		assertTrue(this.connector.isThreadSafe());
+
+		ResultSet first = this.connector.query("SELECT nome FROM persone ORDER BY id");
+		ResultSet second = this.connector.preparedQuery("SELECT nome FROM persone WHERE eta > ? ORDER BY id", 20);
+
+		assertTrue(first.next());
+		assertTrue(second.next());
+		assertEquals("Mario", first.getString(1));
+		assertTrue(first.next());
+		assertEquals("Luigi", first.getString(1));
+		assertTrue(second.next());
+		assertEquals("Anna", second.getString(1));
+
+		first.close();
+		second.close();
+	}
+
+	@Test
+	public void sharedStatementClosesPreviousResultSet()
+	throws Exception {
+		DbConnector shared = open(this.name, false);
+
+		try {
+			ResultSet first = shared.query("SELECT nome FROM persone");
+			shared.query("SELECT nome FROM persone");
+			assertTrue(first.isClosed());
+		} finally {
+			shared.close();
+		}
+	}
+
+	@Test
+	public void openResultsAreClosed()
+	throws Exception {
+		ResultSet first = this.connector.query("SELECT nome FROM persone");
+		ResultSet second = this.connector.preparedQuery("SELECT nome FROM persone WHERE eta > ?", 0);
+
+		assertEquals(2, this.connector.closeOpenResults());
+		assertTrue(first.isClosed());
+		assertTrue(second.isClosed());
+		assertEquals(0, this.connector.closeOpenResults());
+	}
+
+	@Test(timeout = 30000)
+	public void concurrentCallsOnOneConnector()
+	throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+		try {
+			for(int t = 0; t < THREADS; t++){
+				final int thread = t;
+
+				results.add(pool.submit(new Callable<Integer>() {
+					@Override
+					public Integer call()
+					throws Exception {
+						int updated = 0;
+
+						for(int i = 0; i < ITERATIONS; i++){
+							WriteResult result = connector.executeUpdate("INSERT INTO persone (nome, eta) VALUES (?, ?)", "t" + thread, i);
+							assertEquals(1, result.getUpdatedRows());
+							assertEquals(result.getGeneratedKey().longValue(), connector.getLastGeneratedKey());
+
+							ResultSet rs = connector.preparedQuery("SELECT COUNT(*) FROM persone WHERE nome = ?", "t" + thread);
+							try {
+								assertTrue(rs.next());
+								assertEquals(i + 1, rs.getInt(1));
+							} finally {
+								rs.close();
+							}
+
+							updated += connector.getLastUpdatedRows();
+						}
+
+						// Il numero di righe aggiornate e' quello dell'ultima scrittura del thread
+						connector.executeUpdate("UPDATE persone SET eta = eta + 1 WHERE nome = ?", "t" + thread);
+						assertEquals(ITERATIONS, connector.getLastUpdatedRows());
+
+						return Integer.valueOf(updated);
+					}
+				}));
+			}
+
+			for(Future<Integer> result : results){
+				result.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		ResultSet rs = this.connector.query("SELECT COUNT(*) FROM persone");
+		assertTrue(rs.next());
+		assertEquals(3 + THREADS * ITERATIONS, rs.getInt(1));
+		rs.close();
+	}
+
+	/**
+	 * Il rinnovo della connessione non chiude i result set aperti dagli altri thread:
+	 * la connessione precedente viene chiusa dopo il loro rilascio.
+	 */
+	@Test
+	public void renewalWaitsForOpenResults()
+	throws Exception {
+		BaseConfiguration conf = TestDatabase.configuration(this.name);
+		conf.setProperty(DB.KEY_THREAD_SAFE, "true");
+		conf.setProperty(DB.KEY_VALIDATION_INTERVAL, "0");
+		FlakyConnector flaky = new FlakyConnector(conf);
+
+		try {
+			ResultSet open = flaky.query("SELECT nome FROM persone ORDER BY id");
+			Connection first = flaky.opened.get(0);
+
+			// La connessione non risulta piu' valida: la query successiva ne apre una nuova
+			flaky.valid = false;
+			ResultSet other = flaky.query("SELECT COUNT(*) FROM persone");
+			flaky.valid = true;
+
+			assertEquals(2, flaky.opened.size());
+			assertFalse(first.isClosed());
+			assertTrue(open.next());
+			assertEquals("Mario", open.getString(1));
+			assertTrue(other.next());
+
+			open.close();
+			other.close();
+			flaky.query("SELECT 1").close();
+			assertTrue(first.isClosed());
+		} finally {
+			flaky.close();
+		}
+
+		for(Connection connection : flaky.opened){
+			assertTrue(connection.isClosed());
+		}
+	}
+
+	private static DbConnector open(String name, boolean threadSafe) {
+		BaseConfiguration conf = TestDatabase.configuration(name);
+		conf.setProperty(DB.KEY_THREAD_SAFE, String.valueOf(threadSafe));
+		return TestDatabase.open(conf, false);
+	}
+
+	/**
+	 * Connettore JDBC la cui connessione pu&ograve; essere dichiarata non valida.
+	 */
+	private static class FlakyConnector extends DbConnector {
+		private final List<Connection> opened = new CopyOnWriteArrayList<Connection>();
+		private volatile boolean valid = true;
+
+		private FlakyConnector(Configuration config) {
+			// La connessione viene aperta al primo utilizzo, dopo l'inizializzazione dei campi
+			super(config, false, true);
+		}
+
+		@Override
+		protected Connection initConnection(Configuration config)
+		throws DbInitializationException {
+			final Connection connection = JdbcConnector.open(config);
+			this.opened.add(connection);
+
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+					if("isValid".equals(method.getName()) && !FlakyConnector.this.valid){
+						return Boolean.FALSE;
+					}
+
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				}
+			});
+		}
+
+		@Override
+		protected DbConnector clone(Configuration config, boolean isTransaction) {
+			return new FlakyConnector(config);
+		}
+	}
+}
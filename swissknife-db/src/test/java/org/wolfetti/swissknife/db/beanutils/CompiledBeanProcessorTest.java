@@ -0,0 +1,198 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.beanutils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.exceptions.ConverterException;
+
+/**
+ * Test di {@link CompiledBeanProcessor}, confrontato con {@link SimpleBeanProcessor}.
+ *
+ * @author Fabio Frijo
+ */
+public class CompiledBeanProcessorTest {
+	private static final String QUERY = "SELECT id, codice, prezzo, attivo, quantita, nome, creato FROM articoli ORDER BY id";
+
+	private Connection connection;
+
+	private Statement statement;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.connection = DriverManager.getConnection(TestDatabase.url("compiled"), "sa", "");
+		this.statement = this.connection.createStatement();
+		this.statement.execute("DROP TABLE IF EXISTS articoli");
+		this.statement.execute("CREATE TABLE articoli (id INT, codice BIGINT, prezzo DOUBLE, attivo BOOLEAN, "
+			+ "quantita INT, nome VARCHAR(20), creato TIMESTAMP, scaffale VARCHAR(10))");
+		this.statement.execute("INSERT INTO articoli VALUES (1, 10000000000, 9.5, TRUE, 3, 'vite', TIMESTAMP '2020-01-02 03:04:05', 'A1')");
+		this.statement.execute("INSERT INTO articoli VALUES (2, NULL, NULL, NULL, NULL, NULL, NULL, NULL)");
+	}
+
+	@After
+	public void tearDown()
+	throws Exception {
+		this.connection.close();
+	}
+
+	@Test
+	public void typedColumnsAreMapped()
+	throws Exception {
+		List<Articolo> list = new CompiledBeanProcessor().toBeanList(this.statement.executeQuery(QUERY), Articolo.class);
+
+		assertEquals(2, list.size());
+
+		Articolo a = list.get(0);
+		assertEquals(1, a.getId());
+		assertEquals(10000000000L, a.getCodice());
+		assertEquals(9.5, a.getPrezzo(), 0);
+		assertTrue(a.isAttivo());
+		assertEquals(Integer.valueOf(3), a.getQuantita());
+		assertEquals("vite", a.getNome());
+		assertEquals(Timestamp.valueOf("2020-01-02 03:04:05"), a.getCreato());
+	}
+
+	@Test
+	public void nullColumnsGetPrimitiveDefaults()
+	throws Exception {
+		Articolo a = new CompiledBeanProcessor().toBeanList(this.statement.executeQuery(QUERY), Articolo.class).get(1);
+
+		assertEquals(2, a.getId());
+		assertEquals(0L, a.getCodice());
+		assertEquals(0d, a.getPrezzo(), 0);
+		assertFalse(a.isAttivo());
+		assertNull(a.getQuantita());
+		assertNull(a.getNome());
+		assertNull(a.getCreato());
+	}
+
+	@Test
+	public void sameResultAsReflectiveProcessor()
+	throws Exception {
+		List<Articolo> compiled = new CompiledBeanProcessor().toBeanList(this.statement.executeQuery(QUERY), Articolo.class);
+		List<Articolo> reflective = new SimpleBeanProcessor().toBeanList(this.statement.executeQuery(QUERY), Articolo.class);
+
+		assertEquals(reflective.size(), compiled.size());
+		for(int i = 0; i < compiled.size(); i++){
+			assertEquals(reflective.get(i).toString(), compiled.get(i).toString());
+		}
+	}
+
+	@Test
+	public void columnOverridesAndLabelsAreCaseInsensitive()
+	throws Exception {
+		CompiledBeanProcessor processor = new CompiledBeanProcessor(Collections.singletonMap("SCAFFALE", "posizione"));
+		ResultSet rs = this.statement.executeQuery("SELECT ID, Nome, scaffale FROM articoli WHERE id = 1");
+
+		Articolo a = processor.toBean(rs, Articolo.class);
+		assertEquals(1, a.getId());
+		assertEquals("vite", a.getNome());
+		assertEquals("A1", a.getPosizione());
+	}
+
+	@Test
+	public void mappersAreCompiledOncePerSignature()
+	throws Exception {
+		CompiledBeanProcessor processor = new CompiledBeanProcessor();
+
+		RowMapper<Articolo> first = processor.createRowMapper(this.statement.executeQuery(QUERY), Articolo.class);
+		RowMapper<Articolo> second = processor.createRowMapper(this.statement.executeQuery(QUERY), Articolo.class);
+		RowMapper<Articolo> other = processor.createRowMapper(this.statement.executeQuery("SELECT id FROM articoli"), Articolo.class);
+
+		assertSame(first, second);
+		assertFalse(first == other);
+	}
+
+	@Test
+	public void incompatibleColumnIsReported()
+	throws Exception {
+		ResultSet rs = this.statement.executeQuery("SELECT TIMESTAMP '2020-01-01 00:00:00' AS scaffale FROM articoli WHERE id = 1");
+
+		try {
+			new CompiledBeanProcessor().toBean(rs, Scaffale.class);
+			fail();
+		} catch (ConverterException e) {
+			// Atteso
+		}
+	}
+
+	/**
+	 * Bean di test con proprieta' primitive, wrapper e oggetti.
+	 */
+	public static class Articolo {
+		private int id;
+		private long codice;
+		private double prezzo;
+		private boolean attivo;
+		private Integer quantita;
+		private String nome;
+		private Timestamp creato;
+		private String posizione;
+
+		public int getId() { return id; }
+		public void setId(int id) { this.id = id; }
+		public long getCodice() { return codice; }
+		public void setCodice(long codice) { this.codice = codice; }
+		public double getPrezzo() { return prezzo; }
+		public void setPrezzo(double prezzo) { this.prezzo = prezzo; }
+		public boolean isAttivo() { return attivo; }
+		public void setAttivo(boolean attivo) { this.attivo = attivo; }
+		public Integer getQuantita() { return quantita; }
+		public void setQuantita(Integer quantita) { this.quantita = quantita; }
+		public String getNome() { return nome; }
+		public void setNome(String nome) { this.nome = nome; }
+		public Timestamp getCreato() { return creato; }
+		public void setCreato(Timestamp creato) { this.creato = creato; }
+		public String getPosizione() { return posizione; }
+		public void setPosizione(String posizione) { this.posizione = posizione; }
+
+		@Override
+		public String toString() {
+			return id + "|" + codice + "|" + prezzo + "|" + attivo + "|" + quantita + "|" + nome + "|" + creato + "|" + posizione;
+		}
+	}
+
+	/**
+	 * Bean di test con una proprieta' non compatibile con le colonne temporali.
+	 */
+	public static class Scaffale {
+		private StringBuilder scaffale;
+
+		public StringBuilder getScaffale() { return scaffale; }
+		public void setScaffale(StringBuilder scaffale) { this.scaffale = scaffale; }
+	}
+}
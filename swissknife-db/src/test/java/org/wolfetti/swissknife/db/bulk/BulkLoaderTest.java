@@ -0,0 +1,147 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.entities.BulkLoadResult;
+import org.wolfetti.swissknife.db.exceptions.DuplicatedKeyException;
+
+/**
+ * Test del caricamento massivo {@link BulkLoader} su H2.
+ *
+ * @author Fabio Frijo
+ */
+public class BulkLoaderTest {
+	private static int databases = 0;
+
+	@Test
+	public void rowsAreLoadedInChunks()
+	throws Exception {
+		DbConnector connector = open(true);
+
+		try {
+			final List<Long> progress = new ArrayList<Long>();
+
+			BulkLoader loader = new BulkLoader(connector, "persone", "id", "nome", "eta");
+			loader.setMaxRows(10);
+			loader.setListener(new BulkLoadListener() {
+				@Override
+				public void onChunk(BulkLoadResult result) {
+					progress.add(Long.valueOf(result.getRows()));
+				}
+			});
+
+			BulkLoadResult result = loader.loadRows(rows(25, -1).iterator());
+
+			assertEquals(25L, result.getRows());
+			assertEquals(25L, result.getUpdatedRows());
+			assertEquals(3, result.getChunks());
+			assertEquals("[10, 20, 25]", progress.toString());
+			assertEquals(25, count(connector));
+		} finally {
+			connector.close();
+		}
+	}
+
+	@Test
+	public void csvWithHeader()
+	throws Exception {
+		DbConnector connector = open(false);
+
+		try {
+			BulkLoader loader = new BulkLoader(connector, "persone", "id", "nome", "eta");
+			loader.setCsvFormat(';', '"', true);
+			loader.setPipelined(false);
+
+			BulkLoadResult result = loader.loadCsv(new StringReader("id;nome;eta\n1;\"Rossi; Mario\";30\n2;Luigi;28\n"));
+
+			assertEquals(2L, result.getRows());
+			assertEquals(2, count(connector));
+		} finally {
+			connector.close();
+		}
+	}
+
+	/**
+	 * L'eccezione riporta i blocchi gi&agrave; scritti, il blocco fallito viene annullato.
+	 */
+	@Test
+	public void failedChunkReportsCommittedRows()
+	throws Exception {
+		DbConnector connector = open(true);
+
+		try {
+			BulkLoader loader = new BulkLoader(connector, "persone", "id", "nome", "eta");
+			loader.setMaxRows(10);
+
+			try {
+				loader.loadRows(rows(25, 23).iterator());
+				fail("La chiave duplicata deve generare un errore");
+			} catch (DuplicatedKeyException e) {
+				assertEquals(2, e.getCommittedChunks());
+				assertEquals(20L, e.getCommittedRows());
+			}
+
+			assertEquals(20, count(connector));
+		} finally {
+			connector.close();
+		}
+	}
+
+	private static DbConnector open(boolean transaction)
+	throws Exception {
+		DbConnector connector = TestDatabase.open("bulk" + (++databases), transaction);
+		connector.write("CREATE TABLE persone (id INT PRIMARY KEY, nome VARCHAR(50), eta INT)");
+
+		if(transaction){
+			connector.commit();
+		}
+
+		return connector;
+	}
+
+	/**
+	 * Le righe da 1 a <code>size</code>; la riga <code>duplicate</code> ripete la chiave 1.
+	 */
+	private static List<Object[]> rows(int size, int duplicate){
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for(int i = 1; i <= size; i++){
+			rows.add(new Object[]{Integer.valueOf(i == duplicate ? 1 : i), "persona" + i, Integer.valueOf(i)});
+		}
+
+		return rows;
+	}
+
+	private static int count(DbConnector connector)
+	throws Exception {
+		ResultSet rs = connector.query("SELECT COUNT(*) FROM persone");
+		rs.next();
+		return rs.getInt(1);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.bulk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+import org.wolfetti.swissknife.db.exceptions.InvalidFileException;
+
+/**
+ * Test del lettore CSV in streaming {@link CsvReader}.
+ *
+ * @author Fabio Frijo
+ */
+public class CsvReaderTest {
+
+	@Test
+	public void plainRecords()
+	throws IOException {
+		CsvReader reader = reader("1,Mario,30\n2,Luigi,28\n");
+
+		assertArrayEquals(new String[]{"1", "Mario", "30"}, reader.readRecord());
+		assertArrayEquals(new String[]{"2", "Luigi", "28"}, reader.readRecord());
+		assertNull(reader.readRecord());
+		assertEquals(2L, reader.getRecords());
+	}
+
+	@Test
+	public void quotedFields()
+	throws IOException {
+		CsvReader reader = reader("1,\"Rossi, Mario\",\"detto \"\"il baffo\"\"\"\n2,\"su\ndue righe\",x");
+
+		assertArrayEquals(new String[]{"1", "Rossi, Mario", "detto \"il baffo\""}, reader.readRecord());
+		assertArrayEquals(new String[]{"2", "su\ndue righe", "x"}, reader.readRecord());
+		assertNull(reader.readRecord());
+	}
+
+	@Test
+	public void emptyFieldsAreNullUnlessQuoted()
+	throws IOException {
+		CsvReader reader = reader("1,,\"\",\n");
+
+		assertArrayEquals(new String[]{"1", null, "", null}, reader.readRecord());
+	}
+
+	@Test
+	public void lineEndingsAndBlankLines()
+	throws IOException {
+		CsvReader reader = reader("a,b\r\n\r\nc,d\re,f\n\n");
+
+		assertArrayEquals(new String[]{"a", "b"}, reader.readRecord());
+		assertArrayEquals(new String[]{"c", "d"}, reader.readRecord());
+		assertArrayEquals(new String[]{"e", "f"}, reader.readRecord());
+		assertNull(reader.readRecord());
+	}
+
+	@Test
+	public void customDelimiterAndQuote()
+	throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("1;'a;b';c"), ';', '\'');
+
+		assertArrayEquals(new String[]{"1", "a;b", "c"}, reader.readRecord());
+	}
+
+	@Test
+	public void recordsLongerThanTheBuffer()
+	throws IOException {
+		StringBuilder value = new StringBuilder();
+		for(int i = 0; i < 40000; i++){
+			value.append((char) ('a' + i % 26));
+		}
+
+		CsvReader reader = reader("1,\"" + value + "\"\n2," + value + "\n");
+
+		assertArrayEquals(new String[]{"1", value.toString()}, reader.readRecord());
+		assertArrayEquals(new String[]{"2", value.toString()}, reader.readRecord());
+		assertNull(reader.readRecord());
+	}
+
+	@Test
+	public void iteration() {
+		CsvReader reader = reader("a\nb\n");
+
+		assertTrue(reader.hasNext());
+		assertTrue(reader.hasNext());
+		assertArrayEquals(new Object[]{"a"}, reader.next());
+		assertArrayEquals(new Object[]{"b"}, reader.next());
+		assertFalse(reader.hasNext());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void nextAfterTheEnd() {
+		CsvReader reader = reader("a\n");
+		reader.next();
+		reader.next();
+	}
+
+	@Test(expected = InvalidFileException.class)
+	public void unclosedQuote()
+	throws IOException {
+		reader("1,\"aperto\n2,b\n").readRecord();
+	}
+
+	private static CsvReader reader(String csv) {
+		return new CsvReader(new StringReader(csv));
+	}
+}
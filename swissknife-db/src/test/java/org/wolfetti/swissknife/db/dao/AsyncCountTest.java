@@ -0,0 +1,149 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.DbConnectorFactory;
+import org.wolfetti.swissknife.db.utils.DbExecutor;
+
+/**
+ * Test del conteggio del totale delle righe in parallelo alla query paginata, anche dalle query asincrone
+ * eseguite sull'executor condiviso.
+ *
+ * @author Fabio Frijo
+ */
+public class AsyncCountTest {
+	private static final int ROWS = 50;
+
+	/**
+	 * Il tempo massimo di ogni test: un executor bloccato non deve bloccare anche i test successivi
+	 */
+	private static final long TIMEOUT = 30000L;
+
+	private static DbConnector connector;
+
+	@BeforeClass
+	public static void setUpClass()
+	throws Exception {
+		DbExecutor.shutdown();
+
+		Properties props = new Properties();
+		props.setProperty(DB.KEY_TYPE, "POOL");
+		props.setProperty(DB.KEY_POOL_TYPE, "NATIVE");
+		props.setProperty(DB.KEY_DRIVER, "org.h2.Driver");
+		props.setProperty(DB.KEY_URL, "jdbc:h2:mem:asynccount;DB_CLOSE_DELAY=-1");
+		props.setProperty(DB.KEY_USER, "sa");
+		props.setProperty(DB.KEY_PASSWORD, "");
+		props.setProperty(DB.KEY_MAX_POOLSIZE, "8");
+		props.setProperty(DB.KEY_EXECUTOR_THREADS, "2");
+		DbConnectorFactory.loadConfigurationProperties(props);
+
+		connector = DbConnectorFactory.getDbConnector();
+
+		PropertyFileDAO dao = new PropertyFileDAO(connector);
+		dao.write("create");
+		for(int i = 0; i < ROWS; i++){
+			dao.write("insert", "persona" + i, i);
+		}
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		connector.close();
+		DbExecutor.shutdown();
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void countRunsInParallel()
+	throws Exception {
+		PropertyFileDAO dao = page(new PropertyFileDAO(connector));
+
+		assertEquals(5, dao.getList("elenco", 10).size());
+		assertEquals(ROWS - 10, dao.getTotal());
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void asyncQueriesWithCountDoNotExhaustTheExecutor()
+	throws Exception {
+		PropertyFileDAO dao = page(new PropertyFileDAO(connector));
+
+		List<DaoFuture<List<Map<String, Object>>>> futures = new ArrayList<DaoFuture<List<Map<String, Object>>>>();
+		for(int i = 0; i < 40; i++){
+			futures.add(dao.getListAsync("elenco", 10));
+		}
+
+		for(DaoFuture<List<Map<String, Object>>> future : futures){
+			assertEquals(5, future.get(10, TimeUnit.SECONDS).size());
+		}
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void countInTransactionSeesUncommittedRows()
+	throws Exception {
+		DbConnector transaction = DbConnectorFactory.getDbConnector(true);
+
+		try {
+			PropertyFileDAO dao = page(new PropertyFileDAO(transaction));
+			dao.write("insert", "nuova", 99);
+
+			dao.getList("elenco", 10);
+			assertEquals(ROWS - 10 + 1, dao.getTotal());
+		} finally {
+			transaction.rollback();
+			transaction.close();
+		}
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void workerThreadsAreRecognized()
+	throws Exception {
+		assertFalse(DbExecutor.isWorkerThread());
+
+		boolean worker = connector.getExecutor().submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return Boolean.valueOf(DbExecutor.isWorkerThread());
+			}
+		}).get(10, TimeUnit.SECONDS).booleanValue();
+
+		assertTrue(worker);
+	}
+
+	private static PropertyFileDAO page(PropertyFileDAO dao) {
+		dao.setStart(0);
+		dao.setLimit(5);
+		dao.setCountTotal(true);
+		return dao;
+	}
+}
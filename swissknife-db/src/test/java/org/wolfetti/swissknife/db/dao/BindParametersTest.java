@@ -0,0 +1,109 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.Persona;
+import org.wolfetti.swissknife.db.TestDatabase;
+
+/**
+ * Test delle query del file SQL eseguite con i parametri in binding ({@link PropertyFileDAO#setBindParameters(boolean)})
+ * e formattate, che devono restituire gli stessi risultati.
+ *
+ * @author Fabio Frijo
+ */
+public class BindParametersTest {
+	private static int databases = 0;
+
+	private DbConnector connector;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.connector = TestDatabase.open("bind" + (++databases), false);
+
+		PropertyFileDAO dao = new PropertyFileDAO("bind.properties", this.connector);
+		dao.write("create");
+		dao.write("insert", "Mario", 30);
+		dao.write("insert", "D'Angelo", 17);
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+	}
+
+	@Test
+	public void boundAndFormattedQueriesMatch()
+	throws Exception {
+		for(boolean bind : new boolean[]{false, true}){
+			PropertyFileDAO dao = this.dao(bind);
+
+			assertEquals("bind=" + bind, 1, dao.getList("maggiorenni", 18).size());
+			assertEquals("bind=" + bind, Integer.valueOf(17), dao.getSingle("perNome", Persona.class, "D'Angelo").getEta());
+			assertEquals("bind=" + bind, 1, dao.getList("contiene", "Ang").size());
+		}
+	}
+
+	@Test
+	public void quotesAreBoundAsValues()
+	throws Exception {
+		PropertyFileDAO dao = this.dao(true);
+		dao.write("insert", "O'Brien'; DROP TABLE persone; --", 40);
+
+		Map<String, Object> row = dao.getSingle("perNome", "O'Brien'; DROP TABLE persone; --");
+		assertEquals(40, ((Number) row.get("ETA")).intValue());
+		assertEquals(3, dao.getList("maggiorenni", 0).size());
+	}
+
+	@Test
+	public void nullValuesAreBound()
+	throws Exception {
+		PropertyFileDAO dao = this.dao(true);
+		dao.write("insert", "Senza eta", null);
+
+		assertNull(dao.getSingle("perNome", Persona.class, "Senza eta").getEta());
+	}
+
+	@Test
+	public void cachedStatementsAreReused()
+	throws Exception {
+		PropertyFileDAO dao = this.dao(true);
+
+		for(int i = 0; i < 200; i++){
+			List<Persona> result = dao.getList("maggiorenni", Persona.class, i % 40);
+			assertEquals(i % 40 <= 17 ? 2 : i % 40 <= 30 ? 1 : 0, result.size());
+		}
+	}
+
+	private PropertyFileDAO dao(boolean bind) {
+		PropertyFileDAO dao = new PropertyFileDAO("bind.properties", this.connector);
+		dao.setBindParameters(bind);
+		return dao;
+	}
+}
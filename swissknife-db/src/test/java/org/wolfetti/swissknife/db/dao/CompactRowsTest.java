@@ -0,0 +1,124 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.beanutils.RowMap;
+
+/**
+ * Test delle righe compatte restituite da {@link PropertyFileDAO#setCompactRows(boolean)}.
+ *
+ * @author Fabio Frijo
+ */
+public class CompactRowsTest {
+	private static int counter;
+
+	private DbConnector connector;
+
+	private PropertyFileDAO dao;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.connector = TestDatabase.open("rows" + (counter++), false);
+		this.dao = new PropertyFileDAO("rows.properties", this.connector);
+		this.dao.write("create");
+		this.dao.write("insert", "Mario", 30);
+		this.dao.write("insert", "Luigi", 12);
+		this.dao.write("insert", "Anna", null);
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+	}
+
+	@Test
+	public void compactRowsEqualPlainRows()
+	throws Exception {
+		List<Map<String, Object>> plain = this.dao.getList("tutte");
+
+		this.dao.setCompactRows(true);
+		List<Map<String, Object>> compact = this.dao.getList("tutte");
+
+		assertEquals(3, compact.size());
+		assertEquals(plain, compact);
+		assertEquals(plain.get(0).hashCode(), compact.get(0).hashCode());
+		assertTrue(compact.get(0) instanceof RowMap);
+	}
+
+	@Test
+	public void headerIsSharedAndLookupsWork()
+	throws Exception {
+		this.dao.setCompactRows(true);
+		Map<String, Object> row = this.dao.getSingle("perNome", "Anna");
+
+		assertEquals(3, row.size());
+		assertEquals("Anna", row.get("NOME"));
+		assertTrue(row.containsKey("ETA"));
+		assertNull(row.get("ETA"));
+		assertFalse(row.containsKey("COGNOME"));
+		assertNull(row.get("COGNOME"));
+	}
+
+	@Test
+	public void emptyResult()
+	throws Exception {
+		this.dao.setCompactRows(true);
+
+		assertTrue(this.dao.getSingle("perNome", "Nessuno").isEmpty());
+		assertTrue(this.dao.getList("perNome", "Nessuno").isEmpty());
+	}
+
+	@Test
+	public void compactRowsAreReadOnly()
+	throws Exception {
+		this.dao.setCompactRows(true);
+		Map<String, Object> row = this.dao.getList("tutte").get(0);
+
+		try {
+			row.put("NOME", "Altro");
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// Atteso
+		}
+
+		try {
+			row.entrySet().iterator().next().setValue("Altro");
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// Atteso
+		}
+
+		assertEquals("Mario", row.get("NOME"));
+	}
+}
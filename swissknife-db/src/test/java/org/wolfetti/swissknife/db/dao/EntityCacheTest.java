@@ -0,0 +1,280 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test della cache delle entit&agrave; {@link EntityCache}: raggruppamento dei caricamenti concorrenti e invalidazione.
+ *
+ * @author Fabio Frijo
+ */
+public class EntityCacheTest {
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		this.executor = Executors.newFixedThreadPool(8);
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void loadedEntityIsCached() {
+		EntityCache<Integer, String> cache = new EntityCache<Integer, String>();
+		CountingLoader loader = new CountingLoader();
+
+		assertEquals("entita-1", cache.get(1, loader));
+		assertEquals("entita-1", cache.get(1, loader));
+		assertEquals(1, loader.calls.get());
+		assertEquals(1L, cache.getStats().getHits());
+		assertEquals(1L, cache.getStats().getMisses());
+	}
+
+	@Test
+	public void missingEntityIsCached() {
+		EntityCache<Integer, String> cache = new EntityCache<Integer, String>();
+		final AtomicInteger calls = new AtomicInteger();
+		EntityCache.Loader<Integer, String> loader = new EntityCache.Loader<Integer, String>() {
+			@Override
+			public String load(Integer key) {
+				calls.incrementAndGet();
+				return null;
+			}
+		};
+
+		assertNull(cache.get(404, loader));
+		assertNull(cache.get(404, loader));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void concurrentLoadsAreCoalesced()
+	throws Exception {
+		final EntityCache<Integer, String> cache = new EntityCache<Integer, String>();
+		final BlockingLoader loader = new BlockingLoader();
+
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for(int i = 0; i < 8; i++){
+			results.add(this.executor.submit(new Callable<String>() {
+				@Override
+				public String call() {
+					return cache.get(1, loader);
+				}
+			}));
+		}
+
+		assertTrue(loader.started.await(10, TimeUnit.SECONDS));
+		Thread.sleep(100L);
+		loader.release.countDown();
+
+		for(Future<String> result : results){
+			assertEquals("entita-1", result.get(10, TimeUnit.SECONDS));
+		}
+
+		assertEquals(1, loader.calls.get());
+	}
+
+	@Test
+	public void invalidationDuringLoadIsNotOverwritten()
+	throws Exception {
+		final EntityCache<Integer, String> cache = new EntityCache<Integer, String>();
+		final BlockingLoader loader = new BlockingLoader();
+
+		Future<String> result = this.executor.submit(new Callable<String>() {
+			@Override
+			public String call() {
+				return cache.get(1, loader);
+			}
+		});
+
+		assertTrue(loader.started.await(10, TimeUnit.SECONDS));
+		cache.invalidate(1);
+		loader.release.countDown();
+
+		assertEquals("entita-1", result.get(10, TimeUnit.SECONDS));
+		assertNull(cache.getIfPresent(1));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void loaderFailureIsNotCached()
+	throws Exception {
+		EntityCache<Integer, String> cache = new EntityCache<Integer, String>();
+		EntityCache.Loader<Integer, String> failing = new EntityCache.Loader<Integer, String>() {
+			@Override
+			public String load(Integer key) {
+				throw new IllegalStateException("database non disponibile");
+			}
+		};
+
+		try {
+			cache.get(1, failing);
+			fail("L'eccezione del caricamento deve arrivare al chiamante");
+		} catch (IllegalStateException e) {
+			assertEquals("database non disponibile", e.getMessage());
+		}
+
+		CountingLoader loader = new CountingLoader();
+		assertEquals("entita-1", cache.get(1, loader));
+		assertEquals(1, loader.calls.get());
+	}
+
+	@Test
+	public void putAndInvalidate() {
+		EntityCache<Integer, String> cache = new EntityCache<Integer, String>();
+		CountingLoader loader = new CountingLoader();
+
+		cache.put(1, "salvata");
+		assertEquals("salvata", cache.get(1, loader));
+		assertEquals(0, loader.calls.get());
+
+		cache.invalidate(1);
+		assertEquals("entita-1", cache.get(1, loader));
+		assertEquals(1, loader.calls.get());
+
+		cache.put(2, "altra");
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void writesOnTablesInvalidateEntities() {
+		EntityCache<Integer, String> cache = new EntityCache<Integer, String>("Persone");
+		CountingLoader loader = new CountingLoader();
+
+		cache.get(1, loader);
+		PropertyFileDAO.getResultCache().invalidate("ordini");
+		assertEquals("entita-1", cache.getIfPresent(1));
+
+		PropertyFileDAO.getResultCache().invalidate("persone");
+		assertNull(cache.getIfPresent(1));
+		assertEquals(1L, cache.getStats().getInvalidations());
+
+		cache.get(1, loader);
+		assertEquals(2, loader.calls.get());
+	}
+
+	@Test
+	public void expiredEntityIsReloaded()
+	throws InterruptedException {
+		EntityCache<Integer, String> cache = new EntityCache<Integer, String>(100, 1L);
+		CountingLoader loader = new CountingLoader();
+
+		cache.get(1, loader);
+		Thread.sleep(20L);
+		cache.get(1, loader);
+
+		assertEquals(2, loader.calls.get());
+		assertEquals(1L, cache.getStats().getExpirations());
+	}
+
+	@Test
+	public void sizeIsBounded() {
+		EntityCache<Integer, String> cache = new EntityCache<Integer, String>(32, 60000L);
+		CountingLoader loader = new CountingLoader();
+
+		for(int i = 0; i < 1000; i++){
+			cache.get(i, loader);
+		}
+
+		assertTrue(cache.size() <= 32);
+		assertEquals(1000L - cache.size(), cache.getStats().getEvictions());
+	}
+
+	@Test
+	public void nullKeysAreNotCached() {
+		EntityCache<Integer, String> cache = new EntityCache<Integer, String>();
+		CountingLoader loader = new CountingLoader();
+
+		cache.get(null, loader);
+		cache.get(null, loader);
+
+		assertEquals(2, loader.calls.get());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void cachedInstanceIsShared() {
+		EntityCache<Integer, Object> cache = new EntityCache<Integer, Object>();
+		EntityCache.Loader<Integer, Object> loader = new EntityCache.Loader<Integer, Object>() {
+			@Override
+			public Object load(Integer key) {
+				return new Object();
+			}
+		};
+
+		assertSame(cache.get(1, loader), cache.get(1, loader));
+	}
+
+	/**
+	 * Caricamento che conta le chiamate.
+	 */
+	private static class CountingLoader implements EntityCache.Loader<Integer, String> {
+		final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public String load(Integer key) {
+			this.calls.incrementAndGet();
+			return "entita-" + key;
+		}
+	}
+
+	/**
+	 * Caricamento che attende il via libera del test prima di restituire l'entit&agrave;.
+	 */
+	private static class BlockingLoader extends CountingLoader {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public String load(Integer key) {
+			this.started.countDown();
+
+			try {
+				this.release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			return super.load(key);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.entities.ExecutionOptions;
+import org.wolfetti.swissknife.db.entities.WriteResult;
+import org.wolfetti.swissknife.db.exceptions.SqlKeyException;
+
+/**
+ * Test delle opzioni di esecuzione e dei metadati delle query.
+ *
+ * @author Fabio Frijo
+ */
+public class ExecutionOptionsTest {
+	private static int counter;
+
+	private DbConnector connector;
+
+	private PropertyFileDAO dao;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.connector = TestDatabase.open("options" + (counter++), false);
+		this.dao = new PropertyFileDAO("options.properties", this.connector);
+		this.dao.write("create");
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+	}
+
+	@Test
+	public void insertsReturnGeneratedKeys()
+	throws Exception {
+		WriteResult result = this.connector.write("INSERT INTO persone (nome, eta) VALUES ('Mario', 30)", new ExecutionOptions());
+		assertEquals(1, result.getUpdatedRows());
+		assertEquals(Long.valueOf(1), result.getGeneratedKey());
+		assertEquals(1L, this.connector.getLastGeneratedKey());
+
+		result = this.connector.executeUpdate("INSERT INTO persone (nome, eta) VALUES (?, ?), (?, ?)", "Luigi", 12, "Anna", 40);
+		assertEquals(2, result.getUpdatedRows());
+		assertEquals(Arrays.asList(2L, 3L), result.getGeneratedKeys());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void bigintKeysAreTruncatedByLastInsertId()
+	throws Exception {
+		this.connector.write("CREATE TABLE eventi (id BIGINT AUTO_INCREMENT PRIMARY KEY, nome VARCHAR(50))");
+		this.connector.write("ALTER TABLE eventi ALTER COLUMN id RESTART WITH 4294967297");
+		this.connector.executeUpdate("INSERT INTO eventi (nome) VALUES (?)", "evento");
+
+		assertEquals(4294967297L, this.connector.getLastGeneratedKey());
+		assertEquals(1, this.connector.getLastInsertId());
+	}
+
+	@Test
+	public void updatesDoNotRequestKeys()
+	throws Exception {
+		this.dao.write("insert", "Mario", 30);
+
+		WriteResult result = this.connector.executeUpdate("UPDATE persone SET eta = ? WHERE nome = ?", 31, "Mario");
+		assertEquals(1, result.getUpdatedRows());
+		assertNull(result.getGeneratedKey());
+	}
+
+	@Test
+	public void optionsOverrideKeyDetection()
+	throws Exception {
+		ExecutionOptions options = new ExecutionOptions();
+		options.setGeneratedKeys(Boolean.FALSE);
+		assertNull(this.connector.executeUpdate("INSERT INTO persone (nome, eta) VALUES (?, ?)", options, "Mario", 30).getGeneratedKey());
+
+		options = new ExecutionOptions();
+		options.setKeyColumns("ID", "NOME");
+		List<Object[]> rows = this.connector.executeUpdate("INSERT INTO persone (nome, eta) VALUES (?, ?)", options, "Luigi", 12).getGeneratedKeyRows();
+
+		assertEquals(1, rows.size());
+		assertEquals(2, ((Number) rows.get(0)[0]).intValue());
+		assertEquals("Luigi", rows.get(0)[1]);
+	}
+
+	@Test
+	public void maxRowsLimitsTheResult()
+	throws Exception {
+		for(int i = 0; i < 5; i++){
+			this.dao.write("insert", "persona" + i, i);
+		}
+
+		ExecutionOptions options = new ExecutionOptions();
+		options.setMaxRows(3);
+
+		ResultSet rs = this.connector.query("SELECT * FROM persone", options);
+		int count = 0;
+		while(rs.next()){
+			count++;
+		}
+		rs.close();
+
+		assertEquals(3, count);
+
+		// Le opzioni non restano sullo statement condiviso
+		assertEquals(5, this.dao.getList("tutte").size());
+	}
+
+	@Test
+	public void metadataFromQueryFile()
+	throws Exception {
+		for(boolean bind : new boolean[]{false, true}){
+			this.dao.setBindParameters(bind);
+
+			assertTrue(this.dao.writeWithResult("insert", "Mario", 30).getGeneratedKey() != null);
+			assertNull(this.dao.writeWithResult("insertSenzaChiavi", "Luigi", 12).getGeneratedKey());
+
+			List<Object[]> keys = this.dao.writeWithResult("insertConNome", "Anna", 40).getGeneratedKeyRows();
+			assertEquals("Anna", keys.get(0)[1]);
+		}
+
+		assertEquals(2, this.dao.getList("prime").size());
+		assertEquals(6, this.dao.getList("tutte").size());
+	}
+
+	@Test
+	public void invalidMetadataIsReported()
+	throws Exception {
+		try {
+			this.dao.getList("lenta");
+			fail();
+		} catch (SqlKeyException e) {
+			// Atteso
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.Persona;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.entities.SqlStats;
+import org.wolfetti.swissknife.db.utils.SqlProfiler;
+
+/**
+ * Test della lettura a blocchi per id ({@link PropertyFileDAO#getListIn(String, Class, Collection, int)})
+ * e di {@link IdBatchLoader}.
+ *
+ * @author Fabio Frijo
+ */
+public class IdBatchLoaderTest {
+	private static final int ROWS = 1300;
+
+	private static int databases = 0;
+
+	private DbConnector connector;
+
+	private PropertyFileDAO dao;
+
+	private PersonaDAO persone;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		BaseConfiguration conf = TestDatabase.configuration("idbatch" + (++databases));
+		conf.setProperty(DB.KEY_PROFILING, "true");
+
+		this.connector = TestDatabase.open(conf, false);
+		this.dao = new PropertyFileDAO("idbatch.properties", this.connector);
+		this.dao.write("create");
+
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for(int id = 1; id <= ROWS; id++){
+			rows.add(new Object[]{id, "Persona " + id, id % 90});
+		}
+		this.dao.writeBatch("insert", rows);
+
+		this.persone = new PersonaDAO(this.dao);
+		SqlProfiler.get().reset();
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+		SqlProfiler.get().reset();
+	}
+
+	@Test
+	public void listInReadsOneQueryPerChunk()
+	throws Exception {
+		List<Integer> ids = new ArrayList<Integer>();
+		for(int id = 1; id <= 1200; id++){
+			ids.add(id);
+			ids.add(id);
+		}
+		ids.add(ROWS + 1);
+
+		List<Persona> result = this.dao.getListIn("perIds", Persona.class, ids, 500);
+		assertEquals(1200, result.size());
+		assertEquals(3, this.queries("perIds"));
+
+		// Nessun valore, nessuna query
+		assertTrue(this.dao.getListIn("perIds", Persona.class, Collections.<Integer>emptyList()).isEmpty());
+		assertEquals(3, this.queries("perIds"));
+	}
+
+	@Test
+	public void loaderResolvesReferencesTogether()
+	throws Exception {
+		Random random = new Random(7);
+		List<Integer> references = new ArrayList<Integer>();
+		for(int i = 0; i < 2000; i++){
+			references.add(1 + random.nextInt(ROWS + 100));
+		}
+
+		IdBatchLoader<Persona> loader = new IdBatchLoader<Persona>(this.persone);
+		loader.loadAll(references);
+
+		for(Integer id : references){
+			Persona persona = loader.findById(id);
+
+			if(id <= ROWS){
+				assertEquals(id, persona.getId());
+				assertEquals("Persona " + id, persona.getNome());
+			} else {
+				assertNull(persona);
+			}
+		}
+
+		assertEquals(1, loader.getBatchCount());
+		assertEquals(1, this.persone.batches);
+		assertEquals(0, this.queries("perId"));
+
+		// Gli id non trovati non vengono letti di nuovo
+		assertNull(loader.findById(ROWS + 50));
+		assertEquals(1, loader.getBatchCount());
+	}
+
+	/**
+	 * Senza prenotare gli id con load() ogni findById esegue una query.
+	 */
+	@Test
+	public void findByIdWithoutLoadRunsOneQueryPerId()
+	throws Exception {
+		IdBatchLoader<Persona> loader = new IdBatchLoader<Persona>(this.persone);
+
+		for(int id = 1; id <= 20; id++){
+			assertEquals(Integer.valueOf(id), loader.findById(id).getId());
+		}
+
+		assertEquals(20, loader.getBatchCount());
+		assertEquals(20, this.queries("perIds"));
+
+		// Le entita' gia' lette restano in memoria fino a clear()
+		loader.findById(5);
+		assertEquals(20, loader.getBatchCount());
+		loader.clear();
+		loader.findById(5);
+		assertEquals(21, loader.getBatchCount());
+	}
+
+	@Test
+	public void findByIdsIncludesPendingIds()
+	throws Exception {
+		IdBatchLoader<Persona> loader = new IdBatchLoader<Persona>(this.persone);
+		loader.load(10);
+		loader.load(11);
+		assertEquals(2, loader.getPendingCount());
+
+		Map<Integer, Persona> result = loader.findByIds(Arrays.asList(1, 2, ROWS + 1));
+		assertEquals(Arrays.asList(1, 2), new ArrayList<Integer>(result.keySet()));
+		assertEquals(0, loader.getPendingCount());
+		assertEquals(1, loader.getBatchCount());
+
+		assertEquals("Persona 10", loader.findById(10).getNome());
+		assertEquals(1, loader.getBatchCount());
+	}
+
+	@Test
+	public void deleteInvalidates()
+	throws Exception {
+		IdBatchLoader<Persona> loader = new IdBatchLoader<Persona>(this.persone);
+		assertEquals("Persona 3", loader.findById(3).getNome());
+
+		loader.deleteById(3);
+		assertNull(loader.findById(3));
+		assertEquals(2, loader.getBatchCount());
+	}
+
+	private long queries(String key) {
+		SqlStats stats = SqlProfiler.get().getStats("idbatch.properties:" + key);
+		return stats != null ? stats.getCount() : 0;
+	}
+
+	/**
+	 * DAO delle persone con la lettura a blocchi.
+	 */
+	private static class PersonaDAO implements BatchIdEntityDAO<Persona> {
+		private final PropertyFileDAO dao;
+		private int batches = 0;
+
+		private PersonaDAO(PropertyFileDAO dao) {
+			this.dao = dao;
+		}
+
+		@Override
+		public Persona findById(int id) {
+			try {
+				return this.dao.getSingle("perId", Persona.class, id);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void deleteById(int id) {
+			try {
+				this.dao.write("elimina", id);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public Map<Integer, Persona> findByIds(Collection<Integer> ids) {
+			this.batches++;
+
+			try {
+				Map<Integer, Persona> result = new HashMap<Integer, Persona>();
+				for(Persona persona : this.dao.getListIn("perIds", Persona.class, ids)){
+					result.put(persona.getId(), persona);
+				}
+				return result;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
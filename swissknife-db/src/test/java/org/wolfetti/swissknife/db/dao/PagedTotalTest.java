@@ -0,0 +1,155 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.Persona;
+import org.wolfetti.swissknife.db.TestDatabase;
+
+/**
+ * Test del totale delle query paginate e della cache dei totali.
+ *
+ * @author Fabio Frijo
+ */
+public class PagedTotalTest {
+	private static final int ROWS = 25;
+
+	private static int counter;
+
+	private DbConnector connector;
+
+	private PropertyFileDAO dao;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		SkDAO.clearCountCache();
+
+		this.connector = TestDatabase.open("total" + (counter++), false);
+		this.dao = new PropertyFileDAO("total.properties", this.connector);
+		this.dao.write("create");
+
+		for(int i = 1; i <= ROWS; i++){
+			this.dao.write("insert", i, "persona" + i, i);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+		SkDAO.clearCountCache();
+	}
+
+	@Test
+	public void totalIgnoresOrderBy()
+	throws Exception {
+		assertEquals(ROWS, this.connector.total("SELECT * FROM persone ORDER BY nome DESC"));
+		assertEquals(6, this.connector.total("SELECT * FROM persone WHERE eta >= ? ORDER BY nome", 20));
+	}
+
+	@Test
+	public void pagedQueryFillsTotal()
+	throws Exception {
+		this.dao.setCountTotal(true);
+		this.dao.setStart(0);
+		this.dao.setLimit(10);
+
+		for(boolean bind : new boolean[]{false, true}){
+			this.dao.setBindParameters(bind);
+
+			List<Persona> page = this.dao.getList("maggiori", Persona.class, 10);
+			assertEquals(10, page.size());
+			assertEquals(16, this.dao.getTotal());
+
+			// Con la paginazione per chiave il totale e' quello della query senza la condizione sulla chiave
+			this.dao.setKeyset("id", 20);
+			assertEquals(5, this.dao.getList("maggiori", Persona.class, 10).size());
+			assertEquals(16, this.dao.getTotal());
+			this.dao.clearKeyset();
+		}
+	}
+
+	@Test
+	public void totalIsNotComputedWhenDisabled()
+	throws Exception {
+		this.dao.setStart(0);
+		this.dao.setLimit(10);
+		this.dao.getList("tutte");
+		assertEquals(-1, this.dao.getTotal());
+
+		// Senza paginazione il conteggio non viene eseguito
+		this.dao.setCountTotal(true);
+		this.dao.setLimit(SkDAO.NOT_PAGING);
+		this.dao.getList("tutte");
+		assertEquals(-1, this.dao.getTotal());
+	}
+
+	@Test
+	public void totalsAreCachedForTheirTtl()
+	throws Exception {
+		this.dao.setCountTotal(true);
+		this.dao.setCountCacheTtl(60000);
+		this.dao.setStart(0);
+		this.dao.setLimit(10);
+
+		this.dao.getList("tutte");
+		assertEquals(ROWS, this.dao.getTotal());
+
+		this.dao.write("insert", 100, "altra", 50);
+		this.dao.getList("tutte");
+		assertEquals(ROWS, this.dao.getTotal());
+
+		SkDAO.clearCountCache();
+		this.dao.getList("tutte");
+		assertEquals(ROWS + 1, this.dao.getTotal());
+
+		// Senza TTL il totale e' sempre esatto
+		this.dao.setCountCacheTtl(0);
+		this.dao.write("insert", 101, "altra", 50);
+		this.dao.getList("tutte");
+		assertEquals(ROWS + 2, this.dao.getTotal());
+	}
+
+	@Test
+	public void countCacheExpiresAndStaysBounded()
+	throws Exception {
+		CountCache cache = new CountCache(3);
+
+		cache.put("scaduto", 1, -1);
+		assertNull(cache.get("scaduto"));
+
+		cache.put("a", 1, 60000);
+		cache.put("b", 2, 60000);
+		cache.put("c", 3, 60000);
+		assertEquals(Long.valueOf(3), cache.get("c"));
+
+		// Piena e senza elementi scaduti: viene svuotata
+		cache.put("d", 4, 60000);
+		assertNull(cache.get("a"));
+		assertEquals(Long.valueOf(4), cache.get("d"));
+	}
+}
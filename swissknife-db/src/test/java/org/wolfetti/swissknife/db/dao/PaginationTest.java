@@ -0,0 +1,144 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.Persona;
+import org.wolfetti.swissknife.db.TestDatabase;
+
+/**
+ * Test della paginazione per offset e per chiave di {@link PropertyFileDAO}.
+ *
+ * @author Fabio Frijo
+ */
+public class PaginationTest {
+	private static final int ROWS = 25;
+
+	private static int counter;
+
+	private DbConnector connector;
+
+	private PropertyFileDAO dao;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.connector = TestDatabase.open("paging" + (counter++), false);
+		this.dao = new PropertyFileDAO("paging.properties", this.connector);
+		this.dao.write("create");
+
+		for(int i = 1; i <= ROWS; i++){
+			this.dao.write("insert", i, "persona" + (100 - i), i % 5 * 10);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+	}
+
+	@Test
+	public void offsetPages()
+	throws Exception {
+		this.dao.setStart(20);
+		this.dao.setLimit(10);
+
+		List<Persona> page = this.dao.getList("tutte", Persona.class);
+		assertEquals(5, page.size());
+		assertEquals("persona99", page.get(4).getNome());
+	}
+
+	@Test
+	public void keysetPagesVisitEveryRowOnce()
+	throws Exception {
+		for(boolean bind : new boolean[]{false, true}){
+			this.dao.setBindParameters(bind);
+			assertEquals(ids(1, ROWS), this.walk("tutte", false));
+			assertEquals(ids(ROWS, 1), this.walk("tutte", true));
+		}
+	}
+
+	@Test
+	public void keysetWithExistingWhere()
+	throws Exception {
+		List<Integer> expected = new ArrayList<Integer>();
+		for(int i = 1; i <= ROWS; i++){
+			if(i % 5 * 10 >= 30){
+				expected.add(i);
+			}
+		}
+
+		assertEquals(expected, this.walk("maggiori", false, 30));
+	}
+
+	@Test
+	public void keysetOnGroupedQuery()
+	throws Exception {
+		this.dao.setLimit(2);
+		this.dao.setKeyset("eta", 10);
+
+		List<Map<String, Object>> page = this.dao.getList("perEta");
+		assertEquals(2, page.size());
+		assertEquals(20, ((Number) page.get(0).get("ETA")).intValue());
+		assertEquals(30, ((Number) page.get(1).get("ETA")).intValue());
+		assertEquals(5L, ((Number) page.get(1).get("NUMERO")).longValue());
+	}
+
+	/**
+	 * Legge tutte le pagine da 4 righe della query, ordinate per id.
+	 */
+	private List<Integer> walk(String key, boolean descending, Object ... values)
+	throws Exception {
+		List<Integer> result = new ArrayList<Integer>();
+		Integer last = null;
+
+		this.dao.setLimit(4);
+		for(;;){
+			this.dao.setKeyset("id", last, descending);
+			List<Persona> page = this.dao.getList(key, Persona.class, values);
+
+			for(Persona persona : page){
+				result.add(persona.getId());
+				last = persona.getId();
+			}
+
+			if(page.size() < 4){
+				return result;
+			}
+		}
+	}
+
+	private static List<Integer> ids(int from, int to) {
+		List<Integer> result = new ArrayList<Integer>();
+		for(int i = from; from <= to ? i <= to : i >= to; i += from <= to ? 1 : -1){
+			result.add(i);
+		}
+
+		return result;
+	}
+}
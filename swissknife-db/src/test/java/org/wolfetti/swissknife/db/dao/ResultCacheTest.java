@@ -0,0 +1,207 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.TestDatabase;
+
+/**
+ * Test della cache dei risultati {@link ResultCache} e della sua invalidazione per versione di tabella.
+ *
+ * @author Fabio Frijo
+ */
+public class ResultCacheTest {
+
+	@Test
+	public void storedResultIsReturned() {
+		ResultCache cache = new ResultCache(10);
+
+		ResultCache.Lookup lookup = cache.lookup("elenco", 60000L, "persone");
+		assertFalse(lookup.isHit());
+		lookup.store("risultato", 42L);
+
+		lookup = cache.lookup("elenco", 60000L, "persone");
+		assertTrue(lookup.isHit());
+		assertEquals("risultato", lookup.getValue());
+		assertEquals(42L, lookup.getTotal());
+		assertEquals(1L, cache.getStats().getHits());
+		assertEquals(1L, cache.getStats().getMisses());
+	}
+
+	@Test
+	public void writeInvalidatesReaders() {
+		ResultCache cache = new ResultCache(10);
+		cache.lookup("persone", 60000L, "persone").store("a", -1L);
+		cache.lookup("ordini", 60000L, "ordini").store("b", -1L);
+
+		cache.invalidate("persone");
+
+		assertFalse(cache.lookup("persone", 60000L, "persone").isHit());
+		assertTrue(cache.lookup("ordini", 60000L, "ordini").isHit());
+		assertEquals(1L, cache.getStats().getInvalidations());
+	}
+
+	@Test
+	public void tableNamesAreNormalized() {
+		ResultCache cache = new ResultCache(10);
+		cache.lookup("elenco", 60000L, "Persone").store("a", -1L);
+
+		cache.invalidate("anagrafe.`PERSONE`");
+
+		assertFalse(cache.lookup("elenco", 60000L, "Persone").isHit());
+	}
+
+	@Test
+	public void resultReadDuringWriteIsNotReturned() {
+		ResultCache cache = new ResultCache(10);
+
+		ResultCache.Lookup lookup = cache.lookup("elenco", 60000L, "persone");
+		cache.invalidate("persone");
+		lookup.store("letto prima della scrittura", -1L);
+
+		assertFalse(cache.lookup("elenco", 60000L, "persone").isHit());
+	}
+
+	@Test
+	public void expiredResultIsNotReturned()
+	throws InterruptedException {
+		ResultCache cache = new ResultCache(10);
+		cache.lookup("elenco", 1L, "persone").store("a", -1L);
+
+		Thread.sleep(20L);
+
+		assertFalse(cache.lookup("elenco", 1L, "persone").isHit());
+		assertEquals(1L, cache.getStats().getExpirations());
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() {
+		ResultCache cache = new ResultCache(2);
+		cache.lookup("a", 60000L).store("a", -1L);
+		cache.lookup("b", 60000L).store("b", -1L);
+		cache.lookup("a", 60000L);
+		cache.lookup("c", 60000L).store("c", -1L);
+
+		assertEquals(2, cache.size());
+		assertTrue(cache.lookup("a", 60000L).isHit());
+		assertFalse(cache.lookup("b", 60000L).isHit());
+		assertEquals(1L, cache.getStats().getEvictions());
+	}
+
+	/**
+	 * Le modifiche del chiamante alle righe lette non raggiungono i risultati in cache.
+	 */
+	@Test
+	public void cachedRowsAreCopied()
+	throws Exception {
+		DbConnector connector = TestDatabase.open("resultcache", false);
+
+		try {
+			PropertyFileDAO dao = new PropertyFileDAO("cache.properties", connector);
+			dao.write("create");
+			dao.write("insert", "Mario", 30);
+
+			List<Map<String, Object>> rows = dao.getList("tutte");
+			rows.get(0).put("NOME", "modificato");
+			rows.clear();
+
+			Map<String, Object> row = dao.getSingle("perId", 1);
+			row.put("NOME", "modificato");
+
+			long hits = PropertyFileDAO.getResultCache().getStats().getHits();
+			rows = dao.getList("tutte");
+			row = dao.getSingle("perId", 1);
+
+			assertEquals(hits + 2, PropertyFileDAO.getResultCache().getStats().getHits());
+			assertEquals(1, rows.size());
+			assertEquals("Mario", rows.get(0).get("NOME"));
+			assertEquals("Mario", row.get("NOME"));
+
+			// Solo le scritture dei DAO invalidano la cache
+			connector.write("INSERT INTO persone (nome, eta) VALUES ('Luigi', 28)");
+			assertEquals(1, dao.getList("tutte").size());
+
+			dao.write("insert", "Anna", 25);
+			assertEquals(3, dao.getList("tutte").size());
+		} finally {
+			connector.close();
+		}
+	}
+
+	@Test
+	public void zeroTtlIsNotStored() {
+		ResultCache cache = new ResultCache(10);
+		cache.lookup("elenco", 0L, "persone").store("a", -1L);
+
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void concurrentWritesLeaveNoStaleResult()
+	throws InterruptedException {
+		final ResultCache cache = new ResultCache(10);
+		final AtomicInteger database = new AtomicInteger();
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final CountDownLatch done = new CountDownLatch(4);
+
+		for(int i = 0; i < 4; i++){
+			Thread reader = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while(running.get()){
+							ResultCache.Lookup lookup = cache.lookup("valore", 60000L, "contatori");
+							if(!lookup.isHit()){
+								lookup.store(Integer.valueOf(database.get()), -1L);
+							}
+						}
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+
+			reader.start();
+		}
+
+		for(int i = 0; i < 2000; i++){
+			database.incrementAndGet();
+			cache.invalidate("contatori");
+		}
+
+		running.set(false);
+		done.await();
+
+		ResultCache.Lookup lookup = cache.lookup("valore", 60000L, "contatori");
+		if(lookup.isHit()){
+			assertEquals(Integer.valueOf(database.get()), lookup.getValue());
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wolfetti.swissknife.db.dialect.H2Dialect;
+import org.wolfetti.swissknife.db.exceptions.InvalidFileException;
+import org.wolfetti.swissknife.db.utils.SqlTemplate;
+
+/**
+ * Test del caricamento, della condivisione e del ricaricamento dei cataloghi delle query.
+ *
+ * @author Fabio Frijo
+ */
+public class SqlCatalogTest {
+	private static int counter;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ClassLoader classLoader;
+
+	/**
+	 * Il file delle query del test: il nome cambia ad ogni test perche' {@link SqlCatalog#reload(String)}
+	 * ricarica il file in tutti i class loader
+	 */
+	private String file;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.file = "catalogo" + (counter++) + ".properties";
+		this.classLoader = new URLClassLoader(new URL[]{this.folder.getRoot().toURI().toURL()}, null);
+	}
+
+	@Test
+	public void referencesAreResolvedAtLoad()
+	throws Exception {
+		this.save(
+			"colonne=id, nome",
+			"base=SELECT ${colonne} FROM persone",
+			"perId=${base} WHERE id = {0}",
+			"perId@timeout=5"
+		);
+
+		SqlCatalog catalog = SqlCatalog.get(this.classLoader, this.file);
+		assertEquals("SELECT id, nome FROM persone WHERE id = {0}", catalog.getSql("perId"));
+		assertEquals("SELECT id, nome FROM persone WHERE id = ?", catalog.getTemplate("perId").getSql());
+		assertEquals("5", catalog.getSql("perId@timeout"));
+		assertEquals(4, catalog.getKeys().size());
+		assertEquals(catalog.getSql("base"), catalog.toProperties().getProperty("base"));
+	}
+
+	@Test
+	public void upsertsAreCachedPerKeyColumns()
+	throws Exception {
+		this.save("inserisci=INSERT INTO persone (id, codice, nome) VALUES ({0}, {1}, {2})");
+
+		SqlCatalog catalog = SqlCatalog.get(this.classLoader, this.file);
+		H2Dialect dialect = new H2Dialect();
+
+		SqlTemplate perId = catalog.getUpsertTemplate("inserisci", dialect, new String[]{"id"});
+		SqlTemplate perCodice = catalog.getUpsertTemplate("inserisci", dialect, new String[]{"codice"});
+
+		assertSame(perId, catalog.getUpsertTemplate("inserisci", dialect, new String[]{"id"}));
+		assertFalse(perId.getSql().equals(perCodice.getSql()));
+		assertTrue(perCodice.getSql().contains("KEY (codice)"));
+	}
+
+	@Test
+	public void catalogIsSharedPerClassLoader()
+	throws Exception {
+		this.save("tutte=SELECT * FROM persone");
+
+		assertSame(SqlCatalog.get(this.classLoader, this.file), SqlCatalog.get(this.classLoader, this.file));
+	}
+
+	@Test
+	public void unknownReferenceIsInvalid()
+	throws Exception {
+		this.save("perId=${base} WHERE id = {0}");
+		this.assertInvalid();
+	}
+
+	@Test
+	public void circularReferenceIsInvalid()
+	throws Exception {
+		this.save("a=SELECT * FROM (${b}) x", "b=SELECT * FROM (${a}) y");
+		this.assertInvalid();
+	}
+
+	@Test
+	public void missingFileIsInvalid() {
+		this.assertInvalid();
+	}
+
+	@Test
+	public void reloadReplacesTheCatalog()
+	throws Exception {
+		this.save("tutte=SELECT * FROM persone");
+		SqlCatalog first = SqlCatalog.get(this.classLoader, this.file);
+
+		this.save("tutte=SELECT id FROM persone");
+		assertTrue(SqlCatalog.reload(this.file));
+		assertTrue(first.isStale());
+		assertEquals("SELECT id FROM persone", first.getLatest().getSql("tutte"));
+		assertSame(first.getLatest(), SqlCatalog.get(this.classLoader, this.file));
+
+		// Un file non valido non sostituisce il catalogo corrente
+		SqlCatalog second = first.getLatest();
+		this.save("tutte=${mancante}");
+		assertFalse(SqlCatalog.reload(this.file));
+		assertFalse(second.isStale());
+		assertSame(second, SqlCatalog.get(this.classLoader, this.file));
+	}
+
+	@Test(timeout = 30000)
+	public void modifiedFilesAreReloaded()
+	throws Exception {
+		this.save("tutte=SELECT * FROM persone");
+		SqlCatalog first = SqlCatalog.get(this.classLoader, this.file);
+
+		SqlCatalog.setHotReload(true);
+		try {
+			// Il controllo delle modifiche e' asincrono: il file viene riscritto finche' non viene ricaricato
+			while(!first.isStale()){
+				this.save("tutte=SELECT nome FROM persone");
+				Thread.sleep(500);
+			}
+		} finally {
+			SqlCatalog.setHotReload(false);
+		}
+
+		assertEquals("SELECT nome FROM persone", first.getLatest().getSql("tutte"));
+	}
+
+	@Test
+	public void daoUsesTheLatestCatalog()
+	throws Exception {
+		this.save("tutte=SELECT * FROM persone");
+
+		// Il DAO cerca il file nel class loader del thread
+		Thread thread = Thread.currentThread();
+		ClassLoader previous = thread.getContextClassLoader();
+
+		PropertyFileDAO dao;
+		thread.setContextClassLoader(this.classLoader);
+		try {
+			dao = new PropertyFileDAO(this.file, null);
+		} finally {
+			thread.setContextClassLoader(previous);
+		}
+
+		assertEquals("SELECT * FROM persone", dao.getSqlQueries().getProperty("tutte"));
+
+		this.save("tutte=SELECT id FROM persone");
+		SqlCatalog.reload(this.file);
+		assertEquals("SELECT id FROM persone", dao.getSqlQueries().getProperty("tutte"));
+	}
+
+	private void save(String ... lines)
+	throws Exception {
+		File file = new File(this.folder.getRoot(), this.file);
+		StringBuilder content = new StringBuilder();
+
+		for(String line : lines){
+			content.append(line).append('\n');
+		}
+
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private void assertInvalid() {
+		try {
+			SqlCatalog.get(this.classLoader, this.file);
+			fail();
+		} catch (InvalidFileException e) {
+			// Atteso
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.Persona;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.beanutils.ResultSetIterator;
+import org.wolfetti.swissknife.db.beanutils.RowHandler;
+
+/**
+ * Test delle letture in streaming di {@link PropertyFileDAO}.
+ *
+ * @author Fabio Frijo
+ */
+public class StreamTest {
+	private static final int ROWS = 2500;
+
+	private static DbConnector connector;
+
+	@BeforeClass
+	public static void setUpClass()
+	throws Exception {
+		connector = TestDatabase.open("stream", false);
+		connector.write("CREATE TABLE persone (id INT PRIMARY KEY, nome VARCHAR(50), eta INT)");
+
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for(int i = 1; i <= ROWS; i++){
+			rows.add(new Object[]{i, "persona" + i, i % 100});
+		}
+
+		connector.writeBatch("INSERT INTO persone (id, nome, eta) VALUES (?, ?, ?)", rows);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		connector.close();
+	}
+
+	@Test
+	public void beansAreReadOneAtATime()
+	throws Exception {
+		ResultSetIterator<Persona> rows = dao().stream("tutte", Persona.class);
+
+		int count = 0;
+		for(Persona persona : rows){
+			count++;
+			assertEquals(Integer.valueOf(count), persona.getId());
+		}
+
+		assertEquals(ROWS, count);
+		assertTrue(rows.isClosed());
+	}
+
+	@Test
+	public void mapsWithParameters()
+	throws Exception {
+		ResultSetIterator<Map<String, Object>> rows = dao().stream("maggiori", 97);
+
+		int count = 0;
+		while(rows.hasNext()){
+			assertTrue(((Number) rows.next().get("ETA")).intValue() > 97);
+			count++;
+		}
+
+		assertEquals(ROWS / 100 * 2, count);
+		assertTrue(rows.isClosed());
+	}
+
+	@Test
+	public void closeStopsTheCursor()
+	throws Exception {
+		PropertyFileDAO dao = dao();
+		ResultSetIterator<Persona> rows = dao.stream("tutte", Persona.class);
+
+		for(int i = 0; i < 10; i++){
+			rows.next();
+		}
+
+		rows.close();
+		assertTrue(rows.isClosed());
+		assertFalse(rows.hasNext());
+
+		// Il connettore resta utilizzabile
+		assertEquals(ROWS, dao.getList("tutte").size());
+	}
+
+	@Test
+	public void emptyResultIsClosedImmediately()
+	throws Exception {
+		ResultSetIterator<Persona> rows = dao().stream("maggiori", Persona.class, 1000);
+
+		assertFalse(rows.hasNext());
+		assertTrue(rows.isClosed());
+	}
+
+	@Test
+	public void forEachVisitsEveryRow()
+	throws Exception {
+		final AtomicLong sum = new AtomicLong();
+
+		long count = dao().forEach("tutte", Persona.class, new RowHandler<Persona>() {
+			@Override
+			public void handle(Persona row) {
+				sum.addAndGet(row.getId().longValue());
+			}
+		});
+
+		assertEquals(ROWS, count);
+		assertEquals((long) ROWS * (ROWS + 1) / 2, sum.get());
+	}
+
+	private static PropertyFileDAO dao() {
+		return new PropertyFileDAO("stream.properties", connector);
+	}
+}
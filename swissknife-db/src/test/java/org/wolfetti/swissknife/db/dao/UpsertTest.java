@@ -0,0 +1,212 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.dialect.Dialect;
+import org.wolfetti.swissknife.db.dialect.Dialects;
+import org.wolfetti.swissknife.db.entities.SqlErrorType;
+import org.wolfetti.swissknife.db.exceptions.DuplicatedKeyException;
+import org.wolfetti.swissknife.db.exceptions.IllegalOperationException;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+import org.wolfetti.swissknife.db.utils.SqlErrors;
+
+/**
+ * Test dell'upsert nativo sul database e della classificazione degli errori di vincolo su H2.
+ *
+ * @author Fabio Frijo
+ */
+public class UpsertTest {
+	private static final String[] COLUMNS = {"id", "nome", "eta"};
+	private static final String[] KEY = {"id"};
+	private static final String[] VALUES = {"?", "?", "?"};
+
+	private static int databases = 0;
+
+	private DbConnector connector;
+
+	@Before
+	public void setUp()
+	throws Exception {
+		this.connector = TestDatabase.open("upsert" + (++databases), false);
+
+		PropertyFileDAO dao = new PropertyFileDAO("upsert.properties", this.connector);
+		dao.write("create");
+		dao.write("createFigli");
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+	}
+
+	@Test
+	public void daoUpsertInBothModes()
+	throws Exception {
+		for(boolean bind : new boolean[]{false, true}){
+			PropertyFileDAO dao = this.dao(bind);
+			int id = bind ? 2 : 1;
+
+			dao.upsert("salva", id, "Mario" + id, 30);
+			dao.upsert("salva", id, "D'Angelo" + id, 31);
+
+			Map<String, Object> row = dao.getSingle("perId", id);
+			assertEquals("bind=" + bind, "D'Angelo" + id, row.get("NOME"));
+			assertEquals("bind=" + bind, 31, row.get("ETA"));
+		}
+
+		assertEquals(2, this.count());
+	}
+
+	@Test
+	public void daoUpsertBatchInBothModes()
+	throws Exception {
+		for(boolean bind : new boolean[]{false, true}){
+			PropertyFileDAO dao = this.dao(bind);
+			int base = bind ? 10 : 0;
+
+			List<Object[]> rows = Arrays.asList(
+				new Object[]{base + 1, "A" + base, 1},
+				new Object[]{base + 2, "B" + base, 2});
+			dao.upsertBatch("salva", rows);
+
+			rows = Arrays.asList(
+				new Object[]{base + 2, "C" + base, 3},
+				new Object[]{base + 3, "D" + base, 4});
+			assertEquals("bind=" + bind, 2, dao.upsertBatch("salva", rows).getTotalUpdatedRows());
+
+			assertEquals("bind=" + bind, "C" + base, dao.getSingle("perId", base + 2).get("NOME"));
+		}
+
+		assertEquals(6, this.count());
+	}
+
+	@Test
+	public void connectorUpsert()
+	throws Exception {
+		this.connector.upsert("persone", COLUMNS, KEY, 1, "Mario", 30);
+		this.connector.upsert("persone", COLUMNS, KEY, 1, "Luigi", 40);
+
+		List<Object[]> rows = Arrays.asList(new Object[]{1, "Anna", 20}, new Object[]{2, "Bruno", 50});
+		this.connector.upsertBatch("persone", COLUMNS, KEY, rows);
+
+		assertEquals(2, this.count());
+		assertEquals("Anna", this.dao(true).getSingle("perId", 1).get("NOME"));
+	}
+
+	/**
+	 * Con un sottoinsieme di colonne da aggiornare H2 utilizza la MERGE standard.
+	 */
+	@Test
+	public void standardMerge()
+	throws Exception {
+		Dialect dialect = this.connector.getDialect();
+		assertEquals(Dialects.H2, dialect.getName());
+
+		String merge = dialect.upsert("persone", COLUMNS, VALUES, KEY, new String[]{"eta"});
+		assertTrue(merge, merge.startsWith("MERGE INTO persone sk_target USING"));
+
+		this.connector.executeUpdate(merge, 1, "Mario", 30);
+		this.connector.executeUpdate(merge, 1, "Luigi", 40);
+
+		Map<String, Object> row = this.dao(true).getSingle("perId", 1);
+		assertEquals("Mario", row.get("NOME"));
+		assertEquals(40, row.get("ETA"));
+	}
+
+	@Test
+	public void nativeCommands() {
+		assertEquals(
+			"INSERT INTO t (id, nome) VALUES (?, ?) ON DUPLICATE KEY UPDATE nome = VALUES(nome)",
+			Dialects.forName(Dialects.MYSQL).upsert("t", new String[]{"id", "nome"}, new String[]{"?", "?"}, KEY, new String[]{"nome"}));
+		assertEquals(
+			"INSERT INTO t (id, nome) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET nome = EXCLUDED.nome",
+			Dialects.forName(Dialects.POSTGRESQL).upsert("t", new String[]{"id", "nome"}, new String[]{"?", "?"}, KEY, new String[]{"nome"}));
+		assertEquals(
+			"INSERT INTO t (id) VALUES (?) ON CONFLICT (id) DO NOTHING",
+			Dialects.forName(Dialects.POSTGRESQL).upsert("t", new String[]{"id"}, new String[]{"?"}, KEY, new String[0]));
+		assertTrue(Dialects.forName(Dialects.ORACLE).upsert("t", COLUMNS, VALUES, KEY, new String[]{"nome", "eta"}).contains(" FROM DUAL)"));
+		assertTrue(Dialects.forName(Dialects.SQLSERVER).upsert("t", COLUMNS, VALUES, KEY, new String[]{"nome", "eta"}).startsWith("MERGE INTO t WITH (HOLDLOCK)"));
+	}
+
+	@Test(expected = IllegalOperationException.class)
+	public void upsertRequiresMetadata()
+	throws Exception {
+		this.dao(true).upsert("inserisci", 1, "Mario", 30);
+	}
+
+	@Test
+	public void constraintErrors()
+	throws Exception {
+		PropertyFileDAO dao = this.dao(true);
+		dao.write("inserisci", 1, "Mario", 30);
+
+		try {
+			dao.write("inserisci", 1, "Luigi", 40);
+			fail();
+		} catch (DuplicatedKeyException e) {
+			assertEquals(SqlErrorType.DUPLICATE_KEY, SqlErrors.classify(e));
+		}
+
+		// Un upsert viola comunque gli altri vincoli di unicita'
+		try {
+			dao.upsert("salva", 2, "Mario", 40);
+			fail();
+		} catch (DuplicatedKeyException e) {
+			assertTrue(SqlErrors.isDuplicateKey(e));
+		}
+
+		this.assertViolation(SqlErrorType.FOREIGN_KEY, "INSERT INTO figli VALUES (1, 99)");
+		this.assertViolation(SqlErrorType.NOT_NULL, "INSERT INTO persone (id, nome) VALUES (3, NULL)");
+	}
+
+	private void assertViolation(SqlErrorType type, String sql)
+	throws Exception {
+		try {
+			this.connector.executeUpdate(sql);
+			fail(sql);
+		} catch (SqlQueryException e) {
+			assertEquals(type, SqlErrors.classify(e));
+			assertTrue(type.isConstraint());
+		}
+	}
+
+	private long count()
+	throws Exception {
+		return ((Number) this.dao(true).getSingle("conta").get("N")).longValue();
+	}
+
+	private PropertyFileDAO dao(boolean bind) {
+		PropertyFileDAO dao = new PropertyFileDAO("upsert.properties", this.connector);
+		dao.setBindParameters(bind);
+		return dao;
+	}
+}
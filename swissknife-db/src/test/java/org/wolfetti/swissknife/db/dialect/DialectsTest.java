@@ -0,0 +1,117 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.dialect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.exceptions.DbInitializationException;
+
+/**
+ * Test dei dialetti SQL e della loro scelta.
+ *
+ * @author Fabio Frijo
+ */
+public class DialectsTest {
+	private static final String SQL = "SELECT id, nome FROM persone";
+
+	@Test
+	public void offsetPagination() {
+		assertEquals(SQL + " LIMIT 10", Dialects.forName("mysql").limit(SQL, 0, 10));
+		assertEquals(SQL + " LIMIT 20, 10", Dialects.forName("mysql").limit(SQL, 20, 10));
+		assertEquals(SQL + " LIMIT 10 OFFSET 20", Dialects.forName("postgresql").limit(SQL, 20, 10));
+		assertEquals(SQL + " LIMIT 10 OFFSET 20", Dialects.forName("h2").limit(SQL, 20, 10));
+		assertEquals(SQL + " OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY", Dialects.forName("oracle").limit(SQL, 20, 10));
+		assertEquals(
+			SQL + " ORDER BY (SELECT NULL) OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY",
+			Dialects.forName("sqlserver").limit(SQL, 20, 10)
+		);
+		assertEquals(
+			SQL + " ORDER BY id OFFSET 0 ROWS FETCH NEXT 10 ROWS ONLY",
+			Dialects.forName("sqlserver").limit(SQL + " ORDER BY id", 0, 10)
+		);
+	}
+
+	@Test
+	public void keysetPagination() {
+		Dialect dialect = Dialects.forName(Dialects.POSTGRESQL);
+
+		assertEquals(SQL + " ORDER BY id ASC LIMIT 10", dialect.seek(SQL + " ORDER BY nome", "id", false, false, 10));
+		assertEquals(SQL + " WHERE id > ? ORDER BY id ASC LIMIT 10", dialect.seek(SQL, "id", false, true, 10));
+		assertEquals(
+			SQL + " WHERE (eta > 18 OR eta IS NULL) AND id < ? ORDER BY id DESC LIMIT 10",
+			dialect.seek(SQL + " WHERE eta > 18 OR eta IS NULL ORDER BY nome", "id", true, true, 10)
+		);
+		assertEquals(
+			"SELECT * FROM (SELECT eta, COUNT(*) n FROM persone GROUP BY eta) sk_page WHERE eta > ? ORDER BY eta ASC LIMIT 10",
+			dialect.seek("SELECT eta, COUNT(*) n FROM persone GROUP BY eta", "eta", false, true, 10)
+		);
+	}
+
+	@Test
+	public void countQuery() {
+		assertEquals(
+			"SELECT COUNT(*) FROM (" + SQL + ") sk_count",
+			Dialects.forName(Dialects.MYSQL).count(SQL + " ORDER BY nome")
+		);
+	}
+
+	@Test
+	public void dialectsAreShared() {
+		assertSame(Dialects.forName(Dialects.ORACLE), Dialects.forName(Dialects.ORACLE));
+		assertTrue(Dialects.forName(H2Dialect.class.getName()) instanceof H2Dialect);
+	}
+
+	@Test
+	public void invalidDialect() {
+		try {
+			Dialects.forName("java.lang.String");
+			fail();
+		} catch (DbInitializationException e) {
+			// Atteso
+		}
+	}
+
+	@Test
+	public void dialectIsDetectedOrConfigured() {
+		DbConnector detected = TestDatabase.open("dialects", false);
+		try {
+			assertEquals(Dialects.H2, detected.getDialect().getName());
+		} finally {
+			detected.close();
+		}
+
+		BaseConfiguration conf = TestDatabase.configuration("dialects");
+		conf.setProperty(DB.KEY_DIALECT, "PostgreSql");
+
+		DbConnector configured = TestDatabase.open(conf, false);
+		try {
+			assertEquals(Dialects.POSTGRESQL, configured.getDialect().getName());
+		} finally {
+			configured.close();
+		}
+	}
+}
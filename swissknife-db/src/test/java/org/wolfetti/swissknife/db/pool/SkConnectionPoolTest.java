@@ -0,0 +1,314 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.h2.jdbc.JdbcPreparedStatement;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+
+/**
+ * Test del connection pool nativo {@link SkConnectionPool} su un database H2 in memoria.
+ *
+ * @author Fabio Frijo
+ */
+public class SkConnectionPoolTest {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private SkConnectionPool pool;
+
+	@Before
+	public void setUp() {
+		BaseConfiguration conf = new BaseConfiguration();
+		conf.setProperty(DB.KEY_DRIVER, "org.h2.Driver");
+		conf.setProperty(DB.KEY_URL, "jdbc:h2:mem:pool" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+		conf.setProperty(DB.KEY_USER, "sa");
+		conf.setProperty(DB.KEY_PASSWORD, "");
+		conf.setProperty(DB.KEY_MIN_POOLSIZE, "0");
+		conf.setProperty(DB.KEY_MAX_POOLSIZE, "4");
+		conf.setProperty(DB.KEY_POOL_ACQUIRE_TIMEOUT, "200");
+
+		this.pool = new SkConnectionPool(conf);
+	}
+
+	@After
+	public void tearDown() {
+		this.pool.close();
+	}
+
+	@Test
+	public void releasedConnectionIsReused()
+	throws SQLException {
+		Connection first = this.pool.getConnection();
+		assertEquals(1, this.pool.getActiveConnections());
+		first.close();
+
+		assertEquals(0, this.pool.getActiveConnections());
+		assertEquals(1, this.pool.getIdleConnections());
+
+		Connection second = this.pool.getConnection();
+		assertEquals(1, this.pool.getTotalConnections());
+		second.close();
+	}
+
+	@Test
+	public void closeIsIdempotent()
+	throws SQLException {
+		Connection connection = this.pool.getConnection();
+		connection.close();
+		connection.close();
+
+		assertTrue(connection.isClosed());
+		assertEquals(1, this.pool.getIdleConnections());
+	}
+
+	@Test
+	public void exhaustedPoolTimesOut()
+	throws SQLException {
+		List<Connection> borrowed = new ArrayList<Connection>();
+		for(int i = 0; i < 4; i++){
+			borrowed.add(this.pool.getConnection());
+		}
+
+		long start = System.currentTimeMillis();
+		try {
+			this.pool.getConnection();
+			fail("Il pool esaurito deve rifiutare la connessione");
+		} catch (SQLException e) {
+			assertTrue(System.currentTimeMillis() - start >= 150);
+		}
+
+		for(Connection connection : borrowed){
+			connection.close();
+		}
+
+		assertEquals(4, this.pool.getIdleConnections());
+	}
+
+	@Test
+	public void childObjectsReturnTheProxy()
+	throws SQLException {
+		Connection connection = this.pool.getConnection();
+
+		try {
+			Statement st = connection.createStatement();
+			ResultSet rs = st.executeQuery("SELECT 1");
+
+			assertSame(connection, st.getConnection());
+			assertSame(st, rs.getStatement());
+			assertSame(connection, connection.getMetaData().getConnection());
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void statementsDelegateWithoutReflection()
+	throws SQLException {
+		Connection connection = this.pool.getConnection();
+
+		try {
+			PreparedStatement ps = connection.prepareStatement("SELECT ?");
+			ps.setInt(1, 7);
+			ResultSet rs = ps.executeQuery();
+
+			assertFalse(Proxy.isProxyClass(ps.getClass()));
+			assertFalse(Proxy.isProxyClass(rs.getClass()));
+			assertSame(connection, ps.getConnection());
+			assertSame(ps, rs.getStatement());
+			assertTrue(rs.next());
+			assertEquals(7, rs.getInt(1));
+
+			CallableStatement cs = connection.prepareCall("SELECT 1");
+			assertSame(connection, cs.getConnection());
+
+			// Lo statement fisico resta raggiungibile tramite unwrap
+			assertTrue(ps.isWrapperFor(JdbcPreparedStatement.class));
+			assertTrue(ps.unwrap(PreparedStatement.class) instanceof JdbcPreparedStatement);
+
+			DatabaseMetaData metaData = connection.getMetaData();
+			assertSame(connection, metaData.getConnection());
+			assertFalse(Proxy.isProxyClass(metaData.getClass()));
+			metaData.getTables(null, null, "%", null).close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void unclosedStatementsAreClosedOnRelease()
+	throws SQLException {
+		Connection connection = this.pool.getConnection();
+		Statement st = connection.createStatement();
+		ResultSet rs = st.executeQuery("SELECT 1");
+		PreparedStatement ps = connection.prepareStatement("SELECT 2");
+		Statement closed = connection.createStatement();
+		closed.close();
+		connection.close();
+
+		assertTrue(st.isClosed());
+		assertTrue(rs.isClosed());
+		assertTrue(ps.isClosed());
+
+		// La connessione successiva non eredita gli statement del chiamante precedente
+		connection = this.pool.getConnection();
+		try {
+			Statement other = connection.createStatement();
+			st.close();
+			assertFalse(other.isClosed());
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void borrowerSettingsAreReset()
+	throws SQLException {
+		Connection connection = this.pool.getConnection();
+		int isolation = connection.getTransactionIsolation();
+		int changed = isolation == Connection.TRANSACTION_SERIALIZABLE ? Connection.TRANSACTION_READ_COMMITTED : Connection.TRANSACTION_SERIALIZABLE;
+
+		connection.setAutoCommit(false);
+		connection.setReadOnly(true);
+		connection.setTransactionIsolation(changed);
+		connection.close();
+
+		connection = this.pool.getConnection();
+		try {
+			assertEquals(1, this.pool.getTotalConnections());
+			assertTrue(connection.getAutoCommit());
+			assertFalse(connection.isReadOnly());
+			assertEquals(isolation, connection.getTransactionIsolation());
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void uncommittedWorkIsRolledBack()
+	throws SQLException {
+		Connection connection = this.pool.getConnection();
+		connection.createStatement().execute("CREATE TABLE t (id INT)");
+		connection.setAutoCommit(false);
+		connection.createStatement().execute("INSERT INTO t VALUES (1)");
+		connection.close();
+
+		connection = this.pool.getConnection();
+		try {
+			ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM t");
+			rs.next();
+			assertEquals(0, rs.getInt(1));
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void concurrentBorrowersShareTheConnections()
+	throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+		try {
+			for(int i = 0; i < 16; i++){
+				results.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call()
+					throws SQLException {
+						int ok = 0;
+
+						for(int j = 0; j < 50; j++){
+							Connection connection = SkConnectionPoolTest.this.acquire();
+
+							try {
+								ResultSet rs = connection.createStatement().executeQuery("SELECT 1");
+								rs.next();
+								ok += rs.getInt(1);
+							} finally {
+								connection.close();
+							}
+						}
+
+						return ok;
+					}
+				}));
+			}
+
+			int ok = 0;
+			for(Future<Integer> result : results){
+				ok += result.get(30, TimeUnit.SECONDS).intValue();
+			}
+
+			assertEquals(16 * 50, ok);
+			assertTrue(this.pool.getTotalConnections() <= 4);
+			assertEquals(0, this.pool.getActiveConnections());
+			assertEquals(0, this.pool.getWaitingThreads());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(expected = SQLException.class)
+	public void closedPoolRejectsRequests()
+	throws SQLException {
+		this.pool.close();
+		this.pool.getConnection();
+	}
+
+	/**
+	 * Richiede una connessione ripetendo la richiesta se il pool &egrave; momentaneamente esaurito.
+	 */
+	private Connection acquire()
+	throws SQLException {
+		for(int attempt = 0; ; attempt++){
+			try {
+				return this.pool.getConnection();
+			} catch (SQLException e) {
+				if(attempt >= 50){
+					throw e;
+				}
+			}
+		}
+	}
+}
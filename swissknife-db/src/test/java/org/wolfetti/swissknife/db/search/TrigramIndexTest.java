@@ -0,0 +1,200 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.entities.Search;
+import org.wolfetti.swissknife.db.entities.SearchType;
+import org.wolfetti.swissknife.db.exceptions.IllegalOperationException;
+
+/**
+ * Test dell'indice per trigrammi: i risultati devono coincidere con quelli della ricerca LIKE su H2.
+ *
+ * @author Fabio Frijo
+ */
+public class TrigramIndexTest {
+	private static final String[] WORDS = {
+		"Rosso", "rossiccio", "VERDE", "verdastro", "blu", "Azzurro", "giallo", "ocra", "bianco", "nero", "a", "ab"
+	};
+
+	private static final String[] TERMS = {
+		"ros", "ROSSO", "sso", "ver", "verde chiaro", "zz", "a", "blu", "bianco nero", "xyz", "o", "ro ss"
+	};
+
+	private static int databases = 0;
+
+	private DbConnector connector;
+	private TrigramIndex index;
+
+	@Before
+	public void setUp() throws Exception {
+		String name = "trigram" + (++databases);
+		BaseConfiguration conf = TestDatabase.configuration(name);
+
+		// Le ricerche dell'indice non distinguono tra maiuscole e minuscole
+		conf.setProperty(DB.KEY_URL, TestDatabase.url(name) + ";IGNORECASE=TRUE");
+
+		connector = TestDatabase.open(conf, false);
+		connector.executeUpdate("CREATE TABLE prodotti (id INT PRIMARY KEY, codice VARCHAR(40), descrizione VARCHAR(200), versione INT)");
+
+		Random random = new Random(42);
+		for(int id = 1; id <= 2000; id++){
+			connector.executeUpdate("INSERT INTO prodotti VALUES (?, ?, ?, 1)",
+				id, WORDS[random.nextInt(WORDS.length)] + id, phrase(random));
+		}
+
+		index = new TrigramIndex("prodotti", "id", "codice", "descrizione");
+		index.setUpdatedColumn("versione");
+		index.setChunkSize(64);
+		index.build(connector);
+	}
+
+	@After
+	public void tearDown() {
+		connector.close();
+	}
+
+	@Test
+	public void matchesDatabaseSearch() throws Exception {
+		assertEquals(2000, index.size());
+		assertTrue(index.getTrigramCount() > 0);
+
+		List<List<String>> columns = Arrays.asList(
+			Collections.singletonList("codice"),
+			Collections.singletonList("descrizione"),
+			Arrays.asList("codice", "descrizione"));
+
+		for(SearchType type : SearchType.values()){
+			for(List<String> cols : columns){
+				for(String term : TERMS){
+					Search search = new Search(term, null, cols, type);
+					assertEquals(type + " " + cols + " '" + term + "'", database(search), new HashSet<Object>(index.search(search)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void searchWithoutTermsReturnsEverything() {
+		assertEquals(2000, index.search(new Search("  ", null, Collections.singletonList("codice"), SearchType.CONTAINS)).size());
+	}
+
+	@Test
+	public void findReadsMatchingRowsInChunks() throws Exception {
+		Search search = new Search("rosso", null, Collections.singletonList("descrizione"), SearchType.CONTAINS);
+		Set<Object> expected = database(search);
+
+		List<Map<String, Object>> rows = index.find(connector, search);
+		assertEquals(expected.size(), rows.size());
+		assertTrue(expected.size() > 64);
+
+		for(Map<String, Object> row : rows){
+			assertTrue(expected.contains(((Number) row.get("ID")).longValue()));
+		}
+	}
+
+	@Test
+	public void incrementalRefresh() throws Exception {
+		Search search = new Search("turchese", null, Collections.singletonList("descrizione"), SearchType.CONTAINS);
+		assertTrue(index.search(search).isEmpty());
+
+		connector.executeUpdate("UPDATE prodotti SET descrizione = 'Turchese', versione = 2 WHERE id IN (7, 8)");
+		index.refresh(connector);
+		assertEquals(new HashSet<Object>(Arrays.<Object>asList(7L, 8L)), new HashSet<Object>(index.search(search)));
+
+		// Vengono rilette solo le righe con versione uguale o successiva all'ultima letta
+		connector.executeUpdate("UPDATE prodotti SET descrizione = 'turchese scuro', versione = 3 WHERE id = 10");
+		assertEquals(3, index.refresh(connector));
+		assertEquals(3, index.search(search).size());
+		connector.executeUpdate("UPDATE prodotti SET descrizione = 'nero', versione = 4 WHERE id = 10");
+		assertEquals(1, index.refresh(connector));
+
+		connector.executeUpdate("DELETE FROM prodotti WHERE id = 7");
+		connector.executeUpdate("UPDATE prodotti SET descrizione = 'turchese chiaro' WHERE id = 9");
+		index.refresh(connector, 7, 9);
+		assertEquals(new HashSet<Object>(Arrays.<Object>asList(8L, 9L)), new HashSet<Object>(index.search(search)));
+		assertEquals(1999, index.size());
+
+		index.remove(8);
+		assertEquals(Collections.<Object>singletonList(9L), index.search(search));
+		assertEquals(1998, index.size());
+	}
+
+	@Test
+	public void compactionKeepsResults() throws Exception {
+		connector.executeUpdate("UPDATE prodotti SET descrizione = CONCAT(descrizione, ' lilla'), versione = 2");
+		index.refresh(connector);
+		connector.executeUpdate("UPDATE prodotti SET versione = 3");
+		index.refresh(connector);
+
+		Search search = new Search("lilla verde", null, Collections.singletonList("descrizione"), SearchType.CONTAINS);
+		assertEquals(database(search), new HashSet<Object>(index.search(search)));
+		assertEquals(2000, index.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownColumn() {
+		index.search(new Search("rosso", null, Collections.singletonList("prezzo"), SearchType.CONTAINS));
+	}
+
+	@Test(expected = IllegalOperationException.class)
+	public void searchBeforeBuild() {
+		new TrigramIndex("prodotti", "id", "codice").search(new Search("rosso", null, null, SearchType.CONTAINS));
+	}
+
+	private Set<Object> database(Search search) throws Exception {
+		Set<Object> result = new HashSet<Object>();
+		String where = search.getCondition();
+		ResultSet rs = connector.preparedQuery("SELECT id FROM prodotti" + (where.isEmpty() ? "" : " WHERE " + where), search.getParameters());
+
+		while(rs.next()){
+			result.add(rs.getLong(1));
+		}
+
+		return result;
+	}
+
+	private static String phrase(Random random) {
+		StringBuilder phrase = new StringBuilder();
+
+		for(int w = random.nextInt(4); w >= 0; w--){
+			phrase.append(phrase.length() > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+		}
+
+		return phrase.toString();
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.entities.ConnectorHolder;
+
+/**
+ * Test della chiusura dei connettori e del tracciamento dei connettori aperti.
+ *
+ * @author Fabio Frijo
+ */
+public class ConnectorTrackerTest {
+	private static final String DATASOURCE = "tracker";
+
+	private ConnectorTracker tracker;
+
+	@Before
+	public void setUp() {
+		this.tracker = ConnectorTracker.get();
+		this.tracker.setLeakThresholdMillis(ConnectorTracker.DEFAULT_LEAK_THRESHOLD_MILLIS);
+	}
+
+	@After
+	public void tearDown() {
+		this.tracker.setLeakThresholdMillis(ConnectorTracker.DEFAULT_LEAK_THRESHOLD_MILLIS);
+	}
+
+	@Test
+	public void connectorsAreAutoCloseable()
+	throws Exception {
+		DbConnector connector;
+
+		try (DbConnector c = TestDatabase.open(DATASOURCE, false)) {
+			connector = c;
+			assertFalse(c.isClosed());
+		}
+
+		assertTrue(connector.isClosed());
+
+		// Le chiusure successive non hanno effetto
+		connector.close();
+		assertTrue(connector.isClosed());
+	}
+
+	@Test
+	public void openConnectorsAreTracked()
+	throws Exception {
+		int open = this.tracker.getOpenConnectors();
+		long released = this.tracker.getReleased();
+
+		DbConnector connector = open();
+		try {
+			assertEquals(open + 1, this.tracker.getOpenConnectors());
+
+			ConnectorHolder holder = this.holder();
+			assertFalse(holder.isTransaction());
+			assertEquals(Thread.currentThread().getName(), holder.getThread());
+
+			// Lo stack parte dal primo chiamante esterno alla libreria (qui il runner, perche' il test e' nel package della libreria)
+			assertFalse(holder.getStack()[0].getClassName().startsWith("org.wolfetti.swissknife.db."));
+		} finally {
+			connector.close();
+		}
+
+		connector.close();
+		assertEquals(open, this.tracker.getOpenConnectors());
+		assertEquals(released + 1, this.tracker.getReleased());
+	}
+
+	@Test(timeout = 30000)
+	public void overdueConnectorsAreReported()
+	throws Exception {
+		long warnings = this.tracker.getLeakWarnings();
+
+		DbConnector connector = open();
+		try {
+			this.tracker.setLeakThresholdMillis(0);
+
+			while(this.tracker.getLeakWarnings() == warnings){
+				Thread.sleep(100);
+			}
+
+			assertTrue(this.tracker.getOverdueConnectors() > 0);
+		} finally {
+			connector.close();
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void collectedConnectorsAreReported()
+	throws Exception {
+		long collected = this.tracker.getCollectedUnclosed();
+		int open = this.tracker.getOpenConnectors();
+
+		open();
+
+		while(this.tracker.getCollectedUnclosed() == collected){
+			System.gc();
+			Thread.sleep(100);
+		}
+
+		assertEquals(open, this.tracker.getOpenConnectors());
+	}
+
+	@Test
+	public void registeredAsMBean()
+	throws Exception {
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(ConnectorTracker.OBJECT_NAME)));
+	}
+
+	private ConnectorHolder holder() {
+		ConnectorHolder result = null;
+
+		for(ConnectorHolder holder : this.tracker.getHolders()){
+			if(result == null || holder.getId() > result.getId()){
+				result = holder;
+			}
+		}
+
+		return result;
+	}
+
+	private static DbConnector open() {
+		BaseConfiguration conf = TestDatabase.configuration(DATASOURCE);
+		conf.setProperty(DB.KEY_LEAK_DETECTION, "true");
+		return TestDatabase.open(conf, false);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test dell'impostazione dei parametri di {@link ParameterBinder}.
+ *
+ * @author Fabio Frijo
+ */
+public class ParameterBinderTest {
+
+	/**
+	 * I valori <code>null</code> utilizzano il tipo del parametro fornito dal driver.
+	 */
+	@Test
+	public void nullsUseTheParameterType()
+	throws Exception {
+		Connection connection = DriverManager.getConnection("jdbc:h2:mem:binder;DB_CLOSE_DELAY=-1");
+
+		try {
+			connection.createStatement().execute("CREATE TABLE eventi (id INT, nota VARCHAR(50), quando TIMESTAMP, importo DECIMAL(10, 2))");
+
+			List<Integer> types = new ArrayList<Integer>();
+			PreparedStatement ps = recording(connection.prepareStatement("INSERT INTO eventi (id, nota, quando, importo) VALUES (?, ?, ?, ?)"), types);
+			ParameterBinder.bind(ps, 1, null, null, null);
+			assertEquals(1, ps.executeUpdate());
+			assertEquals(Arrays.asList(Types.VARCHAR, Types.TIMESTAMP, Types.DECIMAL), types);
+
+			ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM eventi WHERE nota IS NULL AND quando IS NULL AND importo IS NULL");
+			assertTrue(rs.next());
+			assertEquals(1, rs.getInt(1));
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Senza metadati dei parametri i valori <code>null</code> vengono impostati come <code>VARCHAR</code>.
+	 */
+	@Test
+	public void nullsFallBackToVarchar()
+	throws Exception {
+		List<Integer> types = new ArrayList<Integer>();
+		PreparedStatement ps = recording(null, types);
+
+		ParameterBinder.bind(ps, null, "valore", null);
+
+		assertEquals(Arrays.asList(Types.VARCHAR, Types.VARCHAR), types);
+	}
+
+	/**
+	 * Registra i tipi passati a <code>setNull</code>; senza statement in ingresso i metadati dei parametri non sono supportati.
+	 */
+	private static PreparedStatement recording(final PreparedStatement target, final List<Integer> types){
+		return (PreparedStatement) Proxy.newProxyInstance(ParameterBinderTest.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args)
+			throws Throwable {
+				if("setNull".equals(method.getName())){
+					types.add((Integer) args[1]);
+				}
+
+				if(target == null){
+					if("getParameterMetaData".equals(method.getName())){
+						throw new SQLFeatureNotSupportedException();
+					}
+
+					return null;
+				}
+
+				try {
+					return method.invoke(target, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.wolfetti.swissknife.db.entities.Search;
+import org.wolfetti.swissknife.db.entities.SearchType;
+
+/**
+ * Test della compilazione delle condizioni di ricerca con <code>LIKE ... ESCAPE</code> di {@link SearchCompiler}.
+ *
+ * @author Fabio Frijo
+ */
+public class SearchCompilerTest {
+
+	@Test
+	public void conditionHasOneParameterPerTermAndColumn() {
+		String condition = SearchCompiler.compile(Arrays.asList("nome", "cognome"), "AND", 2);
+
+		assertEquals(
+			" AND ((nome LIKE ? ESCAPE '!' OR cognome LIKE ? ESCAPE '!') AND (nome LIKE ? ESCAPE '!' OR cognome LIKE ? ESCAPE '!'))",
+			condition
+		);
+	}
+
+	@Test
+	public void conditionWithoutOperator() {
+		assertEquals(" ((nome LIKE ? ESCAPE '!'))", SearchCompiler.compile(Collections.singletonList("nome"), null, 1));
+	}
+
+	@Test
+	public void emptySearchHasNoCondition() {
+		assertEquals("", SearchCompiler.compile(Collections.singletonList("nome"), "AND", 0));
+		assertEquals("", SearchCompiler.compile(Collections.<String>emptyList(), "AND", 1));
+	}
+
+	@Test
+	public void compiledConditionsAreReused() {
+		List<String> columns = Arrays.asList("nome", "cognome");
+
+		assertSame(SearchCompiler.compile(columns, "AND", 3), SearchCompiler.compile(new ArrayList<String>(columns), "AND", 3));
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void searchConditionAndLegacyQuery() {
+		Search search = new Search("50% mario", "AND", Arrays.asList("nome", "cognome"), SearchType.STARTS);
+
+		assertEquals(SearchCompiler.compile(Arrays.asList("nome", "cognome"), "AND", 2), search.getCondition());
+		assertArrayEquals(new Object[]{"50!%%", "50!%%", "mario%", "mario%"}, search.getParameters());
+		assertEquals(" AND (nome = '50\\% mario%' OR cognome = '50\\% mario%')", search.getQuery());
+		assertTrue(search.toString().contains("query=50% mario"));
+	}
+
+	@Test
+	public void wildcardsAreEscaped() {
+		assertEquals("100!%", SearchCompiler.escape("100%"));
+		assertEquals("a!_b", SearchCompiler.escape("a_b"));
+		assertEquals("ciao!!", SearchCompiler.escape("ciao!"));
+		assertEquals("mario", SearchCompiler.escape("mario"));
+	}
+
+	@Test
+	public void termsAreSplitOnSpacesAndQuotes() {
+		assertEquals(Arrays.asList("mario", "rossi"), SearchCompiler.tokenize("  mario   rossi "));
+		assertEquals(Arrays.asList("via roma", "10"), SearchCompiler.tokenize("\"via roma\" 10"));
+		assertEquals(Arrays.asList("aperta"), SearchCompiler.tokenize("\"aperta"));
+		assertTrue(SearchCompiler.tokenize("   ").isEmpty());
+		assertTrue(SearchCompiler.tokenize(null).isEmpty());
+	}
+
+	@Test
+	public void parametersFollowTheSearchType() {
+		List<String> terms = Arrays.asList("ma", "50%");
+
+		assertArrayEquals(new Object[]{"ma%", "ma%", "50!%%", "50!%%"}, SearchCompiler.parameters(terms, 2, SearchType.STARTS));
+		assertArrayEquals(new Object[]{"%ma%", "%50!%%"}, SearchCompiler.parameters(terms, 1, SearchType.CONTAINS));
+		assertArrayEquals(new Object[]{"%ma", "%50!%"}, SearchCompiler.parameters(terms, 1, SearchType.ENDS));
+	}
+
+	@Test
+	public void wildcardsMatchLiterallyOnTheDatabase()
+	throws SQLException {
+		Connection connection = DriverManager.getConnection("jdbc:h2:mem:search", "sa", "");
+
+		try {
+			Statement st = connection.createStatement();
+			st.execute("CREATE TABLE prodotti (nome VARCHAR(50))");
+			st.execute("INSERT INTO prodotti VALUES ('sconto 50%'), ('sconto 500'), ('a_b'), ('axb'), ('punto!')");
+
+			assertEquals(Arrays.asList("sconto 50%"), search(connection, "50%"));
+			assertEquals(Arrays.asList("a_b"), search(connection, "a_b"));
+			assertEquals(Arrays.asList("punto!"), search(connection, "!"));
+			assertEquals(Arrays.asList("sconto 50%", "sconto 500"), search(connection, "sconto 50"));
+		} finally {
+			connection.close();
+		}
+	}
+
+	private static List<String> search(Connection connection, String query)
+	throws SQLException {
+		List<String> terms = SearchCompiler.tokenize(query);
+		List<String> columns = Collections.singletonList("nome");
+		Object[] parameters = SearchCompiler.parameters(terms, columns.size(), SearchType.CONTAINS);
+
+		PreparedStatement ps = connection.prepareStatement(
+			"SELECT nome FROM prodotti WHERE 1 = 1" + SearchCompiler.compile(columns, "AND", terms.size()) + " ORDER BY nome"
+		);
+
+		try {
+			for(int i = 0; i < parameters.length; i++){
+				ps.setObject(i + 1, parameters[i]);
+			}
+
+			List<String> result = new ArrayList<String>();
+			ResultSet rs = ps.executeQuery();
+			while(rs.next()){
+				result.add(rs.getString(1));
+			}
+
+			return result;
+		} finally {
+			ps.close();
+		}
+	}
+}
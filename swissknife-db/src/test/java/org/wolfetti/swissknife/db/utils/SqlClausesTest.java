@@ -0,0 +1,101 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Test;
+
+/**
+ * Test di {@link SqlClauses}.
+ *
+ * @author Fabio Frijo
+ */
+public class SqlClausesTest {
+
+	@Test
+	public void nestedClausesAreSkipped() {
+		String sql = "SELECT a.id, (SELECT MAX(b.x) FROM b WHERE b.id = a.id ORDER BY b.x) AS m FROM a WHERE a.n = 'where' ORDER BY a.id";
+
+		assertEquals(sql.indexOf("WHERE a.n"), SqlClauses.indexOf(sql, "WHERE"));
+		assertEquals(sql.lastIndexOf("ORDER BY"), SqlClauses.indexOf(sql, "ORDER BY"));
+		assertFalse(SqlClauses.contains(sql, "GROUP BY"));
+	}
+
+	@Test
+	public void literalsAndCommentsAreSkipped() {
+		String sql = "SELECT 'ORDER BY' AS \"group by\" /* WHERE */ FROM t -- HAVING\n WHERE x = 1";
+
+		assertFalse(SqlClauses.contains(sql, "ORDER BY"));
+		assertFalse(SqlClauses.contains(sql, "GROUP BY"));
+		assertFalse(SqlClauses.contains(sql, "HAVING"));
+		assertEquals(sql.indexOf("WHERE x"), SqlClauses.indexOf(sql, "WHERE"));
+	}
+
+	@Test
+	public void keywordsAreCaseInsensitiveAndWholeWords() {
+		assertTrue(SqlClauses.contains("select * from t group\n  by x", "GROUP BY"));
+		assertFalse(SqlClauses.contains("SELECT orderby FROM t", "ORDER BY"));
+		assertFalse(SqlClauses.contains("SELECT * FROM t_where", "WHERE"));
+	}
+
+	@Test
+	public void orderByIsRemoved() {
+		assertEquals("SELECT * FROM t", SqlClauses.removeOrderBy("SELECT * FROM t ORDER BY id DESC"));
+		assertEquals("SELECT * FROM t LIMIT 10", SqlClauses.removeOrderBy("SELECT * FROM t ORDER BY id LIMIT 10"));
+		assertEquals("SELECT * FROM t FOR UPDATE", SqlClauses.removeOrderBy("SELECT * FROM t ORDER BY a, b FOR UPDATE"));
+		assertEquals(
+			"SELECT * FROM (SELECT * FROM t ORDER BY id) x",
+			SqlClauses.removeOrderBy("SELECT * FROM (SELECT * FROM t ORDER BY id) x")
+		);
+	}
+
+	@Test
+	public void firstKeyword() {
+		assertEquals("SELECT", SqlClauses.firstKeyword("  select 1"));
+		assertEquals("INSERT", SqlClauses.firstKeyword("/* nota */ -- riga\n insert into t values (1)"));
+		assertEquals("SELECT", SqlClauses.firstKeyword("((SELECT 1) UNION (SELECT 2))"));
+		assertEquals("", SqlClauses.firstKeyword("?"));
+	}
+
+	@Test
+	public void firstKeywordIgnoresTheDefaultLocale() {
+		Locale locale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+
+		try {
+			assertEquals("INSERT", SqlClauses.firstKeyword("insert into t values (1)"));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	@Test
+	public void splitIgnoresNestedCommas() {
+		assertEquals(
+			Arrays.asList("?", "'a,b'", "COALESCE(?, 0)", "\"x,y\""),
+			SqlClauses.split(" ?, 'a,b', COALESCE(?, 0), \"x,y\" ")
+		);
+	}
+}
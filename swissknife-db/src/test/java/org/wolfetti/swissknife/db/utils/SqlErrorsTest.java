@@ -0,0 +1,131 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.entities.SqlErrorType;
+
+/**
+ * Test della classificazione degli errori SQL e dell'attesa tra i tentativi.
+ *
+ * @author Fabio Frijo
+ */
+public class SqlErrorsTest {
+
+	@Test
+	public void sqlStates() {
+		assertEquals(SqlErrorType.DEADLOCK, SqlErrors.classify(new SQLException("x", "40001")));
+		assertEquals(SqlErrorType.DEADLOCK, SqlErrors.classify(new SQLException("x", "40P01")));
+		assertEquals(SqlErrorType.LOCK_TIMEOUT, SqlErrors.classify(new SQLException("x", "55P03")));
+		assertEquals(SqlErrorType.CONNECTION, SqlErrors.classify(new SQLException("x", "08S01")));
+		assertEquals(SqlErrorType.CONNECTION, SqlErrors.classify(new SQLException("x", "57P01")));
+		assertEquals(SqlErrorType.OTHER, SqlErrors.classify(new SQLException("x", "42000")));
+	}
+
+	@Test
+	public void constraintStates() {
+		assertEquals(SqlErrorType.DUPLICATE_KEY, SqlErrors.classify(new SQLException("x", "23505")));
+		assertEquals(SqlErrorType.FOREIGN_KEY, SqlErrors.classify(new SQLException("x", "23503")));
+		assertEquals(SqlErrorType.NOT_NULL, SqlErrors.classify(new SQLException("x", "23502")));
+		assertEquals(SqlErrorType.CONSTRAINT, SqlErrors.classify(new SQLException("x", "23514")));
+
+		// MySQL restituisce 23000 per tutti i vincoli: vale il codice del driver
+		assertEquals(SqlErrorType.CONSTRAINT, SqlErrors.classify(new SQLException("x", "23000")));
+		assertFalse(SqlErrors.isTransient(new SQLException("x", "23505")));
+	}
+
+	@Test
+	public void exceptionClasses() {
+		assertEquals(SqlErrorType.DEADLOCK, SqlErrors.classify(new SQLTransactionRollbackException("x")));
+		assertEquals(SqlErrorType.CONNECTION, SqlErrors.classify(new SQLRecoverableException("x")));
+
+		// I timeout delle query non sono transitori
+		assertFalse(SqlErrors.isTransient(new SQLTimeoutException("x")));
+	}
+
+	@Test
+	public void vendorCodesApplyOnlyToTheirDriver() {
+		// 1205 e' un lock timeout su MySQL e un deadlock su SQL Server: senza driver non viene riconosciuto
+		assertEquals(SqlErrorType.OTHER, SqlErrors.classify(new SQLException("x", null, 1205)));
+	}
+
+	@Test
+	public void causesAndChainsAreExamined() {
+		SQLException head = new SQLException("batch", "22001");
+		head.setNextException(new SQLException("x", "40001"));
+		assertEquals(SqlErrorType.DEADLOCK, SqlErrors.classify(head));
+
+		RuntimeException wrapped = new RuntimeException(new IllegalStateException(new SQLException("x", "08001")));
+		assertTrue(SqlErrors.isTransient(wrapped));
+
+		assertEquals(SqlErrorType.OTHER, SqlErrors.classify(new RuntimeException("x")));
+	}
+
+	@Test
+	public void backoffIsBoundedWithJitter() {
+		BaseConfiguration conf = new BaseConfiguration();
+		conf.setProperty(DB.KEY_NAME, "sqlErrorsTest");
+		conf.setProperty(DB.KEY_RETRY_DELAY, "20");
+		conf.setProperty(DB.KEY_RETRY_MAX_DELAY, "100");
+		RetryPolicy policy = RetryPolicy.get(conf);
+
+		for(int i = 0; i < 100; i++){
+			assertBetween(10, 20, policy.delay(1));
+			assertBetween(40, 80, policy.delay(3));
+			assertBetween(50, 100, policy.delay(10));
+			assertBetween(50, 100, policy.delay(40));
+		}
+	}
+
+	@Test
+	public void onlyTransientErrorsAreRetried() {
+		BaseConfiguration conf = new BaseConfiguration();
+		conf.setProperty(DB.KEY_NAME, "sqlErrorsTestRetry");
+		conf.setProperty(DB.KEY_RETRY_ATTEMPTS, "2");
+		conf.setProperty(DB.KEY_RETRY_DELAY, "0");
+		RetryPolicy policy = RetryPolicy.get(conf);
+
+		assertFalse(policy.retry(new SQLException("x", "42000"), 1, true));
+		assertTrue(policy.retry(new SQLException("x", "40001"), 1, false));
+		assertFalse(policy.retry(new SQLException("x", "40001"), 2, false));
+
+		// Dopo una perdita di connessione l'esito di una scrittura non e' noto
+		assertFalse(policy.retry(new SQLException("x", "08S01"), 1, false));
+		assertTrue(policy.retry(new SQLException("x", "08S01"), 1, true));
+
+		assertEquals(1, policy.getDeadlockRetries());
+		assertEquals(1, policy.getConnectionRetries());
+		assertEquals(1, policy.getExhausted());
+	}
+
+	private static void assertBetween(long min, long max, long value) {
+		assertTrue(value + " non compreso tra " + min + " e " + max, value >= min && value <= max);
+	}
+}
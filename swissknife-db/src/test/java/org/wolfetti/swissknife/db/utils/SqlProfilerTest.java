@@ -0,0 +1,194 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wolfetti.swissknife.common.SKConstants.CONF.DB;
+import org.wolfetti.swissknife.db.DbConnector;
+import org.wolfetti.swissknife.db.TestDatabase;
+import org.wolfetti.swissknife.db.dao.PropertyFileDAO;
+import org.wolfetti.swissknife.db.entities.SlowQuery;
+import org.wolfetti.swissknife.db.entities.SqlStats;
+import org.wolfetti.swissknife.db.exceptions.SqlQueryException;
+
+/**
+ * Test della profilazione delle query.
+ *
+ * @author Fabio Frijo
+ */
+public class SqlProfilerTest {
+	private static int counter;
+
+	private SqlProfiler profiler;
+
+	private DbConnector connector;
+
+	@Before
+	public void setUp() {
+		BaseConfiguration conf = TestDatabase.configuration("profiler" + (counter++));
+		conf.setProperty(DB.KEY_PROFILING, "true");
+		conf.setProperty(DB.KEY_SLOW_QUERY_MILLIS, "60000");
+
+		this.connector = TestDatabase.open(conf, false);
+		this.profiler = SqlProfiler.get();
+		this.profiler.reset();
+	}
+
+	@After
+	public void tearDown() {
+		this.connector.close();
+		this.profiler.setSlowQueryMillis(SqlProfiler.DEFAULT_SLOW_QUERY_MILLIS);
+		this.profiler.reset();
+	}
+
+	@Test
+	public void daoQueriesAreLabelledByKey()
+	throws Exception {
+		assertTrue(SqlProfiler.isActive());
+
+		PropertyFileDAO dao = new PropertyFileDAO("profile.properties", this.connector);
+		dao.write("create");
+		dao.write("insert", "Mario", 30);
+		dao.write("insert", "Luigi", 12);
+		dao.getList("tutte");
+
+		for(boolean bind : new boolean[]{false, true}){
+			dao.setBindParameters(bind);
+			dao.write("insert", "Anna", 40);
+		}
+
+		SqlStats insert = this.profiler.getStats("profile.properties:insert");
+		assertEquals(4, insert.getCount());
+		assertEquals(4, insert.getRows());
+		assertEquals(0, insert.getErrors());
+		assertTrue(insert.getP99Millis() <= insert.getMaxMillis());
+
+		SqlStats select = this.profiler.getStats("profile.properties:tutte");
+		assertEquals(1, select.getCount());
+		assertEquals(2, select.getRows());
+
+		assertEquals(6, this.profiler.getExecutions());
+	}
+
+	@Test
+	public void otherQueriesAreNormalized()
+	throws Exception {
+		this.connector.write("CREATE TABLE t (id INT, nome VARCHAR(10))");
+		this.connector.write("INSERT INTO t VALUES (1, 'a')");
+		this.connector.write("INSERT INTO t   VALUES (2, 'b')");
+
+		SqlStats insert = this.profiler.getStats("INSERT INTO t VALUES (?, ?)");
+		assertNotNull(insert);
+		assertEquals(2, insert.getCount());
+	}
+
+	@Test
+	public void errorsAreCounted()
+	throws Exception {
+		try {
+			this.connector.query("SELECT * FROM inesistente");
+			fail();
+		} catch (SqlQueryException e) {
+			// Atteso
+		}
+
+		assertEquals(1, this.profiler.getErrors());
+		assertEquals(1, this.profiler.getStats("SELECT * FROM inesistente").getErrors());
+		assertTrue(this.profiler.topByErrors(1)[0].contains("SELECT * FROM inesistente"));
+	}
+
+	@Test
+	public void slowQueriesAreLogged()
+	throws Exception {
+		this.profiler.setSlowQueryMillis(0);
+		this.connector.preparedQuery("SELECT ? FROM DUAL", "parametro").close();
+
+		List<SlowQuery> slow = this.profiler.getSlowQueryList();
+		assertEquals(1, slow.size());
+		assertEquals("SELECT ? FROM DUAL", slow.get(0).getSql());
+		assertTrue(slow.get(0).getParameters().contains("parametro"));
+		assertEquals(1, this.profiler.getSlowQueryLog().length);
+	}
+
+	@Test
+	public void disabledConnectorsAreNotProfiled()
+	throws Exception {
+		DbConnector plain = TestDatabase.open("profiler" + (counter++), false);
+
+		try {
+			plain.query("SELECT 1 FROM DUAL").close();
+		} finally {
+			plain.close();
+		}
+
+		assertEquals(0, this.profiler.getExecutions());
+		assertNull(this.profiler.getStats("SELECT ? FROM DUAL"));
+	}
+
+	@Test
+	public void resetClearsEverything()
+	throws Exception {
+		this.profiler.setSlowQueryMillis(0);
+		this.connector.query("SELECT 1 FROM DUAL").close();
+		this.profiler.reset();
+
+		assertEquals(0, this.profiler.getExecutions());
+		assertEquals(0, this.profiler.getSlowQueries());
+		assertTrue(this.profiler.getStats().isEmpty());
+		assertEquals(0, this.profiler.getSlowQueryLog().length);
+	}
+
+	@Test
+	public void registeredAsMBean()
+	throws Exception {
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(SqlProfiler.OBJECT_NAME)));
+	}
+
+	@Test
+	public void histogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		for(int i = 1; i <= 100; i++){
+			histogram.record(i * 1000000L);
+		}
+
+		long[] snapshot = histogram.snapshot();
+		long p50 = LatencyHistogram.percentile(snapshot, 50);
+		long p99 = LatencyHistogram.percentile(snapshot, 99);
+
+		// Il limite superiore del bucket ha un errore relativo massimo del 25%
+		assertTrue(p50 >= 50000 && p50 <= 62500);
+		assertTrue(p99 >= 99000 && p99 <= 123750);
+		assertEquals(0, LatencyHistogram.percentile(new LatencyHistogram().snapshot(), 99));
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright(c) 2013 Fabio Frijo.
+ *
+ * This file is part of swissknife-db.
+ *
+ * swissknife-db is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * swissknife-db is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with swissknife-db.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.wolfetti.swissknife.db.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.wolfetti.swissknife.common.utils.exceptions.StringFormatException;
+
+/**
+ * Test della compilazione delle query del file SQL in {@link SqlTemplate}.
+ *
+ * @author Fabio Frijo
+ */
+public class SqlTemplateTest {
+
+	@Test
+	public void placeholdersBecomeParameters() {
+		SqlTemplate template = SqlTemplate.compile("SELECT * FROM persone WHERE id = {0} AND nome = '{1}'");
+
+		assertTrue(template.isBindable());
+		assertEquals("SELECT * FROM persone WHERE id = ? AND nome = ?", template.getSql());
+		assertEquals(2, template.getParameterCount());
+		assertArrayEquals(new Object[]{5, "Mario"}, template.getParameters(5, "Mario"));
+	}
+
+	@Test
+	public void parametersFollowPlaceholderOrder() {
+		SqlTemplate template = SqlTemplate.compile("UPDATE persone SET nome = '{1}', alias = '{1}' WHERE id = {0}");
+
+		assertEquals("UPDATE persone SET nome = ?, alias = ? WHERE id = ?", template.getSql());
+		assertArrayEquals(new Object[]{"Mario", "Mario", 5}, template.getParameters(5, "Mario"));
+	}
+
+	@Test
+	public void placeholderInsideLongerStringIsNotBindable() {
+		SqlTemplate template = SqlTemplate.compile("SELECT * FROM persone WHERE nome LIKE '%{0}%'");
+
+		assertFalse(template.isBindable());
+		assertEquals("SELECT * FROM persone WHERE nome LIKE '%Mario%'", template.format("Mario"));
+	}
+
+	@Test
+	public void referenceIsNotBindable() {
+		assertFalse(SqlTemplate.compile("SELECT * FROM (${elenco}) t WHERE id = {0}").isBindable());
+	}
+
+	@Test
+	public void formatMatchesSqlFormatter() {
+		String[] sqls = {
+			"SELECT * FROM persone WHERE id = {0} AND nome = '{1}'",
+			"INSERT INTO persone (id, nome, note) VALUES ({0}, '{1}', '{2}')",
+			"SELECT * FROM persone WHERE nome LIKE '%{1}%' AND id > {0}"
+		};
+
+		for(String sql : sqls){
+			Object[] values = {7, "D'Angelo", null};
+			assertEquals(sql, SqlFormatter.format(sql, values.clone()), SqlTemplate.compile(sql).format(values.clone()));
+		}
+	}
+
+	@Test
+	public void nullInQuotedPlaceholderIsWrittenWithoutQuotes() {
+		SqlTemplate template = SqlTemplate.compile("UPDATE persone SET nome = '{1}' WHERE id = {0}");
+
+		assertEquals("UPDATE persone SET nome = null WHERE id = 3", template.format(3, null));
+	}
+
+	@Test
+	public void compilationIsNotCached() {
+		String sql = "SELECT * FROM persone WHERE id = {0}";
+
+		assertNotSame(SqlTemplate.compile(sql), SqlTemplate.compile(sql));
+		assertEquals(SqlTemplate.compile(sql).getSql(), SqlTemplate.compile(sql).getSql());
+	}
+
+	@Test(expected = StringFormatException.class)
+	public void missingValueIsRejected() {
+		SqlTemplate.compile("SELECT * FROM persone WHERE id = {0} AND eta > {1}").getParameters(1);
+	}
+
+	@Test(expected = StringFormatException.class)
+	public void emptySqlIsRejected() {
+		SqlTemplate.compile("");
+	}
+}